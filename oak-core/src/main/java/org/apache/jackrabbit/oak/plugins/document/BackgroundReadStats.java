@@ -24,12 +24,15 @@ import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
 class BackgroundReadStats {
     CacheInvalidationStats cacheStats;
     long readHead;
+    long readJournal;
+    long numJournalEntries;
     long cacheInvalidationTime;
     long populateDiffCache;
     long lock;
     long dispatchChanges;
     long totalReadTime;
     long numExternalChanges;
+    long numChunks;
 
     @Override
     public String toString() {
@@ -40,11 +43,14 @@ class BackgroundReadStats {
         return  "ReadStats{" +
                 "cacheStats:" + cacheStatsMsg +
                 ", head:" + readHead +
+                ", journal:" + readJournal +
+                ", numJournalEntries:" + numJournalEntries +
                 ", cache:" + cacheInvalidationTime +
                 ", diff: " + populateDiffCache +
                 ", lock:" + lock +
                 ", dispatch:" + dispatchChanges +
                 ", numExternalChanges:" + numExternalChanges +
+                ", numChunks:" + numChunks +
                 ", totalReadTime:" + totalReadTime +
                 '}';
     }
@@ -28,6 +28,9 @@ class BackgroundWriteStats {
     long write;
     long num;
     long calls;
+    long batchSize;
+    long queueDepth;
+    long flushLag;
     long totalWriteTime;
 
     @Override
@@ -39,6 +42,9 @@ class BackgroundWriteStats {
                 ", write:" + write +
                 ", num:" + num +
                 ", calls:" + calls +
+                ", batchSize:" + batchSize +
+                ", queueDepth:" + queueDepth +
+                ", flushLag:" + flushLag +
                 ", totalWriteTime:" + totalWriteTime;
     }
 }
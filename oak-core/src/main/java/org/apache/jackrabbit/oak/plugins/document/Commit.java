@@ -337,7 +337,7 @@ public class Commit {
         boolean success = false;
         try {
             opLog.addAll(changedNodes);
-            List<NodeDocument> oldDocs = store.createOrUpdate(NODES, changedNodes);
+            List<NodeDocument> oldDocs = nodeStore.createOrUpdateNodes(changedNodes);
             checkConflicts(oldDocs, changedNodes);
             checkSplitCandidate(oldDocs);
 
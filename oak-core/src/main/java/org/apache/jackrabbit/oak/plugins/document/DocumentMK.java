@@ -569,6 +569,7 @@ public class DocumentMK {
         private boolean isReadOnlyMode = false;
         private Weigher<CacheValue, CacheValue> weigher = new EmpiricalWeigher();
         private long memoryCacheSize = DEFAULT_MEMORY_CACHE_SIZE;
+        private long offHeapCacheSize;
         private int nodeCachePercentage = DEFAULT_NODE_CACHE_PERCENTAGE;
         private int prevDocCachePercentage = DEFAULT_PREV_DOC_CACHE_PERCENTAGE;
         private int childrenCachePercentage = DEFAULT_CHILDREN_CACHE_PERCENTAGE;
@@ -579,6 +580,9 @@ public class DocumentMK {
         private long maxReplicationLagMillis = TimeUnit.HOURS.toMillis(6);
         private boolean disableBranches;
         private boolean prefetchExternalChanges;
+        private boolean groupCommit;
+        private boolean sharedDiffCache;
+        private int externalChangesChunkSize = Integer.getInteger("oak.documentMK.externalChangesChunkSize", 0);
         private Clock clock = Clock.SIMPLE;
         private Executor executor;
         private String persistentCacheURI = DEFAULT_PERSISTENT_CACHE_URI;
@@ -593,6 +597,8 @@ public class DocumentMK {
         private DocumentNodeStoreStatsCollector nodeStoreStatsCollector;
         private Map<CacheType, PersistentCacheStats> persistentCacheStats =
                 new EnumMap<CacheType, PersistentCacheStats>(CacheType.class);
+        private Map<CacheType, PersistentCacheStats> offHeapCacheStats =
+                new EnumMap<CacheType, PersistentCacheStats>(CacheType.class);
         private boolean bundlingDisabled;
         private JournalPropertyHandlerFactory journalPropertyHandlerFactory =
                 new JournalPropertyHandlerFactory();
@@ -956,6 +962,26 @@ public class DocumentMK {
             return this;
         }
 
+        /**
+         * Set the size of the off-heap tier of the node, children, diff and
+         * previous document caches. Entries evicted from those heap caches
+         * are kept serialized in off-heap memory. The size is distributed
+         * among the caches like the memory cache size. The default is zero,
+         * which disables the off-heap tier.
+         *
+         * @param offHeapCacheSize the off-heap cache size in bytes.
+         * @return this
+         */
+        public Builder offHeapCacheSize(long offHeapCacheSize) {
+            checkArgument(offHeapCacheSize >= 0);
+            this.offHeapCacheSize = offHeapCacheSize;
+            return this;
+        }
+
+        public long getOffHeapCacheSize() {
+            return offHeapCacheSize;
+        }
+
         public Builder memoryCacheDistribution(int nodeCachePercentage,
                                                int prevDocCachePercentage,
                                                int childrenCachePercentage,
@@ -1065,6 +1091,11 @@ public class DocumentMK {
             return persistentCacheStats;
         }
 
+        @Nonnull
+        public Map<CacheType, PersistentCacheStats> getOffHeapCacheStats() {
+            return offHeapCacheStats;
+        }
+
         @CheckForNull
         public BlobStoreStats getBlobStoreStats() {
             return blobStoreStats;
@@ -1115,6 +1146,63 @@ public class DocumentMK {
             return prefetchExternalChanges;
         }
 
+        /**
+         * Enables or disables group commits. When enabled, the changes of
+         * concurrent commits are written to the document store with shared
+         * calls.
+         *
+         * @param b whether group commits are enabled.
+         * @return this
+         */
+        public Builder setGroupCommit(boolean b) {
+            groupCommit = b;
+            return this;
+        }
+
+        public boolean isGroupCommit() {
+            return groupCommit;
+        }
+
+        /**
+         * Enables or disables the shared diff cache. When enabled, the
+         * changes of local commits are put into the diff cache with keys
+         * other cluster nodes can look up for the corresponding external
+         * change. The entries are only distributed to other cluster nodes
+         * when the persistent cache is configured with broadcast.
+         *
+         * @param b whether the shared diff cache is enabled.
+         * @return this
+         */
+        public Builder setSharedDiffCache(boolean b) {
+            sharedDiffCache = b;
+            return this;
+        }
+
+        public boolean isSharedDiffCache() {
+            return sharedDiffCache;
+        }
+
+        /**
+         * Sets the number of changed paths after which a background read
+         * applies the external changes read so far. When set, journal
+         * entries are processed in revision order and a large backlog of
+         * external changes is applied in multiple steps, which bounds the
+         * memory used by a background read. Zero (the default) applies all
+         * external changes at once.
+         *
+         * @param chunkSize the number of changed paths per step or zero.
+         * @return this
+         */
+        public Builder setExternalChangesChunkSize(int chunkSize) {
+            checkArgument(chunkSize >= 0, "chunkSize must not be negative");
+            externalChangesChunkSize = chunkSize;
+            return this;
+        }
+
+        public int getExternalChangesChunkSize() {
+            return externalChangesChunkSize;
+        }
+
         public Builder setJournalPropertyHandlerFactory(JournalPropertyHandlerFactory factory) {
             journalPropertyHandlerFactory = factory;
             return this;
@@ -1239,6 +1327,19 @@ public class DocumentMK {
                 ) {
             Set<EvictionListener<K, V>> listeners = new CopyOnWriteArraySet<EvictionListener<K,V>>();
             Cache<K, V> cache = buildCache(cacheType.name(), maxWeight, listeners);
+            if (offHeapCacheSize > 0 && memoryCacheSize > 0) {
+                // distribute the off-heap size like the memory cache size
+                long maxMemory = (long) ((double) offHeapCacheSize * maxWeight / memoryCacheSize);
+                cache = PersistentCache.wrapOffHeap(docNodeStore, docStore,
+                        cache, cacheType, maxMemory, statisticsProvider);
+                if (cache instanceof EvictionListener) {
+                    listeners.add((EvictionListener<K, V>) cache);
+                }
+                PersistentCacheStats stats = PersistentCache.getPersistentCacheStats(cache);
+                if (stats != null) {
+                    offHeapCacheStats.put(cacheType, stats);
+                }
+            }
             PersistentCache p = null;
             if (cacheType == CacheType.DIFF || cacheType == CacheType.LOCAL_DIFF) {
                 // use separate journal cache if configured
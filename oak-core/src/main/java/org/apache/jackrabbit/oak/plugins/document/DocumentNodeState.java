@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.oak.plugins.document;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -44,6 +45,7 @@ import org.apache.jackrabbit.oak.json.JsonSerializer;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlorUtils;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.DocumentBundlor;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.Matcher;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.DataTypeUtil;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeBuilder;
@@ -51,6 +53,8 @@ import org.apache.jackrabbit.oak.spi.state.AbstractChildNodeEntry;
 import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
@@ -602,6 +606,54 @@ public class DocumentNodeState extends AbstractDocumentNodeState implements Cach
         return new DocumentNodeState(store, path, rootRev, props, hasChildren, lastRev);
     }
 
+    /**
+     * Writes this node state in the compact binary format of the persistent
+     * cache. Property values are written in their serialized form and only
+     * parsed when accessed after reading.
+     *
+     * @param buff the buffer to write to.
+     */
+    public void writeTo(WriteBuffer buff) {
+        DataTypeUtil.stringToBuffer(path, buff);
+        DataTypeUtil.revisionVectorToBuffer(rootRevision, buff);
+        buff.put((byte) ((lastRevision != null ? 1 : 0) | (hasChildren ? 2 : 0)));
+        if (lastRevision != null) {
+            DataTypeUtil.revisionVectorToBuffer(lastRevision, buff);
+        }
+        Map<String, PropertyState> allProperties = properties.isEmpty() ?
+                Collections.<String, PropertyState>emptyMap() : bundlingContext.getAllProperties();
+        buff.putVarInt(allProperties.size());
+        for (Map.Entry<String, PropertyState> e : allProperties.entrySet()) {
+            DataTypeUtil.nameToBuffer(e.getKey(), buff);
+            DataTypeUtil.stringToBuffer(asString(e.getValue()), buff);
+        }
+    }
+
+    /**
+     * Reads a node state written with {@link #writeTo(WriteBuffer)}.
+     *
+     * @param store the node store.
+     * @param buff the buffer to read from.
+     * @return the node state.
+     */
+    public static DocumentNodeState fromBuffer(DocumentNodeStore store, ByteBuffer buff) {
+        String path = DataTypeUtil.stringFromBuffer(buff);
+        RevisionVector rootRev = DataTypeUtil.revisionVectorFromBuffer(buff);
+        int flags = buff.get();
+        RevisionVector lastRev = null;
+        if ((flags & 1) != 0) {
+            lastRev = DataTypeUtil.revisionVectorFromBuffer(buff);
+        }
+        boolean hasChildren = (flags & 2) != 0;
+        int count = DataUtils.readVarInt(buff);
+        List<PropertyState> props = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            String name = DataTypeUtil.nameFromBuffer(buff);
+            props.add(store.createPropertyState(name, DataTypeUtil.stringFromBuffer(buff)));
+        }
+        return new DocumentNodeState(store, path, rootRev, props, hasChildren, lastRev);
+    }
+
     /**
      * A list of children for a node.
      */
@@ -683,6 +735,37 @@ public class DocumentNodeState extends AbstractDocumentNodeState implements Cach
             }
             return children;            
         }
+
+        /**
+         * Writes this list of children in the compact binary format of the
+         * persistent cache.
+         *
+         * @param buff the buffer to write to.
+         */
+        public void writeTo(WriteBuffer buff) {
+            buff.put((byte) (hasMore ? 1 : 0));
+            buff.putVarInt(children.size());
+            for (String c : children) {
+                DataTypeUtil.stringToBuffer(c, buff);
+            }
+        }
+
+        /**
+         * Reads a list of children written with {@link #writeTo(WriteBuffer)}.
+         *
+         * @param buff the buffer to read from.
+         * @return the list of children.
+         */
+        public static Children fromBuffer(ByteBuffer buff) {
+            Children children = new Children();
+            children.hasMore = buff.get() != 0;
+            int count = DataUtils.readVarInt(buff);
+            children.children.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                children.children.add(DataTypeUtil.stringFromBuffer(buff));
+            }
+            return children;
+        }
         
     }
 
@@ -108,6 +108,7 @@ import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.json.BlobSerializer;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.LeaseCheckDocumentStoreWrapper;
 import org.apache.jackrabbit.oak.plugins.document.util.LoggingDocumentStoreWrapper;
 import org.apache.jackrabbit.oak.plugins.document.util.TimingDocumentStoreWrapper;
@@ -156,6 +157,13 @@ public final class DocumentNodeStore
      */
     static final int NUM_CHILDREN_CACHE_LIMIT = Integer.getInteger("oak.documentMK.childrenCacheLimit", 16 * 1024);
 
+    /**
+     * Number of child documents fetched at once when reading more child
+     * nodes than {@link DocumentNodeState#MAX_FETCH_SIZE} (plus one to detect
+     * whether there are more).
+     */
+    private static final int READ_CHILDREN_BATCH_SIZE = DocumentNodeState.MAX_FETCH_SIZE + 1;
+
     /**
      * List of meta properties which are created by DocumentNodeStore and which needs to be
      * retained in any cloned copy of DocumentNodeState.
@@ -226,6 +234,11 @@ public final class DocumentNodeStore
      */
     private final BatchCommitQueue batchCommitQueue;
 
+    /**
+     * Queue for group commits or {@code null} if disabled.
+     */
+    private final GroupCommitQueue groupCommitQueue;
+
     /**
      * The change dispatcher for this node store.
      */
@@ -248,6 +261,12 @@ public final class DocumentNodeStore
 
     private int changeSetMaxDepth =  Integer.getInteger("oak.document.changeSet.maxDepth", 9);
 
+    /**
+     * The number of changed paths after which external changes are applied
+     * during a background read, or zero if they are applied all at once.
+     */
+    private int externalChangesChunkSize;
+
     /**
      * Whether this instance is disposed.
      */
@@ -293,6 +312,11 @@ public final class DocumentNodeStore
      */
     private final Map<String, String> splitCandidates = Maps.newConcurrentMap();
 
+    /**
+     * Number of split candidates read with a single call to the store.
+     */
+    private static final int SPLIT_CANDIDATES_BATCH_SIZE = 100;
+
     /**
      * Summary of changes done by this cluster node to persist by the background
      * update thread.
@@ -656,11 +680,13 @@ public final class DocumentNodeStore
         branches.init(store, this);
 
         dispatcher = builder.isPrefetchExternalChanges() ?
-                new PrefetchDispatcher(getRoot(), executor) :
+                new PrefetchDispatcher(getRoot(), executor, store) :
                 new ChangeDispatcher(getRoot());
         commitQueue = new CommitQueue(this);
         String threadNamePostfix = "(" + clusterId + ")";
         batchCommitQueue = new BatchCommitQueue(store);
+        groupCommitQueue = builder.isGroupCommit() ? new GroupCommitQueue(store) : null;
+        externalChangesChunkSize = builder.getExternalChangesChunkSize();
         // prepare background threads
         backgroundReadThread = new Thread(
                 new BackgroundReadOperation(this, isDisposed),
@@ -852,6 +878,14 @@ public final class DocumentNodeStore
         return store;
     }
 
+    /**
+     * @return the executor for background tasks of this node store.
+     */
+    @Nonnull
+    Executor getExecutor() {
+        return executor;
+    }
+
     /**
      * Creates a new commit. The caller must acknowledge the commit either with
      * {@link #done(Commit, boolean, CommitInfo)} or {@link #canceled(Commit)},
@@ -999,6 +1033,14 @@ public final class DocumentNodeStore
         this.changeSetMaxDepth = changeSetMaxDepth;
     }
 
+    int getExternalChangesChunkSize() {
+        return externalChangesChunkSize;
+    }
+
+    void setExternalChangesChunkSize(int externalChangesChunkSize) {
+        this.externalChangesChunkSize = externalChangesChunkSize;
+    }
+
     void setEnableConcurrentAddRemove(boolean b) {
         enableConcurrentAddRemove = b;
     }
@@ -1192,6 +1234,9 @@ public final class DocumentNodeStore
         // this gives us a chance to detect whether there are more
         // child nodes than requested.
         int rawLimit = (int) Math.min(Integer.MAX_VALUE, ((long) limit) + 1);
+        if (rawLimit > READ_CHILDREN_BATCH_SIZE) {
+            return readManyChildren(parent, name, limit);
+        }
         for (;;) {
             docs = readChildDocs(path, name, rawLimit);
             int numReturned = 0;
@@ -1230,6 +1275,83 @@ public final class DocumentNodeStore
         }
     }
 
+    /**
+     * Like {@link #readChildren(AbstractDocumentNodeState, String, int)}, but
+     * streams the child documents with
+     * {@link DocumentStore#queryAsIterable(Collection, String, String, int)}
+     * instead of reading up to {@code limit} documents at once and repeating
+     * the query when some of them are deleted. Reads of that many children
+     * would not benefit from the document cache anyway, so the state of the
+     * children is computed from the streamed documents directly.
+     *
+     * @param parent the parent node.
+     * @param name the name of the lower bound child node (exclusive) or
+     *              {@code null} if no lower bound is given.
+     * @param limit the maximum number of child nodes to return.
+     * @return the children of {@code parent}.
+     */
+    private DocumentNodeState.Children readManyChildren(AbstractDocumentNodeState parent,
+                                                        String name, int limit) {
+        String path = parent.getPath();
+        RevisionVector rev = parent.getLastRevision();
+        String from = name != null ? Utils.getIdFromPath(concat(path, name)) : Utils.getKeyLowerLimit(path);
+        DocumentNodeState.Children c = new DocumentNodeState.Children();
+        CloseableIterable<NodeDocument> docs = store.queryAsIterable(Collection.NODES, from,
+                Utils.getKeyUpperLimit(path), READ_CHILDREN_BATCH_SIZE);
+        try {
+            for (NodeDocument doc : docs) {
+                // filter out deleted children
+                DocumentNodeState child = getNode(doc, rev);
+                if (child == null) {
+                    continue;
+                }
+                if (c.children.size() < limit) {
+                    c.children.add(Utils.unshareString(PathUtils.getName(doc.getPath())));
+                } else {
+                    // enough collected and we know there are more
+                    c.hasMore = true;
+                    return c;
+                }
+            }
+        } finally {
+            Utils.closeIfCloseable(docs);
+        }
+        c.hasMore = false;
+        if (name == null) {
+            // complete list, can be sorted
+            Collections.sort(c.children);
+        }
+        return c;
+    }
+
+    /**
+     * Like {@link #getNode(String, RevisionVector)}, but reads the node from
+     * the given document instead of the store when it is not cached.
+     */
+    @CheckForNull
+    private DocumentNodeState getNode(@Nonnull final NodeDocument doc,
+                                      @Nonnull final RevisionVector rev) {
+        final String path = doc.getPath();
+        try {
+            DocumentNodeState node = nodeCache.get(new PathRev(path, rev), new Callable<DocumentNodeState>() {
+                @Override
+                public DocumentNodeState call() throws Exception {
+                    Revision lastRevision = getPendingModifications().get(path);
+                    DocumentNodeState n = doc.getNodeAtRevision(DocumentNodeStore.this, rev, lastRevision);
+                    if (n == null) {
+                        n = missing;
+                    }
+                    return n;
+                }
+            });
+            return node == missing || node.equals(missing) ? null : node;
+        } catch (UncheckedExecutionException e) {
+            throw DocumentStoreException.convert(e.getCause());
+        } catch (ExecutionException e) {
+            throw DocumentStoreException.convert(e.getCause());
+        }
+    }
+
     /**
      * Returns the child documents at the given {@code path} and returns up to
      * {@code limit} documents. The returned child documents are sorted in
@@ -1530,6 +1652,25 @@ public final class DocumentNodeStore
         throw e;
     }
 
+    /**
+     * Creates or updates the documents changed by a commit. With group
+     * commits enabled, the operations may be written together with the
+     * operations of concurrent commits.
+     *
+     * @param changes the update operations of a commit.
+     * @return the documents before the update, in the order of the
+     *          operations.
+     * @throws DocumentStoreException if the operation failed.
+     */
+    @Nonnull
+    List<NodeDocument> createOrUpdateNodes(@Nonnull List<UpdateOp> changes)
+            throws DocumentStoreException {
+        if (groupCommitQueue != null) {
+            return groupCommitQueue.createOrUpdate(changes);
+        }
+        return store.createOrUpdate(NODES, changes);
+    }
+
     private NodeDocument batchUpdateCommitRoot(UpdateOp commit)
             throws DocumentStoreException {
         try {
@@ -2163,7 +2304,7 @@ public final class DocumentNodeStore
                 // make sure no local commit is in progress
                 backgroundOperationLock.writeLock().lock();
                 try {
-                    stats.lock = clock.getTime() - time;
+                    stats.lock += clock.getTime() - time;
 
                     RevisionVector oldHead = getHeadRevision();
                     RevisionVector newHead = oldHead;
@@ -2186,9 +2327,12 @@ public final class DocumentNodeStore
                             LOG.error("backgroundRead: Exception while processing external changes from journal: " + e1, e1);
                         }
                     }
-                    stats.populateDiffCache = clock.getTime() - time;
+                    stats.populateDiffCache += clock.getTime() - time;
                     time = clock.getTime();
 
+                    if (changedPaths != null && dispatcher instanceof PrefetchDispatcher) {
+                        ((PrefetchDispatcher) dispatcher).setExternalChanges(changedPaths);
+                    }
                     ChangeSet changeSet = getChangeSetBuilder().build();
                     LOG.debug("Dispatching external change with ChangeSet {}", changeSet);
                     dispatcher.contentChanged(getRoot().fromExternalChange(),
@@ -2196,7 +2340,7 @@ public final class DocumentNodeStore
                 } finally {
                     backgroundOperationLock.writeLock().unlock();
                 }
-                stats.dispatchChanges = clock.getTime() - time;
+                stats.dispatchChanges += clock.getTime() - time;
             }
         }.process();
     }
@@ -2265,32 +2409,41 @@ public final class DocumentNodeStore
 
     private void backgroundSplit() {
         RevisionVector head = getHeadRevision();
-        for (Iterator<String> it = splitCandidates.keySet().iterator(); it.hasNext();) {
-            String id = it.next();
-            NodeDocument doc = store.find(Collection.NODES, id);
-            if (doc == null) {
-                continue;
+        for (List<String> ids : Iterables.partition(splitCandidates.keySet(), SPLIT_CANDIDATES_BATCH_SIZE)) {
+            // read the split candidates with a single call to the store
+            Map<String, NodeDocument> docs = Maps.newHashMap();
+            for (NodeDocument doc : store.find(Collection.NODES, ids)) {
+                docs.put(doc.getId(), doc);
             }
-            for (UpdateOp op : doc.split(this, head, binarySize)) {
-                NodeDocument before = null;
-                if (!op.isNew() ||
-                        !store.create(Collection.NODES, Collections.singletonList(op))) {
-                    before = store.createOrUpdate(Collection.NODES, op);
-                }
-                if (before != null) {
-                    if (LOG.isDebugEnabled()) {
-                        NodeDocument after = store.find(Collection.NODES, op.getId());
-                        if (after != null) {
-                            LOG.debug("Split operation on {}. Size before: {}, after: {}",
-                                    id, before.getMemory(), after.getMemory());
-                        }
+            for (String id : ids) {
+                backgroundSplit(id, docs.get(id), head);
+            }
+        }
+    }
+
+    private void backgroundSplit(String id, NodeDocument doc, RevisionVector head) {
+        if (doc == null) {
+            return;
+        }
+        for (UpdateOp op : doc.split(this, head, binarySize)) {
+            NodeDocument before = null;
+            if (!op.isNew() ||
+                    !store.create(Collection.NODES, Collections.singletonList(op))) {
+                before = store.createOrUpdate(Collection.NODES, op);
+            }
+            if (before != null) {
+                if (LOG.isDebugEnabled()) {
+                    NodeDocument after = store.find(Collection.NODES, op.getId());
+                    if (after != null) {
+                        LOG.debug("Split operation on {}. Size before: {}, after: {}",
+                                id, before.getMemory(), after.getMemory());
                     }
-                } else {
-                    LOG.debug("Split operation created {}", op.getId());
                 }
+            } else {
+                LOG.debug("Split operation created {}", op.getId());
             }
-            it.remove();
         }
+        splitCandidates.remove(id);
     }
 
     @Nonnull
@@ -2317,7 +2470,7 @@ public final class DocumentNodeStore
             public void acquiring(Revision mostRecent) {
                 pushJournalEntry(mostRecent);
             }
-        }, backgroundOperationLock.writeLock());
+        }, backgroundOperationLock.writeLock(), executor);
     }
 
     private void maybeRefreshHeadRevision() {
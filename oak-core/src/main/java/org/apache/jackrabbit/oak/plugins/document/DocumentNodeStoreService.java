@@ -180,6 +180,14 @@ public class DocumentNodeStoreService {
     )
     private static final String PROP_CACHE = "cache";
 
+    @Property(intValue = 0,
+            label = "Off-Heap Cache Size (in MB)",
+            description = "Size in MB of the off-heap tier for entries evicted from the node, " +
+                    "children, diff and previous document caches. This is distributed among " +
+                    "the caches like the cache size. The default is 0, which disables the off-heap tier"
+    )
+    private static final String PROP_OFF_HEAP_CACHE = "offHeapCache";
+
     @Property(intValue = DEFAULT_NODE_CACHE_PERCENTAGE,
             label = "NodeState Cache",
             description = "Percentage of cache to be allocated towards Node cache"
@@ -273,6 +281,30 @@ public class DocumentNodeStoreService {
     )
     public static final String PROP_PREFETCH_EXTERNAL_CHANGES = "prefetchExternalChanges";
 
+    @Property (boolValue = false,
+            label = "Group commits",
+            description = "Boolean value indicating if the changes of concurrent " +
+                    "commits should be written to the DocumentStore with shared calls."
+    )
+    public static final String PROP_GROUP_COMMIT = "groupCommit";
+
+    @Property (boolValue = false,
+            label = "Shared diff cache",
+            description = "Boolean value indicating if the changes of local commits " +
+                    "should be put into the diff cache for use by other cluster nodes. " +
+                    "Requires a persistent cache with broadcast to take effect."
+    )
+    public static final String PROP_SHARED_DIFF_CACHE = "sharedDiffCache";
+
+    @Property (intValue = 0,
+            label = "External changes chunk size",
+            description = "Number of changed paths after which a background read " +
+                    "applies the external changes read so far. Bounds the memory " +
+                    "used when catching up with a large backlog of external changes. " +
+                    "Zero applies all external changes at once."
+    )
+    public static final String PROP_EXTERNAL_CHANGES_CHUNK_SIZE = "externalChangesChunkSize";
+
     @Property(
             label = "NodeStoreProvider role",
             description = "Property indicating that this component will not register as a NodeStore but as a NodeStoreProvider with given role"
@@ -457,6 +489,7 @@ public class DocumentNodeStoreService {
         boolean soKeepAlive = PropertiesUtil.toBoolean(prop(PROP_SO_KEEP_ALIVE, FWK_PROP_SO_KEEP_ALIVE), DEFAULT_SO_KEEP_ALIVE);
 
         int cacheSize = toInteger(prop(PROP_CACHE), DEFAULT_CACHE);
+        int offHeapCacheSize = toInteger(prop(PROP_OFF_HEAP_CACHE), 0);
         int nodeCachePercentage = toInteger(prop(PROP_NODE_CACHE_PERCENTAGE), DEFAULT_NODE_CACHE_PERCENTAGE);
         int prevDocCachePercentage = toInteger(prop(PROP_PREV_DOC_CACHE_PERCENTAGE), DEFAULT_NODE_CACHE_PERCENTAGE);
         int childrenCachePercentage = toInteger(prop(PROP_CHILDREN_CACHE_PERCENTAGE), DEFAULT_CHILDREN_CACHE_PERCENTAGE);
@@ -468,11 +501,15 @@ public class DocumentNodeStoreService {
         int cacheStackMoveDistance = toInteger(prop(PROP_CACHE_STACK_MOVE_DISTANCE), DEFAULT_CACHE_STACK_MOVE_DISTANCE);
         boolean bundlingDisabled = toBoolean(prop(PROP_BUNDLING_DISABLED), DEFAULT_BUNDLING_DISABLED);
         boolean prefetchExternalChanges = toBoolean(prop(PROP_PREFETCH_EXTERNAL_CHANGES), false);
+        boolean groupCommit = toBoolean(prop(PROP_GROUP_COMMIT), false);
+        boolean sharedDiffCache = toBoolean(prop(PROP_SHARED_DIFF_CACHE), false);
+        int externalChangesChunkSize = toInteger(prop(PROP_EXTERNAL_CHANGES_CHUNK_SIZE), 0);
         int updateLimit = toInteger(prop(PROP_UPDATE_LIMIT), DocumentMK.UPDATE_LIMIT);
         DocumentMK.Builder mkBuilder =
                 new DocumentMK.Builder().
                 setStatisticsProvider(statisticsProvider).
                 memoryCacheSize(cacheSize * MB).
+                offHeapCacheSize(offHeapCacheSize * MB).
                 memoryCacheDistribution(
                         nodeCachePercentage,
                         prevDocCachePercentage,
@@ -505,6 +542,9 @@ public class DocumentNodeStoreService {
                     }
                 }).
                 setPrefetchExternalChanges(prefetchExternalChanges).
+                setGroupCommit(groupCommit).
+                setSharedDiffCache(sharedDiffCache).
+                setExternalChangesChunkSize(externalChangesChunkSize).
                 setUpdateLimit(updateLimit);
 
         if (!Strings.isNullOrEmpty(persistentCache)) {
@@ -890,6 +930,17 @@ public class DocumentNodeStoreService {
             );
         }
 
+        // register off-heap cache stats
+        for (PersistentCacheStats pcs: mkBuilder.getOffHeapCacheStats().values()) {
+            addRegistration(
+                    registerMBean(whiteboard,
+                            PersistentCacheStatsMBean.class,
+                            pcs,
+                            PersistentCacheStatsMBean.TYPE,
+                            pcs.getName())
+            );
+        }
+
 
         final long versionGcMaxAgeInSecs = toLong(prop(PROP_VER_GC_MAX_AGE), DEFAULT_VER_GC_MAX_AGE);
         final long blobGcMaxAgeInSecs = toLong(prop(PROP_BLOB_GC_MAX_AGE), DEFAULT_BLOB_GC_MAX_AGE);
@@ -29,6 +29,7 @@ import org.apache.jackrabbit.oak.stats.TimerStats;
 
 public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     private static final String BGR_READ_HEAD = "DOCUMENT_NS_BGR_READ_HEAD";
+    private static final String BGR_READ_JOURNAL = "DOCUMENT_NS_BGR_READ_JOURNAL";
     private static final String BGR_CACHE_INVALIDATE = "DOCUMENT_NS_BGR_CACHE_INVALIDATE";
     private static final String BGR_DIFF_CACHE = "DOCUMENT_NS_BGR_DIFF_CACHE";
     private static final String BGR_LOCK = "DOCUMENT_NS_BGR_LOCK";
@@ -36,6 +37,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     private static final String BGR_TOTAL_TIME = "DOCUMENT_NS_BGR_TOTAL_TIME";
     static final String BGR_NUM_CHANGES_RATE = "DOCUMENT_NS_BGR_NUM_CHANGES_RATE";
     private static final String BGR_NUM_CHANGES_HISTO = "DOCUMENT_NS_BGR_NUM_CHANGES_HISTO";
+    private static final String BGR_NUM_CHUNKS_HISTO = "DOCUMENT_NS_BGR_NUM_CHUNKS_HISTO";
 
     private static final String BGW_CLEAN = "DOCUMENT_NS_BGW_CLEAN";
     private static final String BGW_SPLIT = "DOCUMENT_NS_BGW_SPLIT";
@@ -44,6 +46,8 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     static final String BGW_NUM = "DOCUMENT_NS_BGW_NUM";
     static final String BGW_NUM_WRITES_RATE = "DOCUMENT_NS_BGW_NUM_WRITE_RATE";
     private static final String BGW_TOTAL = "DOCUMENT_NS_BGW_TOTAL_TIME";
+    private static final String BGW_QUEUE_DEPTH = "DOCUMENT_NS_BGW_QUEUE_DEPTH";
+    private static final String BGW_FLUSH_LAG = "DOCUMENT_NS_BGW_FLUSH_LAG";
 
     private static final String MERGE_SUCCESS_NUM_RETRY = "DOCUMENT_NS_MERGE_SUCCESS_RETRY";
     static final String MERGE_SUCCESS_COUNT = "DOCUMENT_NS_MERGE_SUCCESS_COUNT";
@@ -54,6 +58,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     static final String MERGE_FAILED_EXCLUSIVE = "DOCUMENT_NS_MERGE_FAILED_EXCLUSIVE";
 
     private final TimerStats readHead;
+    private final TimerStats readJournal;
     private final TimerStats readCacheInvalidate;
     private final TimerStats readDiffCache;
     private final TimerStats readLock;
@@ -61,6 +66,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     private final TimerStats readTotalTime;
     private final MeterStats numChangesRate;
     private final HistogramStats numChangesHisto;
+    private final HistogramStats numChunksHisto;
 
     private final TimerStats writeClean;
     private final TimerStats writeSplit;
@@ -69,6 +75,8 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     private final TimerStats writeWrite;
     private final TimerStats writeTotal;
     private final MeterStats numWritesRate;
+    private final HistogramStats writeQueueDepth;
+    private final TimerStats writeFlushLag;
 
     private final HistogramStats mergeSuccessRetries;
     private final MeterStats mergeSuccessRate;
@@ -81,6 +89,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
 
     public DocumentNodeStoreStats(StatisticsProvider sp) {
         readHead = sp.getTimer(BGR_READ_HEAD, StatsOptions.METRICS_ONLY);
+        readJournal = sp.getTimer(BGR_READ_JOURNAL, StatsOptions.METRICS_ONLY);
         readCacheInvalidate = sp.getTimer(BGR_CACHE_INVALIDATE, StatsOptions.METRICS_ONLY);
         readDiffCache = sp.getTimer(BGR_DIFF_CACHE, StatsOptions.METRICS_ONLY);
         readLock = sp.getTimer(BGR_LOCK, StatsOptions.METRICS_ONLY);
@@ -88,6 +97,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
         readTotalTime = sp.getTimer(BGR_TOTAL_TIME, StatsOptions.METRICS_ONLY);
         numChangesRate = sp.getMeter(BGR_NUM_CHANGES_RATE, StatsOptions.DEFAULT); //Enable time series
         numChangesHisto = sp.getHistogram(BGR_NUM_CHANGES_HISTO, StatsOptions.METRICS_ONLY);
+        numChunksHisto = sp.getHistogram(BGR_NUM_CHUNKS_HISTO, StatsOptions.METRICS_ONLY);
 
         writeClean = sp.getTimer(BGW_CLEAN, StatsOptions.METRICS_ONLY);
         writeSplit = sp.getTimer(BGW_SPLIT, StatsOptions.METRICS_ONLY);
@@ -96,6 +106,8 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
         writeTotal = sp.getTimer(BGW_TOTAL, StatsOptions.METRICS_ONLY);
         writeNum = sp.getHistogram(BGW_NUM, StatsOptions.METRICS_ONLY);
         numWritesRate = sp.getMeter(BGW_NUM_WRITES_RATE, StatsOptions.DEFAULT); //Enable time series
+        writeQueueDepth = sp.getHistogram(BGW_QUEUE_DEPTH, StatsOptions.METRICS_ONLY);
+        writeFlushLag = sp.getTimer(BGW_FLUSH_LAG, StatsOptions.METRICS_ONLY);
 
         mergeSuccessRetries = sp.getHistogram(MERGE_SUCCESS_NUM_RETRY, StatsOptions.METRICS_ONLY);
         mergeSuccessRate = sp.getMeter(MERGE_SUCCESS_COUNT, StatsOptions.DEFAULT); //Enable time series
@@ -109,6 +121,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     @Override
     public void doneBackgroundRead(BackgroundReadStats stats) {
         readHead.update(stats.readHead, TimeUnit.MILLISECONDS);
+        readJournal.update(stats.readJournal, TimeUnit.MILLISECONDS);
         readCacheInvalidate.update(stats.cacheInvalidationTime, TimeUnit.MILLISECONDS);
         readDiffCache.update(stats.populateDiffCache, TimeUnit.MILLISECONDS);
         readLock.update(stats.lock, TimeUnit.MILLISECONDS);
@@ -118,6 +131,7 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
         //Record rate of num of external changes pulled per second
         numChangesRate.mark(stats.numExternalChanges);
         numChangesHisto.update(stats.numExternalChanges);
+        numChunksHisto.update(stats.numChunks);
     }
 
     @Override
@@ -129,6 +143,8 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
         writeTotal.update(stats.totalWriteTime, TimeUnit.MILLISECONDS);
 
         writeNum.update(stats.num);
+        writeQueueDepth.update(stats.queueDepth);
+        writeFlushLag.update(stats.flushLag, TimeUnit.MILLISECONDS);
 
         //Record rate of num of bg writes pushed per second
         numWritesRate.mark(stats.num);
@@ -25,6 +25,7 @@ import javax.annotation.Nonnull;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
 import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 
 /**
  * The interface for the backend storage for documents.
@@ -83,6 +84,27 @@ public interface DocumentStore {
     <T extends Document> T find(Collection<T> collection, String key, int maxCacheAge)
             throws DocumentStoreException;
 
+    /**
+     * Get the documents with the given {@code keys}. This is the batch variant
+     * of {@link #find(Collection, String)}. The implementation may serve
+     * documents from a cache and reads the remaining documents with as few
+     * calls to the underlying storage as possible. Keys for documents that do
+     * not exist are simply ignored.
+     * <p>
+     * The returned documents are in the order of the given keys and are
+     * immutable.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param keys the keys
+     * @return the list of documents found (possibly empty)
+     * @throws DocumentStoreException if the operation failed. E.g. because of
+     *          an I/O error.
+     */
+    @Nonnull
+    <T extends Document> List<T> find(Collection<T> collection, List<String> keys)
+            throws DocumentStoreException;
+
     /**
      * Get a list of documents where the key is greater than a start value and
      * less than an end value.
@@ -134,6 +156,34 @@ public interface DocumentStore {
                                        long startValue,
                                        int limit) throws DocumentStoreException;
 
+    /**
+     * Get the documents where the key is greater than a start value and less
+     * than an end value. Unlike {@link #query(Collection, String, String, int)}
+     * the documents are not read at once, but fetched lazily from the
+     * underlying storage in batches of roughly {@code batchSize} documents
+     * while the returned {@link Iterable} is consumed. This allows to scan
+     * large ranges of documents in constant memory.
+     * <p>
+     * The returned documents are sorted by key. The returned
+     * {@link Iterable} does not guarantee a consistent view on the store and
+     * the documents are not put into a cache. The caller must close the
+     * returned {@link CloseableIterable} to release the underlying resources.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param fromKey the start value (excluding)
+     * @param toKey the end value (excluding)
+     * @param batchSize the number of documents to fetch at once
+     * @return the documents (possibly empty)
+     * @throws DocumentStoreException if the operation failed. E.g. because of
+     *          an I/O error.
+     */
+    @Nonnull
+    <T extends Document> CloseableIterable<T> queryAsIterable(Collection<T> collection,
+                                                              String fromKey,
+                                                              String toKey,
+                                                              int batchSize) throws DocumentStoreException;
+
     /**
      * Remove a document. This method does nothing if there is no document
      * with the given key.
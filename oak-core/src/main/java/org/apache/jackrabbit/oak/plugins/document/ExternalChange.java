@@ -17,14 +17,28 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.plugins.observation.ChangeSetBuilder;
 import org.apache.jackrabbit.oak.stats.Clock;
@@ -52,7 +66,7 @@ abstract class ExternalChange {
 
     private ChangeSetBuilder changeSetBuilder;
 
-    private final JournalPropertyHandler journalPropertyHandler;
+    private JournalPropertyHandler journalPropertyHandler;
 
     ExternalChange(DocumentNodeStore store) {
         this.store = store;
@@ -116,6 +130,8 @@ abstract class ExternalChange {
                     store.getChangeSetMaxItems(), store.getChangeSetMaxDepth());
             RevisionVector headRevision = store.getHeadRevision();
             Set<Revision> externalChanges = newHashSet();
+            // revision ranges (from, to] of changes per cluster node
+            Map<Revision, Revision> journalRanges = Maps.newLinkedHashMap();
             for (Map.Entry<Integer, Revision> e : lastRevMap.entrySet()) {
                 int machineId = e.getKey();
                 if (machineId == clusterId) {
@@ -133,24 +149,42 @@ abstract class ExternalChange {
                     // only consider as external change if
                     // the revision changed for the machineId
                     externalChanges.add(r);
-                    // collect external changes
-                    if (externalSort != null) {
-                        // add changes for this particular clusterId to the externalSort
-                        try {
-                            fillExternalChanges(externalSort, invalidate,
-                                    PathUtils.ROOT_PATH, last, r,
-                                    store.getDocumentStore(),
-                                    changeSetBuilder, journalPropertyHandler);
-                        } catch (Exception e1) {
-                            LOG.error("backgroundRead: Exception while reading external changes from journal: " + e1, e1);
-                            closeQuietly(externalSort);
-                            closeQuietly(invalidate);
-                            externalSort = null;
-                            invalidate = null;
-                        }
-                    }
+                    journalRanges.put(r, last);
+                }
+            }
+
+            int chunkSize = store.getExternalChangesChunkSize();
+            if (chunkSize > 0 && !journalRanges.isEmpty()) {
+                // apply external changes in chunks with bounded memory
+                stats.readHead = clock.getTime() - time;
+                processInChunks(journalRanges, externalChanges,
+                        doc.getSweepRevisions(), chunkSize);
+                return stats;
+            }
+
+            // collect external changes
+            long journalTime = clock.getTime();
+            Map<Revision, Future<List<JournalEntry>>> firstChunks = readFirstChunks(journalRanges);
+            for (Map.Entry<Revision, Revision> range : journalRanges.entrySet()) {
+                if (externalSort == null) {
+                    break;
+                }
+                // add changes for this particular clusterId to the externalSort
+                try {
+                    stats.numJournalEntries += fillExternalChanges(externalSort, invalidate,
+                            PathUtils.ROOT_PATH, range.getValue(), range.getKey(),
+                            store.getDocumentStore(),
+                            changeSetBuilder, journalPropertyHandler,
+                            getFirstChunk(firstChunks.get(range.getKey())));
+                } catch (Exception e1) {
+                    LOG.error("backgroundRead: Exception while reading external changes from journal: " + e1, e1);
+                    closeQuietly(externalSort);
+                    closeQuietly(invalidate);
+                    externalSort = null;
+                    invalidate = null;
                 }
             }
+            stats.readJournal = clock.getTime() - journalTime;
 
             stats.readHead = clock.getTime() - time;
             time = clock.getTime();
@@ -164,8 +198,7 @@ abstract class ExternalChange {
                 } else {
                     stats.numExternalChanges = externalSort.getSize();
                     try {
-                        sortAndInvalidate(externalSort);
-                        sortAndInvalidate(invalidate);
+                        sortAndInvalidate(externalSort, invalidate);
                     } catch (Exception ioe) {
                         LOG.error("backgroundRead: got IOException during external sorting/cache invalidation (as a result, invalidating entire cache): "+ioe, ioe);
                         invalidateCache();
@@ -177,6 +210,7 @@ abstract class ExternalChange {
             // update head
             if (!externalChanges.isEmpty()) {
                 updateHead(externalChanges, doc.getSweepRevisions(), externalSort);
+                stats.numChunks = 1;
             }
         } finally {
             closeQuietly(externalSort);
@@ -196,17 +230,208 @@ abstract class ExternalChange {
 
     //-------------------------< internal >-------------------------------------
 
+    /**
+     * Reads the journal entries of all given revision ranges merged in
+     * revision order and applies them in chunks. Whenever the number of
+     * collected paths reaches {@code chunkSize}, the cache is invalidated
+     * and the head is updated to the revisions of the journal entries read
+     * so far. Journal entries of other cluster nodes are consistent with
+     * this order, because a cluster node only makes changes after it
+     * aligned its clock with the external revisions it has seen.
+     *
+     * @param journalRanges revision ranges (from, to] keyed by the to revision.
+     * @param externalChanges the head revisions of other cluster nodes.
+     * @param sweepRevisions the current sweep revisions.
+     * @param chunkSize the number of paths after which changes are applied.
+     */
+    private void processInChunks(Map<Revision, Revision> journalRanges,
+                                 Set<Revision> externalChanges,
+                                 RevisionVector sweepRevisions,
+                                 int chunkSize) {
+        Clock clock = store.getClock();
+        DocumentStore docStore = store.getDocumentStore();
+        List<CloseableIterable<JournalEntry>> entries = Lists.newArrayList();
+        List<PeekingIterator<JournalEntry>> iterators = Lists.newArrayList();
+        Map<Integer, Revision> upperBounds = Maps.newHashMap();
+        // the revisions up to which changes have been applied
+        Map<Integer, Revision> applied = Maps.newHashMap();
+        StringSort externalSort = newSorter();
+        StringSort invalidate = newSorter();
+        try {
+            long journalTime = clock.getTime();
+            for (Map.Entry<Revision, Revision> range : journalRanges.entrySet()) {
+                CloseableIterable<JournalEntry> it = JournalEntry.readEntries(
+                        range.getValue(), range.getKey(), docStore);
+                entries.add(it);
+                iterators.add(Iterators.peekingIterator(it.iterator()));
+                upperBounds.put(range.getKey().getClusterId(), range.getKey());
+            }
+            for (;;) {
+                PeekingIterator<JournalEntry> next = nextInRevisionOrder(iterators);
+                if (next == null) {
+                    break;
+                }
+                JournalEntry entry = next.next();
+                JournalEntry.fillFromJournalEntry(externalSort, invalidate,
+                        PathUtils.ROOT_PATH, changeSetBuilder,
+                        journalPropertyHandler, entry);
+                stats.numJournalEntries++;
+                Revision r = JournalEntry.asRevision(entry.getId());
+                Revision upper = upperBounds.get(r.getClusterId());
+                if (r.compareRevisionTime(upper) > 0) {
+                    // next higher entry read for the upper bound
+                    r = upper;
+                }
+                applied.put(r.getClusterId(), r);
+                if (externalSort.getSize() + invalidate.getSize() >= chunkSize
+                        && nextInRevisionOrder(iterators) != null) {
+                    stats.readJournal += clock.getTime() - journalTime;
+                    applyChunk(newHashSet(applied.values()),
+                            new RevisionVector(), externalSort, invalidate);
+                    LOG.info("backgroundRead: applied chunk {} with {} journal entries so far, up to {}",
+                            stats.numChunks, stats.numJournalEntries, applied.values());
+                    closeQuietly(externalSort);
+                    closeQuietly(invalidate);
+                    externalSort = newSorter();
+                    invalidate = newSorter();
+                    changeSetBuilder = new ChangeSetBuilder(
+                            store.getChangeSetMaxItems(), store.getChangeSetMaxDepth());
+                    journalPropertyHandler = store.getJournalPropertyHandlerFactory().newHandler();
+                    journalTime = clock.getTime();
+                }
+            }
+            stats.readJournal += clock.getTime() - journalTime;
+            applyChunk(externalChanges, sweepRevisions, externalSort, invalidate);
+        } catch (Exception e) {
+            LOG.error("backgroundRead: Exception while applying external changes in chunks (as a result, invalidating entire cache): " + e, e);
+            invalidateCache();
+            updateHead(externalChanges, sweepRevisions, null);
+        } finally {
+            closeQuietly(externalSort);
+            closeQuietly(invalidate);
+            for (CloseableIterable<JournalEntry> it : entries) {
+                closeQuietly(it);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cache entries for the collected paths and updates the
+     * head revision with the given revisions.
+     */
+    private void applyChunk(Set<Revision> revisions,
+                            RevisionVector sweepRevisions,
+                            StringSort externalSort,
+                            StringSort invalidate) throws IOException {
+        Clock clock = store.getClock();
+        long time = clock.getTime();
+        stats.numExternalChanges += externalSort.getSize();
+        if (!externalSort.isEmpty() || !invalidate.isEmpty()) {
+            sortAndInvalidate(externalSort, invalidate);
+        }
+        stats.cacheInvalidationTime += clock.getTime() - time;
+        updateHead(revisions, sweepRevisions, externalSort);
+        stats.numChunks++;
+    }
+
+    /**
+     * @return the iterator with the journal entry that has the lowest
+     *          revision or {@code null} if all iterators are exhausted.
+     */
+    @CheckForNull
+    private static PeekingIterator<JournalEntry> nextInRevisionOrder(
+            List<PeekingIterator<JournalEntry>> iterators) {
+        PeekingIterator<JournalEntry> next = null;
+        Revision min = null;
+        for (PeekingIterator<JournalEntry> it : iterators) {
+            if (it.hasNext()) {
+                Revision r = JournalEntry.asRevision(it.peek().getId());
+                if (min == null || r.compareRevisionTime(min) < 0) {
+                    min = r;
+                    next = it;
+                }
+            }
+        }
+        return next;
+    }
+
     private boolean cacheInvalidationNeeded(StringSort externalSort,
                                             StringSort invalidate) {
         return externalSort == null || invalidate == null
                 || !externalSort.isEmpty() || !invalidate.isEmpty();
     }
 
-    private void sortAndInvalidate(StringSort paths) throws IOException {
-        if (paths.isEmpty()) {
-            return;
+    /**
+     * Sorts the given paths and invalidates the cache entries of all of them
+     * with a single call to {@link #invalidateCache(Iterable)}.
+     */
+    private void sortAndInvalidate(StringSort... sorts) throws IOException {
+        List<Iterable<String>> paths = Lists.newArrayList();
+        for (StringSort sort : sorts) {
+            if (!sort.isEmpty()) {
+                sort.sort();
+                paths.add(sort);
+            }
+        }
+        if (!paths.isEmpty()) {
+            invalidateCache(Iterables.concat(paths));
+        }
+    }
+
+    /**
+     * Reads the first chunk of journal entries for each of the given revision
+     * ranges with the executor of the node store. This is only done when
+     * there are changes from more than one cluster node, in which case the
+     * journal entries are read in parallel.
+     *
+     * @param journalRanges revision ranges (from, to] keyed by the to revision.
+     * @return the first chunks keyed by the to revision.
+     */
+    private Map<Revision, Future<List<JournalEntry>>> readFirstChunks(
+            Map<Revision, Revision> journalRanges) {
+        Map<Revision, Future<List<JournalEntry>>> chunks = Maps.newHashMap();
+        if (journalRanges.size() < 2) {
+            return chunks;
+        }
+        final DocumentStore docStore = store.getDocumentStore();
+        for (Map.Entry<Revision, Revision> range : journalRanges.entrySet()) {
+            final Revision from = range.getValue();
+            final Revision to = range.getKey();
+            FutureTask<List<JournalEntry>> task = new FutureTask<List<JournalEntry>>(
+                    new Callable<List<JournalEntry>>() {
+                @Override
+                public List<JournalEntry> call() throws Exception {
+                    return JournalEntry.readFirstChunk(from, to, docStore);
+                }
+            });
+            try {
+                store.getExecutor().execute(task);
+            } catch (RejectedExecutionException e) {
+                // read when needed
+                continue;
+            }
+            chunks.put(to, task);
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the first chunk of journal entries or {@code null} if it is not
+     *          available and must be read again.
+     */
+    @CheckForNull
+    private static List<JournalEntry> getFirstChunk(
+            @Nullable Future<List<JournalEntry>> chunk) {
+        if (chunk == null) {
+            return null;
+        }
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.debug("backgroundRead: Failed to read journal entries in parallel", e.getCause());
         }
-        paths.sort();
-        invalidateCache(paths);
+        return null;
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+
+/**
+ * Combines the update operations of concurrent commits into shared calls to
+ * {@link DocumentStore#createOrUpdate(Collection, List)}.
+ * <p>
+ * While a call is in progress, the operations of other commits are collected
+ * in a pending group. When the call in progress finishes, the first commit
+ * that joined the pending group executes the operations of all commits in
+ * the group with a single call. A commit with an operation on a document
+ * that is already changed by the pending group does not join the group and
+ * writes its changes with a separate call instead.
+ */
+final class GroupCommitQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GroupCommitQueue.class);
+
+    /**
+     * The maximum number of update operations in a group.
+     */
+    static final int MAX_GROUP_SIZE = 1000;
+
+    private final DocumentStore store;
+
+    /**
+     * Whether a call to the store is in progress.
+     */
+    private boolean inProgress;
+
+    /**
+     * The group waiting for the call in progress to finish.
+     */
+    private Group pending;
+
+    GroupCommitQueue(@Nonnull DocumentStore store) {
+        this.store = checkNotNull(store);
+    }
+
+    /**
+     * Creates or updates the documents with the given operations, possibly
+     * together with the operations of concurrent commits.
+     *
+     * @param ops the update operations of a commit.
+     * @return the documents before the update, in the order of the
+     *          operations (see {@link DocumentStore#createOrUpdate(Collection, List)}).
+     * @throws DocumentStoreException if the operation failed.
+     */
+    @Nonnull
+    List<NodeDocument> createOrUpdate(@Nonnull List<UpdateOp> ops)
+            throws DocumentStoreException {
+        Group group;
+        SettableFuture<List<NodeDocument>> result = null;
+        boolean leader = false;
+        synchronized (this) {
+            if (!inProgress) {
+                inProgress = true;
+                group = null;
+            } else {
+                if (pending == null) {
+                    pending = new Group();
+                    leader = true;
+                }
+                group = pending;
+                result = group.add(ops);
+            }
+        }
+        if (group == null) {
+            try {
+                return store.createOrUpdate(NODES, ops);
+            } finally {
+                finished();
+            }
+        } else if (result == null) {
+            LOG.debug("Operations cannot join pending group. Executing separately.");
+            return store.createOrUpdate(NODES, ops);
+        }
+        if (leader) {
+            group.execute();
+        }
+        try {
+            return Uninterruptibles.getUninterruptibly(result);
+        } catch (ExecutionException e) {
+            throw DocumentStoreException.convert(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of operations in the pending group.
+     */
+    synchronized int getPendingSize() {
+        return pending != null ? pending.ops.size() : 0;
+    }
+
+    private void finished() {
+        Group group;
+        synchronized (this) {
+            group = pending;
+            pending = null;
+            if (group == null) {
+                inProgress = false;
+            }
+        }
+        if (group != null) {
+            // the call of the group is in progress now
+            group.release();
+        }
+    }
+
+    private final class Group {
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private final Set<String> ids = Sets.newHashSet();
+
+        private final List<UpdateOp> ops = Lists.newArrayList();
+
+        private final List<Integer> offsets = Lists.newArrayList();
+
+        private final List<SettableFuture<List<NodeDocument>>> results = Lists.newArrayList();
+
+        /**
+         * Adds the operations to this group. Must be called while holding
+         * the monitor of the enclosing queue.
+         *
+         * @return the future result or {@code null} if the operations cannot
+         *          be added to this group.
+         */
+        SettableFuture<List<NodeDocument>> add(List<UpdateOp> commitOps) {
+            if (!ops.isEmpty() && ops.size() + commitOps.size() > MAX_GROUP_SIZE) {
+                return null;
+            }
+            for (UpdateOp op : commitOps) {
+                if (ids.contains(op.getId())) {
+                    return null;
+                }
+            }
+            for (UpdateOp op : commitOps) {
+                ids.add(op.getId());
+            }
+            offsets.add(ops.size());
+            ops.addAll(commitOps);
+            SettableFuture<List<NodeDocument>> result = SettableFuture.create();
+            results.add(result);
+            return result;
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        void execute() {
+            Uninterruptibles.awaitUninterruptibly(released);
+            try {
+                LOG.debug("Group committing {} operations of {} commits",
+                        ops.size(), results.size());
+                List<NodeDocument> docs = store.createOrUpdate(NODES, ops);
+                for (int i = 0; i < results.size(); i++) {
+                    int end = i + 1 < offsets.size() ? offsets.get(i + 1) : ops.size();
+                    results.get(i).set(Lists.newArrayList(docs.subList(offsets.get(i), end)));
+                }
+            } catch (Throwable t) {
+                for (SettableFuture<List<NodeDocument>> result : results) {
+                    result.setException(t);
+                }
+            } finally {
+                finished();
+            }
+        }
+    }
+}
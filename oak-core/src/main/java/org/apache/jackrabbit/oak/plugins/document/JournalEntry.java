@@ -37,6 +37,7 @@ import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
 import org.apache.jackrabbit.oak.commons.json.JsopReader;
 import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.plugins.observation.ChangeSet;
 import org.apache.jackrabbit.oak.plugins.observation.ChangeSetBuilder;
@@ -277,6 +278,31 @@ public final class JournalEntry extends Document {
                                    @Nullable ChangeSetBuilder changeSetBuilder,
                                    @Nullable JournalPropertyHandler journalPropertyHandler)
             throws IOException {
+        return fillExternalChanges(externalChanges, invalidate, path, from, to,
+                store, changeSetBuilder, journalPropertyHandler, null);
+    }
+
+    /**
+     * Same as {@link #fillExternalChanges(StringSort, StringSort, String,
+     * Revision, Revision, DocumentStore, ChangeSetBuilder, JournalPropertyHandler)},
+     * but uses the given journal entries as the first chunk instead of
+     * querying the store for it.
+     *
+     * @param firstChunk the first chunk of journal entries as returned by
+     *                   {@link #readFirstChunk(Revision, Revision, DocumentStore)}
+     *                   for the same revision range, or {@code null} if the
+     *                   first chunk must be read from the store.
+     */
+    static int fillExternalChanges(@Nonnull StringSort externalChanges,
+                                   @Nonnull StringSort invalidate,
+                                   @Nonnull String path,
+                                   @Nonnull Revision from,
+                                   @Nonnull Revision to,
+                                   @Nonnull DocumentStore store,
+                                   @Nullable ChangeSetBuilder changeSetBuilder,
+                                   @Nullable JournalPropertyHandler journalPropertyHandler,
+                                   @Nullable List<JournalEntry> firstChunk)
+            throws IOException {
         checkNotNull(path);
         checkArgument(checkNotNull(from).getClusterId() == checkNotNull(to).getClusterId());
 
@@ -306,7 +332,13 @@ public final class JournalEntry extends Document {
                 // query in the first place
                 break;
             }
-            List<JournalEntry> partialResult = store.query(JOURNAL, fromId, toId, READ_CHUNK_SIZE);
+            List<JournalEntry> partialResult;
+            if (firstChunk != null) {
+                partialResult = firstChunk;
+                firstChunk = null;
+            } else {
+                partialResult = store.query(JOURNAL, fromId, toId, READ_CHUNK_SIZE);
+            }
             numEntries += partialResult.size();
             if (!partialResult.isEmpty()) {
                 lastEntry = partialResult.get(partialResult.size() - 1);
@@ -339,7 +371,111 @@ public final class JournalEntry extends Document {
         return numEntries;
     }
 
-    private static void fillFromJournalEntry(@Nonnull StringSort externalChanges,
+    /**
+     * Reads the first chunk of journal entries between the two given revisions
+     * (with the same clusterId). The returned entries can be passed to
+     * {@link #fillExternalChanges(StringSort, StringSort, String, Revision,
+     * Revision, DocumentStore, ChangeSetBuilder, JournalPropertyHandler, List)},
+     * which allows to read the journal entries of multiple cluster nodes
+     * in parallel.
+     *
+     * @param from the lower bound of the revision range (exclusive).
+     * @param to   the upper bound of the revision range (inclusive).
+     * @param store the document store to query.
+     * @return the first chunk of journal entries.
+     */
+    @Nonnull
+    static List<JournalEntry> readFirstChunk(@Nonnull Revision from,
+                                             @Nonnull Revision to,
+                                             @Nonnull DocumentStore store) {
+        checkArgument(checkNotNull(from).getClusterId() == checkNotNull(to).getClusterId());
+        String fromId = asId(from);
+        if (from.compareRevisionTime(to) >= 0 || fromId.equals(asId(to))) {
+            return Collections.emptyList();
+        }
+        String toId = asId(new Revision(to.getTimestamp(), to.getCounter() + 1,
+                to.getClusterId(), to.isBranch()));
+        return store.query(JOURNAL, fromId, toId, READ_CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the journal entries between the two given revisions (with the
+     * same clusterId) in ascending revision order. The entries are read
+     * lazily from the store in chunks while the returned {@link Iterable}
+     * is consumed. Like {@link #fillExternalChanges(StringSort, StringSort,
+     * Revision, Revision, DocumentStore)}, the next higher journal entry is
+     * returned last, if there is no exact match of a journal entry for the
+     * given {@code to} revision. The caller must close the returned
+     * {@link CloseableIterable}.
+     *
+     * @param from the lower bound of the revision range (exclusive).
+     * @param to   the upper bound of the revision range (inclusive).
+     * @param store the document store to query.
+     * @return the journal entries.
+     */
+    @Nonnull
+    static CloseableIterable<JournalEntry> readEntries(@Nonnull Revision from,
+                                                       @Nonnull Revision to,
+                                                       @Nonnull final DocumentStore store) {
+        checkArgument(checkNotNull(from).getClusterId() == checkNotNull(to).getClusterId());
+        if (from.compareRevisionTime(to) >= 0) {
+            return CloseableIterable.wrap(Collections.<JournalEntry>emptyList());
+        }
+        final String inclusiveToId = asId(to);
+        final String maxId = asId(new Revision(Long.MAX_VALUE, 0, to.getClusterId()));
+        String toId = asId(new Revision(to.getTimestamp(), to.getCounter() + 1,
+                to.getClusterId(), to.isBranch()));
+        final CloseableIterable<JournalEntry> entries = store.queryAsIterable(
+                JOURNAL, asId(from), toId, READ_CHUNK_SIZE);
+        return CloseableIterable.wrap(new Iterable<JournalEntry>() {
+            @Override
+            public Iterator<JournalEntry> iterator() {
+                final Iterator<JournalEntry> it = entries.iterator();
+                return new AbstractIterator<JournalEntry>() {
+
+                    private JournalEntry last;
+
+                    private boolean done;
+
+                    @Override
+                    protected JournalEntry computeNext() {
+                        if (it.hasNext()) {
+                            last = it.next();
+                            return last;
+                        }
+                        if (!done) {
+                            done = true;
+                            // read next journal entry if last one does not
+                            // cover 'to' or none were read so far
+                            if (last == null || !last.getId().equals(inclusiveToId)) {
+                                for (JournalEntry d : store.query(JOURNAL, inclusiveToId, maxId, 1)) {
+                                    return d;
+                                }
+                            }
+                        }
+                        return endOfData();
+                    }
+                };
+            }
+        }, entries);
+    }
+
+    /**
+     * Returns the revision of a journal entry with the given id. This is the
+     * reverse of {@link #asId(Revision)} for non-branch revisions.
+     *
+     * @param id the id of a journal entry.
+     * @return the revision.
+     */
+    @Nonnull
+    static Revision asRevision(@Nonnull String id) {
+        String[] parts = checkNotNull(id).split("-");
+        checkArgument(parts.length == 3, "Malformed journal entry id: %s", id);
+        return new Revision(Long.parseLong(parts[1], 16),
+                Integer.parseInt(parts[2], 16), Integer.parseInt(parts[0]));
+    }
+
+    static void fillFromJournalEntry(@Nonnull StringSort externalChanges,
                                              @Nonnull StringSort invalidate,
                                              @Nonnull String path,
                                              @Nullable ChangeSetBuilder changeSetBuilder,
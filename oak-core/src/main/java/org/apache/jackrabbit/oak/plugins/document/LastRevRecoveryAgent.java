@@ -21,6 +21,7 @@ package org.apache.jackrabbit.oak.plugins.document;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.filterKeys;
+import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Collections.singletonList;
 import static org.apache.jackrabbit.oak.commons.PathUtils.ROOT_PATH;
 import static org.apache.jackrabbit.oak.plugins.document.Collection.JOURNAL;
@@ -30,6 +31,7 @@ import static org.apache.jackrabbit.oak.plugins.document.util.Utils.isCommitted;
 import static org.apache.jackrabbit.oak.plugins.document.util.Utils.resolveCommitRevision;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
@@ -64,6 +66,12 @@ import org.slf4j.LoggerFactory;
  * instance.
  */
 public class LastRevRecoveryAgent {
+
+    /**
+     * Number of parent documents read with a single call to the store.
+     */
+    private static final int PARENT_BATCH_SIZE = 100;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final DocumentNodeStore nodeStore;
@@ -285,30 +293,47 @@ public class LastRevRecoveryAgent {
             }
         }
 
-        for (String parentPath : unsavedParents.getPaths()) {
-            Revision calcLastRev = unsavedParents.get(parentPath);
-            Revision knownLastRev = knownLastRevOrModification.get(parentPath);
-            if (knownLastRev == null) {
-                // we don't know when the document was last modified with
-                // the given clusterId. need to read from store
-                String id = Utils.getIdFromPath(parentPath);
-                NodeDocument doc = docStore.find(NODES, id);
-                if (doc != null) {
-                    Revision lastRev = doc.getLastRev().get(clusterId);
-                    Revision lastMod = determineLastModification(doc, clusterId);
-                    knownLastRev = Utils.max(lastRev, lastMod);
-                } else {
-                    log.warn("Unable to find document: {}", id);
-                    continue;
+        for (List<String> parentPaths : Iterables.partition(unsavedParents.getPaths(), PARENT_BATCH_SIZE)) {
+            // read the documents of parents without a known last modification
+            // with a single call to the store
+            List<String> ids = newArrayList();
+            for (String parentPath : parentPaths) {
+                if (knownLastRevOrModification.get(parentPath) == null) {
+                    ids.add(Utils.getIdFromPath(parentPath));
+                }
+            }
+            Map<String, NodeDocument> parentDocs = newHashMap();
+            if (!ids.isEmpty()) {
+                for (NodeDocument doc : docStore.find(NODES, ids)) {
+                    parentDocs.put(doc.getId(), doc);
                 }
             }
 
-            //Copy the calcLastRev of parent only if they have changed
-            //In many case it might happen that parent have consistent lastRev
-            //This check ensures that unnecessary updates are not made
-            if (knownLastRev == null
-                    || calcLastRev.compareRevisionTime(knownLastRev) > 0) {
-                unsaved.put(parentPath, calcLastRev);
+            for (String parentPath : parentPaths) {
+                Revision calcLastRev = unsavedParents.get(parentPath);
+                Revision knownLastRev = knownLastRevOrModification.get(parentPath);
+                if (knownLastRev == null) {
+                    // we don't know when the document was last modified with
+                    // the given clusterId. need to read from store
+                    String id = Utils.getIdFromPath(parentPath);
+                    NodeDocument doc = parentDocs.get(id);
+                    if (doc != null) {
+                        Revision lastRev = doc.getLastRev().get(clusterId);
+                        Revision lastMod = determineLastModification(doc, clusterId);
+                        knownLastRev = Utils.max(lastRev, lastMod);
+                    } else {
+                        log.warn("Unable to find document: {}", id);
+                        continue;
+                    }
+                }
+
+                //Copy the calcLastRev of parent only if they have changed
+                //In many case it might happen that parent have consistent lastRev
+                //This check ensures that unnecessary updates are not made
+                if (knownLastRev == null
+                        || calcLastRev.compareRevisionTime(knownLastRev) > 0) {
+                    unsaved.put(parentPath, calcLastRev);
+                }
             }
         }
 
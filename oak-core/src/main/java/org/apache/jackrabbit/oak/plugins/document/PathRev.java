@@ -48,6 +48,10 @@ public final class PathRev implements CacheValue {
         return path;
     }
 
+    public RevisionVector getRevision() {
+        return revision;
+    }
+
     @Override
     public int getMemory() {
         long size =  24                                               // shallow size
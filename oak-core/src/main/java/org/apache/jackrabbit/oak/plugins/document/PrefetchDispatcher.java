@@ -16,12 +16,17 @@
  */
 package org.apache.jackrabbit.oak.plugins.document;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.google.common.collect.Lists;
+
 import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.spi.commit.ChangeDispatcher;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
 import org.apache.jackrabbit.oak.spi.commit.DefaultEditor;
@@ -31,21 +36,65 @@ import org.apache.jackrabbit.oak.spi.commit.VisibleEditor;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
 
 /**
  * A change dispatcher that pre-fetches visible external changes in a background
- * task.
+ * task. If the paths changed by the external changes are known, the background
+ * task first reads the documents for those paths in batches, which warms the
+ * document cache with fewer calls to the {@link DocumentStore} than the
+ * traversal of the changes does.
  */
 class PrefetchDispatcher extends ChangeDispatcher {
 
+    /**
+     * The maximum number of changed paths to warm the document cache for.
+     */
+    static final int MAX_PREFETCH_PATHS = 1000;
+
+    /**
+     * The number of documents to read with a single call.
+     */
+    static final int PREFETCH_BATCH_SIZE = 100;
+
     private final Executor executor;
+    private final DocumentStore store;
     private NodeState root;
+    private List<String> changedIds = Collections.emptyList();
 
     public PrefetchDispatcher(@Nonnull NodeState root,
                               @Nonnull Executor executor) {
+        this(root, executor, null);
+    }
+
+    public PrefetchDispatcher(@Nonnull NodeState root,
+                              @Nonnull Executor executor,
+                              @Nullable DocumentStore store) {
         super(root);
         this.root = root;
         this.executor = checkNotNull(executor);
+        this.store = store;
+    }
+
+    /**
+     * Sets the paths changed by the next external change passed to
+     * {@link #contentChanged(NodeState, CommitInfo)}. Only the first
+     * {@link #MAX_PREFETCH_PATHS} paths are considered.
+     *
+     * @param paths the paths changed by the external change.
+     */
+    public synchronized void setExternalChanges(@Nonnull Iterable<String> paths) {
+        if (store == null) {
+            return;
+        }
+        List<String> ids = Lists.newArrayList();
+        for (String p : paths) {
+            if (ids.size() >= MAX_PREFETCH_PATHS) {
+                break;
+            }
+            ids.add(Utils.getIdFromPath(p));
+        }
+        changedIds = ids;
     }
 
     @Override
@@ -54,21 +103,33 @@ class PrefetchDispatcher extends ChangeDispatcher {
         if (root instanceof DocumentNodeState) {
             final DocumentNodeState state = (DocumentNodeState) root;
             if (state.isFromExternalChange()) {
+                final List<String> ids = changedIds;
                 executor.execute(new Runnable() {
                     private final NodeState before = PrefetchDispatcher.this.root;
                     @Override
                     public void run() {
+                        warmUp(ids);
                         EditorDiff.process(
                                 new VisibleEditor(TraversingEditor.INSTANCE),
                                 before, state);
                     }
                 });
             }
+            changedIds = Collections.emptyList();
         }
         super.contentChanged(root, info);
         this.root = root;
     }
 
+    private void warmUp(List<String> ids) {
+        if (store == null) {
+            return;
+        }
+        for (List<String> batch : Lists.partition(ids, PREFETCH_BATCH_SIZE)) {
+            store.find(NODES, batch);
+        }
+    }
+
     private static final class TraversingEditor extends DefaultEditor {
 
         static final Editor INSTANCE = new TraversingEditor();
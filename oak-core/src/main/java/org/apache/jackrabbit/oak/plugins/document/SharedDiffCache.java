@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.Collections;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.jackrabbit.oak.cache.CacheStats;
+import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A diff cache for changes made by a single commit, which is shared with
+ * other cluster nodes. The committing cluster node writes the changes of a
+ * local commit with keys that only depend on the commit revision and the
+ * previous revision of the committing cluster node. Another cluster node
+ * can then look up the diff for an external change, when its from and to
+ * revision differ only in the revision of the committing cluster node.
+ * <p>
+ * The entries are written to the underlying {@link MemoryDiffCache} cache,
+ * which distributes them to the other cluster nodes when the persistent
+ * cache is configured with a broadcast mechanism.
+ */
+class SharedDiffCache extends DiffCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedDiffCache.class);
+
+    private final Cache<PathRev, StringValue> diffCache;
+
+    SharedDiffCache(@Nonnull Cache<PathRev, StringValue> diffCache) {
+        this.diffCache = checkNotNull(diffCache);
+    }
+
+    @CheckForNull
+    @Override
+    String getChanges(@Nonnull RevisionVector from,
+                      @Nonnull RevisionVector to,
+                      @Nonnull String path,
+                      @Nullable Loader loader) {
+        PathRev key = sharedKey(path, from, to);
+        StringValue diff = key != null ? diffCache.getIfPresent(key) : null;
+        if (diff != null) {
+            return diff.toString();
+        }
+        if (loader != null) {
+            return loader.call();
+        }
+        return null;
+    }
+
+    @Nonnull
+    @Override
+    Entry newEntry(@Nonnull final RevisionVector from,
+                   @Nonnull final RevisionVector to,
+                   boolean local /*ignored*/) {
+        return new Entry() {
+            @Override
+            public void append(@Nonnull String path,
+                               @Nonnull String changes) {
+                PathRev key = sharedKey(path, from, to);
+                if (key == null) {
+                    return;
+                }
+                if (changes.length() > MemoryDiffCache.CACHE_VALUE_LIMIT) {
+                    LOG.debug("Not sharing entry for {} from {} to {}. Length of changes is {}.",
+                            path, from, to, changes.length());
+                } else {
+                    diffCache.put(key, new StringValue(changes));
+                }
+            }
+
+            @Override
+            public boolean done() {
+                return sharedKey("/", from, to) != null;
+            }
+        };
+    }
+
+    @Nonnull
+    @Override
+    Iterable<CacheStats> getStats() {
+        // entries are accounted for in the stats of the MemoryDiffCache
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the shared key for the changes at the given path between the
+     * two revision vectors, or {@code null} if the vectors are from a branch
+     * or do not differ in exactly one revision element of a cluster node.
+     * The key is the same for all cluster nodes that see the change of a
+     * single commit.
+     *
+     * @param path the path of the parent node.
+     * @param from the from revision.
+     * @param to the to revision.
+     * @return the shared key or {@code null}.
+     */
+    @CheckForNull
+    static PathRev sharedKey(@Nonnull String path,
+                             @Nonnull RevisionVector from,
+                             @Nonnull RevisionVector to) {
+        if (from.isBranch() || to.isBranch()
+                || from.getDimensions() != to.getDimensions()) {
+            return null;
+        }
+        RevisionVector diff = to.difference(from);
+        if (diff.getDimensions() != 1) {
+            return null;
+        }
+        Revision toRev = diff.iterator().next();
+        Revision fromRev = from.getRevision(toRev.getClusterId());
+        if (fromRev == null || fromRev.compareRevisionTime(toRev) >= 0) {
+            return null;
+        }
+        return new PathRev(new RevisionVector(fromRev) + path,
+                new RevisionVector(toRev));
+    }
+}
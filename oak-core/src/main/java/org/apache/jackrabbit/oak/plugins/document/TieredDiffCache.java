@@ -25,16 +25,23 @@ import org.apache.jackrabbit.oak.cache.CacheStats;
 
 /**
  * Implements a tiered diff cache which consists of a {@link LocalDiffCache} and
- * a {@link MemoryDiffCache}.
+ * a {@link MemoryDiffCache}. If enabled, changes of local commits are also
+ * written to a {@link SharedDiffCache} for use by other cluster nodes.
  */
 class TieredDiffCache extends DiffCache {
 
     private final DiffCache localCache;
-    private final DiffCache memoryCache;
+    private final MemoryDiffCache memoryCache;
+    private final DiffCache sharedCache;
 
     TieredDiffCache(DocumentMK.Builder builder) {
         this.localCache = new LocalDiffCache(builder);
         this.memoryCache = new MemoryDiffCache(builder);
+        if (builder.isSharedDiffCache()) {
+            this.sharedCache = new SharedDiffCache(memoryCache.diffCache);
+        } else {
+            this.sharedCache = null;
+        }
     }
 
     @Override
@@ -47,12 +54,25 @@ class TieredDiffCache extends DiffCache {
         if (changes != null) {
             return changes;
         }
+        if (sharedCache != null) {
+            // then check the memory cache without loader
+            changes = memoryCache.getChanges(from, to, path, null);
+            if (changes != null) {
+                return changes;
+            }
+            // and whether another cluster node shared the changes
+            changes = sharedCache.getChanges(from, to, path, null);
+            if (changes != null) {
+                return changes;
+            }
+        }
         return memoryCache.getChanges(from, to, path, loader);
     }
 
     /**
      * Creates a new entry in the {@link LocalDiffCache} for local changes
-     * and {@link MemoryDiffCache} for external changes
+     * and {@link MemoryDiffCache} for external changes. Local changes are
+     * also added to the {@link SharedDiffCache} if enabled.
      *
      * @param from the from revision.
      * @param to the to revision.
@@ -62,7 +82,11 @@ class TieredDiffCache extends DiffCache {
     @Override
     public Entry newEntry(@Nonnull RevisionVector from, @Nonnull RevisionVector to, boolean local) {
         if (local) {
-            return localCache.newEntry(from, to, true);
+            Entry entry = localCache.newEntry(from, to, true);
+            if (sharedCache != null) {
+                entry = new CompositeEntry(entry, sharedCache.newEntry(from, to, true));
+            }
+            return entry;
         } else {
             return memoryCache.newEntry(from, to, false);
         }
@@ -73,4 +97,27 @@ class TieredDiffCache extends DiffCache {
     public Iterable<CacheStats> getStats() {
         return Iterables.concat(localCache.getStats(), memoryCache.getStats());
     }
+
+    private static final class CompositeEntry implements Entry {
+
+        private final Entry primary;
+        private final Entry secondary;
+
+        CompositeEntry(Entry primary, Entry secondary) {
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+
+        @Override
+        public void append(@Nonnull String path, @Nonnull String changes) {
+            primary.append(path, changes);
+            secondary.append(path, changes);
+        }
+
+        @Override
+        public boolean done() {
+            secondary.done();
+            return primary.done();
+        }
+    }
 }
@@ -18,9 +18,15 @@ package org.apache.jackrabbit.oak.plugins.document;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
@@ -38,8 +44,11 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.jackrabbit.oak.commons.PathUtils.ROOT_PATH;
@@ -60,8 +69,30 @@ class UnsavedModifications {
      */
     static final int BACKGROUND_MULTI_UPDATE_LIMIT = 100;
 
+    /**
+     * The minimum number of documents to update at once in a multi update.
+     */
+    static final int BACKGROUND_MULTI_UPDATE_MIN = 10;
+
+    /**
+     * The maximum number of multi updates executed concurrently.
+     */
+    static final int BACKGROUND_MULTI_UPDATE_CONCURRENCY = 4;
+
+    /**
+     * The target latency of a multi update in milliseconds. The number of
+     * documents updated at once is reduced when multi updates take longer
+     * and increased again when they are faster.
+     */
+    static final long BACKGROUND_MULTI_UPDATE_TARGET_MILLIS = 100;
+
     private final ConcurrentMap<String, Revision> map = MapFactory.getInstance().create();
 
+    /**
+     * The current number of documents to update at once in a multi update.
+     */
+    private volatile int batchSize = BACKGROUND_MULTI_UPDATE_LIMIT;
+
     /**
      * Puts a revision for the given path. The revision for the given path is
      * only put if there is no modification present for the revision or if the
@@ -149,6 +180,38 @@ class UnsavedModifications {
                                         @Nonnull Supplier<Revision> sweepRevision,
                                         @Nonnull Snapshot snapshot,
                                         @Nonnull Lock lock) {
+        return persist(store, sweepRevision, snapshot, lock,
+                MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * Persist the pending changes to _lastRev to the given store. This method
+     * will persist a snapshot of the pending revisions and current sweep
+     * revision by acquiring the passed lock for a short period of time.
+     * <p>
+     * The snapshot contains a single revision per path, which means each
+     * ancestor of the modified nodes is updated once. The updates are sent
+     * to the store with up to {@link #BACKGROUND_MULTI_UPDATE_CONCURRENCY}
+     * concurrent multi updates using the given executor. The number of
+     * documents in a multi update adapts to the latency of previous
+     * multi updates. The root document is updated last, after all other
+     * updates succeeded.
+     *
+     * @param store the document store.
+     * @param sweepRevision supplier for the current sweep revision.
+     * @param snapshot callback when the snapshot of the pending changes is
+     *                 acquired.
+     * @param lock the lock to acquire to get a consistent snapshot of the
+     *             revisions to write back.
+     * @param executor the executor for the multi updates.
+     * @return stats about the write operation.
+     * @throws DocumentStoreException if an update fails.
+     */
+    public BackgroundWriteStats persist(@Nonnull DocumentStore store,
+                                        @Nonnull Supplier<Revision> sweepRevision,
+                                        @Nonnull Snapshot snapshot,
+                                        @Nonnull Lock lock,
+                                        @Nonnull Executor executor) {
         BackgroundWriteStats stats = new BackgroundWriteStats();
         if (map.size() == 0) {
             return stats;
@@ -157,6 +220,7 @@ class UnsavedModifications {
         checkNotNull(sweepRevision);
         checkNotNull(snapshot);
         checkNotNull(lock);
+        checkNotNull(executor);
 
         Stopwatch sw = Stopwatch.createStarted();
         // get a copy of the map while holding the lock
@@ -174,32 +238,47 @@ class UnsavedModifications {
             lock.unlock();
         }
         stats.num = pending.size();
-        List<UpdateOp> updates = Lists.newArrayList();
-        Map<String, Revision> pathToRevision = Maps.newHashMap();
-        for (Iterable<Map.Entry<String, Revision>> batch : Iterables.partition(
-                pending.entrySet(), BACKGROUND_MULTI_UPDATE_LIMIT)) {
-            for (Map.Entry<String, Revision> entry : batch) {
-                String p = entry.getKey();
-                Revision r = entry.getValue();
-                if (PathUtils.denotesRoot(entry.getKey())) {
-                    // update root individually at the end
-                    continue;
+        stats.flushLag = getFlushLag(pending.values());
+        Iterator<Map.Entry<String, Revision>> it = Iterators.filter(
+                pending.entrySet().iterator(), new Predicate<Map.Entry<String, Revision>>() {
+            @Override
+            public boolean apply(Map.Entry<String, Revision> input) {
+                // update root individually at the end
+                return !PathUtils.denotesRoot(input.getKey());
+            }
+        });
+        while (it.hasNext()) {
+            List<FutureTask<Long>> updates = Lists.newArrayList();
+            int size = batchSize;
+            while (it.hasNext() && updates.size() < BACKGROUND_MULTI_UPDATE_CONCURRENCY) {
+                FutureTask<Long> update = newMultiUpdate(store,
+                        Lists.newArrayList(Iterators.limit(it, size)));
+                try {
+                    executor.execute(update);
+                } catch (RejectedExecutionException e) {
+                    // e.g. executor already shut down
+                    update.run();
                 }
-                updates.add(newUpdateOp(p, r));
-                pathToRevision.put(p, r);
+                updates.add(update);
             }
-            if (!updates.isEmpty()) {
-                store.createOrUpdate(NODES, updates);
-                stats.calls++;
-                for (Map.Entry<String, Revision> entry : pathToRevision.entrySet()) {
-                    map.remove(entry.getKey(), entry.getValue());
-                    LOG.debug("Updated _lastRev to {} on {}", entry.getValue(), entry.getKey());
+            long time = 0;
+            Throwable failure = null;
+            for (FutureTask<Long> update : updates) {
+                try {
+                    time += Uninterruptibles.getUninterruptibly(update);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
                 }
-                // clean up for next batch
-                updates.clear();
-                pathToRevision.clear();
             }
+            stats.calls += updates.size();
+            if (failure != null) {
+                throw DocumentStoreException.convert(failure);
+            }
+            adjustBatchSize(size, time / updates.size());
         }
+        stats.batchSize = batchSize;
         // finally update remaining root document
         Revision rootRev = pending.get(ROOT_PATH);
         if (rootRev != null) {
@@ -224,9 +303,74 @@ class UnsavedModifications {
         }
 
         stats.write = sw.elapsed(TimeUnit.MILLISECONDS);
+        stats.queueDepth = map.size();
         return stats;
     }
 
+    /**
+     * @return the current number of documents to update at once in a multi
+     *          update.
+     */
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    private FutureTask<Long> newMultiUpdate(final DocumentStore store,
+                                            final List<Map.Entry<String, Revision>> batch) {
+        return new FutureTask<Long>(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                List<UpdateOp> updates = Lists.newArrayList();
+                for (Map.Entry<String, Revision> entry : batch) {
+                    updates.add(newUpdateOp(entry.getKey(), entry.getValue()));
+                }
+                Stopwatch sw = Stopwatch.createStarted();
+                store.createOrUpdate(NODES, updates);
+                long time = sw.elapsed(TimeUnit.MILLISECONDS);
+                for (Map.Entry<String, Revision> entry : batch) {
+                    map.remove(entry.getKey(), entry.getValue());
+                    LOG.debug("Updated _lastRev to {} on {}", entry.getValue(), entry.getKey());
+                }
+                return time;
+            }
+        });
+    }
+
+    /**
+     * Adjusts the number of documents to update at once based on the average
+     * latency of the multi updates with the given batch size. The size is
+     * halved when the latency is above the target and increased by
+     * {@link #BACKGROUND_MULTI_UPDATE_MIN} otherwise.
+     */
+    private void adjustBatchSize(int size, long latency) {
+        int newSize;
+        if (latency > BACKGROUND_MULTI_UPDATE_TARGET_MILLIS) {
+            newSize = Math.max(BACKGROUND_MULTI_UPDATE_MIN, size / 2);
+        } else {
+            newSize = Math.min(BACKGROUND_MULTI_UPDATE_LIMIT, size + BACKGROUND_MULTI_UPDATE_MIN);
+        }
+        if (newSize != size) {
+            LOG.debug("Multi update with {} documents took {} ms. Using {} documents now.",
+                    size, latency, newSize);
+        }
+        batchSize = newSize;
+    }
+
+    /**
+     * @return the time in milliseconds since the oldest of the given
+     *          revisions.
+     */
+    private static long getFlushLag(Iterable<Revision> revisions) {
+        long oldest = Long.MAX_VALUE;
+        for (Revision r : revisions) {
+            oldest = Math.min(oldest, r.getTimestamp());
+        }
+        if (oldest == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(0, Revision.getCurrentTimestamp() - oldest);
+    }
+
     @Override
     public String toString() {
         return map.toString();
@@ -29,20 +29,28 @@ public class VersionGCOptions {
     public final int maxIterations;
     public final long maxDurationMs;
     public final double delayFactor;
+    public final int checkConcurrency;
+    public final int deleteConcurrency;
+    public final long checkpointIntervalMs;
 
     public VersionGCOptions() {
         this(100000, 100000, TimeUnit.MINUTES.toMillis(1),
-                0, TimeUnit.HOURS.toMillis(0), 0);
+                0, TimeUnit.HOURS.toMillis(0), 0, 1, 1, 0);
     }
 
     private VersionGCOptions(int overflow, long collectLimit, long precisionMs,
-                             int maxIterations, long maxDurationMs, double delayFactor) {
+                             int maxIterations, long maxDurationMs, double delayFactor,
+                             int checkConcurrency, int deleteConcurrency,
+                             long checkpointIntervalMs) {
         this.overflowToDiskThreshold = overflow;
         this.collectLimit = collectLimit;
         this.precisionMs = precisionMs;
         this.maxIterations = maxIterations;
         this.maxDurationMs = maxDurationMs;
         this.delayFactor = delayFactor;
+        this.checkConcurrency = checkConcurrency;
+        this.deleteConcurrency = deleteConcurrency;
+        this.checkpointIntervalMs = checkpointIntervalMs;
     }
 
     /**
@@ -52,7 +60,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withOverflowToDiskThreshold(int overflowToDiskThreshold) {
         return new VersionGCOptions(overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor);
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.checkConcurrency, this.deleteConcurrency, this.checkpointIntervalMs);
     }
 
     /**
@@ -65,7 +74,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withCollectLimit(long limit) {
         return new VersionGCOptions(this.overflowToDiskThreshold, limit,
-                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor);
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.checkConcurrency, this.deleteConcurrency, this.checkpointIntervalMs);
     }
 
     /**
@@ -79,7 +89,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withPrecisionMs(TimeUnit unit, long t) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                unit.toMillis(t), this.maxIterations, this.maxDurationMs, this.delayFactor);
+                unit.toMillis(t), this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.checkConcurrency, this.deleteConcurrency, this.checkpointIntervalMs);
     }
 
     /**
@@ -93,7 +104,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withMaxDuration(TimeUnit unit, long t) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, unit.toMillis(t), this.delayFactor);
+                this.precisionMs, this.maxIterations, unit.toMillis(t), this.delayFactor,
+                this.checkConcurrency, this.deleteConcurrency, this.checkpointIntervalMs);
     }
 
     /**
@@ -106,7 +118,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withMaxIterations(int max) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, max, this.delayFactor);
+                this.precisionMs, this.maxIterations, max, this.delayFactor,
+                this.checkConcurrency, this.deleteConcurrency, this.checkpointIntervalMs);
     }
 
     /**
@@ -122,8 +135,52 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withDelayFactor(double f) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, this.maxDurationMs, f);
+                this.precisionMs, this.maxIterations, this.maxDurationMs, f,
+                this.checkConcurrency, this.deleteConcurrency, this.checkpointIntervalMs);
     }
 
-}
+    /**
+     * Set the number of threads checking whether candidate documents are
+     * garbage. The default is 1, which checks the documents in the thread
+     * running the garbage collection.
+     *
+     * @param n the number of threads checking candidate documents.
+     */
+    public VersionGCOptions withCheckConcurrency(int n) {
+        return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                Math.max(1, n), this.deleteConcurrency, this.checkpointIntervalMs);
+    }
 
+    /**
+     * Set the number of batched deletions sent to the database concurrently.
+     * The default is 1. The delay configured with {@link #withDelayFactor(double)}
+     * is applied after each round of concurrent deletions, based on the time
+     * the round took.
+     *
+     * @param n the number of concurrent batched deletions.
+     */
+    public VersionGCOptions withDeleteConcurrency(int n) {
+        return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.checkConcurrency, Math.max(1, n), this.checkpointIntervalMs);
+    }
+
+    /**
+     * Set the duration of the time slices in which deleted documents are
+     * collected and removed. The progress is saved after each slice, which
+     * means an interrupted or canceled collection resumes with the first
+     * slice not yet done. It also limits the number of candidate ids held
+     * at once to those of a single slice. Setting this to 0, which is the
+     * default, collects the whole time interval of a run at once.
+     *
+     * @param unit time unit used for duration
+     * @param t    the number of units in the duration
+     */
+    public VersionGCOptions withCheckpointInterval(TimeUnit unit, long t) {
+        return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.checkConcurrency, this.deleteConcurrency, unit.toMillis(t));
+    }
+
+}
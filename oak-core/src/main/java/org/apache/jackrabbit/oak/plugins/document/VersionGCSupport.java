@@ -21,7 +21,6 @@ package org.apache.jackrabbit.oak.plugins.document;
 
 import static com.google.common.collect.Iterables.filter;
 import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.getModifiedInSecs;
-import static org.apache.jackrabbit.oak.plugins.document.util.Utils.getAllDocuments;
 import static org.apache.jackrabbit.oak.plugins.document.util.Utils.getSelectedDocuments;
 
 import java.util.Set;
@@ -30,6 +29,7 @@ import javax.annotation.Nonnull;
 
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument.SplitDocType;
 import org.apache.jackrabbit.oak.plugins.document.VersionGarbageCollector.VersionGCStats;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.stats.Clock;
 import org.slf4j.Logger;
@@ -42,6 +42,12 @@ public class VersionGCSupport {
 
     private static final Logger LOG = LoggerFactory.getLogger(VersionGCSupport.class);
 
+    /**
+     * Number of documents fetched per round trip when scanning the entire
+     * nodes collection for split document garbage.
+     */
+    private static final int SCAN_BATCH_SIZE = Integer.getInteger("oak.documentMK.gcScanBatchSize", 1000);
+
     private final DocumentStore store;
 
     public VersionGCSupport(DocumentStore store) {
@@ -118,14 +124,18 @@ public class VersionGCSupport {
     protected Iterable<NodeDocument> identifyGarbage(final Set<SplitDocType> gcTypes,
                                                      final RevisionVector sweepRevs,
                                                      final long oldestRevTimeStamp) {
-        return filter(getAllDocuments(store), new Predicate<NodeDocument>() {
+        // stream over the nodes collection with a server side cursor
+        // and close it when the SplitDocumentCleanUp is closed
+        CloseableIterable<NodeDocument> docs = store.queryAsIterable(Collection.NODES,
+                NodeDocument.MIN_ID_VALUE, NodeDocument.MAX_ID_VALUE, SCAN_BATCH_SIZE);
+        return CloseableIterable.wrap(filter(docs, new Predicate<NodeDocument>() {
             @Override
             public boolean apply(NodeDocument doc) {
                 return gcTypes.contains(doc.getSplitDocType())
                         && doc.hasAllRevisionLessThan(oldestRevTimeStamp)
                         && !isDefaultNoBranchSplitNewerThan(doc, sweepRevs);
             }
-        });
+        }), docs);
     }
 
     /**
@@ -21,11 +21,18 @@ package org.apache.jackrabbit.oak.plugins.document;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -38,11 +45,15 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
@@ -77,6 +88,7 @@ public class VersionGarbageCollector {
     private static final int DELETE_BATCH_SIZE = 450;
     private static final int UPDATE_BATCH_SIZE = 450;
     private static final int PROGRESS_BATCH_SIZE = 10000;
+    private static final int CHECK_BATCH_SIZE = 100;
     private static final Key KEY_MODIFIED = new Key(MODIFIED_IN_SECS, null);
     private static final String STATUS_IDLE = "IDLE";
     private static final String STATUS_INITIALIZING = "INITIALIZING";
@@ -491,31 +503,69 @@ public class VersionGarbageCollector {
                                              RevisionVector headRevision,
                                              Recommendations rec)
                 throws IOException, LimitExceededException {
+            ExecutorService executor = newExecutor(options);
+            try {
+                long collected = 0;
+                for (TimeInterval slice : rec.getSlices()) {
+                    if (cancel.get()) {
+                        break;
+                    }
+                    collected += collectDeletedDocuments(phases, headRevision,
+                            rec, slice, collected, executor);
+                    if (!cancel.get() && slice.toMs < rec.scope.toMs) {
+                        // remember progress in case the run is interrupted
+                        rec.checkpoint(slice);
+                    }
+                }
+            } finally {
+                new ExecutorCloser(executor).close();
+            }
+        }
+
+        /**
+         * Collects and removes deleted documents modified in the given time
+         * slice.
+         *
+         * @return the number of collected documents, excluding leaf documents.
+         */
+        private long collectDeletedDocuments(GCPhases phases,
+                                             RevisionVector headRevision,
+                                             Recommendations rec,
+                                             TimeInterval slice,
+                                             long collected,
+                                             Executor executor)
+                throws IOException, LimitExceededException {
             int docsTraversed = 0;
-            DeletedDocsGC gc = new DeletedDocsGC(headRevision, cancel, options, monitor);
+            int checkBatchSize = options.checkConcurrency > 1 ? CHECK_BATCH_SIZE : 1;
+            DeletedDocsGC gc = new DeletedDocsGC(headRevision, cancel, options, monitor, executor);
             try {
                 if (phases.start(GCPhase.COLLECTING)) {
-                    Iterable<NodeDocument> itr = versionStore.getPossiblyDeletedDocs(rec.scope.fromMs, rec.scope.toMs);
+                    Iterable<NodeDocument> itr = versionStore.getPossiblyDeletedDocs(slice.fromMs, slice.toMs);
                     try {
-                        for (NodeDocument doc : itr) {
+                        Iterator<NodeDocument> it = itr.iterator();
+                        while (it.hasNext()) {
                             // continue with GC?
                             if (cancel.get()) {
                                 break;
                             }
+                            List<NodeDocument> docs = Lists.newArrayList();
+                            while (it.hasNext() && docs.size() < checkBatchSize) {
+                                docs.add(it.next());
+                                docsTraversed++;
+                                if (docsTraversed % PROGRESS_BATCH_SIZE == 0) {
+                                    monitor.info("Iterated through {} documents so far. {} found to be deleted",
+                                            docsTraversed, gc.getNumDocuments());
+                                }
+                            }
                             // Check if node is actually deleted at current revision
                             // As node is not modified since oldestRevTimeStamp then
                             // this node has not be revived again in past maxRevisionAge
                             // So deleting it is safe
-                            docsTraversed++;
-                            if (docsTraversed % PROGRESS_BATCH_SIZE == 0) {
-                                monitor.info("Iterated through {} documents so far. {} found to be deleted",
-                                        docsTraversed, gc.getNumDocuments());
-                            }
                             if (phases.start(GCPhase.CHECKING)) {
-                                gc.possiblyDeleted(doc);
+                                gc.possiblyDeleted(docs);
                                 phases.stop(GCPhase.CHECKING);
                             }
-                            if (rec.maxCollect > 0 && gc.docIdsToDelete.getSize() > rec.maxCollect) {
+                            if (rec.maxCollect > 0 && collected + gc.docIdsToDelete.getSize() > rec.maxCollect) {
                                 throw new LimitExceededException();
                             }
                             if (gc.hasLeafBatch()) {
@@ -558,6 +608,7 @@ public class VersionGarbageCollector {
                     gc.updateResurrectedDocuments(phases.stats);
                     phases.stop(GCPhase.UPDATING);
                 }
+                return gc.docIdsToDelete.getSize();
             } finally {
                 gc.close();
             }
@@ -580,16 +631,19 @@ public class VersionGarbageCollector {
         private final Stopwatch timer;
         private final VersionGCOptions options;
         private final GCMonitor monitor;
+        private final Executor executor;
 
         public DeletedDocsGC(@Nonnull RevisionVector headRevision,
                              @Nonnull AtomicBoolean cancel,
                              @Nonnull VersionGCOptions options,
-                             @Nonnull GCMonitor monitor) {
+                             @Nonnull GCMonitor monitor,
+                             @Nonnull Executor executor) {
             this.headRevision = checkNotNull(headRevision);
             this.cancel = checkNotNull(cancel);
             this.timer = Stopwatch.createUnstarted();
             this.options = options;
             this.monitor = monitor;
+            this.executor = checkNotNull(executor);
             this.docIdsToDelete = newStringSort(options);
             this.prevDocIdsToDelete = newStringSort(options);
         }
@@ -615,30 +669,35 @@ public class VersionGarbageCollector {
          */
         boolean possiblyDeleted(NodeDocument doc)
                 throws IOException {
-            // construct an id that also contains
-            // the _modified time of the document
-            String id = doc.getId() + "/" + doc.getModified();
-            // check if id is valid
-            try {
-                Utils.getDepthFromId(id);
-            } catch (IllegalArgumentException e) {
-                monitor.warn("Invalid GC id {} for document {}", id, doc);
-                return false;
+            Candidate c = check(doc);
+            return c != null && add(c);
+        }
+
+        /**
+         * Informs the GC that the given documents are possibly deleted. The
+         * documents are checked concurrently with the executor passed to the
+         * constructor of this GC.
+         *
+         * @param docs the candidate documents.
+         * @see #possiblyDeleted(NodeDocument)
+         */
+        void possiblyDeleted(List<NodeDocument> docs) throws IOException {
+            List<FutureTask<Candidate>> checks = Lists.newArrayList();
+            for (final NodeDocument doc : docs) {
+                FutureTask<Candidate> check = new FutureTask<Candidate>(new Callable<Candidate>() {
+                    @Override
+                    public Candidate call() throws Exception {
+                        return check(doc);
+                    }
+                });
+                executor.execute(check);
+                checks.add(check);
             }
-            if (doc.getNodeAtRevision(nodeStore, headRevision, null) == null) {
-                // Collect id of all previous docs also
-                Iterator<String> previousDocs = previousDocIdsFor(doc);
-                if (!doc.hasChildren() && !previousDocs.hasNext()) {
-                    addLeafDocument(id);
-                } else {
-                    addDocument(id);
-                    addPreviousDocuments(previousDocs);
+            for (Candidate c : getAll(checks)) {
+                if (c != null) {
+                    add(c);
                 }
-                return true;
-            } else {
-                addNonDeletedDocument(id);
             }
-            return false;
         }
 
         /**
@@ -694,6 +753,69 @@ public class VersionGarbageCollector {
 
         //------------------------------< internal >----------------------------
 
+        /**
+         * Checks if the node of the given document exists at the head
+         * revision. This method may be called concurrently.
+         *
+         * @return the result of the check or {@code null} if the document
+         *          cannot be garbage collected.
+         */
+        @Nullable
+        private Candidate check(NodeDocument doc) {
+            // construct an id that also contains
+            // the _modified time of the document
+            String id = doc.getId() + "/" + doc.getModified();
+            // check if id is valid
+            try {
+                Utils.getDepthFromId(id);
+            } catch (IllegalArgumentException e) {
+                monitor.warn("Invalid GC id {} for document {}", id, doc);
+                return null;
+            }
+            if (doc.getNodeAtRevision(nodeStore, headRevision, null) == null) {
+                return new Candidate(id, doc, previousDocIdsFor(doc));
+            }
+            return new Candidate(id, null, null);
+        }
+
+        /**
+         * Adds a checked document to the documents to delete or to update.
+         *
+         * @return true iff document is scheduled for deletion
+         */
+        private boolean add(Candidate c) throws IOException {
+            if (c.doc != null) {
+                // Collect id of all previous docs also
+                if (!c.doc.hasChildren() && !c.previousDocs.hasNext()) {
+                    addLeafDocument(c.id);
+                } else {
+                    addDocument(c.id);
+                    addPreviousDocuments(c.previousDocs);
+                }
+                return true;
+            } else {
+                addNonDeletedDocument(c.id);
+            }
+            return false;
+        }
+
+        /**
+         * Waits for the given tasks and returns their results in the same
+         * order.
+         */
+        private <T> List<T> getAll(List<FutureTask<T>> tasks) throws IOException {
+            List<T> results = Lists.newArrayList();
+            for (FutureTask<T> task : tasks) {
+                try {
+                    results.add(Uninterruptibles.getUninterruptibly(task));
+                } catch (ExecutionException e) {
+                    Throwables.propagateIfPossible(e.getCause(), IOException.class);
+                    throw DocumentStoreException.convert(e.getCause());
+                }
+            }
+            return results;
+        }
+
         private void delayOnModifications(long durationMs) {
             long delayMs = Math.round(durationMs * options.delayFactor);
             if (!cancel.get() && delayMs > 0) {
@@ -803,41 +925,58 @@ public class VersionGarbageCollector {
             int lastLoggedCount = 0;
             int recreatedCount = 0;
             while (idListItr.hasNext() && !cancel.get()) {
-                Map<String, Map<Key, Condition>> deletionBatch = Maps.newLinkedHashMap();
-                for (String s : idListItr.next()) {
-                    Map.Entry<String, Long> parsed;
-                    try {
-                        parsed = parseEntry(s);
-                    } catch (IllegalArgumentException e) {
-                        monitor.warn("Invalid _modified suffix for {}", s);
-                        continue;
-                    }
-                    deletionBatch.put(parsed.getKey(), singletonMap(KEY_MODIFIED, newEqualsCondition(parsed.getValue())));
-                }
-
-                if (log.isTraceEnabled()) {
-                    StringBuilder sb = new StringBuilder("Performing batch deletion of documents with following ids. \n");
-                    Joiner.on(LINE_SEPARATOR.value()).appendTo(sb, deletionBatch.keySet());
-                    log.trace(sb.toString());
-                }
-
+                List<FutureTask<Integer>> removals = Lists.newArrayList();
+                List<Map<String, Map<Key, Condition>>> deletionBatches = Lists.newArrayList();
                 timer.reset().start();
                 try {
-                    int nRemoved = ds.remove(NODES, deletionBatch);
-
-                    if (nRemoved < deletionBatch.size()) {
-                        // some nodes were re-created while GC was running
-                        // find the document that still exist
-                        for (String id : deletionBatch.keySet()) {
-                            NodeDocument d = ds.find(NODES, id);
-                            if (d != null) {
-                                concurrentModification(d);
+                    // send up to deleteConcurrency batches at once
+                    while (idListItr.hasNext() && removals.size() < options.deleteConcurrency) {
+                        final Map<String, Map<Key, Condition>> deletionBatch = Maps.newLinkedHashMap();
+                        for (String s : idListItr.next()) {
+                            Map.Entry<String, Long> parsed;
+                            try {
+                                parsed = parseEntry(s);
+                            } catch (IllegalArgumentException e) {
+                                monitor.warn("Invalid _modified suffix for {}", s);
+                                continue;
                             }
+                            deletionBatch.put(parsed.getKey(), singletonMap(KEY_MODIFIED, newEqualsCondition(parsed.getValue())));
+                        }
+
+                        if (log.isTraceEnabled()) {
+                            StringBuilder sb = new StringBuilder("Performing batch deletion of documents with following ids. \n");
+                            Joiner.on(LINE_SEPARATOR.value()).appendTo(sb, deletionBatch.keySet());
+                            log.trace(sb.toString());
                         }
-                        recreatedCount += (deletionBatch.size() - nRemoved);
+
+                        FutureTask<Integer> removal = new FutureTask<Integer>(new Callable<Integer>() {
+                            @Override
+                            public Integer call() throws Exception {
+                                return ds.remove(NODES, deletionBatch);
+                            }
+                        });
+                        executor.execute(removal);
+                        removals.add(removal);
+                        deletionBatches.add(deletionBatch);
                     }
 
-                    deletedCount += nRemoved;
+                    List<Integer> removed = getAll(removals);
+                    for (int i = 0; i < removed.size(); i++) {
+                        Map<String, Map<Key, Condition>> deletionBatch = deletionBatches.get(i);
+                        int nRemoved = removed.get(i);
+                        if (nRemoved < deletionBatch.size()) {
+                            // some nodes were re-created while GC was running
+                            // find the document that still exist
+                            for (String id : deletionBatch.keySet()) {
+                                NodeDocument d = ds.find(NODES, id);
+                                if (d != null) {
+                                    concurrentModification(d);
+                                }
+                            }
+                            recreatedCount += (deletionBatch.size() - nRemoved);
+                        }
+                        deletedCount += nRemoved;
+                    }
                     log.debug("Deleted [{}] documents so far", deletedCount);
 
                     if (deletedCount + recreatedCount - lastLoggedCount >= PROGRESS_BATCH_SIZE) {
@@ -892,16 +1031,28 @@ public class VersionGarbageCollector {
             Iterator<List<String>> idListItr =
                     partition(getPrevDocIdsToDelete(), DELETE_BATCH_SIZE);
             while (idListItr.hasNext() && !cancel.get()) {
-                List<String> deletionBatch = idListItr.next();
-                deletedCount += deletionBatch.size();
+                List<FutureTask<Void>> removals = Lists.newArrayList();
+                // send up to deleteConcurrency batches at once
+                while (idListItr.hasNext() && removals.size() < options.deleteConcurrency) {
+                    final List<String> deletionBatch = idListItr.next();
+                    deletedCount += deletionBatch.size();
+
+                    if (log.isDebugEnabled()) {
+                        StringBuilder sb = new StringBuilder("Performing batch deletion of previous documents with following ids. \n");
+                        Joiner.on(LINE_SEPARATOR.value()).appendTo(sb, deletionBatch);
+                        log.debug(sb.toString());
+                    }
 
-                if (log.isDebugEnabled()) {
-                    StringBuilder sb = new StringBuilder("Performing batch deletion of previous documents with following ids. \n");
-                    Joiner.on(LINE_SEPARATOR.value()).appendTo(sb, deletionBatch);
-                    log.debug(sb.toString());
+                    FutureTask<Void> removal = new FutureTask<Void>(new Runnable() {
+                        @Override
+                        public void run() {
+                            ds.remove(NODES, deletionBatch);
+                        }
+                    }, null);
+                    executor.execute(removal);
+                    removals.add(removal);
                 }
-
-                ds.remove(NODES, deletionBatch);
+                getAll(removals);
 
                 log.debug("Deleted [{}] previous documents so far", deletedCount);
 
@@ -947,11 +1098,51 @@ public class VersionGarbageCollector {
         }
     }
 
+    /**
+     * @return an executor for concurrent checks and deletions as configured
+     *          with the given options.
+     */
+    @Nonnull
+    private static ExecutorService newExecutor(VersionGCOptions options) {
+        int threads = Math.max(options.checkConcurrency, options.deleteConcurrency);
+        if (threads > 1) {
+            return Executors.newFixedThreadPool(threads);
+        }
+        return MoreExecutors.sameThreadExecutor();
+    }
+
     @Nonnull
     private StringSort newStringSort(VersionGCOptions options) {
         return new StringSort(options.overflowToDiskThreshold, NodeDocumentIdComparator.INSTANCE);
     }
 
+    /**
+     * The result of checking a possibly deleted document.
+     */
+    private static final class Candidate {
+
+        /**
+         * The id of the document with the _modified time.
+         */
+        final String id;
+
+        /**
+         * The document if its node is deleted, {@code null} otherwise.
+         */
+        final NodeDocument doc;
+
+        /**
+         * The ids of the previous documents if the node is deleted.
+         */
+        final Iterator<String> previousDocs;
+
+        Candidate(String id, NodeDocument doc, Iterator<String> previousDocs) {
+            this.id = id;
+            this.doc = doc;
+            this.previousDocs = previousDocs;
+        }
+    }
+
     private static final Predicate<Range> FIRST_LEVEL = new Predicate<Range>() {
         @Override
         public boolean apply(@Nullable Range input) {
@@ -967,6 +1158,7 @@ public class VersionGarbageCollector {
         final long lastOldestTimestamp;
 
         private final long precisionMs;
+        private final long checkpointIntervalMs;
         private final long suggestedIntervalMs;
         private final boolean scopeIsComplete;
 
@@ -1063,6 +1255,7 @@ public class VersionGarbageCollector {
             }
 
             this.precisionMs = options.precisionMs;
+            this.checkpointIntervalMs = options.checkpointIntervalMs;
             this.ignoreDueToCheckPoint = ignoreDueToCheckPoint;
             this.scope = scope;
             this.scopeIsComplete = scope.toMs >= keep.fromMs;
@@ -1108,6 +1301,37 @@ public class VersionGarbageCollector {
             }
         }
 
+        /**
+         * @return the time slices of the scope as configured with
+         *          {@link VersionGCOptions#checkpointIntervalMs}.
+         */
+        List<TimeInterval> getSlices() {
+            long duration = Math.max(checkpointIntervalMs, precisionMs);
+            if (checkpointIntervalMs <= 0 || scope.getDurationMs() <= duration) {
+                return Collections.singletonList(scope);
+            }
+            List<TimeInterval> slices = Lists.newArrayList();
+            TimeInterval remaining = scope;
+            while (remaining.getDurationMs() > duration) {
+                TimeInterval slice = remaining.startAndDuration(duration);
+                slices.add(slice);
+                remaining = remaining.notEarlierThan(slice.toMs);
+            }
+            slices.add(remaining);
+            return slices;
+        }
+
+        /**
+         * Saves the progress after the given time slice of the scope was
+         * collected, so that the next run starts after the slice.
+         *
+         * @param slice a time slice of the scope.
+         */
+        void checkpoint(TimeInterval slice) {
+            log.debug("Collected documents in {}, saving progress", slice);
+            setLongSetting(SETTINGS_COLLECTION_OLDEST_TIMESTAMP_PROP, slice.toMs);
+        }
+
         private long getLongSetting(String propName) {
             Document versionGCDoc = ds.find(Collection.SETTINGS, SETTINGS_COLLECTION_ID, 0);
             if (versionGCDoc != null) {
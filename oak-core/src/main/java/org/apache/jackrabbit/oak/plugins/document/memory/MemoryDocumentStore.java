@@ -17,6 +17,8 @@
 package org.apache.jackrabbit.oak.plugins.document.memory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentNavigableMap;
@@ -30,6 +32,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import org.apache.jackrabbit.oak.cache.CacheStats;
@@ -47,8 +50,10 @@ import com.google.common.base.Splitter;
 import com.mongodb.ReadPreference;
 import com.mongodb.WriteConcern;
 import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.jackrabbit.oak.plugins.document.UpdateUtils.assertUnconditional;
 import static org.apache.jackrabbit.oak.plugins.document.UpdateUtils.checkConditions;
 
@@ -103,6 +108,19 @@ public class MemoryDocumentStore implements DocumentStore {
         return find(collection, key);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> List<T> find(Collection<T> collection, List<String> keys) {
+        List<T> docs = new ArrayList<T>(keys.size());
+        for (String key : keys) {
+            T doc = find(collection, key);
+            if (doc != null) {
+                docs.add(doc);
+            }
+        }
+        return docs;
+    }
+
     @Override
     public <T extends Document> T find(Collection<T> collection, String key) {
         Lock lock = rwLock.readLock();
@@ -166,6 +184,43 @@ public class MemoryDocumentStore implements DocumentStore {
         }
     }
 
+    @Override
+    @Nonnull
+    public <T extends Document> CloseableIterable<T> queryAsIterable(final Collection<T> collection,
+                                                                     final String fromKey,
+                                                                     final String toKey,
+                                                                     final int batchSize) {
+        checkArgument(batchSize > 0, "batchSize must be > 0");
+        return CloseableIterable.wrap(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new AbstractIterator<T>() {
+
+                    private String startKey = fromKey;
+
+                    private Iterator<T> batch = Collections.emptyIterator();
+
+                    private boolean done;
+
+                    @Override
+                    protected T computeNext() {
+                        if (!batch.hasNext() && !done) {
+                            List<T> docs = query(collection, startKey, toKey, batchSize);
+                            done = docs.size() < batchSize;
+                            batch = docs.iterator();
+                        }
+                        if (batch.hasNext()) {
+                            T doc = batch.next();
+                            startKey = doc.getId();
+                            return doc;
+                        }
+                        return endOfData();
+                    }
+                };
+            }
+        });
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection, String key) {
         Lock lock = rwLock.writeLock();
@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.oak.plugins.document.mongo;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -25,6 +26,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -76,6 +78,7 @@ import org.apache.jackrabbit.oak.plugins.document.mongo.replica.LocalChanges;
 import org.apache.jackrabbit.oak.plugins.document.mongo.replica.ReplicaSetInfo;
 import org.apache.jackrabbit.oak.plugins.document.locks.NodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.locks.StripedNodeDocumentLocks;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.stats.Clock;
 import org.apache.jackrabbit.oak.commons.benchmark.PerfLogger;
@@ -400,6 +403,63 @@ public class MongoDocumentStore implements DocumentStore, RevisionListener {
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    @Override
+    public <T extends Document> List<T> find(Collection<T> collection,
+                                             List<String> keys) {
+        final long start = PERFLOG.start();
+        Map<String, T> docs = new HashMap<String, T>();
+        Set<String> uncached = new LinkedHashSet<String>();
+        for (String key : keys) {
+            if (collection == Collection.NODES) {
+                NodeDocument doc = nodesCache.getIfPresent(key);
+                if (doc != null) {
+                    stats.doneFindCached(collection, key);
+                    if (doc != NodeDocument.NULL) {
+                        docs.put(key, (T) doc);
+                    }
+                    continue;
+                }
+            }
+            uncached.add(key);
+        }
+
+        if (!uncached.isEmpty()) {
+            CacheChangesTracker tracker = null;
+            if (collection == Collection.NODES) {
+                tracker = nodesCache.registerTracker(uncached);
+            }
+            final Stopwatch watch = startWatch();
+            Map<String, T> found = Collections.emptyMap();
+            try {
+                found = findDocuments(collection, uncached);
+                if (tracker != null) {
+                    nodesCache.putNonConflictingDocs(tracker, (Iterable<NodeDocument>) found.values());
+                }
+                docs.putAll(found);
+            } catch (MongoException e) {
+                throw DocumentStoreException.convert(e, "Failed to load documents " + uncached);
+            } finally {
+                if (tracker != null) {
+                    tracker.close();
+                }
+                stats.doneQuery(watch.elapsed(TimeUnit.NANOSECONDS), collection,
+                        null, null, false, found.size(), -1, false);
+            }
+        }
+
+        List<T> result = new ArrayList<T>(docs.size());
+        for (String key : keys) {
+            T doc = docs.get(key);
+            if (doc != null) {
+                result.add(doc);
+            }
+        }
+        PERFLOG.end(start, 1, "find: keys={}, uncached={}", keys.size(), uncached.size());
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     private <T extends Document> T find(final Collection<T> collection,
                                        final String key,
@@ -563,6 +623,48 @@ public class MongoDocumentStore implements DocumentStore, RevisionListener {
                 startValue, limit, maxQueryTimeMS);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> CloseableIterable<T> queryAsIterable(final Collection<T> collection,
+                                                                     String fromKey,
+                                                                     String toKey,
+                                                                     int batchSize) {
+        checkArgument(batchSize > 0, "batchSize must be > 0");
+        log("queryAsIterable", fromKey, toKey, batchSize);
+        final DBObject query = QueryBuilder.start(Document.ID).greaterThan(fromKey).lessThan(toKey).get();
+        final ReadPreference readPreference = getMongoReadPreference(collection,
+                Utils.getParentIdFromLowerLimit(fromKey), null, getDefaultReadPreference(collection));
+        final int size = batchSize;
+        final List<DBCursor> cursors = Lists.newArrayList();
+        return CloseableIterable.wrap(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                // server side cursor, fetching batchSize documents per round trip
+                DBCursor cursor = getDBCollection(collection).find(query)
+                        .sort(BY_ID_ASC).batchSize(size).setReadPreference(readPreference);
+                synchronized (cursors) {
+                    cursors.add(cursor);
+                }
+                return Iterators.transform(cursor, new Function<DBObject, T>() {
+                    @Override
+                    public T apply(DBObject input) {
+                        return convertFromDBObject(collection, input);
+                    }
+                });
+            }
+        }, new Closeable() {
+            @Override
+            public void close() {
+                synchronized (cursors) {
+                    for (DBCursor c : cursors) {
+                        c.close();
+                    }
+                    cursors.clear();
+                }
+            }
+        });
+    }
+
     @SuppressWarnings("unchecked")
     @Nonnull
     <T extends Document> List<T> queryInternal(Collection<T> collection,
@@ -1055,21 +1157,26 @@ public class MongoDocumentStore implements DocumentStore, RevisionListener {
         });
     }
 
+    /**
+     * Reads the documents with the given keys from the primary, using one
+     * {@code $in} query per {@link #IN_CLAUSE_BATCH_SIZE} keys.
+     *
+     * @return the documents found, keyed by their id.
+     */
     private <T extends Document> Map<String, T> findDocuments(Collection<T> collection, Set<String> keys) {
         Map<String, T> docs = new HashMap<String, T>();
-        if (!keys.isEmpty()) {
-            DBObject[] conditions = new DBObject[keys.size()];
-            int i = 0;
-            for (String key : keys) {
-                conditions[i++] = getByKeyQuery(key).get();
-            }
-
-            QueryBuilder builder = new QueryBuilder();
-            builder.or(conditions);
-            DBCursor cursor = getDBCollection(collection).find(builder.get());
-            while (cursor.hasNext()) {
-                T foundDoc = convertFromDBObject(collection, cursor.next());
-                docs.put(foundDoc.getId(), foundDoc);
+        DBCollection dbCollection = getDBCollection(collection);
+        for (List<String> batch : Iterables.partition(keys, IN_CLAUSE_BATCH_SIZE)) {
+            DBCursor cursor = dbCollection.find(QueryBuilder.start(Document.ID).in(batch).get())
+                    .setReadPreference(ReadPreference.primary());
+            try {
+                while (cursor.hasNext()) {
+                    T foundDoc = convertFromDBObject(collection, cursor.next());
+                    foundDoc.seal();
+                    docs.put(foundDoc.getId(), foundDoc);
+                }
+            } finally {
+                cursor.close();
             }
         }
         return docs;
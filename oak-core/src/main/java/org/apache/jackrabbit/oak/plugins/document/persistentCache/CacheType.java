@@ -16,6 +16,8 @@
  */
 package org.apache.jackrabbit.oak.plugins.document.persistentCache;
 
+import java.nio.ByteBuffer;
+
 import org.apache.jackrabbit.oak.plugins.document.LocalDiffCache;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeState;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
@@ -24,6 +26,7 @@ import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
 import org.apache.jackrabbit.oak.plugins.document.PathRev;
 import org.apache.jackrabbit.oak.plugins.document.util.RevisionsKey;
 import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.h2.mvstore.WriteBuffer;
 
 public enum CacheType {
     
@@ -55,6 +58,33 @@ public enum CacheType {
         public <K> boolean shouldCache(DocumentNodeStore store, K key) {
             return !store.getNodeStateCache().isCached(((PathRev)key).getPath());
         }
+        @Override
+        public boolean hasBinaryKeys() {
+            return true;
+        }
+        @Override
+        public <K> void keyToBuffer(K key, WriteBuffer buff) {
+            DataTypeUtil.pathRevToBuffer((PathRev) key, buff);
+        }
+        @SuppressWarnings("unchecked")
+        @Override
+        public <K> K keyFromBuffer(ByteBuffer buff) {
+            return (K) DataTypeUtil.pathRevFromBuffer(buff);
+        }
+        @Override
+        public boolean hasBinaryValues() {
+            return true;
+        }
+        @Override
+        public <V> void valueToBuffer(V value, WriteBuffer buff) {
+            ((DocumentNodeState) value).writeTo(buff);
+        }
+        @SuppressWarnings("unchecked")
+        @Override
+        public <V> V valueFromBuffer(
+                DocumentNodeStore store, DocumentStore docStore, ByteBuffer buff) {
+            return (V) DocumentNodeState.fromBuffer(store, buff);
+        }
     },
     
     CHILDREN {
@@ -86,6 +116,33 @@ public enum CacheType {
         public <K> boolean shouldCache(DocumentNodeStore store, K key) {
             return !store.getNodeStateCache().isCached(((PathRev)key).getPath());
         }
+        @Override
+        public boolean hasBinaryKeys() {
+            return true;
+        }
+        @Override
+        public <K> void keyToBuffer(K key, WriteBuffer buff) {
+            DataTypeUtil.pathRevToBuffer((PathRev) key, buff);
+        }
+        @SuppressWarnings("unchecked")
+        @Override
+        public <K> K keyFromBuffer(ByteBuffer buff) {
+            return (K) DataTypeUtil.pathRevFromBuffer(buff);
+        }
+        @Override
+        public boolean hasBinaryValues() {
+            return true;
+        }
+        @Override
+        public <V> void valueToBuffer(V value, WriteBuffer buff) {
+            ((DocumentNodeState.Children) value).writeTo(buff);
+        }
+        @SuppressWarnings("unchecked")
+        @Override
+        public <V> V valueFromBuffer(
+                DocumentNodeStore store, DocumentStore docStore, ByteBuffer buff) {
+            return (V) DocumentNodeState.Children.fromBuffer(buff);
+        }
     }, 
     
     DIFF {
@@ -116,6 +173,19 @@ public enum CacheType {
         public <K> boolean shouldCache(DocumentNodeStore store, K key) {
             return true;
         }
+        @Override
+        public boolean hasBinaryKeys() {
+            return true;
+        }
+        @Override
+        public <K> void keyToBuffer(K key, WriteBuffer buff) {
+            DataTypeUtil.pathRevToBuffer((PathRev) key, buff);
+        }
+        @SuppressWarnings("unchecked")
+        @Override
+        public <K> K keyFromBuffer(ByteBuffer buff) {
+            return (K) DataTypeUtil.pathRevFromBuffer(buff);
+        }
     },
 
     DOC_CHILDREN {
@@ -282,5 +352,38 @@ public enum CacheType {
             DocumentNodeStore store, DocumentStore docStore, String value);
     public abstract <K> boolean shouldCache(DocumentNodeStore store, K key);
 
+    /**
+     * @return whether keys of this type are written in the compact binary
+     *          format instead of the string format.
+     */
+    public boolean hasBinaryKeys() {
+        return false;
+    }
+
+    public <K> void keyToBuffer(K key, WriteBuffer buff) {
+        throw new UnsupportedOperationException();
+    }
+
+    public <K> K keyFromBuffer(ByteBuffer buff) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return whether values of this type are written in the compact binary
+     *          format instead of the string format.
+     */
+    public boolean hasBinaryValues() {
+        return false;
+    }
+
+    public <V> void valueToBuffer(V value, WriteBuffer buff) {
+        throw new UnsupportedOperationException();
+    }
+
+    public <V> V valueFromBuffer(
+            DocumentNodeStore store, DocumentStore docStore, ByteBuffer buff) {
+        throw new UnsupportedOperationException();
+    }
+
 }
 
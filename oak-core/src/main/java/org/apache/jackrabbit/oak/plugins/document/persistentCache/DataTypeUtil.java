@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.persistentCache;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.jackrabbit.oak.plugins.document.PathRev;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Utility methods for the compact binary format of cache keys and values.
+ * <p>
+ * Entries in the binary format start with the negative format version as a
+ * variable size int, while entries in the string format start with the
+ * (non-negative) length of the string. This allows to read entries written
+ * with either format.
+ */
+public final class DataTypeUtil {
+
+    /**
+     * The current version of the binary format.
+     */
+    static final int BINARY_FORMAT_VERSION = 1;
+
+    /**
+     * Frequently used property names, which are written as an index into
+     * this list. The list is part of the binary format and must not be
+     * changed without changing the {@link #BINARY_FORMAT_VERSION}.
+     */
+    private static final String[] NAMES = {
+            "jcr:primaryType", "jcr:mixinTypes", "jcr:uuid", ":childOrder",
+            "jcr:created", "jcr:createdBy", "jcr:lastModified",
+            "jcr:lastModifiedBy", "jcr:data", "jcr:mimeType", "jcr:encoding",
+            "jcr:title", "jcr:description", "jcr:isCheckedOut",
+            "jcr:versionHistory", "jcr:baseVersion", "jcr:predecessors",
+            "jcr:frozenUuid", "jcr:frozenPrimaryType", "jcr:frozenMixinTypes",
+            "rep:principalName", "rep:authorizableId", "rep:privileges",
+            "rep:password", ":doc-pattern", "sling:resourceType"
+    };
+
+    private static final Map<String, Integer> NAME_INDEX;
+
+    static {
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for (int i = 0; i < NAMES.length; i++) {
+            builder.put(NAMES[i], i + 1);
+        }
+        NAME_INDEX = builder.build();
+    }
+
+    /**
+     * Property names read from the cache, so that entries read for different
+     * nodes share the same name instances.
+     */
+    private static final Interner<String> NAME_INTERNER = Interners.newWeakInterner();
+
+    private DataTypeUtil() {
+    }
+
+    /**
+     * Writes the header of an entry in the binary format.
+     */
+    static void writeBinaryHeader(WriteBuffer buff) {
+        buff.putVarInt(-BINARY_FORMAT_VERSION);
+    }
+
+    /**
+     * Reads the header of an entry.
+     *
+     * @param buff the buffer.
+     * @return the length of the string if the entry is in the string format,
+     *          or {@code -1} if it is in the binary format.
+     * @throws IllegalArgumentException if the binary format version is not
+     *          supported.
+     */
+    static int readHeader(ByteBuffer buff) {
+        int header = DataUtils.readVarInt(buff);
+        if (header >= 0) {
+            return header;
+        } else if (header == -BINARY_FORMAT_VERSION) {
+            return -1;
+        }
+        throw new IllegalArgumentException("Unsupported binary format version: " + -header);
+    }
+
+    public static void stringToBuffer(String s, WriteBuffer buff) {
+        int len = s.length();
+        buff.putVarInt(len).putStringData(s, len);
+    }
+
+    public static String stringFromBuffer(ByteBuffer buff) {
+        return DataUtils.readString(buff, DataUtils.readVarInt(buff));
+    }
+
+    public static void nameToBuffer(String name, WriteBuffer buff) {
+        Integer index = NAME_INDEX.get(name);
+        if (index != null) {
+            buff.putVarInt(index);
+        } else {
+            buff.putVarInt(0);
+            stringToBuffer(name, buff);
+        }
+    }
+
+    public static String nameFromBuffer(ByteBuffer buff) {
+        int index = DataUtils.readVarInt(buff);
+        if (index > 0) {
+            return NAMES[index - 1];
+        }
+        return NAME_INTERNER.intern(stringFromBuffer(buff));
+    }
+
+    public static void revisionVectorToBuffer(RevisionVector rv, WriteBuffer buff) {
+        buff.putVarInt(rv.getDimensions());
+        for (Revision r : rv) {
+            buff.putVarLong(r.getTimestamp());
+            buff.putVarInt(r.getCounter());
+            buff.putVarInt(r.getClusterId() << 1 | (r.isBranch() ? 1 : 0));
+        }
+    }
+
+    public static RevisionVector revisionVectorFromBuffer(ByteBuffer buff) {
+        Revision[] revisions = new Revision[DataUtils.readVarInt(buff)];
+        for (int i = 0; i < revisions.length; i++) {
+            long timestamp = DataUtils.readVarLong(buff);
+            int counter = DataUtils.readVarInt(buff);
+            int clusterIdAndBranch = DataUtils.readVarInt(buff);
+            revisions[i] = new Revision(timestamp, counter,
+                    clusterIdAndBranch >>> 1, (clusterIdAndBranch & 1) != 0);
+        }
+        return new RevisionVector(revisions);
+    }
+
+    public static void pathRevToBuffer(PathRev pr, WriteBuffer buff) {
+        stringToBuffer(pr.getPath(), buff);
+        revisionVectorToBuffer(pr.getRevision(), buff);
+    }
+
+    public static PathRev pathRevFromBuffer(ByteBuffer buff) {
+        return new PathRev(stringFromBuffer(buff), revisionVectorFromBuffer(buff));
+    }
+
+}
@@ -19,6 +19,7 @@ package org.apache.jackrabbit.oak.plugins.document.persistentCache;
 import java.nio.ByteBuffer;
 
 import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.StringDataType;
@@ -43,13 +44,23 @@ public class KeyDataType implements DataType {
 
     @Override
     public void write(WriteBuffer buff, Object obj) {
-        String s = type.keyToString(obj);
-        StringDataType.INSTANCE.write(buff, s);
+        if (type.hasBinaryKeys()) {
+            DataTypeUtil.writeBinaryHeader(buff);
+            type.keyToBuffer(obj, buff);
+        } else {
+            String s = type.keyToString(obj);
+            StringDataType.INSTANCE.write(buff, s);
+        }
     }
 
     @Override
     public Object read(ByteBuffer buff) {
-        String s = StringDataType.INSTANCE.read(buff);
+        int len = DataTypeUtil.readHeader(buff);
+        if (len < 0) {
+            return type.keyFromBuffer(buff);
+        }
+        // entry written with the string format
+        String s = DataUtils.readString(buff, len);
         return type.keyFromString(s);
     }
 
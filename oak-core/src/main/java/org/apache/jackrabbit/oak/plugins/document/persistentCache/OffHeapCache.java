@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.persistentCache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.cache.RemovalCause.COLLECTED;
+import static com.google.common.cache.RemovalCause.EXPIRED;
+import static com.google.common.cache.RemovalCause.SIZE;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.stats.StatisticsProvider;
+import org.apache.jackrabbit.oak.stats.TimerStats;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A second level cache tier for entries evicted from a heap cache. Evicted
+ * entries are serialized with the same {@link DataType}s as used by the
+ * {@link PersistentCache} and written to direct (off-heap) buffers. A lookup
+ * that misses the heap cache is served from this tier if possible and the
+ * entry is then put back into the heap cache.
+ * <p>
+ * The off-heap memory is split into a fixed number of chunks, which are
+ * written to like a ring buffer: once the current chunk is full, the oldest
+ * chunk is recycled and all entries still pointing to it are dropped. Only
+ * the keys and the position of the entries are kept on the heap.
+ * <p>
+ * The tier is only meant for cache types where the key identifies an
+ * immutable value (see {@link #supports(CacheType)}), because the entries
+ * are not checked for external modifications like the entries of the
+ * {@code NodeDocumentCache} are.
+ */
+class OffHeapCache<K, V> implements Cache<K, V>, EvictionListener<K, V> {
+
+    static final Logger LOG = LoggerFactory.getLogger(OffHeapCache.class);
+
+    /**
+     * The maximum size of a chunk of off-heap memory.
+     */
+    static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final Set<RemovalCause> EVICTION_CAUSES = ImmutableSet.of(COLLECTED, EXPIRED, SIZE);
+
+    private static final Set<CacheType> SUPPORTED_TYPES = EnumSet.of(
+            CacheType.NODE, CacheType.CHILDREN, CacheType.DIFF,
+            CacheType.LOCAL_DIFF, CacheType.PREV_DOCUMENT);
+
+    private final Cache<K, V> memCache;
+    private final DocumentNodeStore nodeStore;
+    private final CacheType type;
+    private final DataType valueType;
+    private final PersistentCacheStats stats;
+
+    /**
+     * The position of the entries in the off-heap chunks.
+     */
+    private final ConcurrentMap<K, Slot> index = Maps.newConcurrentMap();
+
+    /**
+     * Guards the chunks. Readers copy the serialized value out of a chunk
+     * while holding the read lock, the writer appends to the current chunk
+     * and recycles chunks while holding the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Chunk[] chunks;
+    private final int chunkSize;
+    private final WriteBuffer writeBuffer = new WriteBuffer();
+    private int current;
+    private int generation;
+
+    OffHeapCache(Cache<K, V> memCache,
+                 DocumentNodeStore docNodeStore,
+                 DocumentStore docStore,
+                 CacheType type,
+                 long maxMemory,
+                 StatisticsProvider statisticsProvider) {
+        checkArgument(supports(type), "Unsupported cache type: %s", type);
+        checkArgument(maxMemory > 0, "maxMemory must be positive: %s", maxMemory);
+        this.memCache = memCache;
+        this.nodeStore = docNodeStore;
+        this.type = type;
+        this.valueType = new ValueDataType(docNodeStore, docStore, type);
+        int count = (int) Math.max(2, Math.min(Integer.MAX_VALUE, (maxMemory + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE));
+        this.chunkSize = (int) Math.min(MAX_CHUNK_SIZE, maxMemory / count);
+        this.chunks = new Chunk[count];
+        this.stats = new PersistentCacheStats("PersistentCache.OffHeapCache." + type.name().toLowerCase(), statisticsProvider);
+        LOG.info("Off-heap cache for {} with {} chunks of {} bytes", type, count, chunkSize);
+    }
+
+    /**
+     * @param type a cache type.
+     * @return whether the off-heap tier can be used for the given type.
+     */
+    static boolean supports(CacheType type) {
+        return SUPPORTED_TYPES.contains(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Nullable
+    public V getIfPresent(Object key) {
+        V value = memCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        stats.markRequest();
+        value = read((K) key);
+        if (value != null) {
+            memCache.put((K) key, value);
+            stats.markHit();
+        }
+        return value;
+    }
+
+    @Override
+    public V get(K key, Callable<? extends V> valueLoader)
+            throws ExecutionException {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        TimerStats.Context ctx = stats.startLoaderTimer();
+        try {
+            value = memCache.get(key, valueLoader);
+            ctx.stop();
+            return value;
+        } catch (ExecutionException e) {
+            stats.markException();
+            throw e;
+        }
+    }
+
+    @Override
+    public ImmutableMap<K, V> getAllPresent(Iterable<?> keys) {
+        return memCache.getAllPresent(keys);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        memCache.put(key, value);
+        // the off-heap entry may be outdated now
+        index.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        memCache.putAll(m);
+        for (K key : m.keySet()) {
+            index.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidate(Object key) {
+        memCache.invalidate(key);
+        if (index.remove(key) != null) {
+            stats.markInvalidateOne();
+        }
+    }
+
+    @Override
+    public void invalidateAll(Iterable<?> keys) {
+        memCache.invalidateAll(keys);
+        for (Object key : keys) {
+            index.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        memCache.invalidateAll();
+        index.clear();
+        stats.markInvalidateAll();
+    }
+
+    @Override
+    public long size() {
+        return memCache.size();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return memCache.stats();
+    }
+
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return memCache.asMap();
+    }
+
+    @Override
+    public void cleanUp() {
+        memCache.cleanUp();
+    }
+
+    /**
+     * Invoked on the eviction from the {@link #memCache}
+     */
+    @Override
+    public void evicted(K key, V value, RemovalCause cause) {
+        if (value == null || !EVICTION_CAUSES.contains(cause)) {
+            return;
+        }
+        if (index.containsKey(key)) {
+            // still valid, was put or invalidated otherwise
+            stats.markPutRejectedAlreadyPersisted();
+            return;
+        }
+        if (!type.shouldCache(nodeStore, key)) {
+            stats.markPutRejectedAsCachedInSecondary();
+            return;
+        }
+        write(key, value);
+    }
+
+    public PersistentCacheStats getPersistentCacheStats() {
+        return stats;
+    }
+
+    /**
+     * @return the number of entries in the off-heap tier.
+     */
+    int getOffHeapEntryCount() {
+        return index.size();
+    }
+
+    /**
+     * @return whether the given key has an entry in the off-heap tier.
+     */
+    boolean isOffHeap(K key) {
+        return index.containsKey(key);
+    }
+
+    //----------------------------< internal >----------------------------------
+
+    @Nullable
+    private V read(K key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        TimerStats.Context ctx = stats.startReadTimer();
+        try {
+            byte[] data = new byte[slot.length];
+            lock.readLock().lock();
+            try {
+                Chunk chunk = chunks[slot.chunk];
+                if (chunk == null || chunk.generation != slot.generation) {
+                    // recycled in the meantime
+                    index.remove(key, slot);
+                    return null;
+                }
+                ByteBuffer buffer = chunk.buffer.duplicate();
+                buffer.position(slot.offset);
+                buffer.get(data);
+            } finally {
+                lock.readLock().unlock();
+            }
+            @SuppressWarnings("unchecked")
+            V value = (V) valueType.read(ByteBuffer.wrap(data));
+            return value;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    private void write(K key, V value) {
+        lock.writeLock().lock();
+        try {
+            writeBuffer.clear();
+            valueType.write(writeBuffer, value);
+            ByteBuffer data = writeBuffer.getBuffer();
+            data.flip();
+            int length = data.remaining();
+            if (length > chunkSize) {
+                LOG.debug("Entry for {} too large for off-heap cache: {} bytes", key, length);
+                return;
+            }
+            Chunk chunk = chunks[current];
+            if (chunk == null || chunk.buffer.remaining() < length) {
+                chunk = nextChunk();
+            }
+            Slot slot = new Slot(current, chunk.generation, chunk.buffer.position(), length);
+            chunk.buffer.put(data);
+            chunk.keys.add(key);
+            index.put(key, slot);
+            stats.markBytesWritten(length);
+            stats.markPut();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves on to the next chunk, allocating it if necessary or dropping
+     * its current entries otherwise. Must be called with the write lock.
+     */
+    private Chunk nextChunk() {
+        if (chunks[current] != null) {
+            current = (current + 1) % chunks.length;
+        }
+        Chunk chunk = chunks[current];
+        generation++;
+        if (chunk == null) {
+            chunk = new Chunk(ByteBuffer.allocateDirect(chunkSize), generation);
+            chunks[current] = chunk;
+        } else {
+            int dropped = 0;
+            for (Object k : chunk.keys) {
+                Slot s = index.get(k);
+                if (s != null && s.chunk == current && s.generation == chunk.generation
+                        && index.remove(k, s)) {
+                    dropped++;
+                }
+            }
+            LOG.debug("Recycled off-heap chunk {} of {}, dropped {} entries", current, type, dropped);
+            stats.removeReadGeneration(chunk.generation);
+            chunk = new Chunk(chunk.buffer, generation);
+            chunk.buffer.clear();
+            chunks[current] = chunk;
+        }
+        // each chunk is tracked as a generation of the used space
+        stats.addWriteGeneration(generation);
+        return chunk;
+    }
+
+    private static final class Chunk {
+
+        final ByteBuffer buffer;
+
+        final int generation;
+
+        final List<Object> keys = Lists.newArrayList();
+
+        Chunk(ByteBuffer buffer, int generation) {
+            this.buffer = buffer;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Slot {
+
+        final int chunk;
+
+        final int generation;
+
+        final int offset;
+
+        final int length;
+
+        Slot(int chunk, int generation, int offset, int length) {
+            this.chunk = chunk;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
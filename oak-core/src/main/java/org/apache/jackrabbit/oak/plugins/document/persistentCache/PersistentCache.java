@@ -446,6 +446,32 @@ public class PersistentCache implements Broadcaster.Listener {
         return base;
     }
     
+    /**
+     * Wrap a heap cache with an off-heap tier for entries evicted from the
+     * heap cache.
+     *
+     * @param docNodeStore the node store, used to deserialize node states.
+     * @param docStore the document store, used to deserialize documents.
+     * @param base the heap cache.
+     * @param type the cache type.
+     * @param maxMemory the maximum off-heap memory in bytes.
+     * @param statisticsProvider the statistics provider.
+     * @return the wrapped cache, or {@code base} if the cache type is not
+     *          supported by the off-heap tier or {@code maxMemory} is zero.
+     */
+    public static <K, V> Cache<K, V> wrapOffHeap(
+            DocumentNodeStore docNodeStore,
+            DocumentStore docStore,
+            Cache<K, V> base, CacheType type,
+            long maxMemory,
+            StatisticsProvider statisticsProvider) {
+        if (maxMemory <= 0 || !OffHeapCache.supports(type)) {
+            return base;
+        }
+        return new OffHeapCache<K, V>(base, docNodeStore, docStore,
+                type, maxMemory, statisticsProvider);
+    }
+
     private void initGenerationCache(GenerationCache c) {
         caches.put(c.getType(), c);
         if (readGeneration >= 0) {
@@ -563,6 +589,9 @@ public class PersistentCache implements Broadcaster.Listener {
         if (cache instanceof NodeCache) {
             return ((NodeCache<?, ?>) cache).getPersistentCacheStats();
         }
+        else if (cache instanceof OffHeapCache) {
+            return ((OffHeapCache<?, ?>) cache).getPersistentCacheStats();
+        }
         else {
             return null;
         }
@@ -116,6 +116,10 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
 
 
     public PersistentCacheStats(CacheType cacheType, StatisticsProvider provider) {
+        this("PersistentCache.NodeCache." + cacheType.name().toLowerCase(), provider);
+    }
+
+    PersistentCacheStats(String name, StatisticsProvider provider) {
         super(PersistentCacheStatsMBean.class);
 
         if (provider == null) {
@@ -125,7 +129,7 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
         }
 
         // Configure cache name
-        cacheName = "PersistentCache.NodeCache." + cacheType.name().toLowerCase();
+        cacheName = name;
 
         // Fetch stats and time series
         String statName;
@@ -498,6 +502,10 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
         return putRejectedAsCachedInSecMeter;
     }
 
+    Counting getUsedSpaceByteCounter() {
+        return usedSpaceByteCounter;
+    }
+
     //~--------------------------------------< private helpers
 
     private static String getStatName(String meter, String cacheName) {
@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import org.apache.jackrabbit.oak.cache.CacheValue;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.StringDataType;
@@ -51,13 +52,23 @@ public class ValueDataType implements DataType {
 
     @Override
     public void write(WriteBuffer buff, Object obj) {
-        String s = type.valueToString(obj);
-        StringDataType.INSTANCE.write(buff, s);
+        if (type.hasBinaryValues()) {
+            DataTypeUtil.writeBinaryHeader(buff);
+            type.valueToBuffer(obj, buff);
+        } else {
+            String s = type.valueToString(obj);
+            StringDataType.INSTANCE.write(buff, s);
+        }
     }
 
     @Override
     public Object read(ByteBuffer buff) {
-        String s = StringDataType.INSTANCE.read(buff);
+        int len = DataTypeUtil.readHeader(buff);
+        if (len < 0) {
+            return type.valueFromBuffer(docNodeStore, docStore, buff);
+        }
+        // entry written with the string format
+        String s = DataUtils.readString(buff, len);
         return type.valueFromString(docNodeStore, docStore, s);
     }
 
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.rdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Defines the encodings of the document serialization in the BDATA column.
+ * <p>
+ * The codec is recognized by the leading bytes of the encoded data, so rows
+ * written with different codecs can be read independently of the codec
+ * currently configured for writing.
+ */
+public enum RDBBlobDataCodec {
+
+    /**
+     * Uncompressed UTF-8 (the JSON serialization always starts with '{').
+     */
+    NONE {
+        @Override
+        public byte[] encode(byte[] bytes) {
+            return bytes;
+        }
+
+        @Override
+        public String decode(byte[] bdata) throws IOException {
+            return IOUtils.toString(bdata, "UTF-8");
+        }
+
+        @Override
+        boolean matches(byte[] bdata) {
+            return true;
+        }
+    },
+
+    /**
+     * GZIP format, as written by all previous versions.
+     */
+    GZIP {
+        @Override
+        public byte[] encode(byte[] bytes) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length);
+            GZIPOutputStream gos = new GZIPOutputStream(bos) {
+                {
+                    this.def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            gos.write(bytes);
+            gos.close();
+            return bos.toByteArray();
+        }
+
+        @Override
+        public String decode(byte[] bdata) throws IOException {
+            GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(bdata), 65536);
+            return IOUtils.toString(gis, "UTF-8");
+        }
+
+        @Override
+        boolean matches(byte[] bdata) {
+            return bdata.length >= 2 && bdata[0] == 31 && bdata[1] == -117;
+        }
+    },
+
+    /**
+     * ZLIB format with the fastest compression level. Avoids the CRC32
+     * computation and the header processing of GZIP.
+     */
+    DEFLATE {
+        @Override
+        public byte[] encode(byte[] bytes) throws IOException {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 4 + 16);
+                DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater, 65536);
+                dos.write(bytes);
+                dos.close();
+                return bos.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public String decode(byte[] bdata) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                InflaterInputStream iis = new InflaterInputStream(new ByteArrayInputStream(bdata), inflater, 65536);
+                return IOUtils.toString(iis, "UTF-8");
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        boolean matches(byte[] bdata) {
+            // ZLIB header: compression method 8 and a valid header checksum
+            return bdata.length >= 2 && (bdata[0] & 0x0f) == 8
+                    && (((bdata[0] & 0xff) << 8) | (bdata[1] & 0xff)) % 31 == 0;
+        }
+    };
+
+    private static final Logger LOG = LoggerFactory.getLogger(RDBBlobDataCodec.class);
+
+    /**
+     * Encodes the UTF-8 serialization of a document.
+     */
+    public abstract byte[] encode(byte[] bytes) throws IOException;
+
+    /**
+     * Decodes data written by {@link #encode(byte[])}.
+     */
+    public abstract String decode(byte[] bdata) throws IOException;
+
+    /**
+     * @return whether the given data was written with this codec
+     */
+    abstract boolean matches(byte[] bdata);
+
+    /**
+     * Determines the codec used to write the given BDATA.
+     */
+    @Nonnull
+    public static RDBBlobDataCodec forBlobData(byte[] bdata) {
+        if (GZIP.matches(bdata)) {
+            return GZIP;
+        } else if (DEFLATE.matches(bdata)) {
+            return DEFLATE;
+        } else {
+            return NONE;
+        }
+    }
+
+    /**
+     * Looks up a codec by name, falling back to the given default for unknown
+     * names.
+     */
+    @Nonnull
+    public static RDBBlobDataCodec getValue(String name, @Nonnull RDBBlobDataCodec defaultCodec) {
+        if (name != null) {
+            for (RDBBlobDataCodec codec : values()) {
+                if (codec.name().equals(name.trim().toUpperCase(Locale.ENGLISH))) {
+                    return codec;
+                }
+            }
+            LOG.error("Unknown BDATA codec " + name + ", using " + defaultCodec);
+        }
+        return defaultCodec;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.oak.plugins.document.rdb;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.partition;
@@ -24,7 +25,6 @@ import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.closeR
 import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.closeStatement;
 import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.createTableName;
 
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -44,6 +44,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,8 +56,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.zip.Deflater;
-import java.util.zip.GZIPOutputStream;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -82,6 +81,7 @@ import org.apache.jackrabbit.oak.plugins.document.cache.NodeDocumentCache;
 import org.apache.jackrabbit.oak.plugins.document.locks.NodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.locks.StripedNodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.mongo.MongoDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterator;
 import org.apache.jackrabbit.oak.OakVersion;
 import org.slf4j.Logger;
@@ -180,8 +180,8 @@ import com.google.common.collect.Sets;
  * <tr>
  * <th>BDATA</th>
  * <td>blob</td>
- * <td>the document's JSON serialization (usually GZIPped, only used for "large"
- * documents)</td>
+ * <td>the document's JSON serialization (usually compressed, see
+ * {@link RDBBlobDataCodec}, only used for "large" documents)</td>
  * </tr>
  * </tbody>
  * </table>
@@ -254,6 +254,61 @@ public class RDBDocumentStore implements DocumentStore {
         return readDocumentCached(collection, id, maxCacheAge);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> List<T> find(final Collection<T> collection, List<String> keys) {
+        Map<String, T> docs = new HashMap<String, T>();
+        Set<String> uncached = new LinkedHashSet<String>();
+        for (String key : keys) {
+            if (collection == Collection.NODES) {
+                NodeDocument cached = nodesCache.getIfPresent(key);
+                if (cached == NodeDocument.NULL) {
+                    stats.doneFindCached(collection, key);
+                    continue;
+                } else if (cached != null && cached.getLastCheckTime() != 0) {
+                    stats.doneFindCached(collection, key);
+                    docs.put(key, castAsT(cached));
+                    continue;
+                }
+            }
+            uncached.add(key);
+        }
+
+        if (!uncached.isEmpty()) {
+            final Stopwatch watch = startWatch();
+            int resultSize = 0;
+            CacheChangesTracker tracker = null;
+            try {
+                if (collection == Collection.NODES) {
+                    tracker = nodesCache.registerTracker(uncached);
+                }
+                List<T> found = new ArrayList<T>(readDocumentsUncached(collection, uncached).values());
+                for (T doc : found) {
+                    doc.seal();
+                    docs.put(doc.getId(), doc);
+                }
+                if (tracker != null) {
+                    nodesCache.putNonConflictingDocs(tracker, castAsNodeDocumentList(found));
+                }
+                resultSize = found.size();
+            } finally {
+                if (tracker != null) {
+                    tracker.close();
+                }
+                stats.doneQuery(watch.elapsed(TimeUnit.NANOSECONDS), collection, null, null, false, resultSize, -1, false);
+            }
+        }
+
+        List<T> result = new ArrayList<T>(docs.size());
+        for (String key : keys) {
+            T doc = docs.get(key);
+            if (doc != null) {
+                result.add(doc);
+            }
+        }
+        return result;
+    }
+
     @Nonnull
     @Override
     public <T extends Document> List<T> query(Collection<T> collection, String fromKey, String toKey, int limit) {
@@ -1567,8 +1622,34 @@ public class RDBDocumentStore implements DocumentStore {
     private static interface MyCloseableIterable<T> extends Closeable, Iterable<T> {
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The batch size is passed to the JDBC driver as fetch size. Whether the
+     * driver then actually streams the result depends on the driver: for
+     * instance, PostgreSQL requires the connection not to be in auto-commit
+     * mode (which is the case for connections used by this store), while
+     * MySQL Connector/J ignores the fetch size and reads the entire result
+     * unless {@code useCursorFetch=true} is set in the JDBC URL.
+     */
+    @Nonnull
+    @Override
+    public <T extends Document> CloseableIterable<T> queryAsIterable(Collection<T> collection, String fromKey, String toKey,
+            int batchSize) {
+        checkArgument(batchSize > 0, "batchSize must be > 0");
+        Iterable<T> it = queryAsIterable(collection, fromKey, toKey, EMPTY_KEY_PATTERN, Collections.<QueryCondition> emptyList(),
+                Integer.MAX_VALUE, "id", batchSize);
+        return CloseableIterable.wrap(it, (Closeable) it);
+    }
+
     protected <T extends Document> Iterable<T> queryAsIterable(final Collection<T> collection, String fromKey, String toKey,
             final List<String> excludeKeyPatterns, final List<QueryCondition> conditions, final int limit, final String sortBy) {
+        return queryAsIterable(collection, fromKey, toKey, excludeKeyPatterns, conditions, limit, sortBy, 0);
+    }
+
+    private <T extends Document> Iterable<T> queryAsIterable(final Collection<T> collection, String fromKey, String toKey,
+            final List<String> excludeKeyPatterns, final List<QueryCondition> conditions, final int limit, final String sortBy,
+            final int fetchSize) {
 
         final RDBTableMetaData tmd = getTable(collection);
         for (QueryCondition cond : conditions) {
@@ -1591,7 +1672,7 @@ public class RDBDocumentStore implements DocumentStore {
             public Iterator<T> iterator() {
                 try {
                     Iterator<RDBRow> res = db.queryAsIterator(ch, tmd, from, to, excludeKeyPatterns, conditions,
-                            limit, sortBy);
+                            limit, sortBy, fetchSize);
                     returned.add(res);
                     Iterator<T> tmp = Iterators.transform(res, new Function<RDBRow, T>() {
                         @Override
@@ -1953,6 +2034,11 @@ public class RDBDocumentStore implements DocumentStore {
     // Whether to use GZIP compression
     private static final boolean NOGZIP = Boolean
             .getBoolean("org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.NOGZIP");
+    // Codec for the BDATA column (GZIP, DEFLATE or NONE); rows written with
+    // any codec can be read, but older versions only read GZIP and NONE
+    private static final RDBBlobDataCodec BDATACODEC = RDBBlobDataCodec.getValue(
+            System.getProperty("org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.BDATACODEC"),
+            NOGZIP ? RDBBlobDataCodec.NONE : RDBBlobDataCodec.GZIP);
     // Whether to use append operations (string concatenation) in the DATA column
     private static final boolean NOAPPEND = Boolean
             .getBoolean("org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.NOAPPEND");
@@ -1978,28 +2064,14 @@ public class RDBDocumentStore implements DocumentStore {
             throw new DocumentStoreException(ex);
         }
 
-        if (NOGZIP) {
-            return bytes;
-        } else {
-            try {
-                ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length());
-                GZIPOutputStream gos = new GZIPOutputStream(bos) {
-                    {
-                        // TODO: make this configurable
-                        this.def.setLevel(Deflater.BEST_SPEED);
-                    }
-                };
-                gos.write(bytes);
-                gos.close();
-                return bos.toByteArray();
-            } catch (IOException ex) {
-                LOG.error("Error while gzipping contents", ex);
-                throw new DocumentStoreException(ex);
-            }
+        try {
+            return BDATACODEC.encode(bytes);
+        } catch (IOException ex) {
+            LOG.error("Error while encoding contents with " + BDATACODEC, ex);
+            throw new DocumentStoreException(ex);
         }
     }
 
-
     @Override
     public void setReadWriteMode(String readWriteMode) {
         // ignored
@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 import org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.PreparedStatementComponent;
@@ -107,6 +108,11 @@ public enum RDBDocumentStoreDB {
             return "select extract(epoch from now())::integer";
         }
 
+        @Override
+        public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+            return "insert into " + tableName + " (" + columns + ") values (" + values + ") on conflict (ID) do nothing";
+        }
+
         @Override
         public String getTableCreationStatement(String tableName, int schema) {
             return ("create table " + tableName
@@ -478,6 +484,31 @@ public enum RDBDocumentStoreDB {
         };
     }
 
+    /**
+     * Statement inserting a row unless a row with the same ID already exists,
+     * in which case the update count of the row is zero. Such statements allow
+     * to insert documents in a JDBC batch without a conflicting row failing
+     * the whole batch.
+     * <p>
+     * Only to be provided where the update count reliably tells existing rows
+     * apart. This is not the case for MySQL, where Connector/J by default
+     * reports found instead of affected rows, so that
+     * {@code on duplicate key update} reports an existing row as inserted.
+     *
+     * @param tableName
+     *            name of the table
+     * @param columns
+     *            comma separated list of columns, starting with ID
+     * @param values
+     *            comma separated list of values, starting with the ID
+     *            parameter
+     * @return the statement, or {@code null} if the DB does not support it
+     */
+    @CheckForNull
+    public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+        return null;
+    }
+
     /**
      * Query for any required initialization of the DB.
      * 
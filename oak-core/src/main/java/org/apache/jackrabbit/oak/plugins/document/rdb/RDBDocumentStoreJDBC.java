@@ -299,46 +299,64 @@ public class RDBDocumentStoreJDBC {
     }
 
     public <T extends Document> Set<String> insert(Connection connection, RDBTableMetaData tmd, List<T> documents) throws SQLException {
-        PreparedStatement stmt = connection.prepareStatement(
-                "insert into " + tmd.getName() + "(ID, MODIFIED, HASBINARY, DELETEDONCE, MODCOUNT, CMODCOUNT, DSIZE, DATA, "
-                        + (tmd.hasVersion() ? "VERSION, " : "") + " BDATA) " + "values (?, ?, ?, ?, ?, ?, ?, ?,"
-                        + (tmd.hasVersion() ? (" " + SCHEMAVERSION + ", ") : "") + " ?)");
+        return insert(connection, tmd, documents, false);
+    }
+
+    /**
+     * Insert a list of documents using a JDBC batch.
+     * <p>
+     * If {@code ifAbsent} is set, documents that already exist in the
+     * database are skipped instead of failing the insert, so that the other
+     * documents are still inserted. Where the database supports it (see
+     * {@link RDBDocumentStoreDB#getInsertIfAbsentStatement(String, String, String)}),
+     * this is done with a conditional insert and the update counts of the
+     * batch. If the batch fails, or the driver doesn't report the update
+     * counts, the batch is rolled back and the documents are inserted one by
+     * one instead. The connection thus must not have other uncommitted
+     * changes in this case.
+     *
+     * @param connection JDBC connection
+     * @param tmd Table metadata
+     * @param documents List of documents to insert
+     * @param ifAbsent whether to skip documents that already exist
+     * @return set containing ids of successfully inserted documents
+     * @throws SQLException
+     */
+    public <T extends Document> Set<String> insert(Connection connection, RDBTableMetaData tmd, List<T> documents, boolean ifAbsent)
+            throws SQLException {
+        String columns = "ID, MODIFIED, HASBINARY, DELETEDONCE, MODCOUNT, CMODCOUNT, DSIZE, DATA, "
+                + (tmd.hasVersion() ? "VERSION, " : "") + "BDATA";
+        String values = "?, ?, ?, ?, ?, ?, ?, ?, " + (tmd.hasVersion() ? (SCHEMAVERSION + ", ") : "") + "?";
+        String conditionalSql = ifAbsent ? this.dbInfo.getInsertIfAbsentStatement(tmd.getName(), columns, values) : null;
+        String sql = conditionalSql != null ? conditionalSql
+                : "insert into " + tmd.getName() + "(" + columns + ") values (" + values + ")";
+        PreparedStatement stmt = connection.prepareStatement(sql);
 
         List<T> sortedDocs = sortDocuments(documents);
         int[] results;
+        boolean batchFailed = false;
         try {
             for (T document : sortedDocs) {
-                String data = this.ser.asString(document);
-                String id = document.getId();
-                Number hasBinary = (Number) document.get(NodeDocument.HAS_BINARY_FLAG);
-                Boolean deletedOnce = (Boolean) document.get(NodeDocument.DELETED_ONCE);
-                Long cmodcount = (Long) document.get(COLLISIONSMODCOUNT);
-
-                int si = 1;
-                setIdInStatement(tmd, stmt, si++, id);
-                stmt.setObject(si++, document.get(MODIFIED), Types.BIGINT);
-                stmt.setObject(si++, hasBinaryAsNullOrInteger(hasBinary), Types.SMALLINT);
-                stmt.setObject(si++, deletedOnceAsNullOrInteger(deletedOnce), Types.SMALLINT);
-                stmt.setObject(si++, document.get(MODCOUNT), Types.BIGINT);
-                stmt.setObject(si++, cmodcount == null ? Long.valueOf(0) : cmodcount, Types.BIGINT);
-                stmt.setObject(si++, data.length(), Types.BIGINT);
-                if (data.length() < tmd.getDataLimitInOctets() / CHAR2OCTETRATIO) {
-                    stmt.setString(si++, data);
-                    stmt.setBinaryStream(si++, null, 0);
-                } else {
-                    stmt.setString(si++, "\"blob\"");
-                    byte[] bytes = asBytes(data);
-                    stmt.setBytes(si++, bytes);
-                }
+                setInsertParameters(tmd, stmt, document);
                 stmt.addBatch();
             }
             results = stmt.executeBatch();
         } catch (BatchUpdateException ex) {
             LOG.debug("Some of the batch updates failed", ex);
             results = ex.getUpdateCounts();
+            batchFailed = true;
         } finally {
             stmt.close();
         }
+
+        if (ifAbsent && (batchFailed || (conditionalSql != null && !isPrecise(results)))) {
+            // we can't tell which documents already existed, either because the
+            // batch stopped at (or might have stopped after) an existing document
+            // or because the driver doesn't report the update counts
+            connection.rollback();
+            return insertOneByOne(connection, tmd, sortedDocs, sql, conditionalSql != null);
+        }
+
         Set<String> succesfullyInserted = new HashSet<String>();
         for (int i = 0; i < results.length; i++) {
             int result = results[i];
@@ -351,6 +369,80 @@ public class RDBDocumentStoreJDBC {
         return succesfullyInserted;
     }
 
+    /**
+     * Insert the documents with a separate statement each, skipping
+     * documents that already exist.
+     *
+     * @param conditional whether {@code sql} is a conditional insert, which
+     *            reports an update count of zero for an existing document.
+     *            Otherwise, a failing insert is considered to be caused by an
+     *            existing document.
+     */
+    private <T extends Document> Set<String> insertOneByOne(Connection connection, RDBTableMetaData tmd, List<T> documents,
+            String sql, boolean conditional) throws SQLException {
+        Set<String> succesfullyInserted = new HashSet<String>();
+        PreparedStatement stmt = connection.prepareStatement(sql);
+        try {
+            for (T document : documents) {
+                setInsertParameters(tmd, stmt, document);
+                int result;
+                try {
+                    result = stmt.executeUpdate();
+                } catch (SQLException ex) {
+                    if (conditional) {
+                        // not caused by an existing document
+                        throw ex;
+                    }
+                    LOG.debug("DB insert failed for " + tmd.getName() + "/" + document.getId(), ex);
+                    continue;
+                }
+                if (result == 1) {
+                    succesfullyInserted.add(document.getId());
+                } else {
+                    LOG.debug("DB insert failed for {}: {}", tmd.getName(), document.getId());
+                }
+            }
+        } finally {
+            stmt.close();
+        }
+        return succesfullyInserted;
+    }
+
+    private static boolean isPrecise(int[] results) {
+        for (int result : results) {
+            if (result == Statement.SUCCESS_NO_INFO) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <T extends Document> void setInsertParameters(RDBTableMetaData tmd, PreparedStatement stmt, T document)
+            throws SQLException {
+        String data = this.ser.asString(document);
+        String id = document.getId();
+        Number hasBinary = (Number) document.get(NodeDocument.HAS_BINARY_FLAG);
+        Boolean deletedOnce = (Boolean) document.get(NodeDocument.DELETED_ONCE);
+        Long cmodcount = (Long) document.get(COLLISIONSMODCOUNT);
+
+        int si = 1;
+        setIdInStatement(tmd, stmt, si++, id);
+        stmt.setObject(si++, document.get(MODIFIED), Types.BIGINT);
+        stmt.setObject(si++, hasBinaryAsNullOrInteger(hasBinary), Types.SMALLINT);
+        stmt.setObject(si++, deletedOnceAsNullOrInteger(deletedOnce), Types.SMALLINT);
+        stmt.setObject(si++, document.get(MODCOUNT), Types.BIGINT);
+        stmt.setObject(si++, cmodcount == null ? Long.valueOf(0) : cmodcount, Types.BIGINT);
+        stmt.setObject(si++, data.length(), Types.BIGINT);
+        if (data.length() < tmd.getDataLimitInOctets() / CHAR2OCTETRATIO) {
+            stmt.setString(si++, data);
+            stmt.setBinaryStream(si++, null, 0);
+        } else {
+            stmt.setString(si++, "\"blob\"");
+            byte[] bytes = asBytes(data);
+            stmt.setBytes(si++, bytes);
+        }
+    }
+
     /**
      * Update a list of documents using JDBC batches. Some of the updates may fail because of the concurrent
      * changes. The method returns a set of successfully updated documents. It's the caller responsibility
@@ -358,7 +450,8 @@ public class RDBDocumentStoreJDBC {
      * appropriate action.
      * <p>
      * If the {@code upsert} parameter is set to true, the method will also try to insert new documents, those
-     * which modcount equals to 1.
+     * which modcount equals to 1. New documents created concurrently by another cluster node are skipped instead of
+     * failing the other inserts; they are reported as conflicting.
      * <p>
      * The order of applying updates will be different than order of the passed list, so there shouldn't be two
      * updates related to the same document. An {@link IllegalArgumentException} will be thrown if there are.
@@ -445,7 +538,9 @@ public class RDBDocumentStoreJDBC {
             }
 
             if (!toBeInserted.isEmpty()) {
-                for (String id : insert(connection, tmd, toBeInserted)) {
+                // the inserts may be rolled back, so don't lose the updates
+                connection.commit();
+                for (String id : insert(connection, tmd, toBeInserted, true)) {
                     successfulUpdates.add(id);
                 }
             }
@@ -558,8 +653,18 @@ public class RDBDocumentStoreJDBC {
     @Nonnull
     public Iterator<RDBRow> queryAsIterator(RDBConnectionHandler ch, RDBTableMetaData tmd, String minId, String maxId,
             List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit, String sortBy) throws SQLException {
+        return queryAsIterator(ch, tmd, minId, maxId, excludeKeyPatterns, conditions, limit, sortBy, 0);
+    }
+
+    /**
+     * Like {@link #queryAsIterator(RDBConnectionHandler, RDBTableMetaData, String, String, List, List, int, String)},
+     * with a hint for the number of rows the JDBC driver fetches per round trip (ignored when not positive).
+     */
+    public Iterator<RDBRow> queryAsIterator(RDBConnectionHandler ch, RDBTableMetaData tmd, String minId, String maxId,
+            List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit, String sortBy, int fetchSize)
+            throws SQLException {
         return new ResultSetIterator(ch, tmd, "ID, MODIFIED, MODCOUNT, CMODCOUNT, HASBINARY, DELETEDONCE, DATA, BDATA", minId,
-                maxId, excludeKeyPatterns, conditions, limit, sortBy);
+                maxId, excludeKeyPatterns, conditions, limit, sortBy, fetchSize);
     }
 
     private class ResultSetIterator implements Iterator<RDBRow>, Closeable {
@@ -576,7 +681,8 @@ public class RDBDocumentStoreJDBC {
         private long cnt = 0;
 
         public ResultSetIterator(RDBConnectionHandler ch, RDBTableMetaData tmd, String string, String minId, String maxId,
-                List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit, String sortBy) throws SQLException {
+                List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit, String sortBy, int fetchSize)
+                throws SQLException {
             long start = System.currentTimeMillis();
             try {
                 this.ch = ch;
@@ -584,6 +690,13 @@ public class RDBDocumentStoreJDBC {
                 this.tmd = tmd;
                 this.stmt = prepareQuery(connection, tmd, "ID, MODIFIED, MODCOUNT, CMODCOUNT, HASBINARY, DELETEDONCE, DATA, BDATA",
                         minId, maxId, excludeKeyPatterns, conditions, limit, sortBy);
+                if (fetchSize > 0) {
+                    // lets the driver use a server side cursor instead of
+                    // reading the entire result set; PostgreSQL only does so
+                    // outside of auto-commit mode, which getROConnection()
+                    // already disables
+                    this.stmt.setFetchSize(fetchSize);
+                }
                 this.rs = stmt.executeQuery();
                 this.next = internalNext();
                 this.message = String.format("Query on %s with params minid '%s' maxid '%s' excludeKeyPatterns %s conditions %s.",
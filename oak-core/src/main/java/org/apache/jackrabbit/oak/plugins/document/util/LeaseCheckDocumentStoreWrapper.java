@@ -73,6 +73,12 @@ public final class LeaseCheckDocumentStoreWrapper implements DocumentStore, Revi
         return delegate.find(collection, key, maxCacheAge);
     }
 
+    @Override
+    public final <T extends Document> List<T> find(Collection<T> collection, List<String> keys) {
+        performLeaseCheck();
+        return delegate.find(collection, keys);
+    }
+
     @Override
     public final <T extends Document> List<T> query(Collection<T> collection,
             String fromKey, String toKey, int limit) {
@@ -88,6 +94,13 @@ public final class LeaseCheckDocumentStoreWrapper implements DocumentStore, Revi
         return delegate.query(collection, fromKey, toKey, indexedProperty, startValue, limit);
     }
 
+    @Override
+    public final <T extends Document> CloseableIterable<T> queryAsIterable(Collection<T> collection,
+            String fromKey, String toKey, int batchSize) {
+        performLeaseCheck();
+        return delegate.queryAsIterable(collection, fromKey, toKey, batchSize);
+    }
+
     @Override
     public final <T extends Document> void remove(Collection<T> collection, String key) {
         performLeaseCheck();
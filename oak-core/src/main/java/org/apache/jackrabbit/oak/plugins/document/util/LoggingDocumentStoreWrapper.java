@@ -91,6 +91,24 @@ public class LoggingDocumentStoreWrapper implements DocumentStore, RevisionListe
         }
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> List<T> find(final Collection<T> collection,
+                                             final List<String> keys) {
+        try {
+            logMethod("find", collection, keys);
+            return logResult(new Callable<List<T>>() {
+                @Override
+                public List<T> call() throws Exception {
+                    return store.find(collection, keys);
+                }
+            });
+        } catch (Exception e) {
+            logException(e);
+            throw convert(e);
+        }
+    }
+
     @Nonnull
     @Override
     public <T extends Document> List<T> query(final Collection<T> collection,
@@ -133,6 +151,26 @@ public class LoggingDocumentStoreWrapper implements DocumentStore, RevisionListe
         }
     }
 
+    @Override
+    @Nonnull
+    public <T extends Document> CloseableIterable<T> queryAsIterable(final Collection<T> collection,
+                                                                     final String fromKey,
+                                                                     final String toKey,
+                                                                     final int batchSize) {
+        try {
+            logMethod("queryAsIterable", collection, fromKey, toKey, batchSize);
+            return logResult(new Callable<CloseableIterable<T>>() {
+                @Override
+                public CloseableIterable<T> call() throws Exception {
+                    return store.queryAsIterable(collection, fromKey, toKey, batchSize);
+                }
+            });
+        } catch (Exception e) {
+            logException(e);
+            throw convert(e);
+        }
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection, String key) {
         try {
@@ -53,6 +53,12 @@ public class SynchronizingDocumentStoreWrapper implements DocumentStore, Revisio
         return store.find(collection, key, maxCacheAge);
     }
 
+    @Override
+    @Nonnull
+    public synchronized <T extends Document> List<T> find(final Collection<T> collection, final List<String> keys) {
+        return store.find(collection, keys);
+    }
+
     @Override
     @Nonnull
     public synchronized <T extends Document> List<T> query(final Collection<T> collection, final String fromKey,
@@ -67,6 +73,13 @@ public class SynchronizingDocumentStoreWrapper implements DocumentStore, Revisio
         return store.query(collection, fromKey, toKey, indexedProperty, startValue, limit);
     }
 
+    @Override
+    @Nonnull
+    public synchronized <T extends Document> CloseableIterable<T> queryAsIterable(final Collection<T> collection,
+            final String fromKey, final String toKey, final int batchSize) {
+        return store.queryAsIterable(collection, fromKey, toKey, batchSize);
+    }
+
     @Override
     public synchronized <T extends Document> void remove(Collection<T> collection, String key) {
         store.remove(collection, key);
@@ -121,6 +121,22 @@ public class TimingDocumentStoreWrapper implements DocumentStore, RevisionListen
         }
     }
 
+    @Override
+    @Nonnull
+    public <T extends Document> List<T> find(Collection<T> collection, List<String> keys) {
+        try {
+            long start = now();
+            List<T> result = base.find(collection, keys);
+            updateAndLogTimes("find, keys", start, 0, size(result));
+            if (logCommonCall()) {
+                logCommonCall(start, "find " + collection + " " + keys);
+            }
+            return result;
+        } catch (Exception e) {
+            throw convert(e);
+        }
+    }
+
     @Override
     @Nonnull
     public <T extends Document> List<T> query(Collection<T> collection,
@@ -167,6 +183,25 @@ public class TimingDocumentStoreWrapper implements DocumentStore, RevisionListen
         }
     }
 
+    @Override
+    @Nonnull
+    public <T extends Document> CloseableIterable<T> queryAsIterable(Collection<T> collection,
+                                                                     String fromKey,
+                                                                     String toKey,
+                                                                     int batchSize) {
+        try {
+            long start = now();
+            CloseableIterable<T> result = base.queryAsIterable(collection, fromKey, toKey, batchSize);
+            updateAndLogTimes("queryAsIterable", start, 0, 0);
+            if (logCommonCall()) {
+                logCommonCall(start, "queryAsIterable " + collection + " " + fromKey + " " + toKey + " " + batchSize);
+            }
+            return result;
+        } catch (Exception e) {
+            throw convert(e);
+        }
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection, String key) {
         try {
@@ -17,15 +17,22 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Iterables;
 
 import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.junit.Test;
 
 import static com.google.common.collect.Iterables.all;
 import static org.apache.jackrabbit.oak.plugins.document.TestUtils.IS_LAST_REV_UPDATE;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -61,6 +68,59 @@ public class BackgroundWriteTest {
         mk.dispose();
     }
 
+    @Test
+    public void adaptiveMultiUpdate() throws Exception {
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+        DocumentStore store = new MemoryDocumentStore() {
+            @Override
+            public <T extends Document> List<T> createOrUpdate(Collection<T> collection,
+                                                               List<UpdateOp> updateOps) {
+                if (all(updateOps, IS_LAST_REV_UPDATE)) {
+                    sizes.add(updateOps.size());
+                    // slow multi update
+                    try {
+                        Thread.sleep(UnsavedModifications.BACKGROUND_MULTI_UPDATE_TARGET_MILLIS + 10);
+                    } catch (InterruptedException e) {
+                        throw DocumentStoreException.convert(e);
+                    }
+                }
+                return super.createOrUpdate(collection, updateOps);
+            }
+        };
+        UnsavedModifications pending = new UnsavedModifications();
+        Revision r = new Revision(Revision.getCurrentTimestamp() - 1000, 0, 1);
+        List<UpdateOp> ops = new ArrayList<UpdateOp>();
+        for (int i = 0; i < 1000; i++) {
+            pending.put("/node-" + i, r);
+            ops.add(new UpdateOp(Utils.getIdFromPath("/node-" + i), true));
+        }
+        assertTrue(store.create(Collection.NODES, ops));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            BackgroundWriteStats stats = pending.persist(store,
+                    Suppliers.<Revision>ofInstance(null),
+                    UnsavedModifications.Snapshot.IGNORE,
+                    new ReentrantLock(), executor);
+            assertEquals(1000, stats.num);
+            assertEquals(0, stats.queueDepth);
+            assertTrue(stats.flushLag >= 1000);
+            assertEquals(sizes.size(), stats.calls);
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(pending.getPaths().isEmpty());
+        // batches shrink when multi updates are slow
+        assertEquals(UnsavedModifications.BACKGROUND_MULTI_UPDATE_LIMIT, (int) sizes.get(0));
+        assertEquals(UnsavedModifications.BACKGROUND_MULTI_UPDATE_MIN,
+                pending.getBatchSize());
+        int total = 0;
+        for (int size : sizes) {
+            assertTrue(size <= UnsavedModifications.BACKGROUND_MULTI_UPDATE_LIMIT);
+            total += size;
+        }
+        assertEquals(1000, total);
+    }
+
     private static final class TestStore extends MemoryDocumentStore {
 
         @Override
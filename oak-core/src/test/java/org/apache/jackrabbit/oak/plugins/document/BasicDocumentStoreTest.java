@@ -23,6 +23,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -35,6 +36,7 @@ import java.util.UUID;
 
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -790,6 +792,45 @@ public class BasicDocumentStoreTest extends AbstractDocumentStoreTest {
         assertTrue(d == null);
     }
 
+    @Test
+    public void testFindMultiple() {
+        String base = this.getClass().getName() + ".testFindMultiple-";
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            String id = base + i;
+            UpdateOp up = new UpdateOp(id, true);
+            up.set("foo", "bar" + i);
+            assertTrue(super.ds.create(Collection.NODES, Collections.singletonList(up)));
+            removeMe.add(id);
+            ids.add(id);
+        }
+
+        // some documents cached, others not, in reverse order and with
+        // keys of documents that don't exist
+        super.ds.invalidateCache();
+        super.ds.find(Collection.NODES, base + 3);
+        super.ds.find(Collection.NODES, base + 7);
+        List<String> keys = Lists.reverse(ids);
+        keys = Lists.newArrayList(keys);
+        keys.add(3, base + "missing-" + UUID.randomUUID());
+        keys.add(base + "missing-" + UUID.randomUUID());
+
+        List<NodeDocument> docs = super.ds.find(Collection.NODES, keys);
+        assertEquals(10, docs.size());
+        for (int i = 0; i < 10; i++) {
+            NodeDocument doc = docs.get(i);
+            assertEquals(base + (9 - i), doc.getId());
+            assertEquals("bar" + (9 - i), doc.get("foo"));
+        }
+
+        // documents read with the batch are served from the cache
+        for (String id : ids) {
+            assertNotNull(super.ds.getIfCached(Collection.NODES, id));
+        }
+
+        assertTrue(super.ds.find(Collection.NODES, Collections.<String>emptyList()).isEmpty());
+    }
+
     @Test
     public void testUpdateMultiple() {
         String id = this.getClass().getName() + ".testUpdateMultiple";
@@ -903,6 +944,33 @@ public class BasicDocumentStoreTest extends AbstractDocumentStoreTest {
         assertFalse(result.contains(base + "0"));
     }
 
+    @Test
+    public void testQueryAsIterable() throws IOException {
+        // create 25 documents, more than fit into a single batch
+        String base = this.getClass().getName() + ".testQueryAsIterable-";
+        for (int i = 0; i < 25; i++) {
+            String id = base + String.format("%02d", i);
+            UpdateOp up = new UpdateOp(id, true);
+            boolean success = super.ds.create(Collection.NODES, Collections.singletonList(up));
+            assertTrue("document with " + id + " not created", success);
+            removeMe.add(id);
+        }
+
+        List<String> result = new ArrayList<String>();
+        CloseableIterable<NodeDocument> docs = ds.queryAsIterable(Collection.NODES, base + "00", base + "Z", 7);
+        try {
+            for (NodeDocument doc : docs) {
+                result.add(doc.getId());
+            }
+        } finally {
+            docs.close();
+        }
+        assertEquals(24, result.size());
+        assertFalse(result.contains(base + "00"));
+        assertEquals(base + "01", result.get(0));
+        assertEquals(base + "24", result.get(23));
+    }
+
     @Test
     public void testQueryDeletedOnce() {
         // create ten documents
@@ -26,6 +26,7 @@ import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
 import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 
 public class CountingDocumentStore implements DocumentStore, RevisionListener {
 
@@ -99,6 +100,17 @@ public class CountingDocumentStore implements DocumentStore, RevisionListener {
         return delegate.find(collection, key, maxCacheAge);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> List<T> find(Collection<T> collection,
+                                             List<String> keys) {
+        getStats(collection).numFindCalls++;
+        if (printStacks) {
+            new Exception("find [" + getStats(collection).numFindCalls + "] (" + collection + ") " + keys).printStackTrace();
+        }
+        return delegate.find(collection, keys);
+    }
+
     @Nonnull
     @Override
     public <T extends Document> List<T> query(Collection<T> collection,
@@ -127,6 +139,19 @@ public class CountingDocumentStore implements DocumentStore, RevisionListener {
         return delegate.query(collection, fromKey, toKey, indexedProperty, startValue, limit);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> CloseableIterable<T> queryAsIterable(Collection<T> collection,
+                                                                     String fromKey,
+                                                                     String toKey,
+                                                                     int batchSize) {
+        getStats(collection).numQueryCalls++;
+        if (printStacks) {
+            new Exception("queryAsIterable [" + getStats(collection).numQueryCalls + "] (" + collection + ") " + fromKey + ", to " + toKey + ". batchSize " + batchSize).printStackTrace();
+        }
+        return delegate.queryAsIterable(collection, fromKey, toKey, batchSize);
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection,
                                             String key) {
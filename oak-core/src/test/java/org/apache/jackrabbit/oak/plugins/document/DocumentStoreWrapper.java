@@ -23,6 +23,7 @@ import javax.annotation.Nonnull;
 
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 
 /**
  * A DocumentStore implementation which wraps another store and delegates all
@@ -48,6 +49,13 @@ public class DocumentStoreWrapper implements DocumentStore, RevisionListener {
         return store.find(collection, key, maxCacheAge);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> List<T> find(Collection<T> collection,
+                                             List<String> keys) {
+        return store.find(collection, keys);
+    }
+
     @Nonnull
     @Override
     public <T extends Document> List<T> query(Collection<T> collection,
@@ -69,6 +77,15 @@ public class DocumentStoreWrapper implements DocumentStore, RevisionListener {
                 indexedProperty, startValue, limit);
     }
 
+    @Nonnull
+    @Override
+    public <T extends Document> CloseableIterable<T> queryAsIterable(Collection<T> collection,
+                                                                     String fromKey,
+                                                                     String toKey,
+                                                                     int batchSize) {
+        return store.queryAsIterable(collection, fromKey, toKey, batchSize);
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection,
                                             String key) {
@@ -143,6 +143,32 @@ public class ExternalChangesTest {
         assertTrue(cs.anyOverflow());
     }
 
+    @Test
+    public void externalChangesInChunks() throws Exception{
+        ns2.setExternalChangesChunkSize(1);
+        // make sure earlier changes are already visible on ns2
+        ns1.runBackgroundUpdateOperations();
+        ns2.runBackgroundReadOperations();
+
+        NodeBuilder b1 = ns1.getRoot().builder();
+        b1.child("a");
+        ns1.merge(b1, newCollectingHook(), newCommitInfo());
+        ns1.runBackgroundUpdateOperations();
+
+        NodeBuilder b2 = ns1.getRoot().builder();
+        b2.child("b");
+        ns1.merge(b2, newCollectingHook(), newCommitInfo());
+        ns1.runBackgroundUpdateOperations();
+
+        c2.reset();
+        ns2.runBackgroundReadOperations();
+
+        // one external change per journal entry
+        assertEquals(2, c2.getExternalChanges().size());
+        assertTrue(ns2.getRoot().hasChildNode("a"));
+        assertTrue(ns2.getRoot().hasChildNode("b"));
+    }
+
     @Test
     public void changeSetForBranchCommit() throws Exception{
         final int NUM_NODES = DocumentMK.UPDATE_LIMIT / 2;
@@ -248,14 +274,19 @@ public class ExternalChangesTest {
         }
 
         public CommitInfo getExternalChange(){
+            List<CommitInfo> result = getExternalChanges();
+            assertEquals(1, result.size());
+            return result.get(0);
+        }
+
+        public List<CommitInfo> getExternalChanges(){
             List<CommitInfo> result = Lists.newArrayList();
             for (CommitInfo info : infos){
                 if (info.isExternal()) {
                     result.add(info);
                 }
             }
-            assertEquals(1, result.size());
-            return result.get(0);
+            return result;
         }
 
         void reset(){
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.synchronizedList;
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link GroupCommitQueue}.
+ */
+public class GroupCommitQueueTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    private final CountDownLatch proceed = new CountDownLatch(1);
+
+    private final List<Integer> calls = synchronizedList(Lists.<Integer>newArrayList());
+
+    private final DocumentStore store = new MemoryDocumentStore() {
+        @Override
+        public <T extends Document> List<T> createOrUpdate(Collection<T> collection,
+                                                           List<UpdateOp> updateOps) {
+            if (blocked.getCount() > 0) {
+                blocked.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw DocumentStoreException.convert(e);
+                }
+            }
+            calls.add(updateOps.size());
+            return super.createOrUpdate(collection, updateOps);
+        }
+    };
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void groupConcurrentCommits() throws Exception {
+        GroupCommitQueue queue = new GroupCommitQueue(store);
+        Future<List<NodeDocument>> first = createOrUpdate(queue, "1:/a");
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        Future<List<NodeDocument>> second = createOrUpdate(queue, "1:/b", "1:/c");
+        waitUntilPending(queue, 2);
+        Future<List<NodeDocument>> third = createOrUpdate(queue, "1:/d");
+        waitUntilPending(queue, 3);
+        proceed.countDown();
+
+        assertEquals(1, first.get().size());
+        List<NodeDocument> docs = second.get();
+        assertEquals(2, docs.size());
+        assertNull(docs.get(0));
+        assertEquals(1, third.get().size());
+        // one call for the first commit and one for the other two
+        assertEquals(Lists.newArrayList(1, 3), calls);
+        for (String id : new String[]{"1:/a", "1:/b", "1:/c", "1:/d"}) {
+            assertTrue(store.find(NODES, id) != null);
+        }
+    }
+
+    @Test
+    public void sameDocumentNotGrouped() throws Exception {
+        GroupCommitQueue queue = new GroupCommitQueue(store);
+        Future<List<NodeDocument>> first = createOrUpdate(queue, "1:/a");
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        Future<List<NodeDocument>> second = createOrUpdate(queue, "1:/b");
+        waitUntilPending(queue, 1);
+        // changes the same document as the pending group
+        List<NodeDocument> docs = queue.createOrUpdate(singletonList(newOp("1:/b")));
+        assertEquals(1, docs.size());
+        assertEquals(1, queue.getPendingSize());
+        proceed.countDown();
+        first.get();
+        second.get();
+        assertEquals(3, calls.size());
+    }
+
+    @Test
+    public void concurrentCommitsWithNodeStore() throws Exception {
+        proceed.countDown();
+        final DocumentNodeStore ns = builderProvider.newBuilder()
+                .setDocumentStore(store).setGroupCommit(true)
+                .setAsyncDelay(0).getNodeStore();
+        List<Future<Object>> results = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            final String name = "node-" + i;
+            results.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    for (int j = 0; j < 20; j++) {
+                        NodeBuilder builder = ns.getRoot().builder();
+                        builder.child(name).child("child-" + j);
+                        ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Object> f : results) {
+            f.get();
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(20, ns.getRoot().getChildNode("node-" + i).getChildNodeCount(100));
+        }
+    }
+
+    private Future<List<NodeDocument>> createOrUpdate(final GroupCommitQueue queue,
+                                                      final String... ids) {
+        return executor.submit(new Callable<List<NodeDocument>>() {
+            @Override
+            public List<NodeDocument> call() throws Exception {
+                List<UpdateOp> ops = Lists.newArrayList();
+                for (String id : ids) {
+                    ops.add(newOp(id));
+                }
+                return queue.createOrUpdate(ops);
+            }
+        });
+    }
+
+    private static UpdateOp newOp(String id) {
+        UpdateOp op = new UpdateOp(id, true);
+        op.set("p", "v");
+        return op;
+    }
+
+    private static void waitUntilPending(GroupCommitQueue queue, int size)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (queue.getPendingSize() != size && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, queue.getPendingSize());
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -32,6 +33,7 @@ import org.apache.jackrabbit.oak.commons.json.JsopReader;
 import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
 import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterable;
 import org.junit.Test;
 
 import static java.util.Collections.singleton;
@@ -166,6 +168,65 @@ public class JournalEntryTest {
         inv.close();
     }
 
+    @Test
+    public void fillExternalChangesWithFirstChunk() throws Exception {
+        DocumentStore store = new MemoryDocumentStore();
+        JournalEntry entry = JOURNAL.newDocument(store);
+        Set<String> paths = Sets.newHashSet();
+        addRandomPaths(paths);
+        entry.modified(paths);
+        Revision r1 = new Revision(1, 0, 1);
+        Revision r2 = new Revision(2, 0, 1);
+        Revision r3 = new Revision(3, 0, 1);
+        UpdateOp op = entry.asUpdateOp(r2);
+        assertTrue(store.create(JOURNAL, Collections.singletonList(op)));
+
+        assertEquals(0, JournalEntry.readFirstChunk(r2, r3, store).size());
+        assertEquals(0, JournalEntry.readFirstChunk(r2, r1, store).size());
+        List<JournalEntry> chunk = JournalEntry.readFirstChunk(r1, r3, store);
+        assertEquals(1, chunk.size());
+
+        // must not query the store for the first chunk again
+        DocumentStore empty = new MemoryDocumentStore();
+        StringSort sort = JournalEntry.newSorter();
+        StringSort inv = JournalEntry.newSorter();
+        assertEquals(1, JournalEntry.fillExternalChanges(sort, inv, "/",
+                r1, r2, empty, null, null, chunk));
+        assertEquals(paths.size(), sort.getSize());
+        assertEquals(0, inv.getSize());
+        sort.close();
+        inv.close();
+    }
+
+    @Test
+    public void readEntries() throws Exception {
+        DocumentStore store = new MemoryDocumentStore();
+        Revision r1 = new Revision(1, 0, 1);
+        Revision r2 = new Revision(2, 0, 1);
+        Revision r3 = new Revision(3, 0, 1);
+        Revision r4 = new Revision(4, 0, 1);
+        for (Revision r : new Revision[]{r2, r4}) {
+            JournalEntry entry = JOURNAL.newDocument(store);
+            entry.modified("/foo");
+            assertTrue(store.create(JOURNAL, Collections.singletonList(entry.asUpdateOp(r))));
+        }
+
+        assertEquals(0, Iterables.size(JournalEntry.readEntries(r2, r1, store)));
+        CloseableIterable<JournalEntry> entries = JournalEntry.readEntries(r1, r2, store);
+        List<JournalEntry> list = Lists.newArrayList(entries);
+        entries.close();
+        assertEquals(1, list.size());
+        assertEquals(r2, JournalEntry.asRevision(list.get(0).getId()));
+
+        // must read next higher entry when there is none for r3
+        entries = JournalEntry.readEntries(r1, r3, store);
+        list = Lists.newArrayList(entries);
+        entries.close();
+        assertEquals(2, list.size());
+        assertEquals(r2, JournalEntry.asRevision(list.get(0).getId()));
+        assertEquals(r4, JournalEntry.asRevision(list.get(1).getId()));
+    }
+
     @Test
     public void invalidateOnly() throws Exception {
         DocumentStore store = new MemoryDocumentStore();
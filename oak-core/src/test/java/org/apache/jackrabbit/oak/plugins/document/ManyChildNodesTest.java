@@ -31,6 +31,8 @@ import org.junit.Test;
 
 import com.google.common.collect.Maps;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -66,6 +68,35 @@ public class ManyChildNodesTest {
         mk.dispose();
     }
     
+    @Test
+    public void readManyChildNodes() throws Exception {
+        TestStore store = new TestStore();
+        DocumentNodeStore ns = new DocumentMK.Builder().setDocumentStore(store).getNodeStore();
+        int num = DocumentNodeState.MAX_FETCH_SIZE * 3;
+        NodeBuilder builder = ns.getRoot().builder();
+        for (int i = 0; i < num; i++) {
+            builder.child("test").child("c-" + i);
+        }
+        ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        builder = ns.getRoot().builder();
+        for (int i = 0; i < num; i += 2) {
+            builder.child("test").child("c-" + i).remove();
+        }
+        ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        store.queries.clear();
+        // reading more children than the maximum fetch size at once
+        // must still fetch them in batches
+        assertEquals(num / 2, ns.getRoot().getChildNode("test").getChildNodeCount(num + 1));
+        assertFalse(store.queries.isEmpty());
+        int maxFetchSize = DocumentNodeState.MAX_FETCH_SIZE + 1;
+        for (Map.Entry<String, Integer> e : store.queries.entrySet()) {
+            assertTrue(e.getValue() + " > " + maxFetchSize,
+                    e.getValue() <= maxFetchSize);
+        }
+        ns.dispose();
+    }
+
     // OAK-2448
     @Test
     public void nodeChildrenCache() throws Exception {
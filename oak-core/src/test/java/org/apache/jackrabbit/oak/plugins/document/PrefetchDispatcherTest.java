@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
@@ -30,6 +31,7 @@ import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.junit.Rule;
 import org.junit.Test;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 
 public class PrefetchDispatcherTest {
@@ -79,4 +81,41 @@ public class PrefetchDispatcherTest {
         // expect two queries for children: below /foo and /foo/bar
         assertEquals(2, numQueries.get());
     }
+
+    @Test
+    public void warmUpDocumentCache() throws Exception {
+        final AtomicInteger numBatches = new AtomicInteger();
+        final List<String> found = Lists.newArrayList();
+        MemoryDocumentStore store = new MemoryDocumentStore() {
+            @Nonnull
+            @Override
+            public <T extends Document> List<T> find(Collection<T> collection,
+                                                     List<String> keys) {
+                if (collection == Collection.NODES) {
+                    numBatches.incrementAndGet();
+                    found.addAll(keys);
+                }
+                return super.find(collection, keys);
+            }
+        };
+        DocumentNodeStore ns = builderProvider.newBuilder()
+                .setDocumentStore(store).setAsyncDelay(0).getNodeStore();
+        DocumentNodeState before = ns.getRoot();
+        NodeBuilder builder = before.builder();
+        builder.child("foo").child("bar");
+        ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        DocumentNodeState after = ns.getRoot().fromExternalChange();
+
+        PrefetchDispatcher dispatcher = new PrefetchDispatcher(
+                before, MoreExecutors.sameThreadExecutor(), store);
+        dispatcher.setExternalChanges(asList("/", "/foo", "/foo/bar"));
+        dispatcher.contentChanged(after, CommitInfo.EMPTY_EXTERNAL);
+        assertEquals(1, numBatches.get());
+        assertEquals(asList("0:/", "1:/foo", "2:/foo/bar"), found);
+
+        // changed paths are only used for the next external change
+        numBatches.set(0);
+        dispatcher.contentChanged(ns.getRoot().fromExternalChange(), CommitInfo.EMPTY_EXTERNAL);
+        assertEquals(0, numBatches.get());
+    }
 }
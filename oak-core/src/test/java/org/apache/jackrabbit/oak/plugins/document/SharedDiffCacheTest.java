@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.junit.Test;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SharedDiffCacheTest {
+
+    @Test
+    public void externalChange() {
+        Cache<PathRev, StringValue> shared = CacheBuilder.newBuilder().build();
+        DiffCache writer = new SharedDiffCache(shared);
+        DiffCache reader = new SharedDiffCache(shared);
+
+        Revision r1c1 = new Revision(1, 0, 1);
+        Revision r2c1 = new Revision(2, 0, 1);
+        Revision r1c2 = new Revision(1, 0, 2);
+        Revision r3c2 = new Revision(3, 0, 2);
+
+        // local commit on cluster node 1
+        RevisionVector before = new RevisionVector(r1c1, r1c2);
+        RevisionVector after = before.update(r2c1);
+        DiffCache.Entry entry = writer.newEntry(before, after, true);
+        entry.append("/", "^\"foo\":{}");
+        entry.append("/foo", "+\"bar\":{}");
+        assertEquals(true, entry.done());
+
+        // external change seen by cluster node 2
+        RevisionVector from = new RevisionVector(r1c1, r3c2);
+        RevisionVector to = from.update(r2c1);
+        assertEquals("^\"foo\":{}", reader.getChanges(from, to, "/", null));
+        assertEquals("+\"bar\":{}", reader.getChanges(from, to, "/foo", null));
+        assertNull(reader.getChanges(from, to, "/baz", null));
+    }
+
+    @Test
+    public void sharedKey() {
+        Revision r1c1 = new Revision(1, 0, 1);
+        Revision r2c1 = new Revision(2, 0, 1);
+        Revision r1c2 = new Revision(1, 0, 2);
+        Revision r2c2 = new Revision(2, 0, 2);
+
+        RevisionVector from = new RevisionVector(r1c1, r1c2);
+        assertNotNull(SharedDiffCache.sharedKey("/", from, from.update(r2c1)));
+        // more than one cluster node changed
+        assertNull(SharedDiffCache.sharedKey("/", from, from.update(r2c1).update(r2c2)));
+        // no change
+        assertNull(SharedDiffCache.sharedKey("/", from, from));
+        // branch commit
+        assertNull(SharedDiffCache.sharedKey("/", from, from.update(r2c1.asBranchRevision())));
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.jackrabbit.oak.plugins.document;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -32,8 +33,11 @@ import javax.annotation.Nonnull;
 import com.google.common.collect.Lists;
 
 import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
 import org.apache.jackrabbit.oak.plugins.document.VersionGarbageCollector.VersionGCStats;
 import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
 import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
 import org.apache.jackrabbit.oak.spi.gc.GCMonitor;
@@ -227,6 +231,63 @@ public class VersionGCTest {
         assertTrue(infoMessages.get(2).startsWith("Revision garbage collection finished"));
     }
 
+    @Test
+    public void concurrentChecksAndDeletes() throws Exception {
+        NodeBuilder builder = ns.getRoot().builder();
+        NodeBuilder test = builder.child("test");
+        for (int i = 0; i < 1000; i++) {
+            test.child("node-" + i);
+        }
+        merge(ns, builder);
+        removeNode("test");
+        ns.runBackgroundOperations();
+        clock().waitUntil(clock().getTime() + HOURS.toMillis(2));
+
+        gc.setOptions(gc.getOptions().withCheckConcurrency(4).withDeleteConcurrency(4));
+        VersionGCStats stats = gc.gc(1, TimeUnit.HOURS);
+        // foo, test and its children
+        assertEquals(1002, stats.deletedDocGCCount);
+        assertEquals(1001, stats.deletedLeafDocGCCount);
+        assertNull(store.find(Collection.NODES, Utils.getIdFromPath("/test")));
+        assertNull(store.find(Collection.NODES, Utils.getIdFromPath("/test/node-0")));
+    }
+
+    @Test
+    public void resumeFromCheckpoint() throws Exception {
+        createNode("a");
+        removeNode("a");
+        long removedA = clock().getTime();
+        clock().waitUntil(clock().getTime() + MINUTES.toMillis(30));
+        createNode("b");
+        removeNode("b");
+        ns.runBackgroundOperations();
+        clock().waitUntil(clock().getTime() + HOURS.toMillis(2));
+
+        gc.setOptions(gc.getOptions().withCheckpointInterval(MINUTES, 10));
+        store.failOnRemove = Utils.getIdFromPath("/b");
+        try {
+            gc.gc(1, TimeUnit.HOURS);
+            fail("must fail with DocumentStoreException");
+        } catch (DocumentStoreException e) {
+            // expected
+        }
+        // progress until after removal of a was saved
+        assertNull(store.find(Collection.NODES, Utils.getIdFromPath("/a")));
+        assertNotNull(store.find(Collection.NODES, Utils.getIdFromPath("/b")));
+        Document settings = store.find(Collection.SETTINGS, "versionGC");
+        assertNotNull(settings);
+        assertTrue((Long) settings.get("lastOldestTimeStamp") > removedA);
+
+        store.failOnRemove = null;
+        VersionGCStats stats = gc.gc(1, TimeUnit.HOURS);
+        assertEquals(1, stats.deletedDocGCCount);
+        assertNull(store.find(Collection.NODES, Utils.getIdFromPath("/b")));
+    }
+
+    private Clock clock() {
+        return ns.getClock();
+    }
+
     private Future<VersionGCStats> gc() {
         // run gc in a separate thread
         return execService.submit(new Callable<VersionGCStats>() {
@@ -258,6 +319,17 @@ public class VersionGCTest {
 
         Semaphore semaphore = new Semaphore(1);
 
+        volatile String failOnRemove;
+
+        @Override
+        public <T extends Document> int remove(Collection<T> collection,
+                                               Map<String, Map<Key, Condition>> toRemove) {
+            if (failOnRemove != null && toRemove.containsKey(failOnRemove)) {
+                throw new DocumentStoreException("remove failed");
+            }
+            return super.remove(collection, toRemove);
+        }
+
         @Nonnull
         @Override
         public <T extends Document> List<T> query(Collection<T> collection,
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.plugins.document.persistentCache;
+
+import java.nio.ByteBuffer;
+
+import org.apache.jackrabbit.oak.plugins.document.AbstractDocumentNodeState;
+import org.apache.jackrabbit.oak.plugins.document.DocumentMKBuilderProvider;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeState;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.PathRev;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.StringDataType;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.apache.jackrabbit.oak.api.Type.LONG;
+import static org.apache.jackrabbit.oak.api.Type.STRINGS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DataTypeUtilTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    @Test
+    public void revisionVector() {
+        RevisionVector rv = new RevisionVector(
+                new Revision(System.currentTimeMillis(), 0, 1),
+                new Revision(System.currentTimeMillis(), 42, 2, true));
+        WriteBuffer buff = new WriteBuffer();
+        DataTypeUtil.revisionVectorToBuffer(rv, buff);
+        RevisionVector read = DataTypeUtil.revisionVectorFromBuffer(flip(buff));
+        assertEquals(rv, read);
+        assertTrue(read.isBranch());
+    }
+
+    @Test
+    public void names() {
+        WriteBuffer buff = new WriteBuffer();
+        DataTypeUtil.nameToBuffer("jcr:primaryType", buff);
+        assertEquals(1, buff.position());
+        DataTypeUtil.nameToBuffer("foo", buff);
+        DataTypeUtil.nameToBuffer("foo", buff);
+        ByteBuffer read = flip(buff);
+        assertEquals("jcr:primaryType", DataTypeUtil.nameFromBuffer(read));
+        String foo = DataTypeUtil.nameFromBuffer(read);
+        assertEquals("foo", foo);
+        assertTrue(foo == DataTypeUtil.nameFromBuffer(read));
+    }
+
+    @Test
+    public void nodeState() throws Exception {
+        DocumentNodeStore ns = builderProvider.newBuilder().setAsyncDelay(0).getNodeStore();
+        NodeBuilder builder = ns.getRoot().builder();
+        NodeBuilder a = builder.child("a");
+        a.setProperty("jcr:primaryType", "nt:unstructured");
+        a.setProperty("p", 42L);
+        a.setProperty("q", asList("x", "y"), STRINGS);
+        a.child("b");
+        AbstractDocumentNodeState root = (AbstractDocumentNodeState) ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        DocumentNodeState state = (DocumentNodeState) root.getChildNode("a");
+
+        ValueDataType type = new ValueDataType(ns, ns.getDocumentStore(), CacheType.NODE);
+        WriteBuffer buff = new WriteBuffer();
+        type.write(buff, state);
+        ByteBuffer bytes = flip(buff);
+        assertTrue(bytes.remaining() < state.asString().length());
+
+        DocumentNodeState read = (DocumentNodeState) type.read(bytes);
+        assertEquals(state.asString(), read.asString());
+        assertEquals(42L, (long) read.getProperty("p").getValue(LONG));
+        assertEquals(asList("x", "y"), read.getProperty("q").getValue(STRINGS));
+        assertTrue(read.hasChildNode("b"));
+        assertFalse(bytes.hasRemaining());
+    }
+
+    @Test
+    public void children() {
+        DocumentNodeState.Children children = DocumentNodeState.Children.fromString(
+                "\"hasMore\":true,\"children\":[\"a\",\"b\",\"c\"]");
+        ValueDataType type = new ValueDataType(null, null, CacheType.CHILDREN);
+        WriteBuffer buff = new WriteBuffer();
+        type.write(buff, children);
+        DocumentNodeState.Children read = (DocumentNodeState.Children) type.read(flip(buff));
+        assertEquals(children.asString(), read.asString());
+    }
+
+    @Test
+    public void stringFormatEntries() {
+        // entries written before the binary format are still read
+        PathRev key = new PathRev("/foo", new RevisionVector(new Revision(1, 2, 3)));
+        DocumentNodeState.Children children = DocumentNodeState.Children.fromString(
+                "\"children\":[\"a\",\"b\"]");
+        WriteBuffer buff = new WriteBuffer();
+        StringDataType.INSTANCE.write(buff, key.asString());
+        StringDataType.INSTANCE.write(buff, children.asString());
+        ByteBuffer read = flip(buff);
+
+        assertEquals(key, new KeyDataType(CacheType.CHILDREN).read(read));
+        DocumentNodeState.Children c = (DocumentNodeState.Children) new ValueDataType(
+                null, null, CacheType.CHILDREN).read(read);
+        assertEquals(children.asString(), c.asString());
+    }
+
+    @Test
+    public void binaryKeys() {
+        PathRev key = new PathRev("/foo", new RevisionVector(new Revision(1, 2, 3)));
+        for (CacheType type : new CacheType[]{CacheType.NODE, CacheType.CHILDREN, CacheType.DIFF}) {
+            KeyDataType keyType = new KeyDataType(type);
+            WriteBuffer buff = new WriteBuffer();
+            keyType.write(buff, key);
+            assertEquals(key, keyType.read(flip(buff)));
+        }
+    }
+
+    @Test
+    public void unsupportedVersion() {
+        WriteBuffer buff = new WriteBuffer();
+        buff.putVarInt(-DataTypeUtil.BINARY_FORMAT_VERSION - 1);
+        try {
+            new KeyDataType(CacheType.NODE).read(flip(buff));
+            fail("must fail with IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static ByteBuffer flip(WriteBuffer buff) {
+        ByteBuffer b = buff.getBuffer();
+        b.flip();
+        return b;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.plugins.document.persistentCache;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.plugins.document.AbstractDocumentNodeState;
+import org.apache.jackrabbit.oak.plugins.document.DocumentMKBuilderProvider;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeState;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.PathRev;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
+import org.apache.jackrabbit.oak.stats.StatisticsProvider;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapCacheTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private StatisticsProvider statsProvider = new DefaultStatisticsProvider(executor);
+
+    @After
+    public void shutDown(){
+        new ExecutorCloser(executor).close();
+    }
+
+    @Test
+    public void evictedNodeStates() throws Exception {
+        DocumentNodeStore ns = builderProvider.newBuilder()
+                .setAsyncDelay(0)
+                .setStatisticsProvider(statsProvider)
+                .offHeapCacheSize(16 * 1024 * 1024)
+                .getNodeStore();
+        OffHeapCache<PathRev, DocumentNodeState> nodeCache =
+                (OffHeapCache<PathRev, DocumentNodeState>) ns.getNodeCache();
+
+        NodeBuilder builder = ns.getRoot().builder();
+        builder.child("a").setProperty("p", "v");
+        AbstractDocumentNodeState root = (AbstractDocumentNodeState) ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        DocumentNodeState a = (DocumentNodeState) root.getChildNode("a");
+        PathRev key = new PathRev("/a", root.getRootRevision());
+
+        // explicit removals are not moved to the off-heap tier
+        nodeCache.evicted(key, a, RemovalCause.EXPLICIT);
+        assertFalse(nodeCache.isOffHeap(key));
+
+        nodeCache.evicted(key, a, RemovalCause.SIZE);
+        assertTrue(nodeCache.isOffHeap(key));
+
+        // remove from the heap only
+        nodeCache.asMap().remove(key);
+        long hits = nodeCache.getPersistentCacheStats().getHitCount();
+        DocumentNodeState read = nodeCache.getIfPresent(key);
+        assertNotNull(read);
+        assertEquals(a.asString(), read.asString());
+        assertEquals(hits + 1, nodeCache.getPersistentCacheStats().getHitCount());
+        // back on the heap
+        assertNotNull(nodeCache.asMap().get(key));
+
+        nodeCache.invalidate(key);
+        assertFalse(nodeCache.isOffHeap(key));
+        assertNull(nodeCache.getIfPresent(key));
+    }
+
+    @Test
+    public void putReplacesOffHeapEntry() throws Exception {
+        Cache<PathRev, StringValue> heap = CacheBuilder.newBuilder().build();
+        OffHeapCache<PathRev, StringValue> cache = new OffHeapCache<PathRev, StringValue>(
+                heap, null, null, CacheType.DIFF, 1024 * 1024, statsProvider);
+        PathRev key = new PathRev("/", new RevisionVector());
+
+        cache.evicted(key, new StringValue("old"), RemovalCause.SIZE);
+        assertTrue(cache.isOffHeap(key));
+        cache.put(key, new StringValue("new"));
+        assertFalse(cache.isOffHeap(key));
+
+        heap.invalidateAll();
+        assertNull(cache.getIfPresent(key));
+    }
+
+    @Test
+    public void recycleChunks() throws Exception {
+        Cache<PathRev, StringValue> heap = CacheBuilder.newBuilder().build();
+        OffHeapCache<PathRev, StringValue> cache = new OffHeapCache<PathRev, StringValue>(
+                heap, null, null, CacheType.DIFF, 64 * 1024, statsProvider);
+
+        String value = new String(new char[1000]).replace('\0', 'x');
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            cache.evicted(key(i), new StringValue(value + i), RemovalCause.SIZE);
+        }
+        // old entries were dropped
+        int entries = cache.getOffHeapEntryCount();
+        assertTrue(entries > 0);
+        assertTrue(entries < 64);
+        assertFalse(cache.isOffHeap(key(0)));
+        assertNull(cache.getIfPresent(key(0)));
+
+        // latest entries are still available
+        assertTrue(cache.isOffHeap(key(count - 1)));
+        assertEquals(value + (count - 1), cache.getIfPresent(key(count - 1)).asString());
+        assertTrue(cache.getPersistentCacheStats().getUsedSpaceByteCounter().getCount() <= 64 * 1024);
+    }
+
+    private static PathRev key(int i) {
+        return new PathRev("/n" + i, new RevisionVector());
+    }
+}
@@ -98,6 +98,22 @@ public class RDBDocumentSerializerTest {
         assertEquals(1L, doc.get("i"));
     }
 
+    @Test
+    public void testBlobCodecs() throws Exception {
+        byte[] data = "{\"s\":\"string\", \"b\":true, \"i\":1}".getBytes("UTF-8");
+        for (RDBBlobDataCodec codec : RDBBlobDataCodec.values()) {
+            byte[] bdata = codec.encode(data);
+            assertEquals(codec, RDBBlobDataCodec.forBlobData(bdata));
+            RDBRow row = new RDBRow("_foo", 0L, false, 1l, 2l, 3l, "\"blob\"", bdata);
+            NodeDocument doc = this.ser.fromRow(Collection.NODES, row);
+            assertEquals(codec.name(), "string", doc.get("s"));
+            assertEquals(codec.name(), Boolean.TRUE, doc.get("b"));
+            assertEquals(codec.name(), 1L, doc.get("i"));
+        }
+        assertEquals(RDBBlobDataCodec.DEFLATE, RDBBlobDataCodec.getValue("deflate", RDBBlobDataCodec.GZIP));
+        assertEquals(RDBBlobDataCodec.GZIP, RDBBlobDataCodec.getValue("lz4", RDBBlobDataCodec.GZIP));
+    }
+
     @Test
     public void testSimpleBoth() throws UnsupportedEncodingException {
         try {
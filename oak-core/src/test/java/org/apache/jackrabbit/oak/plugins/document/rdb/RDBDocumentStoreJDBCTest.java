@@ -261,6 +261,64 @@ public class RDBDocumentStoreJDBCTest extends AbstractDocumentStoreTest {
         }
     }
 
+    @Test
+    public void batchUpsertWithExistingDocument() throws SQLException {
+        batchUpsertWithExistingDocument(true);
+    }
+
+    @Test
+    public void batchUpsertWithExistingDocumentImpreciseResults() throws SQLException {
+        batchUpsertWithExistingDocument(false);
+    }
+
+    private void batchUpsertWithExistingDocument(boolean batchResultPrecise) throws SQLException {
+        String baseName = this.getClass().getName() + "." + name.getMethodName();
+        String existing = baseName + "-existing";
+        super.ds.remove(Collection.NODES, existing);
+        UpdateOp op = new UpdateOp(existing, true);
+        op.set("p", "existing");
+        removeMe.add(existing);
+        assertTrue(super.ds.create(Collection.NODES, Collections.singletonList(op)));
+
+        List<NodeDocument> docs = new ArrayList<NodeDocument>();
+        for (String id : new String[] { baseName + "-1", existing, baseName + "-2" }) {
+            if (!id.equals(existing)) {
+                super.ds.remove(Collection.NODES, id);
+                removeMe.add(id);
+            }
+            NodeDocument doc = Collection.NODES.newDocument(super.ds);
+            doc.put(NodeDocument.ID, id);
+            doc.put(NodeDocument.MOD_COUNT, 1L);
+            doc.put("p", "new");
+            docs.add(doc);
+        }
+
+        RDBTableMetaData tmd = ((RDBDocumentStore) super.ds).getTable(Collection.NODES);
+        Connection con = super.rdbDataSource.getConnection();
+        Set<String> inserted;
+        if (super.rdbDataSource instanceof RDBDataSourceWrapper) {
+            ((RDBDataSourceWrapper) super.rdbDataSource).setBatchResultPrecise(batchResultPrecise);
+        }
+        try {
+            con.setReadOnly(false);
+            inserted = jdbc.update(con, tmd, docs, true);
+            con.commit();
+        } finally {
+            con.close();
+            if (super.rdbDataSource instanceof RDBDataSourceWrapper) {
+                ((RDBDataSourceWrapper) super.rdbDataSource).setBatchResultPrecise(true);
+            }
+        }
+
+        assertEquals(of(baseName + "-1", baseName + "-2"), inserted);
+        super.ds.invalidateCache();
+        NodeDocument doc = super.ds.find(Collection.NODES, existing);
+        assertNotNull(doc);
+        assertEquals("existing", doc.get("p"));
+        assertNotNull(super.ds.find(Collection.NODES, baseName + "-1"));
+        assertNotNull(super.ds.find(Collection.NODES, baseName + "-2"));
+    }
+
     @Test
     public void statementCloseTest() throws SQLException {
 
@@ -77,8 +77,9 @@ public class ReadOnlyDocumentStoreWrapperTest {
                 Collection.CLUSTER_NODES, Collection.JOURNAL, Collection.NODES, Collection.SETTINGS
         };
         for (Collection collection : collections) {
-            readOnlyStore.find(collection, null);
+            readOnlyStore.find(collection, (String) null);
             readOnlyStore.find(collection, null, 0);
+            readOnlyStore.find(collection, Lists.<String>newArrayList());
 
             readOnlyStore.query(collection, null, null, 0);
             readOnlyStore.query(collection, null, null, null, 0, 0);
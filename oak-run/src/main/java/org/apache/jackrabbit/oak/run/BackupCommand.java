@@ -21,6 +21,7 @@ import java.io.File;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
 import org.apache.jackrabbit.oak.run.commons.Command;
 
 class BackupCommand implements Command {
@@ -28,6 +29,7 @@ class BackupCommand implements Command {
     @Override
     public void execute(String... args) throws Exception {
         OptionParser parser = new OptionParser();
+        OptionSpec<?> incremental = parser.accepts("incremental", "add an increment to the backup set in the target folder");
         OptionSet options = parser.parse(args);
 
         if (options.nonOptionArguments().size() < 2) {
@@ -38,7 +40,7 @@ class BackupCommand implements Command {
         File source = new File(options.nonOptionArguments().get(0).toString());
         File target = new File(options.nonOptionArguments().get(1).toString());
 
-        SegmentTarUtils.backup(source, target);
+        SegmentTarUtils.backup(source, target, options.has(incremental));
     }
 
 }
\ No newline at end of file
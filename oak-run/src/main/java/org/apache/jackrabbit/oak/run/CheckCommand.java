@@ -49,6 +49,15 @@ class CheckCommand implements Command {
                 "filter", "comma separated content paths to be checked")
                 .withRequiredArg().ofType(String.class).withValuesSeparatedBy(',').defaultsTo("/");
         OptionSpec<?> ioStatistics = parser.accepts("io-stats", "Print I/O statistics (only for oak-segment-tar)");
+        ArgumentAcceptingOptionSpec<Integer> threads = parser.accepts(
+                "threads", "number of threads traversing the content tree concurrently")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(1);
+        ArgumentAcceptingOptionSpec<Integer> binThreads = parser.accepts(
+                "bin-threads", "maximum number of binaries read concurrently (defaults to --threads)")
+                .withRequiredArg().ofType(Integer.class);
+        ArgumentAcceptingOptionSpec<File> resume = parser.accepts(
+                "resume", "file recording the progress of the check, used to resume an interrupted check")
+                .withRequiredArg().ofType(File.class);
 
         OptionSet options = parser.parse(args);
         
@@ -63,13 +72,20 @@ class CheckCommand implements Command {
         String journalFileName = journal.value(options);
         long debugLevel = notify.value(options);
         Set<String> filterPaths = new LinkedHashSet<String>(filter.values(options));
+        int threadCount = threads.value(options);
+        int binThreadCount = options.has(binThreads) ? binThreads.value(options) : threadCount;
+
+        if (threadCount < 1 || binThreadCount < 1) {
+            printUsage(parser, err, "The number of threads must be positive");
+        }
 
         if (options.has(deep)) {
             printUsage(parser, err, "The --deep option was deprecated! Please do not use it in the future!"
                     , "A deep scan of the content tree, traversing every node, will be performed by default.");
         }
         
-        SegmentTarUtils.check(dir, journalFileName, debugLevel, options.has(bin), filterPaths, options.has(ioStatistics), out, err);
+        SegmentTarUtils.check(dir, journalFileName, debugLevel, options.has(bin), filterPaths, options.has(ioStatistics),
+                threadCount, binThreadCount, resume.value(options), out, err);
     }
 
     private void printUsage(OptionParser parser, PrintWriter err, String... messages) throws IOException {
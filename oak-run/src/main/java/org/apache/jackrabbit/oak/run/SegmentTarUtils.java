@@ -84,9 +84,14 @@ final class SegmentTarUtils {
     }
 
     static void backup(File source, File target) {
+        backup(source, target, false);
+    }
+
+    static void backup(File source, File target, boolean incremental) {
         Backup.builder()
                 .withSource(source)
                 .withTarget(target)
+                .withIncremental(incremental)
                 .build()
                 .run();
     }
@@ -191,7 +196,7 @@ final class SegmentTarUtils {
     }
 
     static void check(File dir, String journalFileName, long debugLevel, boolean checkBinaries, Set<String> filterPaths, boolean ioStatistics, 
-            PrintWriter outWriter, PrintWriter errWriter) {
+            int threads, int binaryThreads, File resumeFile, PrintWriter outWriter, PrintWriter errWriter) {
         Check.builder()
                 .withPath(dir)
                 .withJournal(journalFileName)
@@ -199,6 +204,9 @@ final class SegmentTarUtils {
                 .withCheckBinaries(checkBinaries)
                 .withFilterPaths(filterPaths)
                 .withIOStatistics(ioStatistics)
+                .withThreads(threads)
+                .withBinaryThreads(binaryThreads)
+                .withResumeFile(resumeFile)
                 .withOutWriter(outWriter)
                 .withErrWriter(errWriter)
                 .build()
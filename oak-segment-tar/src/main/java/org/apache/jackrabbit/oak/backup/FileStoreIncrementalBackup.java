@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.backup;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.segment.file.ReadOnlyFileStore;
+
+/**
+ * Incremental backups of a segment store. A backup set is a folder holding
+ * one increment per backup. The first increment contains all segments of the
+ * store, every further increment only the segments written to TAR files that
+ * are not covered by earlier increments. Backup sets are restored by
+ * {@link FileStoreRestore#restore(File, File)}.
+ */
+public interface FileStoreIncrementalBackup {
+
+    /**
+     * Add an increment to the backup set in {@code destination} while
+     * {@code source} is in use.
+     */
+    void backup(FileStore source, File destination) throws IOException, InvalidFileStoreVersionException;
+
+    /**
+     * Add an increment to the backup set in {@code destination}.
+     */
+    void backup(ReadOnlyFileStore source, File destination) throws IOException, InvalidFileStoreVersionException;
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.backup.impl;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import org.apache.jackrabbit.oak.backup.FileStoreIncrementalBackup;
+import org.apache.jackrabbit.oak.segment.RecordId;
+import org.apache.jackrabbit.oak.segment.Segment;
+import org.apache.jackrabbit.oak.segment.SegmentId;
+import org.apache.jackrabbit.oak.segment.file.AbstractFileStore;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.segment.file.ReadOnlyFileStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default implementation of {@link FileStoreIncrementalBackup}.
+ * <p>
+ * Each increment is a segment store of its own in a sub-folder of the backup
+ * set, named after the sequence number of the increment. Segments are copied
+ * verbatim, so record ids are the same in the source, in the backup set and
+ * in restored stores. An increment further contains a manifest recording the
+ * head state of the source and the names of the source TAR files it covers.
+ * TAR files only change until the source starts writing to the next TAR
+ * file and cleanup writes its results to TAR files with new names, so TAR
+ * files covered by an earlier increment are skipped. Segments of other TAR
+ * files are skipped if an earlier increment contains them already, e.g.
+ * because cleanup moved them to a new TAR file.
+ */
+public class FileStoreIncrementalBackupImpl implements FileStoreIncrementalBackup {
+
+    private static final Logger log = LoggerFactory.getLogger(FileStoreIncrementalBackupImpl.class);
+
+    static final String MANIFEST_FILE_NAME = "backup.properties";
+
+    static final String HEAD = "head";
+
+    private static final String TAR_FILES = "tarFiles";
+
+    @Override
+    public void backup(@Nonnull FileStore source, @Nonnull File destination) throws IOException, InvalidFileStoreVersionException {
+        // The persisted head only references segments flushed to TAR files
+        // before it was persisted, which are sealed right after
+        source.flush();
+        RecordId head = source.getRevisions().getPersistedHead();
+        backup(source, head, source.sealTarFiles(), destination);
+    }
+
+    @Override
+    public void backup(@Nonnull ReadOnlyFileStore source, @Nonnull File destination) throws IOException, InvalidFileStoreVersionException {
+        backup(source, source.getRevisions().getHead(), source.getTarReaderIndex(), destination);
+    }
+
+    private static void backup(AbstractFileStore source, RecordId head, Map<String, Set<UUID>> index, File destination)
+            throws IOException, InvalidFileStoreVersionException {
+        Stopwatch watch = Stopwatch.createStarted();
+
+        List<File> increments = getIncrements(destination);
+        Set<String> coveredFiles = new HashSet<>();
+        Set<UUID> coveredSegments = new HashSet<>();
+        for (File increment : increments) {
+            coveredFiles.addAll(Splitter.on(',').omitEmptyStrings().splitToList(
+                    readManifest(increment).getProperty(TAR_FILES, "")));
+            try (ReadOnlyFileStore store = fileStoreBuilder(increment).buildReadOnly()) {
+                for (Set<UUID> segments : store.getTarReaderIndex().values()) {
+                    coveredSegments.addAll(segments);
+                }
+            }
+        }
+
+        File increment = new File(destination, String.format("%06d", increments.size()));
+        UUID headSegment = head.getSegmentId().asUUID();
+        int count = 0;
+
+        FileStore backup = fileStoreBuilder(increment).withDefaultMemoryMapping().build();
+        try {
+            for (Map.Entry<String, Set<UUID>> entry : index.entrySet()) {
+                if (coveredFiles.contains(entry.getKey())) {
+                    continue;
+                }
+                for (UUID segment : entry.getValue()) {
+                    if (coveredSegments.add(segment) && !segment.equals(headSegment)) {
+                        copySegment(source, backup, segment);
+                        count++;
+                    }
+                }
+            }
+
+            // Always include the segment of the head state, so that every
+            // increment can be opened on its own
+            copySegment(source, backup, headSegment);
+            RecordId backupHead = RecordId.fromString(backup.getSegmentIdProvider(), head.toString());
+            checkState(backup.getRevisions().setHead(backup.getRevisions().getHead(), backupHead));
+        } finally {
+            backup.close();
+        }
+
+        Properties manifest = new Properties();
+        manifest.setProperty(HEAD, head.toString());
+        manifest.setProperty(TAR_FILES, Joiner.on(',').join(index.keySet()));
+        try (OutputStream out = new FileOutputStream(new File(increment, MANIFEST_FILE_NAME))) {
+            manifest.store(out, "Segment store backup");
+        }
+
+        watch.stop();
+        log.info("Incremental backup {} with {} segments finished in {}.", increment, count, watch);
+    }
+
+    /**
+     * Copy a segment verbatim from {@code source} to {@code destination}.
+     */
+    static void copySegment(AbstractFileStore source, FileStore destination, UUID uuid) throws IOException {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Segment segment = source.readSegment(source.getSegmentIdProvider().newSegmentId(msb, lsb));
+        ByteArrayOutputStream data = new ByteArrayOutputStream(segment.size());
+        segment.writeTo(data);
+        SegmentId id = destination.getSegmentIdProvider().newSegmentId(msb, lsb);
+        destination.writeSegment(id, data.toByteArray(), 0, data.size());
+    }
+
+    /**
+     * @return the increments of the backup set in {@code directory} in the
+     * order they were created. This is empty if {@code directory} doesn't
+     * contain a backup set.
+     */
+    @Nonnull
+    static List<File> getIncrements(@Nonnull File directory) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(children);
+        List<File> increments = new ArrayList<>();
+        for (File child : children) {
+            if (new File(child, MANIFEST_FILE_NAME).isFile()) {
+                increments.add(child);
+            }
+        }
+        return increments;
+    }
+
+    @Nonnull
+    static Properties readManifest(@Nonnull File increment) throws IOException {
+        Properties manifest = new Properties();
+        try (InputStream in = new FileInputStream(new File(increment, MANIFEST_FILE_NAME))) {
+            manifest.load(in);
+        }
+        return manifest;
+    }
+
+}
@@ -24,11 +24,15 @@ import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreB
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Suppliers;
 import org.apache.jackrabbit.oak.backup.FileStoreRestore;
 import org.apache.jackrabbit.oak.segment.Compactor;
+import org.apache.jackrabbit.oak.segment.RecordId;
 import org.apache.jackrabbit.oak.segment.SegmentBufferWriter;
 import org.apache.jackrabbit.oak.segment.SegmentNodeState;
 import org.apache.jackrabbit.oak.segment.SegmentWriter;
@@ -48,6 +52,12 @@ public class FileStoreRestoreImpl implements FileStoreRestore {
 
     @Override
     public void restore(File source, File destination) throws IOException, InvalidFileStoreVersionException {
+        List<File> increments = FileStoreIncrementalBackupImpl.getIncrements(source);
+        if (!increments.isEmpty()) {
+            restoreIncrements(increments, destination);
+            return;
+        }
+
         if (!validFileStore(source)) {
             throw new IOException("Folder " + source + " is not a valid FileStore directory");
         }
@@ -95,6 +105,46 @@ public class FileStoreRestoreImpl implements FileStoreRestore {
         log.info("Restore finished in {}.", watch);
     }
 
+    /**
+     * Restore a backup set created by {@link FileStoreIncrementalBackupImpl}
+     * by copying the segments of all its increments to {@code destination}
+     * and setting the head state recorded by the last increment.
+     */
+    private static void restoreIncrements(List<File> increments, File destination)
+            throws IOException, InvalidFileStoreVersionException {
+        Stopwatch watch = Stopwatch.createStarted();
+
+        FileStore store = fileStoreBuilder(destination).build();
+        try {
+            for (File increment : increments) {
+                ReadOnlyFileStore restore = fileStoreBuilder(increment).buildReadOnly();
+                try {
+                    for (Set<UUID> segments : restore.getTarReaderIndex().values()) {
+                        for (UUID segment : segments) {
+                            if (!store.containsSegment(store.getSegmentIdProvider().newSegmentId(
+                                    segment.getMostSignificantBits(), segment.getLeastSignificantBits()))) {
+                                FileStoreIncrementalBackupImpl.copySegment(restore, store, segment);
+                            }
+                        }
+                    }
+                } finally {
+                    restore.close();
+                }
+            }
+
+            File last = increments.get(increments.size() - 1);
+            String head = FileStoreIncrementalBackupImpl.readManifest(last)
+                    .getProperty(FileStoreIncrementalBackupImpl.HEAD);
+            RecordId after = RecordId.fromString(store.getSegmentIdProvider(), head);
+            store.getRevisions().setHead(store.getRevisions().getHead(), after);
+        } finally {
+            store.close();
+        }
+
+        watch.stop();
+        log.info("Restore of {} increments finished in {}.", increments.size(), watch);
+    }
+
     @Override
     public void restore(File source) {
         log.warn("Restore not available as an online operation.");
@@ -17,7 +17,7 @@
 package org.apache.jackrabbit.oak.segment;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newConcurrentMap;
 import static java.lang.Long.numberOfLeadingZeros;
 import static org.apache.jackrabbit.oak.api.Type.BINARIES;
 import static org.apache.jackrabbit.oak.api.Type.BINARY;
@@ -29,7 +29,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import com.google.common.base.Supplier;
 import com.google.common.hash.Hashing;
@@ -38,6 +43,7 @@ import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.IOUtils;
 import org.apache.jackrabbit.oak.plugins.memory.BinaryPropertyState;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeBuilder;
 import org.apache.jackrabbit.oak.plugins.memory.MultiBinaryPropertyState;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyStates;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
@@ -89,7 +95,13 @@ public class Compactor {
      * record identifiers. Used to de-duplicate copies of the same binary
      * values.
      */
-    private final Map<String, List<RecordId>> binaries = newHashMap();
+    private final ConcurrentMap<String, List<RecordId>> binaries = newConcurrentMap();
+
+    /**
+     * Number of threads compacting the subtrees of the root node in parallel.
+     * The {@link #writer} must be thread safe if this is greater than one.
+     */
+    private final int concurrency;
 
     /**
      * Flag to use content equality verification before actually compacting the
@@ -140,13 +152,18 @@ public class Compactor {
         this.cancel = cancel;
         this.binaryDedup = gc.isBinaryDeduplication();
         this.binaryDedupMaxSize = gc.getBinaryDeduplicationMaxSize();
+        this.concurrency = gc.getConcurrency();
     }
 
     private SegmentNodeBuilder process(NodeState before, NodeState after,
             NodeState onto) throws IOException {
         SegmentNodeBuilder builder = new SegmentNodeBuilder(
                 writer.writeNode(onto), writer);
-        new CompactDiff(builder).diff(before, after);
+        if (concurrency > 1) {
+            new ParallelCompactDiff(builder, onto).diff(before, after);
+        } else {
+            new CompactDiff(builder).diff(before, after);
+        }
         return builder;
     }
 
@@ -297,6 +314,7 @@ public class Compactor {
                         before, after);
                 if (success) {
                     SegmentNodeState state = writer.writeNode(child.getNodeState());
+                    builder.setChildNode(name, state);
                     if (id != null) {
                         nodeCache.put(id, state.getRecordId(), 0, cost(state));
                     }
@@ -309,6 +327,113 @@ public class Compactor {
         }
     }
 
+    /**
+     * Compacts the properties of the root node on the calling thread and
+     * the subtrees of its added and changed child nodes on a
+     * {@link ForkJoinPool} of {@link #concurrency} threads. Each subtree is
+     * compacted by a {@link CompactDiff} of its own and the compacted
+     * subtrees are set on the root node once all of them are done.
+     */
+    private class ParallelCompactDiff extends CompactDiff {
+
+        private final NodeState onto;
+
+        private final List<String> names = newArrayList();
+
+        private final List<Callable<SegmentNodeState>> tasks = newArrayList();
+
+        ParallelCompactDiff(NodeBuilder builder, NodeState onto) {
+            super(builder);
+            this.onto = onto;
+        }
+
+        @Override
+        boolean diff(NodeState before, NodeState after) throws IOException {
+            if (!super.diff(before, after)) {
+                return false;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(concurrency);
+            try {
+                List<Future<SegmentNodeState>> results = pool.invokeAll(tasks);
+                boolean success = true;
+                for (int i = 0; i < results.size(); i++) {
+                    SegmentNodeState state = results.get(i).get();
+                    if (state != null) {
+                        builder.setChildNode(names.get(i), state);
+                    } else {
+                        success = false;
+                    }
+                }
+                return success;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @Override
+        public boolean childNodeAdded(final String name, final NodeState after) {
+            schedule(name, new Compaction() {
+                @Override
+                boolean compact(CompactDiff diff) {
+                    return diff.childNodeAdded(name, after);
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public boolean childNodeChanged(final String name, final NodeState before, final NodeState after) {
+            schedule(name, new Compaction() {
+                @Override
+                boolean compact(CompactDiff diff) {
+                    return diff.childNodeChanged(name, before, after);
+                }
+            });
+            return true;
+        }
+
+        private void schedule(final String name, final Compaction compaction) {
+            names.add(name);
+            tasks.add(new Callable<SegmentNodeState>() {
+                @Override
+                public SegmentNodeState call() throws IOException {
+                    // Compact into a private copy of the parent so workers
+                    // never share a builder
+                    NodeBuilder parent = new MemoryNodeBuilder(onto);
+                    CompactDiff diff = new CompactDiff(parent);
+                    boolean success = compaction.compact(diff);
+                    if (diff.exception != null) {
+                        throw diff.exception;
+                    }
+                    if (!success) {
+                        return null;
+                    }
+                    NodeState state = parent.getChildNode(name).getNodeState();
+                    if (state instanceof SegmentNodeState) {
+                        return (SegmentNodeState) state;
+                    }
+                    return writer.writeNode(state);
+                }
+            });
+        }
+
+    }
+
+    private abstract static class Compaction {
+
+        abstract boolean compact(CompactDiff diff);
+
+    }
+
     private static byte cost(SegmentNodeState node) {
         long childCount = node.getChildNodeCount(Long.MAX_VALUE);
         return cost(childCount);
@@ -399,8 +524,11 @@ public class Compactor {
 
                 if (dedup) {
                     if (ids == null) {
-                        ids = newArrayList();
-                        binaries.put(key, ids);
+                        List<RecordId> newIds = new CopyOnWriteArrayList<>();
+                        ids = binaries.putIfAbsent(key, newIds);
+                        if (ids == null) {
+                            ids = newIds;
+                        }
                     }
                     ids.add(sb.getRecordId());
                 }
@@ -437,29 +565,29 @@ public class Compactor {
         private long properties = 0;
         private long binaries = 0;
 
-        void start() {
+        synchronized void start() {
             nodes = 0;
             properties = 0;
             binaries = 0;
             start = System.currentTimeMillis();
         }
 
-        void onNode() {
+        synchronized void onNode() {
             if (++nodes % logAt == 0) {
                 logProgress(start, false);
                 start = System.currentTimeMillis();
             }
         }
 
-        void onProperty() {
+        synchronized void onProperty() {
             properties++;
         }
 
-        void onBinary() {
+        synchronized void onBinary() {
             binaries++;
         }
 
-        void stop() {
+        synchronized void stop() {
             logProgress(start, true);
         }
 
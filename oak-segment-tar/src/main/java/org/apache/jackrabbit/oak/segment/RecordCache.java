@@ -19,8 +19,10 @@
 
 package org.apache.jackrabbit.oak.segment;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -49,6 +51,15 @@ public abstract class RecordCache<K> implements Cache<K, RecordId> {
 
     public abstract long estimateCurrentWeight();
 
+    /**
+     * Change the maximum number of mappings of this cache. The least recently
+     * accessed mappings are evicted right away if the cache holds more than
+     * {@code size} mappings. Caches that cannot be resized ignore this call.
+     *
+     * @param size  the new maximum number of mappings. Must be positive.
+     */
+    public void setMaxSize(int size) { }
+
     @Override
     public void put(@Nonnull K key, @Nonnull RecordId value, byte cost) {
         throw new UnsupportedOperationException();
@@ -150,6 +161,8 @@ public abstract class RecordCache<K> implements Cache<K, RecordId> {
 
         private long weight = 0;
 
+        private int maxSize;
+
         static final <K> Supplier<RecordCache<K>> defaultFactory(final int size, @Nonnull final Weigher<K, RecordId> weigher) {
             return new Supplier<RecordCache<K>>() {
                 @Override
@@ -161,10 +174,11 @@ public abstract class RecordCache<K> implements Cache<K, RecordId> {
 
         Default(final int size, @Nonnull final Weigher<K, RecordId> weigher) {
             this.weigher = checkNotNull(weigher);
+            this.maxSize = size;
             records = new LinkedHashMap<K, RecordId>(size * 4 / 3, 0.75f, true) {
                 @Override
                 protected boolean removeEldestEntry(Map.Entry<K, RecordId> eldest) {
-                    boolean remove = super.size() > size;
+                    boolean remove = super.size() > maxSize;
                     if (remove) {
                         Default.super.evictionCount++;
                         weight -= weigher.weigh(eldest.getKey(),
@@ -198,6 +212,19 @@ public abstract class RecordCache<K> implements Cache<K, RecordId> {
             return records.size();
         }
 
+        @Override
+        public synchronized void setMaxSize(int size) {
+            checkArgument(size > 0);
+            maxSize = size;
+            Iterator<Map.Entry<K, RecordId>> eldest = records.entrySet().iterator();
+            while (records.size() > maxSize) {
+                Map.Entry<K, RecordId> entry = eldest.next();
+                super.evictionCount++;
+                weight -= weigher.weigh(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+        }
+
         @Override
         public long estimateCurrentWeight() {
             return weight;
@@ -132,6 +132,13 @@ public class Segment {
      */
     static final int BLOB_ID_SMALL_LIMIT = 1 << 12;
 
+    /**
+     * Offset of the flag marking segments written by compaction. This byte
+     * used to be reserved and is thus {@code 0} for segments written before
+     * it was introduced.
+     */
+    static final int GC_COMPACTED_OFFSET = 4;
+
     static final int GC_GENERATION_OFFSET = 10;
 
     static final int REFERENCED_SEGMENT_ID_COUNT_OFFSET = 14;
@@ -320,6 +327,40 @@ public class Segment {
         id.loaded(this);
     }
 
+    /**
+     * Create a new instance sharing the parsed record numbers and segment
+     * references of {@code segment} but reading its content from {@code data}.
+     */
+    private Segment(@Nonnull Segment segment, @Nonnull ByteBuffer data) {
+        this.id = segment.id;
+        this.reader = segment.reader;
+        this.info = segment.info;
+        this.data = data;
+        this.version = segment.version;
+        this.recordNumbers = segment.recordNumbers;
+        this.segmentReferences = segment.segmentReferences;
+    }
+
+    /**
+     * Create a copy of this segment whose content is kept in a direct buffer
+     * outside of the JVM heap. The returned instance is a thin index over the
+     * copied data as it shares all parsed tables with this instance. If this
+     * segment is already backed by a direct buffer (e.g. because it is memory
+     * mapped) it is returned as is.
+     *
+     * @return a segment backed by off-heap memory.
+     */
+    @Nonnull
+    Segment copyOffHeap() {
+        if (data.isDirect()) {
+            return this;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.remaining());
+        buffer.put(data.duplicate());
+        buffer.flip();
+        return new Segment(this, buffer);
+    }
+
     public SegmentVersion getSegmentVersion() {
         return version;
     }
@@ -397,6 +438,28 @@ public class Segment {
         return getGcGeneration(data, id.asUUID());
     }
 
+    /**
+     * Determine whether a segment was written by compaction from its data. Note that bulk
+     * segments are never considered compacted.
+     *
+     * @param data         the data of the segment
+     * @param segmentId    the id of the segment
+     * @return  {@code true} iff this is a data segment written by compaction.
+     */
+    public static boolean isCompacted(ByteBuffer data, UUID segmentId) {
+        return isDataSegmentId(segmentId.getLeastSignificantBits())
+            && data.get(GC_COMPACTED_OFFSET) != 0;
+    }
+
+    /**
+     * Determine whether this segment was written by compaction. Note that bulk segments
+     * are never considered compacted.
+     * @return  {@code true} iff this is a data segment written by compaction.
+     */
+    public boolean isCompacted() {
+        return isCompacted(data, id.asUUID());
+    }
+
     private volatile String info;
 
     /**
@@ -628,7 +691,7 @@ public class Segment {
             writer.format("Segment %s (%d bytes)%n", id, length);
             String segmentInfo = getSegmentInfo();
             if (segmentInfo != null) {
-                writer.format("Info: %s, Generation: %d%n", segmentInfo, getGcGeneration());
+                writer.format("Info: %s, Generation: %d, Compacted: %b%n", segmentInfo, getGcGeneration(), isCompacted());
             }
             if (id.isDataSegmentId()) {
                 writer.println("--------------------------------------------------------------------------");
@@ -27,6 +27,7 @@ import static com.google.common.collect.Sets.newHashSet;
 import static java.lang.System.arraycopy;
 import static java.lang.System.currentTimeMillis;
 import static java.lang.System.identityHashCode;
+import static org.apache.jackrabbit.oak.segment.Segment.GC_COMPACTED_OFFSET;
 import static org.apache.jackrabbit.oak.segment.Segment.GC_GENERATION_OFFSET;
 import static org.apache.jackrabbit.oak.segment.Segment.HEADER_SIZE;
 import static org.apache.jackrabbit.oak.segment.Segment.RECORD_ID_BYTES;
@@ -117,6 +118,11 @@ public class SegmentBufferWriter implements WriteOperationHandler {
 
     private final int generation;
 
+    /**
+     * Whether the segments written by this writer are marked as compacted.
+     */
+    private final boolean compacted;
+
     /**
      * The segment write buffer, filled from the end to the beginning
      * (see OAK-629).
@@ -149,6 +155,14 @@ public class SegmentBufferWriter implements WriteOperationHandler {
                                @Nonnull SegmentReader reader,
                                @CheckForNull String wid,
                                int generation) {
+        this(idProvider, reader, wid, generation, false);
+    }
+
+    public SegmentBufferWriter(@Nonnull SegmentIdProvider idProvider,
+                               @Nonnull SegmentReader reader,
+                               @CheckForNull String wid,
+                               int generation,
+                               boolean compacted) {
         this.idProvider = checkNotNull(idProvider);
         this.reader = checkNotNull(reader);
         this.wid = (wid == null
@@ -156,6 +170,7 @@ public class SegmentBufferWriter implements WriteOperationHandler {
                 : wid);
 
         this.generation = generation;
+        this.compacted = compacted;
     }
 
     @Nonnull
@@ -186,7 +201,7 @@ public class SegmentBufferWriter implements WriteOperationHandler {
         buffer[1] = 'a';
         buffer[2] = 'K';
         buffer[3] = SegmentVersion.asByte(LATEST_VERSION);
-        buffer[4] = 0; // reserved
+        buffer[GC_COMPACTED_OFFSET] = (byte) (compacted ? 1 : 0);
         buffer[5] = 0; // refcount
 
         buffer[GC_GENERATION_OFFSET] = (byte) (generation >> 24);
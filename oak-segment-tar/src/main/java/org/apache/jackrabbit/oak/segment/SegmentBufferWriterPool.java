@@ -80,6 +80,8 @@ public class SegmentBufferWriterPool implements WriteOperationHandler {
     @Nonnull
     private final String wid;
 
+    private final boolean compacted;
+
     private short writerId = -1;
 
     public SegmentBufferWriterPool(
@@ -87,10 +89,20 @@ public class SegmentBufferWriterPool implements WriteOperationHandler {
             @Nonnull SegmentReader reader,
             @Nonnull String wid,
             @Nonnull Supplier<Integer> gcGeneration) {
+        this(idProvider, reader, wid, gcGeneration, false);
+    }
+
+    public SegmentBufferWriterPool(
+            @Nonnull SegmentIdProvider idProvider,
+            @Nonnull SegmentReader reader,
+            @Nonnull String wid,
+            @Nonnull Supplier<Integer> gcGeneration,
+            boolean compacted) {
         this.idProvider = checkNotNull(idProvider);
         this.reader = checkNotNull(reader);
         this.wid = checkNotNull(wid);
         this.gcGeneration = checkNotNull(gcGeneration);
+        this.compacted = compacted;
     }
 
     @Nonnull
@@ -189,7 +201,8 @@ public class SegmentBufferWriterPool implements WriteOperationHandler {
                         idProvider,
                         reader,
                         getWriterId(wid),
-                        gcGeneration.get()
+                        gcGeneration.get(),
+                        compacted
                 );
             } else if (writer.getGeneration() != gcGeneration.get()) {
                 disposed.add(writer);
@@ -197,7 +210,8 @@ public class SegmentBufferWriterPool implements WriteOperationHandler {
                         idProvider,
                         reader,
                         getWriterId(wid),
-                        gcGeneration.get()
+                        gcGeneration.get(),
+                        compacted
                 );
             }
             borrowed.add(writer);
@@ -28,6 +28,7 @@ import javax.annotation.Nonnull;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.cache.Weigher;
 import org.apache.jackrabbit.oak.cache.AbstractCacheStats;
@@ -41,6 +42,12 @@ import org.apache.jackrabbit.oak.segment.CacheWeights.SegmentCacheWeigher;
  * implemented by memoising the segment in its id (see {@link SegmentId#segment}. Every time
  * an segment is evicted from this cache the memoised segment is discarded (see
  * {@link SegmentId#unloaded()}) and {@link SegmentId#onAccess}.
+ * <p>
+ * Optionally this cache can be backed by an off-heap tier. Segments evicted from the on-heap
+ * tier because of its size limit are copied into direct buffers (see {@link Segment#copyOffHeap()})
+ * and kept in the off-heap tier, which has its own maximum weight and eviction. Such segments
+ * are thin on-heap indexes over their off-heap data. A miss in the on-heap tier is served from
+ * the off-heap tier before falling back to the loader. Segments are only in one tier at a time.
  */
 public class SegmentCache {
     /** Default maximum weight of this cache in MB */
@@ -56,6 +63,15 @@ public class SegmentCache {
     @Nonnull
     private final Cache<SegmentId, Segment> cache;
 
+    /** Maximum weight of the items in the off-heap tier */
+    private final long offHeapMaximumWeight;
+
+    /**
+     * Cache of segments evicted from {@link #cache}, backed by direct buffers.
+     * {@code null} if the off-heap tier is disabled.
+     */
+    private final Cache<SegmentId, Segment> offHeapCache;
+
     /**
      * Statistics of this cache. Do to the special access patter (see class comment), we cannot
      * rely on {@link Cache#stats()}.
@@ -63,11 +79,28 @@ public class SegmentCache {
     @Nonnull
     private final Stats stats = new Stats("Segment Cache");
 
+    /**
+     * Statistics of the off-heap tier only. Hits and misses recorded here are
+     * also reflected in {@link #stats}.
+     */
+    @Nonnull
+    private final OffHeapStats offHeapStats = new OffHeapStats("Segment Cache (off-heap)");
+
     /**
      * Create a new segment cache of the given size.
      * @param cacheSizeMB  size of the cache in megabytes.
      */
     public SegmentCache(long cacheSizeMB) {
+        this(cacheSizeMB, 0);
+    }
+
+    /**
+     * Create a new segment cache of the given size with an off-heap tier of the given size.
+     * @param cacheSizeMB         size of the on-heap tier in megabytes.
+     * @param offHeapCacheSizeMB  size of the off-heap tier in megabytes. {@code 0} disables
+     *                            the off-heap tier.
+     */
+    public SegmentCache(long cacheSizeMB, long offHeapCacheSizeMB) {
         this.maximumWeight = cacheSizeMB * 1024 * 1024;
         this.cache = CacheBuilder.newBuilder()
                 .concurrencyLevel(16)
@@ -75,6 +108,17 @@ public class SegmentCache {
                 .weigher(weigher)
                 .removalListener(this::onRemove)
                 .build();
+        this.offHeapMaximumWeight = offHeapCacheSizeMB * 1024 * 1024;
+        if (offHeapMaximumWeight > 0) {
+            this.offHeapCache = CacheBuilder.newBuilder()
+                    .concurrencyLevel(16)
+                    .maximumWeight(offHeapMaximumWeight)
+                    .weigher(SegmentCache::weighOffHeap)
+                    .removalListener(this::onRemoveOffHeap)
+                    .build();
+        } else {
+            this.offHeapCache = null;
+        }
     }
 
     /**
@@ -84,9 +128,15 @@ public class SegmentCache {
         this(DEFAULT_SEGMENT_CACHE_MB);
     }
 
+    /** Weight of a segment in the off-heap tier: the size of its data */
+    private static int weighOffHeap(@Nonnull SegmentId id, @Nonnull Segment segment) {
+        return segment.size();
+    }
+
     /**
      * Removal handler called whenever an item is evicted from the cache. Propagates
-     * to {@link SegmentId#unloaded()}.
+     * to {@link SegmentId#unloaded()}. Segments evicted because of the size limit
+     * of the cache are moved to the off-heap tier if that is enabled.
      */
     private void onRemove(@Nonnull RemovalNotification<SegmentId, Segment> notification) {
         SegmentId id = notification.getKey();
@@ -97,6 +147,29 @@ public class SegmentCache {
             }
             stats.evictionCount.incrementAndGet();
             id.unloaded();
+            if (offHeapCache != null && segment != null && notification.getCause() == RemovalCause.SIZE) {
+                Segment offHeap = segment.copyOffHeap();
+                offHeapCache.put(id, offHeap);
+                offHeapStats.currentWeight.addAndGet(weighOffHeap(id, offHeap));
+            }
+        }
+    }
+
+    /**
+     * Removal handler called whenever an item is evicted from the off-heap tier.
+     * Propagates to {@link SegmentId#unloaded()}.
+     */
+    private void onRemoveOffHeap(@Nonnull RemovalNotification<SegmentId, Segment> notification) {
+        SegmentId id = notification.getKey();
+        if (id != null) {
+            Segment segment = notification.getValue();
+            if (segment != null) {
+                offHeapStats.currentWeight.addAndGet(-weighOffHeap(id, segment));
+            }
+            if (notification.wasEvicted()) {
+                offHeapStats.evictionCount.incrementAndGet();
+            }
+            id.unloaded();
         }
     }
 
@@ -104,6 +177,9 @@ public class SegmentCache {
     private Segment put(@Nonnull SegmentId id, @Nonnull Segment segment) {
         // Call loaded *before* putting the segment into the cache as the latter
         // might cause it to get evicted right away again.
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(id);
+        }
         id.loaded(segment);
         cache.put(id, segment);
         stats.currentWeight.addAndGet(weigher.weigh(id, segment));
@@ -129,6 +205,27 @@ public class SegmentCache {
             throw new ExecutionException(e);
         }
 
+        // Serve data segment put into the cache without being memoised in its id
+        // (see #prefetchSegment) and memoise it now
+        Segment cached = cache.getIfPresent(id);
+        if (cached != null) {
+            stats.hitCount.incrementAndGet();
+            id.loaded(cached);
+            return cached;
+        }
+
+        // Serve data segment from the off-heap tier and memoise it in its id
+        if (offHeapCache != null) {
+            Segment segment = offHeapCache.getIfPresent(id);
+            if (segment != null) {
+                stats.hitCount.incrementAndGet();
+                offHeapStats.hitCount.incrementAndGet();
+                id.loaded(segment);
+                return segment;
+            }
+            offHeapStats.missCount.incrementAndGet();
+        }
+
         // Load data segment and put it in the cache
         try {
             long t0 = System.nanoTime();
@@ -156,21 +253,59 @@ public class SegmentCache {
         }
     }
 
+    /**
+     * Put a segment that has not been accessed yet into the cache. Unlike
+     * {@link #putSegment(Segment)} the segment is not memoised in its id
+     * before it is retrieved through {@link #getSegment(SegmentId, Callable)}.
+     * This method does nothing for {@link SegmentId#isBulkSegmentId() bulk} segments.
+     * @param segment  the segment to cache
+     */
+    public void prefetchSegment(@Nonnull Segment segment) {
+        SegmentId id = segment.getSegmentId();
+        if (!id.isBulkSegmentId()) {
+            cache.put(id, segment);
+            stats.currentWeight.addAndGet(weigher.weigh(id, segment));
+        }
+    }
+
+    /**
+     * @param id  the id of a segment
+     * @return  {@code true} iff the segment identified by {@code id} is in any tier of this cache
+     */
+    public boolean containsSegment(@Nonnull SegmentId id) {
+        return cache.getIfPresent(id) != null
+                || (offHeapCache != null && offHeapCache.getIfPresent(id) != null);
+    }
+
     /**
      * Clear all segment from the cache
      */
     public void clear() {
         cache.invalidateAll();
+        if (offHeapCache != null) {
+            offHeapCache.invalidateAll();
+        }
     }
 
     /**
-     * @return  Statistics for this cache.
+     * @return  Statistics for this cache. Hits in the off-heap tier count as hits
+     *          of this cache, the element count and weight cover both tiers.
+     * @see #getOffHeapCacheStats()
      */
     @Nonnull
     public AbstractCacheStats getCacheStats() {
         return stats;
     }
 
+    /**
+     * @return  Statistics for the off-heap tier of this cache. A miss in the off-heap
+     *          tier is a load in {@link #getCacheStats()}.
+     */
+    @Nonnull
+    public AbstractCacheStats getOffHeapCacheStats() {
+        return offHeapStats;
+    }
+
     /**
      * Record a hit in this cache's underlying statistics.
      * @see SegmentId#onAccess
@@ -221,12 +356,57 @@ public class SegmentCache {
 
         @Override
         public long getElementCount() {
-            return cache.size();
+            return cache.size() + offHeapStats.getElementCount();
+        }
+
+        @Override
+        public long getMaxTotalWeight() {
+            return maximumWeight + offHeapMaximumWeight;
+        }
+
+        @Override
+        public long estimateCurrentWeight() {
+            return currentWeight.get() + offHeapStats.estimateCurrentWeight();
+        }
+    }
+
+    /** Statistics of the off-heap tier. Loads are accounted for by {@link Stats}. */
+    private class OffHeapStats extends AbstractCacheStats {
+        @Nonnull
+        final AtomicLong currentWeight = new AtomicLong();
+
+        @Nonnull
+        final AtomicLong evictionCount = new AtomicLong();
+
+        @Nonnull
+        final AtomicLong hitCount = new AtomicLong();
+
+        @Nonnull
+        final AtomicLong missCount = new AtomicLong();
+
+        protected OffHeapStats(@Nonnull String name) {
+            super(name);
+        }
+
+        @Override
+        protected com.google.common.cache.CacheStats getCurrentStats() {
+            return new com.google.common.cache.CacheStats(
+                    hitCount.get(),
+                    missCount.get(),
+                    0,
+                    0,
+                    0,
+                    evictionCount.get());
+        }
+
+        @Override
+        public long getElementCount() {
+            return offHeapCache == null ? 0 : offHeapCache.size();
         }
 
         @Override
         public long getMaxTotalWeight() {
-            return maximumWeight;
+            return offHeapMaximumWeight;
         }
 
         @Override
@@ -71,6 +71,12 @@ public class SegmentId implements Comparable<SegmentId> {
      */
     private int gcGeneration = -1;
 
+    /**
+     * Whether this segment has been written by compaction. Only valid if
+     * {@link #gcGeneration} is known.
+     */
+    private boolean compacted;
+
     /**
      * The gc info of this segment if it has been reclaimed or {@code null} otherwise.
      */
@@ -200,6 +206,7 @@ public class SegmentId implements Comparable<SegmentId> {
      */
     void loaded(@Nonnull Segment segment) {
         this.segment = segment;
+        this.compacted = segment.isCompacted();
         this.gcGeneration = segment.getGcGeneration();
     }
 
@@ -245,6 +252,18 @@ public class SegmentId implements Comparable<SegmentId> {
         return gcGeneration;
     }
 
+    /**
+     * Determine whether the underlying segment has been written by compaction.
+     * Might cause the segment to get loaded if the generation info is missing
+     * @return {@code true} iff the segment has been written by compaction
+     */
+    public boolean isCompacted() {
+        if (gcGeneration < 0) {
+            getSegment();
+        }
+        return compacted;
+    }
+
     // --------------------------------------------------------< Comparable >--
 
     @Override
@@ -40,6 +40,7 @@ import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.plugins.blob.BlobStoreBlob;
 import org.apache.jackrabbit.oak.segment.scheduler.Commit;
 import org.apache.jackrabbit.oak.segment.scheduler.LockBasedScheduler;
+import org.apache.jackrabbit.oak.segment.scheduler.LockFreeScheduler;
 import org.apache.jackrabbit.oak.segment.scheduler.Scheduler;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 import org.apache.jackrabbit.oak.spi.commit.CommitHook;
@@ -81,6 +82,8 @@ public class SegmentNodeStore implements NodeStore, Observable {
         
         private boolean dispatchChanges = true;
 
+        private boolean lockFreeScheduler = Boolean.getBoolean("oak.segmentNodeStore.lockFreeScheduler");
+
         @Nonnull
         private StatisticsProvider statsProvider = StatisticsProvider.NOOP;
         
@@ -102,6 +105,20 @@ public class SegmentNodeStore implements NodeStore, Observable {
             return this;
         }
         
+        /**
+         * Use a {@link LockFreeScheduler} applying concurrent commits in batches
+         * instead of the default {@link LockBasedScheduler} serializing them.
+         * Defaults to the value of the {@code oak.segmentNodeStore.lockFreeScheduler}
+         * system property.
+         * @param lockFreeScheduler
+         * @return this instance
+         */
+        @Nonnull
+        public SegmentNodeStoreBuilder withLockFreeScheduler(boolean lockFreeScheduler) {
+            this.lockFreeScheduler = lockFreeScheduler;
+            return this;
+        }
+
         /**
          * {@link StatisticsProvider} for collecting statistics related to SegmentStore
          * @param statisticsProvider
@@ -130,6 +147,7 @@ public class SegmentNodeStore implements NodeStore, Observable {
         public String toString() {
             return "SegmentNodeStoreBuilder{" +
                     getString(blobStore) +
+                    ", lockFreeScheduler=" + lockFreeScheduler +
                     '}';
         }
     }
@@ -167,10 +185,17 @@ public class SegmentNodeStore implements NodeStore, Observable {
         this.writer = builder.writer;
         this.blobStore = builder.blobStore;
         
-        this.scheduler = LockBasedScheduler.builder(builder.revisions, builder.reader)
-                .dispatchChanges(builder.dispatchChanges)
-                .withStatisticsProvider(builder.statsProvider)
-                .build();
+        if (builder.lockFreeScheduler) {
+            this.scheduler = LockFreeScheduler.builder(builder.revisions, builder.reader)
+                    .dispatchChanges(builder.dispatchChanges)
+                    .withStatisticsProvider(builder.statsProvider)
+                    .build();
+        } else {
+            this.scheduler = LockBasedScheduler.builder(builder.revisions, builder.reader)
+                    .dispatchChanges(builder.dispatchChanges)
+                    .withStatisticsProvider(builder.statsProvider)
+                    .build();
+        }
         
         this.stats = new SegmentNodeStoreStats(builder.statsProvider);
     }
@@ -38,6 +38,7 @@ import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.COMPACTI
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.CUSTOM_BLOB_STORE;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.DEFAULT_BLOB_GC_MAX_AGE;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.DEFAULT_BLOB_SNAPSHOT_INTERVAL;
+import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.DEDUPLICATION_CACHE_BUDGET;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.GC_PROGRESS_LOG;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.MEMORY_THRESHOLD;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.MODE;
@@ -47,7 +48,9 @@ import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.PROP_BLO
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.PROP_BLOB_SNAPSHOT_INTERVAL;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.REPOSITORY_HOME_DIRECTORY;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.RETAINED_GENERATIONS;
+import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.OFF_HEAP_SEGMENT_CACHE_SIZE;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.SEGMENT_CACHE_SIZE;
+import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.SEGMENT_COMPRESSION;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.SIZE;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.STANDBY;
 import static org.apache.jackrabbit.oak.segment.SegmentNodeStoreService.STRING_CACHE_SIZE;
@@ -187,6 +190,23 @@ public class SegmentNodeStoreService {
     )
     public static final String SEGMENT_CACHE_SIZE = "segmentCache.size";
 
+    @Property(
+            intValue = 0,
+            label = "Off-heap segment cache size (MB)",
+            description = "Cache size for keeping segments evicted from the segment cache in " +
+                    "direct memory, in megabytes. Default value is '0', which disables the off-heap cache."
+    )
+    public static final String OFF_HEAP_SEGMENT_CACHE_SIZE = "segmentCache.offHeap.size";
+
+    @Property(
+            boolValue = false,
+            label = "Segment compression",
+            description = "Boolean value indicating whether data segments are compressed when written " +
+                    "to tar files. Compressed segments can not be read by versions not supporting them. " +
+                    "Default value is 'false'."
+    )
+    public static final String SEGMENT_COMPRESSION = "segmentCompression";
+
     @Property(
             intValue = DEFAULT_STRING_CACHE_MB,
             label = "String cache size (MB)",
@@ -228,6 +248,15 @@ public class SegmentNodeStoreService {
     )
     public static final String NODE_DEDUPLICATION_CACHE_SIZE = "nodeDeduplicationCache.size";
 
+    @Property(
+            intValue = 0,
+            label = "Deduplication cache budget (MB)",
+            description = "Memory budget shared by the deduplication caches in megabytes. If positive, " +
+                    "the string and template deduplication caches are resized within this budget " +
+                    "according to their hit rates. Default value is '0', which keeps their sizes fixed."
+    )
+    public static final String DEDUPLICATION_CACHE_BUDGET = "deduplicationCache.budget";
+
     @Property(
             boolValue = PAUSE_DEFAULT,
             label = "Pause compaction",
@@ -442,13 +471,16 @@ public class SegmentNodeStoreService {
         // Build the FileStore
         FileStoreBuilder builder = fileStoreBuilder(configuration.getSegmentDirectory())
                 .withSegmentCacheSize(configuration.getSegmentCacheSize())
+                .withOffHeapSegmentCacheSize(configuration.getOffHeapSegmentCacheSize())
                 .withStringCacheSize(configuration.getStringCacheSize())
                 .withTemplateCacheSize(configuration.getTemplateCacheSize())
                 .withStringDeduplicationCacheSize(configuration.getStringDeduplicationCacheSize())
                 .withTemplateDeduplicationCacheSize(configuration.getTemplateDeduplicationCacheSize())
                 .withNodeDeduplicationCacheSize(configuration.getNodeDeduplicationCacheSize())
+                .withDeduplicationCacheBudget(configuration.getDeduplicationCacheBudget())
                 .withMaxFileSize(configuration.getMaxFileSize())
                 .withMemoryMapping(configuration.getMemoryMapping())
+                .withSegmentCompression(configuration.getSegmentCompression())
                 .withGCMonitor(gcMonitor)
                 .withIOMonitor(new MetricsIOMonitor(statisticsProvider))
                 .withStatisticsProvider(statisticsProvider)
@@ -489,6 +521,16 @@ public class SegmentNodeStoreService {
                 segmentCacheStats.getName()
         ));
 
+        if (configuration.getOffHeapSegmentCacheSize() > 0) {
+            CacheStatsMBean offHeapSegmentCacheStats = store.getOffHeapSegmentCacheStats();
+            closeables.add(registrations.registerMBean(
+                    CacheStatsMBean.class,
+                    offHeapSegmentCacheStats,
+                    CacheStats.TYPE,
+                    offHeapSegmentCacheStats.getName()
+            ));
+        }
+
         // Expose stats about the string and template caches
 
         CacheStatsMBean stringCacheStats = store.getStringCacheStats();
@@ -841,6 +883,14 @@ class Configuration {
         return toInteger(getCacheSize(SEGMENT_CACHE_SIZE), DEFAULT_SEGMENT_CACHE_MB);
     }
 
+    int getOffHeapSegmentCacheSize() {
+        return toInteger(getCacheSize(OFF_HEAP_SEGMENT_CACHE_SIZE), 0);
+    }
+
+    boolean getSegmentCompression() {
+        return toBoolean(property(SEGMENT_COMPRESSION), false);
+    }
+
     int getStringCacheSize() {
         return toInteger(getCacheSize(STRING_CACHE_SIZE), DEFAULT_STRING_CACHE_MB);
     }
@@ -861,6 +911,10 @@ class Configuration {
         return roundToNextPowerOfTwo(toInteger(getCacheSize(NODE_DEDUPLICATION_CACHE_SIZE), DEFAULT_NODE_CACHE_SIZE_OSGi));
     }
 
+    int getDeduplicationCacheBudget() {
+        return toInteger(getCacheSize(DEDUPLICATION_CACHE_BUDGET), 0);
+    }
+
     boolean getPauseCompaction() {
         return toBoolean(property(PAUSE_COMPACTION), PAUSE_DEFAULT);
     }
@@ -19,6 +19,13 @@
 
 package org.apache.jackrabbit.oak.segment;
 
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.NODE_DEDUPLICATION_CACHE;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.Operation.WRITE;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.STRING_DEDUPLICATION_CACHE;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.TEMPLATE_DEDUPLICATION_CACHE;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.accessCountName;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.missCountName;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.sizeName;
 import static org.apache.jackrabbit.stats.TimeSeriesStatsUtil.asCompositeData;
 
 import java.util.concurrent.TimeUnit;
@@ -101,6 +108,50 @@ public class SegmentNodeStoreStats implements SegmentNodeStoreStatsMBean, Segmen
     public CompositeData getQueuingTimes() {
         return asCompositeData(getTimeSeries(QUEUEING_TIME), QUEUEING_TIME);
     }
+
+    @Override
+    public CompositeData getStringDeduplicationCacheAccessCount() {
+        return getCompositeData(accessCountName(STRING_DEDUPLICATION_CACHE, WRITE));
+    }
+
+    @Override
+    public CompositeData getStringDeduplicationCacheMissCount() {
+        return getCompositeData(missCountName(STRING_DEDUPLICATION_CACHE, WRITE));
+    }
+
+    @Override
+    public CompositeData getStringDeduplicationCacheSize() {
+        return getCompositeData(sizeName(STRING_DEDUPLICATION_CACHE));
+    }
+
+    @Override
+    public CompositeData getTemplateDeduplicationCacheAccessCount() {
+        return getCompositeData(accessCountName(TEMPLATE_DEDUPLICATION_CACHE, WRITE));
+    }
+
+    @Override
+    public CompositeData getTemplateDeduplicationCacheMissCount() {
+        return getCompositeData(missCountName(TEMPLATE_DEDUPLICATION_CACHE, WRITE));
+    }
+
+    @Override
+    public CompositeData getTemplateDeduplicationCacheSize() {
+        return getCompositeData(sizeName(TEMPLATE_DEDUPLICATION_CACHE));
+    }
+
+    @Override
+    public CompositeData getNodeDeduplicationCacheAccessCount() {
+        return getCompositeData(accessCountName(NODE_DEDUPLICATION_CACHE, WRITE));
+    }
+
+    @Override
+    public CompositeData getNodeDeduplicationCacheMissCount() {
+        return getCompositeData(missCountName(NODE_DEDUPLICATION_CACHE, WRITE));
+    }
+
+    private CompositeData getCompositeData(String name) {
+        return asCompositeData(getTimeSeries(name), name);
+    }
     
     private TimeSeries getTimeSeries(String name) {
         return statisticsProvider.getStats().getTimeSeries(name, true);
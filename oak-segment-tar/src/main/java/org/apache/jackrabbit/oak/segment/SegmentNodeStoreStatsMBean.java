@@ -43,4 +43,52 @@ public interface SegmentNodeStoreStatsMBean {
      * @return  time series of the queuing times
      */
     CompositeData getQueuingTimes();
+
+    /**
+     * @return  time series of the number of read accesses to the string
+     *          deduplication cache by writes
+     */
+    CompositeData getStringDeduplicationCacheAccessCount();
+
+    /**
+     * @return  time series of the number of misses of the string
+     *          deduplication cache by writes
+     */
+    CompositeData getStringDeduplicationCacheMissCount();
+
+    /**
+     * @return  time series of the maximum size of the string deduplication
+     *          cache, if sized adaptively
+     */
+    CompositeData getStringDeduplicationCacheSize();
+
+    /**
+     * @return  time series of the number of read accesses to the template
+     *          deduplication cache by writes
+     */
+    CompositeData getTemplateDeduplicationCacheAccessCount();
+
+    /**
+     * @return  time series of the number of misses of the template
+     *          deduplication cache by writes
+     */
+    CompositeData getTemplateDeduplicationCacheMissCount();
+
+    /**
+     * @return  time series of the maximum size of the template deduplication
+     *          cache, if sized adaptively
+     */
+    CompositeData getTemplateDeduplicationCacheSize();
+
+    /**
+     * @return  time series of the number of read accesses to the node
+     *          deduplication cache by writes
+     */
+    CompositeData getNodeDeduplicationCacheAccessCount();
+
+    /**
+     * @return  time series of the number of misses of the node
+     *          deduplication cache by writes
+     */
+    CompositeData getNodeDeduplicationCacheMissCount();
 }
@@ -107,6 +107,9 @@ public class SegmentWriter {
     @Nonnull
     private final WriteOperationHandler writeOperationHandler;
 
+    @Nonnull
+    private final Supplier<Integer> compactedBaseGeneration;
+
     @Nonnull
     private GCNodeWriteMonitor compactionMonitor = GCNodeWriteMonitor.EMPTY;
 
@@ -128,6 +131,32 @@ public class SegmentWriter {
             @Nullable BlobStore blobStore,
             @Nonnull WriterCacheManager cacheManager,
             @Nonnull WriteOperationHandler writeOperationHandler
+    ) {
+        this(store, reader, idProvider, blobStore, cacheManager, writeOperationHandler,
+                Suppliers.ofInstance(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Create a new instance of a {@code SegmentWriter}. Note the thread safety properties
+     * pointed out in the class comment.
+     *
+     * @param store      store to write to
+     * @param reader     segment reader for the {@code store}
+     * @param idProvider segment id provider for the {@code store}
+     * @param blobStore  the blog store or {@code null} for inlined blobs
+     * @param cacheManager  cache manager instance for the de-duplication caches used by this writer
+     * @param writeOperationHandler  handler for write operations.
+     * @param compactedBaseGeneration  records from compacted segments of at least this
+     *                                 generation are not considered to be of an old generation.
+     */
+    public SegmentWriter(
+            @Nonnull SegmentStore store,
+            @Nonnull SegmentReader reader,
+            @Nonnull SegmentIdProvider idProvider,
+            @Nullable BlobStore blobStore,
+            @Nonnull WriterCacheManager cacheManager,
+            @Nonnull WriteOperationHandler writeOperationHandler,
+            @Nonnull Supplier<Integer> compactedBaseGeneration
     ) {
         this.store = checkNotNull(store);
         this.reader = checkNotNull(reader);
@@ -135,6 +164,7 @@ public class SegmentWriter {
         this.blobStore = blobStore;
         this.cacheManager = checkNotNull(cacheManager);
         this.writeOperationHandler = checkNotNull(writeOperationHandler);
+        this.compactedBaseGeneration = checkNotNull(compactedBaseGeneration);
     }
 
     public void flush() throws IOException {
@@ -1089,9 +1119,15 @@ public class SegmentWriter {
 
         private boolean isOldGeneration(RecordId id) {
             try {
-                int thatGen = id.getSegmentId().getGcGeneration();
+                SegmentId segmentId = id.getSegmentId();
+                int thatGen = segmentId.getGcGeneration();
                 int thisGen = writer.getGeneration();
-                return thatGen < thisGen;
+                if (thatGen >= thisGen) {
+                    return false;
+                }
+                // Compacted records from the base of a tail compaction are
+                // not old: subsequent tail compactions build on top of them.
+                return thatGen < compactedBaseGeneration.get() || !segmentId.isCompacted();
             } catch (SegmentNotFoundException snfe) {
                 // This SNFE means a defer compacted node state is too far
                 // in the past. It has been gc'ed already and cannot be
@@ -58,6 +58,11 @@ public final class SegmentWriterBuilder {
 
     private boolean pooled = false;
 
+    private boolean compacted = false;
+
+    @Nonnull
+    private Supplier<Integer> compactedBaseGeneration = Suppliers.ofInstance(Integer.MAX_VALUE);
+
     @Nonnull
     private WriterCacheManager cacheManager = new WriterCacheManager.Default();
 
@@ -99,6 +104,28 @@ public final class SegmentWriterBuilder {
         return this;
     }
 
+    /**
+     * Mark the segments written by the returned segment writer as compacted.
+     * Compacted segments serve as base for subsequent tail compactions.
+     */
+    @Nonnull
+    public SegmentWriterBuilder withCompactedSegments() {
+        this.compacted = true;
+        return this;
+    }
+
+    /**
+     * Specify the generation of the last full compaction. Records from compacted
+     * segments of at least this generation are re-used by the returned segment
+     * writer instead of being rewritten, even though they are from an older
+     * generation. By default all records from older generations are rewritten.
+     */
+    @Nonnull
+    public SegmentWriterBuilder withCompactedBaseGeneration(@Nonnull Supplier<Integer> compactedBaseGeneration) {
+        this.compactedBaseGeneration = checkNotNull(compactedBaseGeneration);
+        return this;
+    }
+
     /**
      * Create a {@code SegmentWriter} backed by a {@link SegmentBufferWriterPool}.
      * The returned instance is thread safe.
@@ -149,7 +176,8 @@ public final class SegmentWriterBuilder {
                 store.getSegmentIdProvider(),
                 store.getBlobStore(),
                 cacheManager,
-                createWriter(store, pooled)
+                createWriter(store, pooled),
+                compactedBaseGeneration
         );
     }
 
@@ -191,7 +219,8 @@ public final class SegmentWriterBuilder {
                 store.getSegmentIdProvider(),
                 store.getBlobStore(),
                 cacheManager,
-                createWriter(store, pooled)
+                createWriter(store, pooled),
+                compactedBaseGeneration
         );
     }
 
@@ -202,14 +231,16 @@ public final class SegmentWriterBuilder {
                     store.getSegmentIdProvider(),
                     store.getReader(),
                     name,
-                    generation
+                    generation,
+                    compacted
             );
         } else {
             return new SegmentBufferWriter(
                     store.getSegmentIdProvider(),
                     store.getReader(),
                     name,
-                    generation.get()
+                    generation.get(),
+                    compacted
             );
         }
     }
@@ -221,14 +252,16 @@ public final class SegmentWriterBuilder {
                     store.getSegmentIdProvider(),
                     store.getReader(),
                     name,
-                    generation
+                    generation,
+                    compacted
             );
         } else {
             return new SegmentBufferWriter(
                     store.getSegmentIdProvider(),
                     store.getReader(),
                     name,
-                    generation.get()
+                    generation.get(),
+                    compacted
             );
         }
     }
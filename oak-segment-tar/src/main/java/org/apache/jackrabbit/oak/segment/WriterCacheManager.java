@@ -19,6 +19,7 @@
 
 package org.apache.jackrabbit.oak.segment;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Suppliers.memoize;
 import static com.google.common.collect.Iterators.transform;
@@ -28,6 +29,7 @@ import static org.apache.jackrabbit.oak.segment.RecordCache.newRecordCache;
 
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -99,6 +101,56 @@ public abstract class WriterCacheManager {
     public static final int DEFAULT_NODE_CACHE_SIZE = getInteger(
             "oak.tar.nodeCacheSize", DEFAULT_NODE_CACHE_SIZE_OSGi);
 
+    /**
+     * Default memory budget in MB shared by the deduplication caches when
+     * they are sized adaptively. {@code 0} disables adaptive sizing.
+     * @see Default#Default(Supplier, Supplier, Supplier, StatisticsProvider, long)
+     */
+    public static final int DEFAULT_DEDUPLICATION_CACHE_BUDGET = getInteger(
+            "oak.tar.deduplicationCacheBudget", 0);
+
+    /**
+     * Prefix of the names of the statistics of the string deduplication cache.
+     */
+    public static final String STRING_DEDUPLICATION_CACHE = "oak.segment.string-deduplication-cache";
+
+    /**
+     * Prefix of the names of the statistics of the template deduplication cache.
+     */
+    public static final String TEMPLATE_DEDUPLICATION_CACHE = "oak.segment.template-deduplication-cache";
+
+    /**
+     * Prefix of the names of the statistics of the node deduplication cache.
+     */
+    public static final String NODE_DEDUPLICATION_CACHE = "oak.segment.node-deduplication-cache";
+
+    /**
+     * @return  name of the counter of read accesses to the cache {@code cache}
+     *          for {@code operation}.
+     */
+    @Nonnull
+    public static String accessCountName(@Nonnull String cache, @Nonnull Operation operation) {
+        return cache + "-" + operation + ".access-count";
+    }
+
+    /**
+     * @return  name of the counter of misses of the cache {@code cache}
+     *          for {@code operation}.
+     */
+    @Nonnull
+    public static String missCountName(@Nonnull String cache, @Nonnull Operation operation) {
+        return cache + "-" + operation + ".miss-count";
+    }
+
+    /**
+     * @return  name of the counter holding the current maximum size of the
+     *          adaptively sized cache {@code cache}.
+     */
+    @Nonnull
+    public static String sizeName(@Nonnull String cache) {
+        return cache + ".size";
+    }
+
     /**
      * @return  cache for string records of the given {@code generation} and {@code operation}.
      */
@@ -211,8 +263,39 @@ public abstract class WriterCacheManager {
      * This implementation of {@link WriterCacheManager} returns
      * {@link RecordCache} instances for the string and template cache
      * and {@link Cache} instance for the node cache.
+     * <p>
+     * If constructed with a memory budget the sizes of the string and the
+     * template cache are adapted to their hit counts: every
+     * {@link #TUNE_INTERVAL} accesses the budget left over by the node cache
+     * is split between both caches in proportion to their recent hits. Each
+     * cache gets at least {@link #MIN_SHARE} of the budget. New generations
+     * of a cache start with the size tuned so far. Entries themselves are
+     * never carried over to a new generation as they would make new content
+     * reference records reclaimed by cleanup.
      */
     public static class Default extends WriterCacheManager {
+
+        /**
+         * Number of accesses to the adaptively sized caches between two
+         * adjustments of their sizes.
+         */
+        static final int TUNE_INTERVAL = getInteger("oak.tar.deduplicationCacheTuneInterval", 10000);
+
+        /**
+         * Minimal share of the memory budget of each adaptively sized cache.
+         */
+        static final double MIN_SHARE = 0.1;
+
+        /**
+         * Weight of recent hits relative to the hits of earlier intervals.
+         */
+        private static final double DECAY = 0.5;
+
+        /**
+         * Minimal size of an adaptively sized cache.
+         */
+        private static final int MIN_SIZE = 64;
+
         /**
          * Cache of recently stored string records, used to avoid storing duplicates
          * of frequently occurring data.
@@ -238,6 +321,20 @@ public abstract class WriterCacheManager {
         @Nonnull
         private final StatisticsProvider statisticsProvider;
 
+        /**
+         * Memory budget in bytes of the adaptively sized caches or {@code 0}
+         * if the caches are not sized adaptively.
+         */
+        private final long budget;
+
+        @CheckForNull
+        private final AdaptiveSize stringCacheSize;
+
+        @CheckForNull
+        private final AdaptiveSize templateCacheSize;
+
+        private final AtomicLong accesses = new AtomicLong();
+
         /**
          * New instance using the passed factories for creating cache instances.
          * The factories will be invoked exactly once when a generation of a
@@ -254,10 +351,45 @@ public abstract class WriterCacheManager {
                 @Nonnull Supplier<RecordCache<Template>> templateCacheFactory,
                 @Nonnull Supplier<PriorityCache<String, RecordId>> nodeCacheFactory,
                 @Nonnull StatisticsProvider statisticsProvider) {
-            this.stringCaches = new Generations<>(stringCacheFactory);
-            this.templateCaches = new Generations<>(templateCacheFactory);
-            this.nodeCache = memoize(nodeCacheFactory);
+            this(stringCacheFactory, templateCacheFactory, nodeCacheFactory, statisticsProvider, 0);
+        }
+
+        /**
+         * New instance using the passed factories for creating cache instances.
+         * The factories will be invoked exactly once when a generation of a
+         * cache is requested that has not been requested before.
+         *
+         * @param stringCacheFactory       factory for the string cache
+         * @param templateCacheFactory     factory for the template cache
+         * @param nodeCacheFactory         factory for the node cache
+         * @param statisticsProvider       The {@code StatisticsProvider} instance to expose
+         *                                 statistics of the caches managed by this instance.
+         * @param budget                   memory budget in bytes shared by all caches.
+         *                                 The string and the template cache are sized
+         *                                 adaptively within this budget. {@code 0} disables
+         *                                 adaptive sizing.
+         */
+        public Default(
+                @Nonnull Supplier<RecordCache<String>> stringCacheFactory,
+                @Nonnull Supplier<RecordCache<Template>> templateCacheFactory,
+                @Nonnull Supplier<PriorityCache<String, RecordId>> nodeCacheFactory,
+                @Nonnull StatisticsProvider statisticsProvider,
+                long budget) {
+            checkArgument(budget >= 0);
             this.statisticsProvider = checkNotNull(statisticsProvider);
+            this.budget = budget;
+            if (budget > 0) {
+                this.stringCacheSize = new AdaptiveSize(STRING_DEDUPLICATION_CACHE, 128);
+                this.templateCacheSize = new AdaptiveSize(TEMPLATE_DEDUPLICATION_CACHE, 256);
+                this.stringCaches = new Generations<>(stringCacheSize.factory(stringCacheFactory));
+                this.templateCaches = new Generations<>(templateCacheSize.factory(templateCacheFactory));
+            } else {
+                this.stringCacheSize = null;
+                this.templateCacheSize = null;
+                this.stringCaches = new Generations<>(stringCacheFactory);
+                this.templateCaches = new Generations<>(templateCacheFactory);
+            }
+            this.nodeCache = memoize(nodeCacheFactory);
         }
 
         /**
@@ -310,18 +442,123 @@ public abstract class WriterCacheManager {
             }
         }
 
+        /**
+         * Size and hit count of an adaptively sized cache.
+         */
+        private class AdaptiveSize {
+            private final AtomicLong hits = new AtomicLong();
+            private final CounterStats sizeStats;
+            private final int defaultEntryWeight;
+            /** The tuned size or {@code 0} as long as the size of the created caches is kept. */
+            private volatile int size;
+            private double score;
+
+            AdaptiveSize(@Nonnull String name, int defaultEntryWeight) {
+                this.sizeStats = statisticsProvider.getCounterStats(sizeName(name), StatsOptions.DEFAULT);
+                this.defaultEntryWeight = defaultEntryWeight;
+            }
+
+            int getSize() {
+                return size;
+            }
+
+            void setSize(int size) {
+                this.size = size;
+                sizeStats.inc(size - sizeStats.getCount());
+            }
+
+            /**
+             * @return  {@code factory} with the size of every created cache
+             *          set to the size tuned so far.
+             */
+            <T> Supplier<RecordCache<T>> factory(final Supplier<RecordCache<T>> factory) {
+                return new Supplier<RecordCache<T>>() {
+                    @Override
+                    public RecordCache<T> get() {
+                        RecordCache<T> cache = factory.get();
+                        if (size > 0) {
+                            cache.setMaxSize(size);
+                        }
+                        return cache;
+                    }
+                };
+            }
+
+            /**
+             * Update the score from the hits since the last call.
+             * @return  the new score.
+             */
+            double updateScore() {
+                score = DECAY * score + (1 - DECAY) * hits.getAndSet(0);
+                return score;
+            }
+
+            /**
+             * @return  the average weight of the entries of {@code caches} or
+             *          a default if their weights are not memory estimates.
+             */
+            <T> long entryWeight(Iterable<RecordCache<T>> caches) {
+                long count = accumulateRecordCacheSizes(caches).get();
+                long weight = accumulateRecordCacheWeights(caches).get();
+                // Caches without a weigher weigh each entry 1
+                if (count > 0 && weight > count) {
+                    return Math.max(1, weight / count);
+                }
+                return defaultEntryWeight;
+            }
+        }
+
+        private void onAccess() {
+            if (accesses.incrementAndGet() % TUNE_INTERVAL == 0) {
+                tune();
+            }
+        }
+
+        /**
+         * Split the budget left over by the node cache between the string
+         * and the template cache in proportion to their recent hits.
+         */
+        synchronized void tune() {
+            if (stringCacheSize == null || templateCacheSize == null) {
+                return;
+            }
+
+            double stringScore = stringCacheSize.updateScore();
+            double templateScore = templateCacheSize.updateScore();
+            double total = stringScore + templateScore;
+            if (total <= 0) {
+                return;
+            }
+
+            long available = Math.max(0, budget - Math.max(0, nodeCache().estimateCurrentWeight()));
+            double stringShare = MIN_SHARE + (1 - 2 * MIN_SHARE) * stringScore / total;
+            resize(stringCacheSize, stringCaches, (long) (available * stringShare));
+            resize(templateCacheSize, templateCaches, (long) (available * (1 - stringShare)));
+        }
+
+        private static <T> void resize(AdaptiveSize size, Generations<RecordCache<T>> caches, long budget) {
+            long entries = budget / size.entryWeight(caches);
+            int newSize = (int) Math.max(MIN_SIZE, Math.min(Integer.MAX_VALUE, entries));
+            if (newSize != size.getSize()) {
+                size.setSize(newSize);
+                for (RecordCache<T> cache : caches) {
+                    cache.setMaxSize(newSize);
+                }
+            }
+        }
+
         @Nonnull
         @Override
         public Cache<String, RecordId> getStringCache(int generation, Operation operation) {
-            return new AccessTrackingCache<>("oak.segment.string-deduplication-cache-" + operation,
-                    stringCaches.getGeneration(generation));
+            return new AccessTrackingCache<>(STRING_DEDUPLICATION_CACHE, operation,
+                    stringCaches.getGeneration(generation), stringCacheSize);
         }
 
         @Nonnull
         @Override
         public Cache<Template, RecordId> getTemplateCache(int generation, Operation operation) {
-            return new AccessTrackingCache<>("oak.segment.template-deduplication-cache-" + operation,
-                    templateCaches.getGeneration(generation));
+            return new AccessTrackingCache<>(TEMPLATE_DEDUPLICATION_CACHE, operation,
+                    templateCaches.getGeneration(generation), templateCacheSize);
         }
 
         private PriorityCache<String, RecordId> nodeCache() {
@@ -331,7 +568,7 @@ public abstract class WriterCacheManager {
         @Override
         @Nonnull
         public Cache<String, RecordId> getNodeCache(final int generation, Operation operation) {
-            return new AccessTrackingCache<>("oak.segment.node-deduplication-cache-" + operation,
+            return new AccessTrackingCache<>(NODE_DEDUPLICATION_CACHE, operation,
                     new Cache<String, RecordId>() {
                 @Override
                 public void put(@Nonnull String stableId, @Nonnull RecordId recordId, byte cost) {
@@ -348,7 +585,7 @@ public abstract class WriterCacheManager {
                 public RecordId get(@Nonnull String stableId) {
                     return nodeCache().get(stableId, generation);
                 }
-            });
+            }, null);
         }
 
         @CheckForNull
@@ -451,18 +688,23 @@ public abstract class WriterCacheManager {
         /**
          * {@code Cache} wrapper exposing the number of read accesses and the
          * number of misses ot the underlying cache via the {@link #statisticsProvider}.
+         * Hits of adaptively sized caches are also fed back to their {@link AdaptiveSize}.
          */
         private class AccessTrackingCache<K, V> implements Cache<K,V> {
             private final Cache<K, V> delegate;
             private final CounterStats accessCount;
             private final CounterStats missCount;
+            @CheckForNull
+            private final AdaptiveSize adaptiveSize;
 
-            private AccessTrackingCache(@Nonnull String name, @Nonnull Cache<K, V> delegate) {
+            private AccessTrackingCache(@Nonnull String name, @Nonnull Operation operation,
+                    @Nonnull Cache<K, V> delegate, @Nullable AdaptiveSize adaptiveSize) {
                 this.delegate = delegate;
                 this.accessCount = statisticsProvider.getCounterStats(
-                        name + ".access-count", StatsOptions.DEFAULT);
+                        accessCountName(name, operation), StatsOptions.DEFAULT);
                 this.missCount = statisticsProvider.getCounterStats(
-                        name + ".miss-count", StatsOptions.DEFAULT);
+                        missCountName(name, operation), StatsOptions.DEFAULT);
+                this.adaptiveSize = adaptiveSize;
             }
 
             @Override
@@ -483,6 +725,12 @@ public abstract class WriterCacheManager {
                 if (v == null) {
                     missCount.inc();
                 }
+                if (adaptiveSize != null) {
+                    if (v != null) {
+                        adaptiveSize.hits.incrementAndGet();
+                    }
+                    onAccess();
+                }
                 return v;
             }
         }
@@ -20,6 +20,7 @@
 package org.apache.jackrabbit.oak.segment.compaction;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 import org.apache.jackrabbit.oak.segment.file.GCNodeWriteMonitor;
 
@@ -28,6 +29,23 @@ import org.apache.jackrabbit.oak.segment.file.GCNodeWriteMonitor;
  */
 public class SegmentGCOptions {
 
+    /**
+     * The gc type.
+     */
+    public enum GCType {
+
+        /**
+         * Full gc: compact the full head state.
+         */
+        FULL,
+
+        /**
+         * Tail gc: compact only the changes since the last compaction on top
+         * of the previously compacted state.
+         */
+        TAIL
+    }
+
     /**
      * Default value for {@link #isPaused()}
      */
@@ -68,6 +86,11 @@ public class SegmentGCOptions {
      */
     public static final int MEMORY_THRESHOLD_DEFAULT = 15;
 
+    /**
+     * Default value for {@link #getGCType()}
+     */
+    public static final GCType GC_TYPE_DEFAULT = GCType.FULL;
+
     private boolean paused = PAUSE_DEFAULT;
 
     /**
@@ -85,6 +108,8 @@ public class SegmentGCOptions {
 
     private int memoryThreshold = MEMORY_THRESHOLD_DEFAULT;
 
+    private GCType gcType = GC_TYPE_DEFAULT;
+
     private boolean ocBinDeduplication = Boolean
             .getBoolean("oak.segment.compaction.binaryDeduplication");
 
@@ -92,6 +117,9 @@ public class SegmentGCOptions {
             "oak.segment.compaction.binaryDeduplicationMaxSize",
             100 * 1024 * 1024);
 
+    private int ocConcurrency = Integer.getInteger(
+            "oak.segment.compaction.concurrency", 1);
+
     private long gcSizeDeltaEstimation = Long.getLong(
             "oak.segment.compaction.gcSizeDeltaEstimation",
             SIZE_DELTA_ESTIMATION_DEFAULT);
@@ -213,10 +241,12 @@ public class SegmentGCOptions {
                     "offline=" + offline +
                     ", retainedGenerations=" + retainedGenerations +
                     ", ocBinDeduplication=" + ocBinDeduplication +
-                    ", ocBinMaxSize=" + ocBinMaxSize + "}";
+                    ", ocBinMaxSize=" + ocBinMaxSize +
+                    ", ocConcurrency=" + ocConcurrency + "}";
         } else {
             return getClass().getSimpleName() + "{" +
                     "paused=" + paused +
+                    ", gcType=" + gcType +
                     ", estimationDisabled=" + estimationDisabled +
                     ", gcSizeDeltaEstimation=" + gcSizeDeltaEstimation +
                     ", retryCount=" + retryCount +
@@ -285,6 +315,23 @@ public class SegmentGCOptions {
         return this.ocBinMaxSize;
     }
 
+    /**
+     * Offline compaction only. Set the number of threads compacting the
+     * subtrees of the root node in parallel. A value of {@code 1} compacts
+     * the whole tree on the calling thread.
+     * @param concurrency  number of compaction threads, at least {@code 1}.
+     * @return this instance
+     */
+    public SegmentGCOptions setConcurrency(int concurrency) {
+        checkArgument(concurrency > 0, "Concurrency must be positive");
+        this.ocConcurrency = concurrency;
+        return this;
+    }
+
+    public int getConcurrency() {
+        return this.ocConcurrency;
+    }
+
     public long getGcSizeDeltaEstimation() {
         return gcSizeDeltaEstimation;
     }
@@ -330,6 +377,26 @@ public class SegmentGCOptions {
         return this;
     }
 
+    /**
+     * Get the gc type of the next revision gc run.
+     * @return gc type
+     */
+    public GCType getGCType() {
+        return gcType;
+    }
+
+    /**
+     * Set the gc type of the next revision gc runs. A {@link GCType#TAIL tail}
+     * compaction falls back to a {@link GCType#FULL full} compaction if there is
+     * no previously compacted state to compact on top of.
+     * @param gcType
+     * @return this instance
+     */
+    public SegmentGCOptions setGCType(GCType gcType) {
+        this.gcType = checkNotNull(gcType);
+        return this;
+    }
+
     /**
      * Enables the GcWriteMonitor with the given params.
      * @param gcProgressLog
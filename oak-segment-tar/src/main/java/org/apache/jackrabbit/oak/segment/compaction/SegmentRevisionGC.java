@@ -103,6 +103,29 @@ public interface SegmentRevisionGC {
      */
     void setEstimationDisabled(boolean disabled);
 
+    /**
+     * @return  the gc type of the next revision gc run: either {@code "FULL"}
+     *          or {@code "TAIL"}.
+     */
+    @Nonnull
+    String getGCType();
+
+    /**
+     * Set the gc type of the next revision gc runs. A {@code "TAIL"}
+     * compaction falls back to a {@code "FULL"} compaction if there is no
+     * previously compacted state to compact on top of.
+     * @param gcType  either {@code "FULL"} or {@code "TAIL"}
+     * @throws IllegalArgumentException if {@code gcType} is not a valid gc type
+     */
+    void setGCType(@Nonnull String gcType);
+
+    /**
+     * @return  the gc type of the current or last compaction: either {@code "FULL"}
+     *          or {@code "TAIL"}, or {@code null} if no compaction ran yet.
+     */
+    @CheckForNull
+    String getLastCompactionType();
+
     /**
      * Initiate a revision garbage collection operation
      */
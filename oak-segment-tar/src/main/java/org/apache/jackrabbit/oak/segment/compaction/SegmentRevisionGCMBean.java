@@ -25,6 +25,7 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 import org.apache.jackrabbit.oak.commons.jmx.AnnotatedStandardMBean;
+import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType;
 import org.apache.jackrabbit.oak.segment.file.FileStore;
 import org.apache.jackrabbit.oak.segment.file.FileStoreGCMonitor;
 
@@ -113,6 +114,24 @@ public class SegmentRevisionGCMBean
         gcOptions.setEstimationDisabled(disabled);
     }
 
+    @Nonnull
+    @Override
+    public String getGCType() {
+        return gcOptions.getGCType().toString();
+    }
+
+    @Override
+    public void setGCType(@Nonnull String gcType) {
+        gcOptions.setGCType(GCType.valueOf(gcType.toUpperCase()));
+    }
+
+    @CheckForNull
+    @Override
+    public String getLastCompactionType() {
+        GCType gcType = gcOptions.getGCNodeWriteMonitor().getGCType();
+        return gcType == null ? null : gcType.toString();
+    }
+
     @Override
     public void startRevisionGC() {
         fileStore.getGCRunner().run();
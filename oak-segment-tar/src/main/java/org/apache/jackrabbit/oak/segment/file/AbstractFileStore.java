@@ -18,23 +18,20 @@
  */
 package org.apache.jackrabbit.oak.segment.file;
 
-import static com.google.common.base.Preconditions.checkArgument;
-
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 import com.google.common.base.Supplier;
-import org.apache.commons.io.FileUtils;
 import org.apache.jackrabbit.oak.api.jmx.CacheStatsMBean;
 import org.apache.jackrabbit.oak.segment.CachingSegmentReader;
 import org.apache.jackrabbit.oak.segment.RecordType;
@@ -52,6 +49,8 @@ import org.apache.jackrabbit.oak.segment.SegmentReader;
 import org.apache.jackrabbit.oak.segment.SegmentStore;
 import org.apache.jackrabbit.oak.segment.SegmentTracker;
 import org.apache.jackrabbit.oak.segment.SegmentWriter;
+import org.apache.jackrabbit.oak.segment.spi.persistence.ManifestFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,8 +62,6 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractFileStore.class);
 
-    private static final String MANIFEST_FILE_NAME = "manifest";
-
     /**
      * This value can be used as an invalid store version, since the store
      * version is defined to be strictly greater than zero.
@@ -80,12 +77,6 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
 
     static final String FILE_NAME_FORMAT = "data%05d%s.tar";
 
-    protected static boolean notEmptyDirectory(File path) {
-        Collection<File> entries = FileUtils.listFiles(path, new String[] {"tar"}, false);
-        checkArgument(entries != null, "{} is not a directory, or an I/O error occurred", path);
-        return entries.size() > 0;
-    }
-
     @Nonnull
     final SegmentTracker tracker;
 
@@ -94,6 +85,9 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
 
     final File directory;
 
+    @Nonnull
+    final SegmentNodeStorePersistence persistence;
+
     private final BlobStore blobStore;
 
     final boolean memoryMapping;
@@ -101,6 +95,9 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
     @Nonnull
     final SegmentCache segmentCache;
 
+    @Nonnull
+    final SegmentPrefetcher segmentPrefetcher;
+
     final TarRecovery recovery = new TarRecovery() {
 
         @Override
@@ -114,6 +111,7 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
 
     AbstractFileStore(final FileStoreBuilder builder) {
         this.directory = builder.getDirectory();
+        this.persistence = builder.getPersistence();
         this.tracker = new SegmentTracker(new SegmentIdFactory() {
             @Override @Nonnull
             public SegmentId newSegmentId(long msb, long lsb) {
@@ -121,7 +119,7 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
             }
         });
         this.blobStore = builder.getBlobStore();
-        this.segmentCache = new SegmentCache(builder.getSegmentCacheSize());
+        this.segmentCache = new SegmentCache(builder.getSegmentCacheSize(), builder.getOffHeapSegmentCacheSize());
         this.segmentReader = new CachingSegmentReader(new Supplier<SegmentWriter>() {
             @Override
             public SegmentWriter get() {
@@ -130,6 +128,7 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         }, blobStore, builder.getStringCacheSize(), builder.getTemplateCacheSize());
         this.memoryMapping = builder.getMemoryMapping();
         this.ioMonitor = builder.getIOMonitor();
+        this.segmentPrefetcher = new SegmentPrefetcher(builder.getSegmentPrefetchThreads(), segmentCache, tracker, ioMonitor);
     }
 
     static SegmentNotFoundException asSegmentNotFoundException(ExecutionException e, SegmentId id) {
@@ -139,12 +138,12 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         return new SegmentNotFoundException(id, e);
     }
 
-    File getManifestFile() {
-        return new File(directory, MANIFEST_FILE_NAME);
+    ManifestFile getManifestFile() throws IOException {
+        return persistence.getManifestFile();
     }
 
      Manifest openManifest() throws IOException {
-        File file = getManifestFile();
+        ManifestFile file = getManifestFile();
 
         if (file.exists()) {
             return Manifest.load(file);
@@ -184,6 +183,11 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         return segmentCache.getCacheStats();
     }
 
+    @Nonnull
+    public CacheStatsMBean getOffHeapSegmentCacheStats() {
+        return segmentCache.getOffHeapCacheStats();
+    }
+
     @Nonnull
     public CacheStatsMBean getStringCacheStats() {
         return segmentReader.getStringCacheStats();
@@ -310,4 +314,20 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         return new Segment(tracker, segmentReader, id, buffer);
     }
 
+    /**
+     * Read a segment through the segment cache. On a cache miss the segment is
+     * read from {@code tarFiles} and the segments it references are prefetched.
+     */
+    Segment readSegmentCached(final TarFiles tarFiles, final SegmentId id) throws ExecutionException {
+        segmentPrefetcher.onRead(id);
+        return segmentCache.getSegment(id, new Callable<Segment>() {
+            @Override
+            public Segment call() throws Exception {
+                Segment segment = readSegmentUncached(tarFiles, id);
+                segmentPrefetcher.prefetch(segment, referenced -> readSegmentUncached(tarFiles, referenced));
+                return segment;
+            }
+        });
+    }
+
 }
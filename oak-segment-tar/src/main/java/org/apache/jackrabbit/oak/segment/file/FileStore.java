@@ -34,17 +34,16 @@ import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCStatus.COMPA
 import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCStatus.COMPACTION_FORCE_COMPACT;
 import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCStatus.COMPACTION_RETRY;
 import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCStatus.ESTIMATION;
+import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType.FULL;
+import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType.TAIL;
 import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCStatus.IDLE;
 import static org.apache.jackrabbit.oak.segment.file.TarRevisions.EXPEDITE_OPTION;
 import static org.apache.jackrabbit.oak.segment.file.TarRevisions.timeout;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -60,11 +59,14 @@ import javax.annotation.Nullable;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.io.Closer;
 import org.apache.jackrabbit.oak.plugins.blob.ReferenceCollector;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeBuilder;
+import org.apache.jackrabbit.oak.segment.CancelableDiff;
 import org.apache.jackrabbit.oak.segment.Compactor;
 import org.apache.jackrabbit.oak.segment.RecordId;
 import org.apache.jackrabbit.oak.segment.Segment;
@@ -73,10 +75,14 @@ import org.apache.jackrabbit.oak.segment.SegmentNodeState;
 import org.apache.jackrabbit.oak.segment.SegmentNotFoundException;
 import org.apache.jackrabbit.oak.segment.SegmentNotFoundExceptionListener;
 import org.apache.jackrabbit.oak.segment.SegmentWriter;
+import org.apache.jackrabbit.oak.segment.SegmentWriterBuilder;
 import org.apache.jackrabbit.oak.segment.WriterCacheManager;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
+import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType;
 import org.apache.jackrabbit.oak.segment.file.GCJournal.GCJournalEntry;
 import org.apache.jackrabbit.oak.segment.file.TarFiles.CleanupResult;
+import org.apache.jackrabbit.oak.segment.spi.persistence.RepositoryLock;
+import org.apache.jackrabbit.oak.spi.state.ApplyDiff;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.slf4j.Logger;
@@ -98,8 +104,6 @@ public class FileStore extends AbstractFileStore {
 
     private static final int MB = 1024 * 1024;
 
-    static final String LOCK_FILE_NAME = "repo.lock";
-
     /**
      * GC counter for logging purposes
      */
@@ -115,9 +119,7 @@ public class FileStore extends AbstractFileStore {
 
     private final TarFiles tarFiles;
 
-    private final RandomAccessFile lockFile;
-
-    private final FileLock lock;
+    private final RepositoryLock repositoryLock;
 
     private TarRevisions revisions;
 
@@ -131,7 +133,7 @@ public class FileStore extends AbstractFileStore {
      * not be removed immediately, because they first need to be closed, and the
      * JVM needs to release the memory mapped file references.
      */
-    private final FileReaper fileReaper = new FileReaper();
+    private final FileReaper fileReaper;
 
     /**
      * This flag is periodically updated by calling the {@code SegmentGCOptions}
@@ -173,13 +175,7 @@ public class FileStore extends AbstractFileStore {
     FileStore(final FileStoreBuilder builder) throws InvalidFileStoreVersionException, IOException {
         super(builder);
 
-        lockFile = new RandomAccessFile(new File(directory, LOCK_FILE_NAME), "rw");
-        try {
-            lock = lockFile.getChannel().lock();
-        } catch (OverlappingFileLockException ex) {
-            throw new IllegalStateException(directory.getAbsolutePath()
-                    + " is in use by another store.", ex);
-        }
+        repositoryLock = persistence.lockRepository();
 
         this.segmentWriter = segmentWriterBuilder("sys")
                 .withGeneration(new Supplier<Integer>() {
@@ -188,16 +184,22 @@ public class FileStore extends AbstractFileStore {
                         return getGcGeneration();
                     }
                 })
+                .withCompactedBaseGeneration(new Supplier<Integer>() {
+                    @Override
+                    public Integer get() {
+                        return garbageCollector.getFullGeneration();
+                    }
+                })
                 .withWriterPool()
                 .with(builder.getCacheManager())
                 .build(this);
         this.maxFileSize = builder.getMaxFileSize() * MB;
         this.garbageCollector = new GarbageCollector(
-                builder.getGcOptions(), builder.getGcListener(), new GCJournal(directory), builder.getCacheManager());
+                builder.getGcOptions(), builder.getGcListener(), new GCJournal(persistence.getGCJournalFile()), builder.getCacheManager());
 
         Manifest manifest = Manifest.empty();
 
-        if (notEmptyDirectory(directory)) {
+        if (persistence.segmentFilesExist()) {
             manifest = checkManifest(openManifest());
         }
 
@@ -205,13 +207,15 @@ public class FileStore extends AbstractFileStore {
 
         this.stats = new FileStoreStats(builder.getStatsProvider(), this, 0);
         this.tarFiles = TarFiles.builder()
-                .withDirectory(directory)
+                .withPersistence(persistence)
                 .withMemoryMapping(memoryMapping)
                 .withTarRecovery(recovery)
                 .withIOMonitor(ioMonitor)
                 .withFileStoreStats(stats)
                 .withMaxFileSize(maxFileSize)
+                .withSegmentCompression(builder.getSegmentCompression())
                 .build();
+        this.fileReaper = this.tarFiles.createFileReaper();
         this.stats.init(this.tarFiles.size());
 
         this.snfeListener = builder.getSnfeListener();
@@ -336,6 +340,20 @@ public class FileStore extends AbstractFileStore {
         });
     }
 
+    /**
+     * Flush this store and close the TAR file currently written to. Segments
+     * written afterwards go to a new TAR file, so that none of the returned
+     * TAR files changes anymore. They might still be removed by cleanup.
+     *
+     * @return the indices of all TAR files of this store by file name.
+     * @throws IOException if the store could not be flushed or the TAR file
+     *                     could not be closed.
+     */
+    public Map<String, Set<UUID>> sealTarFiles() throws IOException {
+        flush();
+        return tarFiles.seal();
+    }
+
     /**
      * Run garbage collection: estimation, compaction, cleanup
      * @throws IOException
@@ -371,7 +389,7 @@ public class FileStore extends AbstractFileStore {
      */
     public void cleanup() throws IOException {
         CompactionResult compactionResult = CompactionResult.skipped(
-                getGcGeneration(), garbageCollector.gcOptions);
+                getGcGeneration(), garbageCollector.getFullGeneration(), garbageCollector.gcOptions);
         fileReaper.add(garbageCollector.cleanup(compactionResult));
     }
 
@@ -428,15 +446,9 @@ public class FileStore extends AbstractFileStore {
 
         Closer closer = Closer.create();
         closer.register(revisions);
-        if (lock != null) {
-            try {
-                lock.release();
-            } catch (IOException e) {
-                log.warn("Unable to release the file lock", e);
-            }
-        }
-        closer.register(lockFile);
+        closer.register(repositoryLock::unlock);
         closer.register(tarFiles);
+        closer.register(segmentPrefetcher);
         closeAndLogOnFail(closer);
 
         // Try removing pending files in case the scheduler didn't have a chance to run yet
@@ -455,12 +467,7 @@ public class FileStore extends AbstractFileStore {
     @Nonnull
     public Segment readSegment(final SegmentId id) {
         try {
-            return segmentCache.getSegment(id, new Callable<Segment>() {
-                @Override
-                public Segment call() throws Exception {
-                    return readSegmentUncached(tarFiles, id);
-                }
-            });
+            return readSegmentCached(tarFiles, id);
         } catch (ExecutionException e) {
             SegmentNotFoundException snfe = asSegmentNotFoundException(e, id);
             snfeListener.notify(id, snfe);
@@ -553,6 +560,12 @@ public class FileStore extends AbstractFileStore {
 
         private volatile boolean cancelled;
 
+        /**
+         * Generation of the last successful full compaction. Compacted segments
+         * from this generation onwards are the base for tail compactions.
+         */
+        private volatile int fullGeneration;
+
         /** Timestamp of the last time {@link #gc()} was successfully invoked. 0 if never. */
         private long lastSuccessfullGC;
 
@@ -566,6 +579,11 @@ public class FileStore extends AbstractFileStore {
             this.gcJournal = gcJournal;
             this.cacheManager = cacheManager;
             this.compactionMonitor = gcOptions.getGCNodeWriteMonitor();
+            this.fullGeneration = gcJournal.read().getFullGeneration();
+        }
+
+        int getFullGeneration() {
+            return fullGeneration;
         }
 
         synchronized void run() throws IOException {
@@ -651,9 +669,50 @@ public class FileStore extends AbstractFileStore {
         }
 
         @Nonnull
-        private CompactionResult compactionSucceeded(int generation, @Nonnull RecordId compactedRootId) {
+        private CompactionResult compactionSucceeded(@Nonnull GCType gcType, int generation,
+                                                     @Nonnull RecordId compactedRootId) {
+            if (gcType == FULL) {
+                fullGeneration = generation;
+            }
             gcListener.compactionSucceeded(generation);
-            return CompactionResult.succeeded(generation, gcOptions, compactedRootId);
+            return CompactionResult.succeeded(generation, fullGeneration, gcOptions, compactedRootId);
+        }
+
+        /**
+         * Determine the base state for a tail compaction: the root compacted
+         * by the previous compaction as recorded in the gc journal. A tail
+         * compaction is only possible if this root is still available, has
+         * been written by a compaction of the current tail compaction chain
+         * and is of the same generation as the current {@code head}.
+         * @return  the base state or {@code null} if a tail compaction is
+         *          not possible.
+         */
+        @CheckForNull
+        private SegmentNodeState getTailCompactionBase(
+                @Nonnull GCJournalEntry gcEntry, @Nonnull SegmentNodeState head) {
+            RecordId rootId = RecordId.fromString(tracker, gcEntry.getRoot());
+            if (RecordId.NULL.equals(rootId)) {
+                gcListener.info("TarMK GC #{}: no compacted root recorded in the gc journal", GC_COUNT);
+                return null;
+            }
+            try {
+                SegmentId segmentId = rootId.getSegmentId();
+                int generation = segmentId.getGcGeneration();
+                if (!segmentId.isCompacted()
+                        || generation != gcEntry.getGcGeneration()
+                        || generation != head.getRecordId().getSegmentId().getGcGeneration()
+                        || gcEntry.getFullGeneration() < 0
+                        || gcEntry.getFullGeneration() != fullGeneration) {
+                    gcListener.info("TarMK GC #{}: compacted root {} recorded in the gc journal " +
+                            "is not a valid base for tail compaction", GC_COUNT, rootId);
+                    return null;
+                }
+                return segmentReader.readNode(rootId);
+            } catch (SegmentNotFoundException e) {
+                gcListener.info("TarMK GC #{}: compacted root {} recorded in the gc journal " +
+                        "is not available: {}", GC_COUNT, rootId, e.getMessage());
+                return null;
+            }
         }
 
         @Nonnull
@@ -661,23 +720,48 @@ public class FileStore extends AbstractFileStore {
             final int newGeneration = getGcGeneration() + 1;
             try {
                 Stopwatch watch = Stopwatch.createStarted();
-                gcListener.info("TarMK GC #{}: compaction started, gc options={}", GC_COUNT, gcOptions);
+                GCJournalEntry gcEntry = gcJournal.read();
+                SegmentNodeState before = getHead();
+
+                SegmentNodeState base = null;
+                if (gcOptions.getGCType() == TAIL) {
+                    base = getTailCompactionBase(gcEntry, before);
+                    if (base == null) {
+                        gcListener.info("TarMK GC #{}: falling back to full compaction", GC_COUNT);
+                    }
+                }
+                final GCType gcType = base == null ? FULL : TAIL;
+
+                gcListener.info("TarMK GC #{}: {} compaction started, gc options={}",
+                        GC_COUNT, gcType.toString().toLowerCase(), gcOptions);
                 gcListener.updateStatus(COMPACTION.message());
 
-                GCJournalEntry gcEntry = gcJournal.read();
                 long initialSize = size();
-                compactionMonitor.init(GC_COUNT.get(), gcEntry.getRepoSize(), gcEntry.getNodes(), initialSize);
+                // The number of nodes of a tail compaction does not extrapolate to a full compaction
+                long prevCompactedNodes = gcEntry.getGcGeneration() == gcEntry.getFullGeneration()
+                        ? gcEntry.getNodes()
+                        : -1;
+                compactionMonitor.init(gcType, GC_COUNT.get(), gcEntry.getRepoSize(), prevCompactedNodes, initialSize);
 
-                SegmentNodeState before = getHead();
                 CancelCompactionSupplier cancel = new CancelCompactionSupplier(FileStore.this);
-                SegmentWriter writer = segmentWriterBuilder("c")
+                SegmentWriterBuilder writerBuilder = segmentWriterBuilder("c")
                         .with(cacheManager)
                         .withGeneration(newGeneration)
-                        .withoutWriterPool()
-                        .build(FileStore.this);
+                        .withCompactedSegments()
+                        .withoutWriterPool();
+                if (gcOptions.isOffline() && gcOptions.getConcurrency() > 1) {
+                    // The parallel compactor writes from multiple threads
+                    writerBuilder.withWriterPool();
+                }
+                if (gcType == TAIL) {
+                    writerBuilder.withCompactedBaseGeneration(Suppliers.ofInstance(fullGeneration));
+                }
+                SegmentWriter writer = writerBuilder.build(FileStore.this);
                 writer.setCompactionMonitor(compactionMonitor);
 
-                SegmentNodeState after = compact(before, writer, cancel);
+                SegmentNodeState after = gcType == TAIL
+                        ? compactTail(base, before, base, writer, cancel)
+                        : compact(before, writer, cancel);
                 if (after == null) {
                     gcListener.warn("TarMK GC #{}: compaction cancelled: {}.", GC_COUNT, cancel);
                     return compactionAborted(newGeneration);
@@ -701,7 +785,9 @@ public class FileStore extends AbstractFileStore {
                     Stopwatch cycleWatch = Stopwatch.createStarted();
                     
                     SegmentNodeState head = getHead();
-                    after = compact(head, writer, cancel);
+                    after = gcType == TAIL
+                            ? compactTail(before, head, after, writer, cancel)
+                            : compact(head, writer, cancel);
                     if (after == null) {
                         gcListener.warn("TarMK GC #{}: compaction cancelled: {}.", GC_COUNT, cancel);
                         return compactionAborted(newGeneration);
@@ -726,7 +812,9 @@ public class FileStore extends AbstractFileStore {
                         
                         cycles++;
                         cancel.timeOutAfter(forceTimeout, SECONDS);
-                        after = forceCompact(writer, cancel);
+                        after = gcType == TAIL
+                                ? forceCompactTail(before, after, writer, cancel)
+                                : forceCompact(writer, cancel);
                         success = after != null;
                         if (success) {
                             gcListener.info("TarMK GC #{}: compaction succeeded to force compact remaining commits " +
@@ -750,7 +838,7 @@ public class FileStore extends AbstractFileStore {
                     writer.flush();
                     gcListener.info("TarMK GC #{}: compaction succeeded in {} ({} ms), after {} cycles",
                             GC_COUNT, watch, watch.elapsed(MILLISECONDS), cycles);
-                    return compactionSucceeded(newGeneration, after.getRecordId());
+                    return compactionSucceeded(gcType, newGeneration, after.getRecordId());
                 } else {
                     gcListener.info("TarMK GC #{}: compaction failed after {} ({} ms), and {} cycles",
                             GC_COUNT, watch, watch.elapsed(MILLISECONDS), cycles);
@@ -776,9 +864,52 @@ public class FileStore extends AbstractFileStore {
             }
         }
 
+        /**
+         * Compact the changes between {@code before} and {@code after} on top of
+         * the already compacted {@code onto} state. Unchanged subtrees of
+         * {@code onto} are not rewritten.
+         * @return  the compacted state or {@code null} if cancelled.
+         */
+        @CheckForNull
+        private SegmentNodeState compactTail(NodeState before, NodeState after, NodeState onto,
+                                             SegmentWriter writer, Supplier<Boolean> cancel)
+        throws IOException {
+            NodeBuilder builder = new MemoryNodeBuilder(onto);
+            if (!after.compareAgainstBaseState(before, new CancelableDiff(new ApplyDiff(builder), cancel))) {
+                return null;
+            }
+            return writer.writeNode(builder.getNodeState(), cancel);
+        }
+
         @CheckForNull
         private SegmentNodeState forceCompact(@Nonnull final SegmentWriter writer,
                                               @Nonnull final Supplier<Boolean> cancel)
+        throws InterruptedException {
+            return forceCompact(new CompactionFunction() {
+                @Override
+                public SegmentNodeState compact(SegmentNodeState head) throws IOException {
+                    return GarbageCollector.this.compact(head, writer, cancel);
+                }
+            }, cancel);
+        }
+
+        @CheckForNull
+        private SegmentNodeState forceCompactTail(@Nonnull final NodeState before,
+                                                  @Nonnull final NodeState onto,
+                                                  @Nonnull final SegmentWriter writer,
+                                                  @Nonnull final Supplier<Boolean> cancel)
+        throws InterruptedException {
+            return forceCompact(new CompactionFunction() {
+                @Override
+                public SegmentNodeState compact(SegmentNodeState head) throws IOException {
+                    return compactTail(before, head, onto, writer, cancel);
+                }
+            }, cancel);
+        }
+
+        @CheckForNull
+        private SegmentNodeState forceCompact(@Nonnull final CompactionFunction compactor,
+                                              @Nonnull final Supplier<Boolean> cancel)
         throws InterruptedException {
             RecordId compactedId = revisions.setHead(new Function<RecordId, RecordId>() {
                 @Nullable
@@ -786,8 +917,8 @@ public class FileStore extends AbstractFileStore {
                 public RecordId apply(RecordId base) {
                     try {
                         long t0 = currentTimeMillis();
-                        SegmentNodeState after = compact(
-                                segmentReader.readNode(base), writer, cancel);
+                        SegmentNodeState after = compactor.compact(
+                                segmentReader.readNode(base));
                         if (after == null) {
                             gcListener.info("TarMK GC #{}: compaction cancelled after {} seconds",
                                     GC_COUNT, (currentTimeMillis() - t0) / 1000);
@@ -813,7 +944,7 @@ public class FileStore extends AbstractFileStore {
          * @throws IOException
          */
         @Nonnull
-        private List<File> cleanup(@Nonnull CompactionResult compactionResult)
+        private List<String> cleanup(@Nonnull CompactionResult compactionResult)
         throws IOException {
             Stopwatch watch = Stopwatch.createStarted();
 
@@ -825,7 +956,8 @@ public class FileStore extends AbstractFileStore {
             // to clear stale weak references in the SegmentTracker
             System.gc();
 
-            CleanupResult cleanupResult = tarFiles.cleanup(referencesSupplier, compactionResult.reclaimer());
+            CleanupResult cleanupResult = tarFiles.cleanup(referencesSupplier, compactionResult.reclaimer(),
+                    compactionResult.compactedRetainer());
             if (cleanupResult.isInterrupted()) {
                 gcListener.info("TarMK GC #{}: cleanup interrupted", GC_COUNT);
             }
@@ -835,7 +967,7 @@ public class FileStore extends AbstractFileStore {
             long finalSize = size();
             long reclaimedSize = cleanupResult.getReclaimedSize();
             stats.reclaimed(reclaimedSize);
-            gcJournal.persist(reclaimedSize, finalSize, getGcGeneration(),
+            gcJournal.persist(reclaimedSize, finalSize, getGcGeneration(), fullGeneration,
                     compactionMonitor.getCompactedNodes(),
                     compactionResult.getCompactedRootId().toString10());
             gcListener.cleaned(reclaimedSize, finalSize);
@@ -847,7 +979,7 @@ public class FileStore extends AbstractFileStore {
             return cleanupResult.getRemovableFiles();
         }
 
-        private String toFileNames(@Nonnull List<File> files) {
+        private String toFileNames(@Nonnull List<String> files) {
             if (files.isEmpty()) {
                 return "none";
             } else {
@@ -870,7 +1002,9 @@ public class FileStore extends AbstractFileStore {
         synchronized void collectBlobReferences(ReferenceCollector collector) throws IOException {
             segmentWriter.flush();
             int minGeneration = getGcGeneration() - gcOptions.getRetainedGenerations() + 1;
-            tarFiles.collectBlobReferences(collector, minGeneration);
+            // Compacted segments from the last full compaction onwards might still
+            // be referenced through the base of subsequent tail compactions.
+            tarFiles.collectBlobReferences(collector, Math.min(minGeneration, fullGeneration));
         }
 
         void cancel() {
@@ -939,10 +1073,22 @@ public class FileStore extends AbstractFileStore {
         }
     }
 
+    /**
+     * A compaction strategy used for force compacting the current head state.
+     */
+    private interface CompactionFunction {
+
+        /**
+         * @return  the compacted state or {@code null} if cancelled.
+         */
+        @CheckForNull
+        SegmentNodeState compact(@Nonnull SegmentNodeState head) throws IOException;
+    }
+
     /**
      * Instances of this class represent the result from a compaction.
-     * Either {@link #succeeded(int, SegmentGCOptions, RecordId) succeeded},
-     * {@link #aborted(int, int) aborted} or {@link #skipped(int, SegmentGCOptions) skipped}.
+     * Either {@link #succeeded(int, int, SegmentGCOptions, RecordId) succeeded},
+     * {@link #aborted(int, int) aborted} or {@link #skipped(int, int, SegmentGCOptions) skipped}.
      */
     private abstract static class CompactionResult {
         private final int currentGeneration;
@@ -954,11 +1100,13 @@ public class FileStore extends AbstractFileStore {
         /**
          * Result of a succeeded compaction.
          * @param newGeneration     the generation successfully created by compaction
+         * @param fullGeneration    the generation of the last full compaction
          * @param gcOptions         the current GC options used by compaction
          * @param compactedRootId   the record id of the root created by compaction
          */
         static CompactionResult succeeded(
                 final int newGeneration,
+                final int fullGeneration,
                 @Nonnull final SegmentGCOptions gcOptions,
                 @Nonnull final RecordId compactedRootId) {
             return new CompactionResult(newGeneration) {
@@ -969,6 +1117,11 @@ public class FileStore extends AbstractFileStore {
                     return CompactionResult.newOldReclaimer(oldGeneration);
                 }
 
+                @Override
+                Predicate<Integer> compactedRetainer() {
+                    return CompactionResult.newCompactedRetainer(fullGeneration);
+                }
+
                 @Override
                 boolean isSuccess() {
                     return true;
@@ -1005,10 +1158,12 @@ public class FileStore extends AbstractFileStore {
         /**
          * Result serving as a placeholder for a compaction that was skipped.
          * @param currentGeneration  the current generation of the store
+         * @param fullGeneration     the generation of the last full compaction
          * @param gcOptions         the current GC options used by compaction
          */
         static CompactionResult skipped(
                 final int currentGeneration,
+                final int fullGeneration,
                 @Nonnull final SegmentGCOptions gcOptions) {
             return new CompactionResult(currentGeneration) {
                 int oldGeneration = currentGeneration - gcOptions.getRetainedGenerations();
@@ -1017,6 +1172,11 @@ public class FileStore extends AbstractFileStore {
                     return CompactionResult.newOldReclaimer(oldGeneration);
                 }
 
+                @Override
+                Predicate<Integer> compactedRetainer() {
+                    return CompactionResult.newCompactedRetainer(fullGeneration);
+                }
+
                 @Override
                 boolean isSuccess() {
                     return true;
@@ -1032,8 +1192,18 @@ public class FileStore extends AbstractFileStore {
         abstract Predicate<Integer> reclaimer();
 
         /**
-         * @return  {@code true} for {@link #succeeded(int, SegmentGCOptions, RecordId) succeeded}
-         *          and {@link #skipped(int, SegmentGCOptions) skipped}, {@code false} otherwise.
+         * @return  a predicate determining which segments written by compaction
+         *          to retain during {@link GarbageCollector#cleanup(CompactionResult) clean up}
+         *          even though they match the {@link #reclaimer()}. These segments
+         *          are the base of the current chain of tail compactions.
+         */
+        Predicate<Integer> compactedRetainer() {
+            return Predicates.alwaysFalse();
+        }
+
+        /**
+         * @return  {@code true} for {@link #succeeded(int, int, SegmentGCOptions, RecordId) succeeded}
+         *          and {@link #skipped(int, int, SegmentGCOptions) skipped}, {@code false} otherwise.
          */
         abstract boolean isSuccess();
 
@@ -1052,7 +1222,8 @@ public class FileStore extends AbstractFileStore {
             return  "gc-count=" + GC_COUNT +
                     ",gc-status=" + (isSuccess() ? "success" : "failed") +
                     ",store-generation=" + currentGeneration +
-                    ",reclaim-predicate=" + reclaimer();
+                    ",reclaim-predicate=" + reclaimer() +
+                    ",compacted-retain-predicate=" + compactedRetainer();
         }
 
         private static Predicate<Integer> newFailedReclaimer(final int failedGeneration) {
@@ -1068,6 +1239,19 @@ public class FileStore extends AbstractFileStore {
             };
         }
 
+        private static Predicate<Integer> newCompactedRetainer(final int fullGeneration) {
+            return new Predicate<Integer>() {
+                @Override
+                public boolean apply(Integer generation) {
+                    return generation >= fullGeneration;
+                }
+                @Override
+                public String toString() {
+                    return "(generation>=" + fullGeneration + ")";
+                }
+            };
+        }
+
         private static Predicate<Integer> newOldReclaimer(final int oldGeneration) {
             return new Predicate<Integer>() {
                 @Override
@@ -25,6 +25,7 @@ import static org.apache.jackrabbit.oak.segment.CachingSegmentReader.DEFAULT_STR
 import static org.apache.jackrabbit.oak.segment.CachingSegmentReader.DEFAULT_TEMPLATE_CACHE_MB;
 import static org.apache.jackrabbit.oak.segment.SegmentCache.DEFAULT_SEGMENT_CACHE_MB;
 import static org.apache.jackrabbit.oak.segment.SegmentNotFoundExceptionListener.LOG_SNFE;
+import static org.apache.jackrabbit.oak.segment.WriterCacheManager.DEFAULT_DEDUPLICATION_CACHE_BUDGET;
 import static org.apache.jackrabbit.oak.segment.WriterCacheManager.DEFAULT_NODE_CACHE_SIZE;
 import static org.apache.jackrabbit.oak.segment.WriterCacheManager.DEFAULT_STRING_CACHE_SIZE;
 import static org.apache.jackrabbit.oak.segment.WriterCacheManager.DEFAULT_TEMPLATE_CACHE_SIZE;
@@ -45,6 +46,7 @@ import org.apache.jackrabbit.oak.segment.SegmentNotFoundExceptionListener;
 import org.apache.jackrabbit.oak.segment.WriterCacheManager;
 import org.apache.jackrabbit.oak.segment.compaction.LoggingGCMonitor;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 import org.apache.jackrabbit.oak.spi.gc.GCMonitor;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
@@ -72,6 +74,12 @@ public class FileStoreBuilder {
 
     private int segmentCacheSize = DEFAULT_SEGMENT_CACHE_MB;
 
+    private int offHeapSegmentCacheSize;
+
+    private int segmentPrefetchThreads;
+
+    private boolean segmentCompression;
+
     private int stringCacheSize = DEFAULT_STRING_CACHE_MB;
 
     private int templateCacheSize = DEFAULT_TEMPLATE_CACHE_MB;
@@ -82,6 +90,8 @@ public class FileStoreBuilder {
 
     private int nodeDeduplicationCacheSize = DEFAULT_NODE_CACHE_SIZE;
 
+    private int deduplicationCacheBudget = DEFAULT_DEDUPLICATION_CACHE_BUDGET;
+
     private boolean memoryMapping = MEMORY_MAPPING_DEFAULT;
 
     @Nonnull
@@ -115,6 +125,11 @@ public class FileStoreBuilder {
     private SegmentNotFoundExceptionListener snfeListener = LOG_SNFE;
 
     private IOMonitor ioMonitor = new IOMonitorAdapter();
+
+    @Nonnull
+    private SegmentNodeStorePersistence persistence;
+
+    private boolean customPersistence;
     
     private boolean built;
 
@@ -130,6 +145,7 @@ public class FileStoreBuilder {
 
     private FileStoreBuilder(@Nonnull File directory) {
         this.directory = checkNotNull(directory);
+        this.persistence = new TarPersistence(directory);
         this.gcListener.registerGCMonitor(new LoggingGCMonitor(LOG));
     }
 
@@ -166,6 +182,45 @@ public class FileStoreBuilder {
         return this;
     }
 
+    /**
+     * Size of the off-heap tier of the segment cache in MB. Segments evicted
+     * from the segment cache are kept in direct buffers up to this size. The
+     * off-heap tier is disabled by default.
+     * @param offHeapSegmentCacheSize  None negative cache size, {@code 0} to disable
+     * @return this instance
+     */
+    @Nonnull
+    public FileStoreBuilder withOffHeapSegmentCacheSize(int offHeapSegmentCacheSize) {
+        this.offHeapSegmentCacheSize = offHeapSegmentCacheSize;
+        return this;
+    }
+
+    /**
+     * Number of threads prefetching the segments referenced by segments read
+     * from disk into the segment cache. Prefetching is disabled by default.
+     * @param segmentPrefetchThreads  None negative number of threads, {@code 0} to disable
+     * @return this instance
+     */
+    @Nonnull
+    public FileStoreBuilder withSegmentPrefetchThreads(int segmentPrefetchThreads) {
+        this.segmentPrefetchThreads = segmentPrefetchThreads;
+        return this;
+    }
+
+    /**
+     * Compress data segments before writing them to tar files. Compressed
+     * and uncompressed segments can be mixed within the same store, but tar
+     * files containing compressed segments can not be read by versions not
+     * supporting compression. Compression is disabled by default.
+     * @param segmentCompression  {@code true} to enable compression
+     * @return this instance
+     */
+    @Nonnull
+    public FileStoreBuilder withSegmentCompression(boolean segmentCompression) {
+        this.segmentCompression = segmentCompression;
+        return this;
+    }
+
     /**
      * Size of the string cache in MB.
      * @param stringCacheSize  None negative cache size
@@ -221,6 +276,23 @@ public class FileStoreBuilder {
         return this;
     }
 
+    /**
+     * Memory budget in MB shared by the deduplication caches. If positive,
+     * the string and the template deduplication caches are resized within
+     * this budget according to their hit counts. The sizes passed to
+     * {@link #withStringDeduplicationCacheSize(int)} and
+     * {@link #withTemplateDeduplicationCacheSize(int)} are used until the
+     * caches are resized for the first time.
+     * @param deduplicationCacheBudget  None negative budget in MB. {@code 0}
+     *                                  disables adaptive sizing.
+     * @return this instance
+     */
+    @Nonnull
+    public FileStoreBuilder withDeduplicationCacheBudget(int deduplicationCacheBudget) {
+        this.deduplicationCacheBudget = deduplicationCacheBudget;
+        return this;
+    }
+
     /**
      * Turn memory mapping on or off
      * @param memoryMapping
@@ -290,6 +362,21 @@ public class FileStoreBuilder {
         this.ioMonitor = checkNotNull(ioMonitor);
         return this;
     }
+
+    /**
+     * {@link SegmentNodeStorePersistence} used to store segments, journals,
+     * the manifest and the repository lock. Defaults to a
+     * {@link TarPersistence} using the directory passed to
+     * {@link #fileStoreBuilder(File)}.
+     * @param persistence  the persistence to use
+     * @return this instance
+     */
+    @Nonnull
+    public FileStoreBuilder withCustomPersistence(@Nonnull SegmentNodeStorePersistence persistence) {
+        this.persistence = checkNotNull(persistence);
+        this.customPersistence = true;
+        return this;
+    }
     
     /**
      * Create a new {@link FileStore} instance with the settings specified in this
@@ -313,7 +400,7 @@ public class FileStoreBuilder {
         checkState(!built, "Cannot re-use builder");
         built = true;
         directory.mkdirs();
-        TarRevisions revisions = new TarRevisions(directory);
+        TarRevisions revisions = new TarRevisions(persistence);
         LOG.info("Creating file store {}", this);
         FileStore store;
         try {
@@ -350,10 +437,10 @@ public class FileStoreBuilder {
     @Nonnull
     public ReadOnlyFileStore buildReadOnly() throws InvalidFileStoreVersionException, IOException {
         checkState(!built, "Cannot re-use builder");
-        checkState(directory.exists() && directory.isDirectory(),
+        checkState(customPersistence || directory.exists() && directory.isDirectory(),
                 "%s does not exist or is not a directory", directory);
         built = true;
-        ReadOnlyRevisions revisions = new ReadOnlyRevisions(directory);
+        ReadOnlyRevisions revisions = new ReadOnlyRevisions(persistence);
         LOG.info("Creating file store {}", this);
         ReadOnlyFileStore store;
         try {
@@ -375,6 +462,11 @@ public class FileStoreBuilder {
         return directory;
     }
 
+    @Nonnull
+    SegmentNodeStorePersistence getPersistence() {
+        return persistence;
+    }
+
     @CheckForNull
     BlobStore getBlobStore() {
         return blobStore;
@@ -388,6 +480,18 @@ public class FileStoreBuilder {
         return segmentCacheSize;
     }
 
+    int getOffHeapSegmentCacheSize() {
+        return offHeapSegmentCacheSize;
+    }
+
+    int getSegmentPrefetchThreads() {
+        return segmentPrefetchThreads;
+    }
+
+    boolean getSegmentCompression() {
+        return segmentCompression;
+    }
+
     int getStringCacheSize() {
         return stringCacheSize;
     }
@@ -427,12 +531,14 @@ public class FileStoreBuilder {
      * @see #withNodeDeduplicationCacheSize(int)
      * @see #withStringDeduplicationCacheSize(int)
      * @see #withTemplateDeduplicationCacheSize(int)
+     * @see #withDeduplicationCacheBudget(int)
      */
     @Nonnull
     public WriterCacheManager getCacheManager() {
         if (cacheManager == null) {
             cacheManager = new EvictingWriteCacheManager(stringDeduplicationCacheSize,
-                    templateDeduplicationCacheSize, nodeDeduplicationCacheSize, statsProvider);
+                    templateDeduplicationCacheSize, nodeDeduplicationCacheSize,
+                    deduplicationCacheBudget, statsProvider);
         }
         return cacheManager;
     }
@@ -449,11 +555,15 @@ public class FileStoreBuilder {
                 ", blobStore=" + blobStore +
                 ", maxFileSize=" + maxFileSize +
                 ", segmentCacheSize=" + segmentCacheSize +
+                ", offHeapSegmentCacheSize=" + offHeapSegmentCacheSize +
+                ", segmentPrefetchThreads=" + segmentPrefetchThreads +
+                ", segmentCompression=" + segmentCompression +
                 ", stringCacheSize=" + stringCacheSize +
                 ", templateCacheSize=" + templateCacheSize +
                 ", stringDeduplicationCacheSize=" + stringDeduplicationCacheSize +
                 ", templateDeduplicationCacheSize=" + templateDeduplicationCacheSize +
                 ", nodeDeduplicationCacheSize=" + nodeDeduplicationCacheSize +
+                ", deduplicationCacheBudget=" + deduplicationCacheBudget +
                 ", memoryMapping=" + memoryMapping +
                 ", gcOptions=" + gcOptions +
                 '}';
@@ -464,11 +574,13 @@ public class FileStoreBuilder {
                 int stringCacheSize,
                 int templateCacheSize,
                 int nodeCacheSize,
+                int budget,
                 @Nonnull StatisticsProvider statisticsProvider) {
             super(RecordCache.factory(stringCacheSize, new StringCacheWeigher()),
                 RecordCache.factory(templateCacheSize, new TemplateCacheWeigher()),
                 PriorityCache.factory(nodeCacheSize, new NodeCacheWeigher()),
-                statisticsProvider);
+                statisticsProvider,
+                budget * 1024L * 1024L);
         }
 
         void evictOldGeneration(final int newGeneration) {
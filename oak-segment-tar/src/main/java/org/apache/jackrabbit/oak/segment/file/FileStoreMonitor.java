@@ -39,6 +39,16 @@ interface FileStoreMonitor {
         public void flushed() {
             
         }
+
+        @Override
+        public void compressed(long length, long compressedLength) {
+
+        }
+
+        @Override
+        public void decompressed(long compressedLength, long length, long elapsed) {
+
+        }
     };
 
     /**
@@ -59,4 +69,23 @@ interface FileStoreMonitor {
      * Notifies the monitor when journal data is flushed to disk.
      */
     void flushed();
+
+    /**
+     * Notifies the monitor when a segment is written with compression
+     * enabled. If the segment is not compressible, {@code compressedLength}
+     * equals {@code length}.
+     *
+     * @param length           uncompressed size of the segment
+     * @param compressedLength size of the segment as written
+     */
+    void compressed(long length, long compressedLength);
+
+    /**
+     * Notifies the monitor when a compressed segment is read.
+     *
+     * @param compressedLength size of the segment as read
+     * @param length           uncompressed size of the segment
+     * @param elapsed          time spent decompressing, in nanoseconds
+     */
+    void decompressed(long compressedLength, long length, long elapsed);
 }
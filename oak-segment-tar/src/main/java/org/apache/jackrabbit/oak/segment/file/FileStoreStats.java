@@ -35,12 +35,20 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor {
     public static final String SEGMENT_REPO_SIZE = "SEGMENT_REPO_SIZE";
     public static final String SEGMENT_WRITES = "SEGMENT_WRITES";
     public static final String JOURNAL_WRITES = "JOURNAL_WRITES";
+    public static final String SEGMENT_COMPRESSION_INPUT = "SEGMENT_COMPRESSION_INPUT";
+    public static final String SEGMENT_COMPRESSION_OUTPUT = "SEGMENT_COMPRESSION_OUTPUT";
+    public static final String SEGMENT_DECOMPRESSIONS = "SEGMENT_DECOMPRESSIONS";
+    public static final String SEGMENT_DECOMPRESSION_TIME = "SEGMENT_DECOMPRESSION_TIME";
     
     private final StatisticsProvider statisticsProvider;
     private final FileStore store;
     private final MeterStats writeStats;
     private final CounterStats repoSize;
     private final MeterStats journalWriteStats;
+    private final CounterStats compressionInput;
+    private final CounterStats compressionOutput;
+    private final CounterStats decompressions;
+    private final CounterStats decompressionTime;
     
     public FileStoreStats(StatisticsProvider statisticsProvider, FileStore store, long initialSize) {
         this.statisticsProvider = statisticsProvider;
@@ -48,6 +56,10 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor {
         this.writeStats = statisticsProvider.getMeter(SEGMENT_WRITES, StatsOptions.DEFAULT);
         this.repoSize = statisticsProvider.getCounterStats(SEGMENT_REPO_SIZE, StatsOptions.DEFAULT);
         this.journalWriteStats = statisticsProvider.getMeter(JOURNAL_WRITES, StatsOptions.DEFAULT);
+        this.compressionInput = statisticsProvider.getCounterStats(SEGMENT_COMPRESSION_INPUT, StatsOptions.DEFAULT);
+        this.compressionOutput = statisticsProvider.getCounterStats(SEGMENT_COMPRESSION_OUTPUT, StatsOptions.DEFAULT);
+        this.decompressions = statisticsProvider.getCounterStats(SEGMENT_DECOMPRESSIONS, StatsOptions.DEFAULT);
+        this.decompressionTime = statisticsProvider.getCounterStats(SEGMENT_DECOMPRESSION_TIME, StatsOptions.DEFAULT);
         repoSize.inc(initialSize);
     }
 
@@ -73,6 +85,18 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor {
         journalWriteStats.mark();
     }
 
+    @Override
+    public void compressed(long length, long compressedLength) {
+        compressionInput.inc(length);
+        compressionOutput.inc(compressedLength);
+    }
+
+    @Override
+    public void decompressed(long compressedLength, long length, long elapsed) {
+        decompressions.inc();
+        decompressionTime.inc(elapsed);
+    }
+
     //~--------------------------------< FileStoreStatsMBean >
 
     @Override
@@ -115,6 +139,25 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor {
         return asCompositeData(getTimeSeries(JOURNAL_WRITES), JOURNAL_WRITES);
     }
 
+    @Override
+    public double getSegmentCompressionRatio() {
+        long output = compressionOutput.getCount();
+        if (output == 0) {
+            return 1;
+        }
+        return (double) compressionInput.getCount() / output;
+    }
+
+    @Override
+    public long getSegmentDecompressionCount() {
+        return decompressions.getCount();
+    }
+
+    @Override
+    public long getSegmentDecompressionTime() {
+        return decompressionTime.getCount();
+    }
+
     private TimeSeries getTimeSeries(String name) {
         return statisticsProvider.getStats().getTimeSeries(name, true);
     }
@@ -50,4 +50,20 @@ public interface FileStoreStatsMBean {
      * @return  time series of the writes to journal
      */
     CompositeData getJournalWriteStatsAsCompositeData();
+
+    /**
+     * @return  ratio of the uncompressed to the stored size of the segments
+     *          written with compression enabled, {@code 1} if there are none
+     */
+    double getSegmentCompressionRatio();
+
+    /**
+     * @return  number of compressed segments read
+     */
+    long getSegmentDecompressionCount();
+
+    /**
+     * @return  total time spent decompressing segments in nanoseconds
+     */
+    long getSegmentDecompressionTime();
 }
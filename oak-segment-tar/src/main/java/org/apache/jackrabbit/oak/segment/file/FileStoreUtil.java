@@ -17,7 +17,6 @@
 
 package org.apache.jackrabbit.oak.segment.file;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -26,6 +25,7 @@ import org.apache.jackrabbit.oak.segment.RecordId;
 import org.apache.jackrabbit.oak.segment.SegmentId;
 import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
 import org.apache.jackrabbit.oak.segment.SegmentStore;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,12 +43,12 @@ class FileStoreUtil {
      *
      * @param store   An instance of {@link SegmentStore}.
      * @param idProvider  The {@code SegmentIdProvider} of the {@code store}
-     * @param journal Path to the journal file.
+     * @param journal The journal file.
      * @return An instance of {@link RecordId}, or {@code null} if none could be
      * found.
      * @throws IOException If an I/O error occurs.
      */
-    static RecordId findPersistedRecordId(SegmentStore store, SegmentIdProvider idProvider, File journal)
+    static RecordId findPersistedRecordId(SegmentStore store, SegmentIdProvider idProvider, JournalFile journal)
     throws IOException {
         try (JournalReader journalReader = new JournalReader(journal)) {
             while (journalReader.hasNext()) {
@@ -112,7 +112,7 @@ class FileStoreUtil {
             try {
                 ByteBuffer buffer = reader.readEntry(msb, lsb);
                 if (buffer != null) {
-                    return buffer;
+                    return SegmentCompression.decompress(lsb, buffer);
                 }
             } catch (IOException e) {
                 log.warn("Failed to read from tar file {}", reader, e);
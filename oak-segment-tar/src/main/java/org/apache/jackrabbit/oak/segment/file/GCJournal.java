@@ -18,19 +18,10 @@
  */
 package org.apache.jackrabbit.oak.segment.file;
 
-import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.nio.file.Files.newBufferedWriter;
-import static java.nio.file.Files.readAllLines;
-import static java.nio.file.StandardOpenOption.APPEND;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.DSYNC;
-import static java.nio.file.StandardOpenOption.WRITE;
-
-import java.io.BufferedWriter;
+
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -39,13 +30,15 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 import org.apache.jackrabbit.oak.segment.RecordId;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Persists the repository size and the reclaimed size following a cleanup
  * operation in the {@link #GC_JOURNAL gc journal} file with the format:
- * 'repoSize, reclaimedSize, timestamp, gcGen, nodes compacted'.
+ * 'repoSize, reclaimedSize, timestamp, gcGen, nodes compacted, compacted root,
+ * full gcGen'.
  */
 public class GCJournal {
 
@@ -54,12 +47,16 @@ public class GCJournal {
     public static final String GC_JOURNAL = "gc.log";
 
     @Nonnull
-    private final File directory;
+    private final GCJournalFile journalFile;
 
     private GCJournalEntry latest;
 
     public GCJournal(@Nonnull File directory) {
-        this.directory = checkNotNull(directory);
+        this(new LocalGCJournalFile(checkNotNull(directory), GC_JOURNAL));
+    }
+
+    public GCJournal(@Nonnull GCJournalFile journalFile) {
+        this.journalFile = checkNotNull(journalFile);
     }
 
     /**
@@ -76,6 +73,25 @@ public class GCJournal {
      */
     public synchronized void persist(long reclaimedSize, long repoSize,
             int gcGeneration, long nodes, @Nonnull String root) {
+        persist(reclaimedSize, repoSize, gcGeneration, gcGeneration, nodes, root);
+    }
+
+    /**
+     * Persists the repository stats (current size, reclaimed size, gc
+     * generation, gc generation of the last full compaction, number of
+     * compacted nodes) following a cleanup operation for a successful
+     * compaction. NOOP if the gcGeneration is the same as the one persisted
+     * previously.
+     *
+     * @param reclaimedSize size reclaimed by cleanup
+     * @param repoSize current repo size
+     * @param gcGeneration gc generation
+     * @param fullGeneration gc generation of the last full compaction
+     * @param nodes number of compacted nodes
+     * @param root  record id of the compacted root node
+     */
+    public synchronized void persist(long reclaimedSize, long repoSize,
+            int gcGeneration, int fullGeneration, long nodes, @Nonnull String root) {
         GCJournalEntry current = read();
         if (current.getGcGeneration() == gcGeneration) {
             // failed compaction, only update the journal if the generation
@@ -83,14 +99,9 @@ public class GCJournal {
             return;
         }
         latest = new GCJournalEntry(repoSize, reclaimedSize,
-                System.currentTimeMillis(), gcGeneration, nodes, checkNotNull(root));
-        Path path = new File(directory, GC_JOURNAL).toPath();
+                System.currentTimeMillis(), gcGeneration, fullGeneration, nodes, checkNotNull(root));
         try {
-            try (BufferedWriter w = newBufferedWriter(path, UTF_8, WRITE,
-                    APPEND, CREATE, DSYNC)) {
-                w.write(latest.toString());
-                w.newLine();
-            }
+            journalFile.writeLine(latest.toString());
         } catch (IOException e) {
             LOG.error("Error writing gc journal", e);
         }
@@ -124,13 +135,10 @@ public class GCJournal {
     }
 
     private List<String> readLines() {
-        File file = new File(directory, GC_JOURNAL);
-        if (file.exists()) {
-            try {
-                return readAllLines(file.toPath(), UTF_8);
-            } catch (IOException e) {
-                LOG.error("Error reading gc journal", e);
-            }
+        try {
+            return journalFile.readLines();
+        } catch (IOException e) {
+            LOG.error("Error reading gc journal", e);
         }
         return new ArrayList<String>();
     }
@@ -138,12 +146,13 @@ public class GCJournal {
     public static class GCJournalEntry {
 
         static final GCJournalEntry EMPTY = new GCJournalEntry(
-                -1, -1, -1, -1, -1, RecordId.NULL.toString10());
+                -1, -1, -1, -1, -1, -1, RecordId.NULL.toString10());
 
         private final long repoSize;
         private final long reclaimedSize;
         private final long ts;
         private final int gcGeneration;
+        private final int fullGeneration;
         private final long nodes;
 
         @Nonnull
@@ -151,17 +160,24 @@ public class GCJournal {
 
         public GCJournalEntry(long repoSize, long reclaimedSize, long ts,
                 int gcGeneration, long nodes, @Nonnull String root) {
+            this(repoSize, reclaimedSize, ts, gcGeneration, gcGeneration, nodes, root);
+        }
+
+        public GCJournalEntry(long repoSize, long reclaimedSize, long ts,
+                int gcGeneration, int fullGeneration, long nodes, @Nonnull String root) {
             this.repoSize = repoSize;
             this.reclaimedSize = reclaimedSize;
             this.ts = ts;
             this.gcGeneration = gcGeneration;
+            this.fullGeneration = fullGeneration;
             this.nodes = nodes;
             this.root = root;
         }
 
         @Override
         public String toString() {
-            return repoSize + "," + reclaimedSize + "," + ts + "," + gcGeneration + "," + nodes + "," + root;
+            return repoSize + "," + reclaimedSize + "," + ts + "," + gcGeneration + "," + nodes + "," + root
+                    + "," + fullGeneration;
         }
 
         static GCJournalEntry fromString(String in) {
@@ -175,12 +191,15 @@ public class GCJournal {
             if (root == null) {
                 root = RecordId.NULL.toString10();
             }
-            return new GCJournalEntry(repoSize, reclaimedSize, ts, gcGen, nodes, root);
+            // Entries persisted before tail compaction was introduced
+            // were all written by full compactions
+            int fullGen = items.length > 6 ? (int) parseLong(items, 6) : gcGen;
+            return new GCJournalEntry(repoSize, reclaimedSize, ts, gcGen, fullGen, nodes, root);
         }
 
         @CheckForNull
         private static String parseString(String[] items, int index) {
-            if (items.length < index - 1) {
+            if (items.length <= index) {
                 return null;
             }
             return items[index];
@@ -226,6 +245,15 @@ public class GCJournal {
             return gcGeneration;
         }
 
+        /**
+         * Returns the gc generation of the last full compaction. This is the
+         * same as {@link #getGcGeneration()} for entries written by a full
+         * compaction and smaller for entries written by a tail compaction.
+         */
+        public int getFullGeneration() {
+            return fullGeneration;
+        }
+
         /**
          * Returns the number of compacted nodes
          */
@@ -246,6 +274,7 @@ public class GCJournal {
             final int prime = 31;
             int result = 1;
             result = prime * result + gcGeneration;
+            result = prime * result + fullGeneration;
             result = prime * result + root.hashCode();
             result = prime * result + (int) (nodes ^ (nodes >>> 32));
             result = prime * result + (int) (reclaimedSize ^ (reclaimedSize >>> 32));
@@ -269,6 +298,9 @@ public class GCJournal {
             if (gcGeneration != other.gcGeneration) {
                 return false;
             }
+            if (fullGeneration != other.fullGeneration) {
+                return false;
+            }
             if (nodes != other.nodes) {
                 return false;
             }
@@ -18,6 +18,7 @@
  */
 package org.apache.jackrabbit.oak.segment.file;
 
+import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +57,11 @@ public class GCNodeWriteMonitor {
 
     private long gcCount;
 
+    /**
+     * Type of the current or last compaction, {@code null} if none ran yet.
+     */
+    private GCType gcType;
+
     public GCNodeWriteMonitor(long gcProgressLog) {
         this.gcProgressLog = gcProgressLog;
     }
@@ -70,6 +76,8 @@ public class GCNodeWriteMonitor {
     }
 
     /**
+     * @param gcType
+     *            type of the current compaction
      * @param gcCount
      *            current gc run
      * @param prevSize
@@ -79,9 +87,13 @@ public class GCNodeWriteMonitor {
      * @param currentSize
      *            current repository size
      */
-    public synchronized void init(long gcCount, long prevSize, long prevCompactedNodes, long currentSize) {
+    public synchronized void init(GCType gcType, long gcCount, long prevSize, long prevCompactedNodes, long currentSize) {
+        this.gcType = gcType;
         this.gcCount = gcCount;
-        if (prevCompactedNodes > 0) {
+        if (gcType == GCType.TAIL) {
+            estimated = -1;
+            log.info("TarMK GC #{}: unable to estimate number of nodes for tail compaction.", gcCount);
+        } else if (prevCompactedNodes > 0) {
             estimated = (long) (((double) currentSize / prevSize) * prevCompactedNodes);
             log.info(
                     "TarMK GC #{}: estimated number of nodes to compact is {}, based on {} nodes compacted to {} bytes "
@@ -129,6 +141,14 @@ public class GCNodeWriteMonitor {
         return -1;
     }
 
+    /**
+     * Type of the current or last compaction cycle, {@code null} if no
+     * compaction ran yet.
+     */
+    public synchronized GCType getGCType() {
+        return gcType;
+    }
+
     public synchronized boolean isCompactionRunning() {
         return running;
     }
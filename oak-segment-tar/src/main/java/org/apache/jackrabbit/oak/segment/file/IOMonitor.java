@@ -69,4 +69,33 @@ public interface IOMonitor {
      */
     void afterSegmentWrite(File file, long msb, long lsb, int length, long elapsed);
 
+    /**
+     * Called after a segment has been prefetched into the segment cache.
+     *
+     * @param msb    Most significant bits of the segment ID.
+     * @param lsb    Least significant bits of the segment ID.
+     * @param length Size of the segment.
+     */
+    void afterSegmentPrefetch(long msb, long lsb, int length);
+
+    /**
+     * Called when a prefetched segment is accessed for the first time while
+     * it is still in the segment cache.
+     *
+     * @param msb    Most significant bits of the segment ID.
+     * @param lsb    Least significant bits of the segment ID.
+     */
+    void onSegmentPrefetchHit(long msb, long lsb);
+
+    /**
+     * Called after a compressed segment has been read and decompressed.
+     *
+     * @param msb              Most significant bits of the segment ID.
+     * @param lsb              Least significant bits of the segment ID.
+     * @param compressedLength Size of the compressed segment.
+     * @param length           Size of the decompressed segment.
+     * @param elapsed          Time spent decompressing the segment, in nanoseconds.
+     */
+    void afterSegmentDecompress(long msb, long lsb, int compressedLength, int length, long elapsed);
+
 }
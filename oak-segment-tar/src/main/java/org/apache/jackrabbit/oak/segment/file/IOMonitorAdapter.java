@@ -41,4 +41,19 @@ public class IOMonitorAdapter implements IOMonitor {
         // Intentionally left blank
     }
 
+    @Override
+    public void afterSegmentPrefetch(long msb, long lsb, int length) {
+        // Intentionally left blank
+    }
+
+    @Override
+    public void onSegmentPrefetchHit(long msb, long lsb) {
+        // Intentionally left blank
+    }
+
+    @Override
+    public void afterSegmentDecompress(long msb, long lsb, int compressedLength, int length, long elapsed) {
+        // Intentionally left blank
+    }
+
 }
@@ -19,14 +19,13 @@
 
 package org.apache.jackrabbit.oak.segment.file;
 
-import static java.nio.charset.Charset.defaultCharset;
-
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
-import org.apache.commons.io.input.ReversedLinesFileReader;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFileReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,10 +39,14 @@ import com.google.common.collect.AbstractIterator;
 public final class JournalReader extends AbstractIterator<JournalEntry> implements Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(JournalReader.class);
 
-    private final ReversedLinesFileReader journal;
+    private final JournalFileReader journal;
 
     public JournalReader(File journalFile) throws IOException {
-        journal = new ReversedLinesFileReader(journalFile, defaultCharset());
+        this(new LocalJournalFile(journalFile));
+    }
+
+    public JournalReader(JournalFile journalFile) throws IOException {
+        journal = journalFile.openJournalReader();
     }
 
     /**
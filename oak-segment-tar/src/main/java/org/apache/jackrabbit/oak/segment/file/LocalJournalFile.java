@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static java.nio.charset.Charset.defaultCharset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.input.ReversedLinesFileReader;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFileReader;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFileWriter;
+
+/**
+ * A {@link JournalFile} backed by a local file.
+ */
+class LocalJournalFile implements JournalFile {
+
+    private final File journalFile;
+
+    LocalJournalFile(File directory, String journalFile) {
+        this(new File(directory, journalFile));
+    }
+
+    LocalJournalFile(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    @Nonnull
+    @Override
+    public JournalFileReader openJournalReader() throws IOException {
+        final ReversedLinesFileReader reader = new ReversedLinesFileReader(journalFile, defaultCharset());
+        return new JournalFileReader() {
+
+            @Override
+            public String readLine() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+
+        };
+    }
+
+    @Nonnull
+    @Override
+    public JournalFileWriter openJournalWriter() throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        file.seek(file.length());
+        return new JournalFileWriter() {
+
+            @Override
+            public void writeLine(@Nonnull String line) throws IOException {
+                file.writeBytes(line + "\n");
+                file.getChannel().force(false);
+            }
+
+            @Override
+            public void close() throws IOException {
+                file.close();
+            }
+
+        };
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return journalFile.getName();
+    }
+
+    @Override
+    public boolean exists() {
+        return journalFile.exists();
+    }
+
+}
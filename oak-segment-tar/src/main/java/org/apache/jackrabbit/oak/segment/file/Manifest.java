@@ -23,6 +23,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Properties;
 
+import org.apache.jackrabbit.oak.segment.spi.persistence.ManifestFile;
+
 class Manifest {
 
     private static final String STORE_VERSION = "store.version";
@@ -42,6 +44,17 @@ class Manifest {
         return new Manifest(properties);
     }
 
+    /**
+     * Loads the manifest from a {@link ManifestFile}.
+     *
+     * @param file The manifest file to load the manifest from.
+     * @return A manifest file.
+     * @throws IOException If any error occurs when loading the manifest.
+     */
+    static Manifest load(ManifestFile file) throws IOException {
+        return new Manifest(file.load());
+    }
+
     /**
      * Creates an empty manifest file.
      *
@@ -89,6 +102,16 @@ class Manifest {
         properties.store(new FileWriter(file), null);
     }
 
+    /**
+     * Save the manifest to the specified {@link ManifestFile}.
+     *
+     * @param file The manifest file to save the manifest to.
+     * @throws IOException if an error occurs while saving the manifest.
+     */
+    void save(ManifestFile file) throws IOException {
+        file.save(properties);
+    }
+
     private int getIntegerProperty(String name, int otherwise) {
         Object value = properties.get(name);
 
@@ -24,6 +24,7 @@ import java.io.File;
 
 import javax.annotation.Nonnull;
 
+import org.apache.jackrabbit.oak.stats.CounterStats;
 import org.apache.jackrabbit.oak.stats.MeterStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
@@ -41,6 +42,12 @@ import org.apache.jackrabbit.oak.stats.TimerStats;
  *          a timer metrics for the time spent reading from tar files</li>
  *     <li>{@link #OAK_SEGMENT_SEGMENT_WRITE_TIME}:
  *          a timer metrics for the time spent writing to tar files</li>
+ *     <li>{@link #OAK_SEGMENT_SEGMENT_PREFETCH_COUNT}:
+ *          a counter metrics for the number of segments prefetched into the segment cache</li>
+ *     <li>{@link #OAK_SEGMENT_SEGMENT_PREFETCH_HIT_COUNT}:
+ *          a counter metrics for the number of prefetched segments subsequently accessed</li>
+ *     <li>{@link #OAK_SEGMENT_SEGMENT_DECOMPRESSION_TIME}:
+ *          a timer metrics for the time spent decompressing segments read from tar files</li>
  * </ul>
  */
 public class MetricsIOMonitor extends IOMonitorAdapter {
@@ -48,11 +55,17 @@ public class MetricsIOMonitor extends IOMonitorAdapter {
     public static final String OAK_SEGMENT_SEGMENT_WRITE_BYTES = "oak.segment.segment-write-bytes";
     public static final String OAK_SEGMENT_SEGMENT_READ_TIME = "oak.segment.segment-read-time";
     public static final String OAK_SEGMENT_SEGMENT_WRITE_TIME = "oak.segment.segment-write-time";
+    public static final String OAK_SEGMENT_SEGMENT_PREFETCH_COUNT = "oak.segment.segment-prefetch-count";
+    public static final String OAK_SEGMENT_SEGMENT_PREFETCH_HIT_COUNT = "oak.segment.segment-prefetch-hit-count";
+    public static final String OAK_SEGMENT_SEGMENT_DECOMPRESSION_TIME = "oak.segment.segment-decompression-time";
 
     private final MeterStats segmentReadBytes;
     private final MeterStats segmentWriteBytes;
     private final TimerStats segmentReadTime;
     private final TimerStats segmentWriteTime;
+    private final CounterStats segmentPrefetchCount;
+    private final CounterStats segmentPrefetchHitCount;
+    private final TimerStats segmentDecompressionTime;
 
     public MetricsIOMonitor(@Nonnull StatisticsProvider statisticsProvider) {
         segmentReadBytes = statisticsProvider.getMeter(
@@ -63,6 +76,12 @@ public class MetricsIOMonitor extends IOMonitorAdapter {
                 OAK_SEGMENT_SEGMENT_READ_TIME, StatsOptions.METRICS_ONLY);
         segmentWriteTime = statisticsProvider.getTimer(
                 OAK_SEGMENT_SEGMENT_WRITE_TIME, StatsOptions.METRICS_ONLY);
+        segmentPrefetchCount = statisticsProvider.getCounterStats(
+                OAK_SEGMENT_SEGMENT_PREFETCH_COUNT, StatsOptions.METRICS_ONLY);
+        segmentPrefetchHitCount = statisticsProvider.getCounterStats(
+                OAK_SEGMENT_SEGMENT_PREFETCH_HIT_COUNT, StatsOptions.METRICS_ONLY);
+        segmentDecompressionTime = statisticsProvider.getTimer(
+                OAK_SEGMENT_SEGMENT_DECOMPRESSION_TIME, StatsOptions.METRICS_ONLY);
     }
 
     @Override
@@ -76,4 +95,19 @@ public class MetricsIOMonitor extends IOMonitorAdapter {
         segmentWriteBytes.mark(length);
         segmentWriteTime.update(elapsed, NANOSECONDS);
     }
+
+    @Override
+    public void afterSegmentPrefetch(long msb, long lsb, int length) {
+        segmentPrefetchCount.inc();
+    }
+
+    @Override
+    public void onSegmentPrefetchHit(long msb, long lsb) {
+        segmentPrefetchHitCount.inc();
+    }
+
+    @Override
+    public void afterSegmentDecompress(long msb, long lsb, int compressedLength, int length, long elapsed) {
+        segmentDecompressionTime.update(elapsed, NANOSECONDS);
+    }
 }
@@ -26,7 +26,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Nonnull;
@@ -63,12 +62,12 @@ public class ReadOnlyFileStore extends AbstractFileStore {
     ReadOnlyFileStore(FileStoreBuilder builder) throws InvalidFileStoreVersionException, IOException {
         super(builder);
 
-        if (notEmptyDirectory(directory)) {
+        if (persistence.segmentFilesExist()) {
             checkManifest(openManifest());
         }
 
         tarFiles = TarFiles.builder()
-                .withDirectory(directory)
+                .withPersistence(persistence)
                 .withTarRecovery(recovery)
                 .withIOMonitor(ioMonitor)
                 .withMemoryMapping(memoryMapping)
@@ -126,12 +125,7 @@ public class ReadOnlyFileStore extends AbstractFileStore {
     @Nonnull
     public Segment readSegment(final SegmentId id) {
         try {
-            return segmentCache.getSegment(id, new Callable<Segment>() {
-                @Override
-                public Segment call() throws Exception {
-                    return readSegmentUncached(tarFiles, id);
-                }
-            });
+            return readSegmentCached(tarFiles, id);
         } catch (ExecutionException e) {
             throw asSegmentNotFoundException(e, id);
         }
@@ -142,6 +136,7 @@ public class ReadOnlyFileStore extends AbstractFileStore {
         Closer closer = Closer.create();
         closer.register(tarFiles);
         closer.register(revisions);
+        closer.register(segmentPrefetcher);
         closeAndLogOnFail(closer);
         System.gc(); // for any memory-mappings that are no longer used
         log.info("TarMK closed: {}", directory);
@@ -24,8 +24,8 @@ import static org.apache.jackrabbit.oak.segment.file.FileStoreUtil.findPersisted
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
@@ -35,6 +35,8 @@ import org.apache.jackrabbit.oak.segment.RecordId;
 import org.apache.jackrabbit.oak.segment.Revisions;
 import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
 import org.apache.jackrabbit.oak.segment.SegmentStore;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,16 +51,17 @@ public class ReadOnlyRevisions implements Revisions, Closeable {
     private final AtomicReference<RecordId> head;
 
     @Nonnull
-    private final File directory;
-
-    @Nonnull
-    private final RandomAccessFile journalFile;
+    private final JournalFile journalFile;
 
     public ReadOnlyRevisions(@Nonnull File directory) throws IOException {
-        this.directory = checkNotNull(directory);
-        this.journalFile = new RandomAccessFile(new File(directory,
-                JOURNAL_FILE_NAME), "r");
-        this.journalFile.seek(journalFile.length());
+        this(new TarPersistence(checkNotNull(directory)));
+    }
+
+    public ReadOnlyRevisions(@Nonnull SegmentNodeStorePersistence persistence) throws IOException {
+        this.journalFile = checkNotNull(persistence).getJournalFile();
+        if (!journalFile.exists()) {
+            throw new FileNotFoundException("Journal " + journalFile.getName() + " not found");
+        }
         this.head = new AtomicReference<>(null);
     }
 
@@ -74,7 +77,7 @@ public class ReadOnlyRevisions implements Revisions, Closeable {
         if (head.get() != null) {
             return;
         }
-        RecordId persistedId = findPersistedRecordId(store, idProvider, new File(directory, JOURNAL_FILE_NAME));
+        RecordId persistedId = findPersistedRecordId(store, idProvider, journalFile);
         if (persistedId == null) {
             throw new IllegalStateException("Cannot start readonly store from empty journal");
         }
@@ -113,7 +116,7 @@ public class ReadOnlyRevisions implements Revisions, Closeable {
      */
     @Override
     public void close() throws IOException {
-        journalFile.close();
+        // Nothing to close, the journal is only read while binding
     }
 
 }
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static org.apache.jackrabbit.oak.segment.SegmentId.isDataSegmentId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Optional compression of data segments stored in tar entries.
+ * <p>
+ * A compressed entry is framed by an eight bytes header: the magic bytes
+ * {@code 0aZ} (an uncompressed data segment always starts with {@code 0aK}),
+ * a byte identifying the codec and the uncompressed length of the segment
+ * (int). Since every entry describes itself, compressed and uncompressed
+ * entries can be freely mixed within the same tar file and the tar index
+ * is not affected. Bulk segments are never compressed, as their content is
+ * arbitrary binary data.
+ */
+final class SegmentCompression {
+
+    /**
+     * Size of the header preceding the compressed data.
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Codec compressing with {@link Deflater#BEST_SPEED}.
+     */
+    static final byte DEFLATE = 1;
+
+    private SegmentCompression() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Compress a data segment.
+     *
+     * @param lsb    Least significant bits of the segment ID.
+     * @param data   Buffer containing the segment.
+     * @param offset Offset of the segment in {@code data}.
+     * @param length Length of the segment.
+     * @return the framed compressed segment, or {@code null} if the segment
+     * is a bulk segment or if compression wouldn't make it smaller.
+     */
+    @CheckForNull
+    static byte[] compress(long lsb, byte[] data, int offset, int length) {
+        if (!isDataSegmentId(lsb) || length <= HEADER_SIZE) {
+            return null;
+        }
+
+        byte[] compressed = new byte[length];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            int n = deflater.deflate(compressed, HEADER_SIZE, length - HEADER_SIZE);
+            if (!deflater.finished()) {
+                return null;
+            }
+            ByteBuffer.wrap(compressed, 0, HEADER_SIZE)
+                    .put((byte) '0')
+                    .put((byte) 'a')
+                    .put((byte) 'Z')
+                    .put(DEFLATE)
+                    .putInt(length);
+            byte[] framed = new byte[HEADER_SIZE + n];
+            System.arraycopy(compressed, 0, framed, 0, framed.length);
+            return framed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param lsb    Least significant bits of the segment ID.
+     * @param buffer Content of a tar entry.
+     * @return {@code true} if the entry contains a compressed data segment.
+     */
+    static boolean isCompressed(long lsb, @Nonnull ByteBuffer buffer) {
+        int p = buffer.position();
+        return isDataSegmentId(lsb)
+                && buffer.remaining() >= HEADER_SIZE
+                && buffer.get(p) == '0'
+                && buffer.get(p + 1) == 'a'
+                && buffer.get(p + 2) == 'Z';
+    }
+
+    /**
+     * Decompress the content of a tar entry. Entries that are not
+     * compressed are returned as they are.
+     *
+     * @param lsb    Least significant bits of the segment ID.
+     * @param buffer Content of a tar entry.
+     * @return the segment contained in the entry.
+     * @throws IOException if the entry is corrupt or uses an unknown codec.
+     */
+    @Nonnull
+    static ByteBuffer decompress(long lsb, @Nonnull ByteBuffer buffer) throws IOException {
+        if (!isCompressed(lsb, buffer)) {
+            return buffer;
+        }
+
+        ByteBuffer source = buffer.duplicate();
+        source.position(source.position() + 3);
+        byte codec = source.get();
+        if (codec != DEFLATE) {
+            throw new IOException("Unknown segment compression codec " + codec);
+        }
+        int length = source.getInt();
+        byte[] compressed = new byte[source.remaining()];
+        source.get(compressed);
+
+        byte[] data = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = inflater.inflate(data);
+            if (n != length || !inflater.finished()) {
+                throw new IOException("Invalid compressed segment: expected " + length + " bytes, got " + n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed segment", e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Decompress the first bytes of a segment from the first bytes of a tar
+     * entry. Entries that are not compressed are returned as they are.
+     *
+     * @param lsb    Least significant bits of the segment ID.
+     * @param prefix The first bytes of a tar entry.
+     * @param length Number of bytes of the segment to decompress.
+     * @return the first {@code length} bytes of the segment, or {@code null}
+     * if {@code prefix} doesn't contain enough compressed data for them.
+     * @throws IOException if the entry is corrupt or uses an unknown codec.
+     */
+    @CheckForNull
+    static ByteBuffer decompressHeader(long lsb, @Nonnull ByteBuffer prefix, int length) throws IOException {
+        if (!isCompressed(lsb, prefix)) {
+            return prefix;
+        }
+
+        ByteBuffer source = prefix.duplicate();
+        source.position(source.position() + 3);
+        byte codec = source.get();
+        if (codec != DEFLATE) {
+            throw new IOException("Unknown segment compression codec " + codec);
+        }
+        source.getInt();
+        byte[] compressed = new byte[source.remaining()];
+        source.get(compressed);
+
+        byte[] data = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            if (inflater.inflate(data) < length) {
+                return null;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed segment", e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Same as {@link #decompress(long, ByteBuffer)} for the content of a tar
+     * entry read into an array.
+     */
+    @Nonnull
+    static byte[] decompress(long lsb, @Nonnull byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (!isCompressed(lsb, buffer)) {
+            return data;
+        }
+        return decompress(lsb, buffer).array();
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.Executors.defaultThreadFactory;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.jackrabbit.oak.segment.Segment;
+import org.apache.jackrabbit.oak.segment.SegmentCache;
+import org.apache.jackrabbit.oak.segment.SegmentId;
+import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronously loads the segments referenced by a segment that has just
+ * been read from disk into the {@link SegmentCache}. Traversals usually access
+ * referenced segments right after the referencing one, so that prefetching them
+ * on a bounded pool of background threads saves blocking reads on the critical
+ * path. Prefetched segments are not memoised in their {@link SegmentId} before
+ * they are actually accessed, which allows this class to report prefetch hits
+ * to the {@link IOMonitor}.
+ * <p>
+ * An instance created with no threads is disabled and does nothing.
+ */
+class SegmentPrefetcher implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentPrefetcher.class);
+
+    /**
+     * Maximum number of pending prefetch tasks. Further requests are dropped
+     * while the queue is full.
+     */
+    private static final int MAX_PENDING = 1024;
+
+    /**
+     * Maximum number of prefetched segments tracked for computing prefetch hits.
+     */
+    private static final int MAX_TRACKED = 16 * 1024;
+
+    private final ThreadPoolExecutor executor;
+
+    private final SegmentCache segmentCache;
+
+    private final SegmentIdProvider idProvider;
+
+    private final IOMonitor ioMonitor;
+
+    /**
+     * Segments currently being prefetched.
+     */
+    private final Set<SegmentId> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Segments prefetched, but not accessed yet.
+     */
+    private final Cache<SegmentId, Boolean> prefetched = CacheBuilder.newBuilder()
+            .maximumSize(MAX_TRACKED)
+            .build();
+
+    /**
+     * @param threads       number of prefetch threads, {@code 0} to disable prefetching.
+     * @param segmentCache  the cache to load prefetched segments into.
+     * @param idProvider    the provider of the ids of referenced segments.
+     * @param ioMonitor     the monitor to notify about prefetches and prefetch hits.
+     */
+    SegmentPrefetcher(int threads, @Nonnull SegmentCache segmentCache, @Nonnull SegmentIdProvider idProvider, @Nonnull IOMonitor ioMonitor) {
+        if (threads > 0) {
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                    new ArrayBlockingQueue<>(MAX_PENDING), new PrefetchThreadFactory(), new DiscardPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+        this.segmentCache = segmentCache;
+        this.idProvider = idProvider;
+        this.ioMonitor = ioMonitor;
+    }
+
+    /**
+     * Schedule the segments referenced by {@code segment} for being loaded
+     * into the segment cache unless they are already cached.
+     *
+     * @param segment  a segment just read from disk.
+     * @param loader   the function reading a segment from disk.
+     */
+    void prefetch(@Nonnull Segment segment, @Nonnull Function<SegmentId, Segment> loader) {
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        for (int i = 0; i < segment.getReferencedSegmentIdCount(); i++) {
+            UUID uuid = segment.getReferencedSegmentId(i);
+            SegmentId id = idProvider.newSegmentId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (id.isDataSegmentId() && !segmentCache.containsSegment(id) && pending.add(id)) {
+                try {
+                    executor.execute(() -> load(id, loader));
+                } catch (RejectedExecutionException e) {
+                    pending.remove(id);
+                }
+            }
+        }
+    }
+
+    private void load(SegmentId id, Function<SegmentId, Segment> loader) {
+        try {
+            if (!segmentCache.containsSegment(id)) {
+                Segment segment = loader.apply(id);
+                segmentCache.prefetchSegment(segment);
+                prefetched.put(id, Boolean.TRUE);
+                ioMonitor.afterSegmentPrefetch(id.getMostSignificantBits(), id.getLeastSignificantBits(), segment.size());
+            }
+        } catch (RuntimeException e) {
+            // The segment will be read again on access, which reports the error
+            log.debug("Unable to prefetch segment {}", id, e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    /**
+     * Notify this prefetcher that the segment with the given {@code id} is
+     * being read from the store.
+     *
+     * @param id  the id of the segment being read.
+     */
+    void onRead(@Nonnull SegmentId id) {
+        if (executor != null && prefetched.asMap().remove(id) != null && segmentCache.containsSegment(id)) {
+            ioMonitor.onSegmentPrefetchHit(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        try {
+            // Don't interrupt running prefetches as that would close the
+            // channels of the tar files they are reading from
+            executor.getQueue().clear();
+            executor.shutdown();
+            if (!executor.awaitTermination(60, SECONDS)) {
+                log.warn("The segment prefetcher takes too long to shut down");
+            }
+        } catch (InterruptedException e) {
+            log.warn("Interrupt while shutting down the segment prefetcher", e);
+            currentThread().interrupt();
+        }
+    }
+
+    private static class PrefetchThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory threadFactory = defaultThreadFactory();
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = threadFactory.newThread(runnable);
+            thread.setName("segment-prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.file;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.ByteBuffer.wrap;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.BLOCK_SIZE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveReader;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SegmentArchiveManager} storing the segment archives as tar files
+ * in a local directory. The indexes and graphs of the tar files are cached in
+ * a {@link TarIndexCache}, which is written and released when this instance
+ * is closed.
+ */
+class SegmentTarManager implements SegmentArchiveManager, Closeable {
+
+    /** Logger instance */
+    private static final Logger log = LoggerFactory.getLogger(SegmentTarManager.class);
+
+    /**
+     * Pattern of the segment entry names. Note the trailing (\\..*)? group
+     * that's included for compatibility with possible future extensions.
+     */
+    private static final Pattern NAME_PATTERN = Pattern.compile(
+            "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})"
+            + "(\\.([0-9a-f]{8}))?(\\..*)?");
+
+    private final File segmentstoreDir;
+
+    private final IOMonitor ioMonitor;
+
+    private final boolean memoryMapping;
+
+    private TarIndexCache indexCache;
+
+    SegmentTarManager(File segmentstoreDir, boolean memoryMapping, IOMonitor ioMonitor) {
+        this.segmentstoreDir = segmentstoreDir;
+        this.memoryMapping = memoryMapping;
+        this.ioMonitor = ioMonitor;
+    }
+
+    private synchronized TarIndexCache getIndexCache() {
+        if (indexCache == null) {
+            indexCache = TarIndexCache.load(segmentstoreDir);
+        }
+        return indexCache;
+    }
+
+    @Nonnull
+    @Override
+    public List<String> listArchives() {
+        List<String> archives = new ArrayList<>();
+        for (File file : FileUtils.listFiles(segmentstoreDir, new String[] {"tar"}, false)) {
+            archives.add(file.getName());
+        }
+        return archives;
+    }
+
+    @Override
+    public SegmentArchiveReader open(@Nonnull String archiveName) throws IOException {
+        File file = new File(segmentstoreDir, archiveName);
+        TarIndexCache cache = getIndexCache();
+        TarIndexCache.Entry cached = cache.get(file);
+        SegmentTarReader reader = SegmentTarReader.open(file, memoryMapping, ioMonitor, cached);
+        if (reader != null && cached == null) {
+            cache.put(file, reader.getIndex());
+        }
+        return reader;
+    }
+
+    @Nonnull
+    @Override
+    public SegmentArchiveWriter create(@Nonnull String archiveName) {
+        return new SegmentTarWriter(new File(segmentstoreDir, archiveName), ioMonitor);
+    }
+
+    @Override
+    public boolean delete(@Nonnull String archiveName) {
+        getIndexCache().remove(archiveName);
+        File file = new File(segmentstoreDir, archiveName);
+        return file.delete() || !file.exists();
+    }
+
+    @Override
+    public boolean renameTo(@Nonnull String from, @Nonnull String to) {
+        getIndexCache().remove(from);
+        getIndexCache().remove(to);
+        return new File(segmentstoreDir, from).renameTo(new File(segmentstoreDir, to));
+    }
+
+    @Override
+    public void copyFile(@Nonnull String from, @Nonnull String to) throws IOException {
+        getIndexCache().remove(to);
+        FileUtils.copyFile(new File(segmentstoreDir, from), new File(segmentstoreDir, to));
+    }
+
+    @Override
+    public boolean exists(@Nonnull String archiveName) {
+        return new File(segmentstoreDir, archiveName).exists();
+    }
+
+    /**
+     * Write the {@link TarIndexCache} for the tar files opened by this
+     * instance.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (indexCache != null) {
+            try {
+                indexCache.save();
+            } finally {
+                indexCache = null;
+            }
+        }
+    }
+
+    @Override
+    public void recoverEntries(@Nonnull String archiveName, @Nonnull LinkedHashMap<UUID, byte[]> entries) throws IOException {
+        File file = new File(segmentstoreDir, archiveName);
+        try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+            recoverEntries(file, access, entries);
+        }
+    }
+
+    /**
+     * Scans through the tar file, looking for all segment entries.
+     *
+     * @throws IOException if the tar file could not be read
+     */
+    private static void recoverEntries(
+            File file, RandomAccessFile access,
+            LinkedHashMap<UUID, byte[]> entries) throws IOException {
+        byte[] header = new byte[BLOCK_SIZE];
+        while (access.getFilePointer() + BLOCK_SIZE <= access.length()) {
+            // read the tar header block
+            access.readFully(header);
+
+            // compute the header checksum
+            int sum = 0;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                sum += header[i] & 0xff;
+            }
+
+            // identify possible zero block
+            if (sum == 0 && access.getFilePointer() + 2 * BLOCK_SIZE == access.length()) {
+                return; // found the zero blocks at the end of the file
+            }
+
+            // replace the actual stored checksum with spaces for comparison
+            for (int i = 148; i < 148 + 8; i++) {
+                sum -= header[i] & 0xff;
+                sum += ' ';
+            }
+
+            byte[] checkbytes = String.format("%06o\0 ", sum).getBytes(UTF_8);
+            for (int i = 0; i < checkbytes.length; i++) {
+                if (checkbytes[i] != header[148 + i]) {
+                    log.warn("Invalid entry checksum at offset {} in tar file {}, skipping...",
+                             access.getFilePointer() - BLOCK_SIZE, file);
+                }
+            }
+
+            // The header checksum passes, so read the entry name and size
+            ByteBuffer buffer = wrap(header);
+            String name = readString(buffer, 100);
+            buffer.position(124);
+            int size = readNumber(buffer, 12);
+            if (access.getFilePointer() + size > access.length()) {
+                // checksum was correct, so the size field should be accurate
+                log.warn("Partial entry {} in tar file {}, ignoring...", name, file);
+                return;
+            }
+
+            Matcher matcher = NAME_PATTERN.matcher(name);
+            if (matcher.matches()) {
+                UUID id = UUID.fromString(matcher.group(1));
+
+                String checksum = matcher.group(3);
+                if (checksum != null || !entries.containsKey(id)) {
+                    byte[] data = new byte[size];
+                    access.readFully(data);
+
+                    // skip possible padding to stay at block boundaries
+                    long position = access.getFilePointer();
+                    long remainder = position % BLOCK_SIZE;
+                    if (remainder != 0) {
+                        access.seek(position + (BLOCK_SIZE - remainder));
+                    }
+
+                    if (checksum != null) {
+                        CRC32 crc = new CRC32();
+                        crc.update(data);
+                        if (crc.getValue() != Long.parseLong(checksum, 16)) {
+                            log.warn("Checksum mismatch in entry {} of tar file {}, skipping...",
+                                     name, file);
+                            continue;
+                        }
+                    }
+
+                    entries.put(id, data);
+                }
+            } else if (!name.equals(file.getName() + ".idx")) {
+                log.warn("Unexpected entry {} in tar file {}, skipping...",
+                         name, file);
+                long position = access.getFilePointer() + size;
+                long remainder = position % BLOCK_SIZE;
+                if (remainder != 0) {
+                    position += BLOCK_SIZE - remainder;
+                }
+                access.seek(position);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int fieldSize) {
+        byte[] b = new byte[fieldSize];
+        buffer.get(b);
+        int n = 0;
+        while (n < fieldSize && b[n] != 0) {
+            n++;
+        }
+        return new String(b, 0, n, UTF_8);
+    }
+
+    private static int readNumber(ByteBuffer buffer, int fieldSize) {
+        byte[] b = new byte[fieldSize];
+        buffer.get(b);
+        int number = 0;
+        for (int i = 0; i < fieldSize; i++) {
+            int digit = b[i] & 0xff;
+            if ('0' <= digit && digit <= '7') {
+                number = number * 8 + digit - '0';
+            } else {
+                break;
+            }
+        }
+        return number;
+    }
+
+}
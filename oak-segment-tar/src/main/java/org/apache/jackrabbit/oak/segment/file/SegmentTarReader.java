@@ -0,0 +1,525 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.file;
+
+import static java.nio.ByteBuffer.wrap;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.BINARY_REFERENCES_MAGIC;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.BLOCK_SIZE;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.GRAPH_MAGIC;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.INDEX_MAGIC;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.getPaddingSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Stopwatch;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveEntry;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SegmentArchiveReader} reading from a tar file written by {@link
+ * SegmentTarWriter}.
+ */
+class SegmentTarReader implements SegmentArchiveReader {
+
+    /** Logger instance */
+    private static final Logger log = LoggerFactory.getLogger(SegmentTarReader.class);
+
+    /**
+     * Open a tar file for reading.
+     *
+     * @param file          the tar file.
+     * @param memoryMapping whether the tar file should be memory mapped.
+     * @param ioMonitor     monitor to notify about segment reads.
+     * @return a reader for the tar file, or {@code null} if the tar file
+     * doesn't have a valid index.
+     * @throws IOException if the tar file could not be read.
+     */
+    @CheckForNull
+    static SegmentTarReader open(File file, boolean memoryMapping, IOMonitor ioMonitor) throws IOException {
+        return open(file, memoryMapping, ioMonitor, null);
+    }
+
+    /**
+     * Open a tar file for reading, using its cached index and graph if
+     * available.
+     *
+     * @param file          the tar file.
+     * @param memoryMapping whether the tar file should be memory mapped.
+     * @param ioMonitor     monitor to notify about segment reads.
+     * @param cached        the cached index and graph of the tar file, or
+     *                      {@code null} to read them from the tar file.
+     * @return a reader for the tar file, or {@code null} if the tar file
+     * doesn't have a valid index.
+     * @throws IOException if the tar file could not be read.
+     */
+    @CheckForNull
+    static SegmentTarReader open(File file, boolean memoryMapping, IOMonitor ioMonitor, @CheckForNull TarIndexCache.Entry cached) throws IOException {
+        String name = file.getName();
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        try {
+            if (cached != null) {
+                FileAccess fileAccess = null;
+                if (memoryMapping) {
+                    try {
+                        fileAccess = new FileAccess.Mapped(access);
+                    } catch (IOException e) {
+                        log.warn("Failed to mmap tar file {}. Falling back to normal file IO.", name, e);
+                    }
+                }
+                if (fileAccess == null) {
+                    fileAccess = new FileAccess.Random(access);
+                }
+                access = null;
+                return new SegmentTarReader(file, fileAccess, cached.getIndex(), cached.getGraph(), ioMonitor);
+            }
+
+            ByteBuffer index = loadAndValidateIndex(access, name);
+            if (index == null) {
+                log.info("No index found in tar file {}, skipping...", name);
+                return null;
+            }
+
+            if (memoryMapping) {
+                try {
+                    FileAccess mapped = new FileAccess.Mapped(access);
+                    // re-read the index, now with memory mapping
+                    int indexSize = index.remaining();
+                    index = mapped.read(
+                            mapped.length() - indexSize - 16 - 1024,
+                            indexSize);
+                    return new SegmentTarReader(file, mapped, index, null, ioMonitor);
+                } catch (IOException e) {
+                    log.warn("Failed to mmap tar file {}. Falling back to normal file " +
+                            "IO, which will negatively impact repository performance. " +
+                            "This problem may have been caused by restrictions on the " +
+                            "amount of virtual memory available to the JVM. Please make " +
+                            "sure that a 64-bit JVM is being used and that the process " +
+                            "has access to unlimited virtual memory (ulimit option -v).",
+                            name, e);
+                }
+            }
+
+            FileAccess random = new FileAccess.Random(access);
+            // prevent the finally block from closing the file
+            // as the returned reader will take care of that
+            access = null;
+            return new SegmentTarReader(file, random, index, null, ioMonitor);
+        } finally {
+            if (access != null) {
+                access.close();
+            }
+        }
+    }
+
+    /**
+     * Tries to read an existing index from the given tar file. The index is
+     * returned if it is found and looks valid (correct checksum, passes
+     * sanity checks).
+     *
+     * @param file tar file
+     * @param name name of the tar file, for logging purposes
+     * @return tar index, or {@code null} if not found or not valid
+     * @throws IOException if the tar file could not be read
+     */
+    private static ByteBuffer loadAndValidateIndex(
+            RandomAccessFile file, String name)
+            throws IOException {
+        long length = file.length();
+        if (length % BLOCK_SIZE != 0
+                || length < 6 * BLOCK_SIZE
+                || length > Integer.MAX_VALUE) {
+            log.warn("Unexpected size {} of tar file {}", length, name);
+            return null; // unexpected file size
+        }
+
+        // read the index metadata just before the two final zero blocks
+        ByteBuffer meta = ByteBuffer.allocate(16);
+        file.seek(length - 2 * BLOCK_SIZE - 16);
+        file.readFully(meta.array());
+        int crc32 = meta.getInt();
+        int count = meta.getInt();
+        int bytes = meta.getInt();
+        int magic = meta.getInt();
+
+        if (magic != INDEX_MAGIC) {
+            return null; // magic byte mismatch
+        }
+
+        if (count < 1 || bytes < count * TarEntry.SIZE + 16 || bytes % BLOCK_SIZE != 0) {
+            log.warn("Invalid index metadata in tar file {}", name);
+            return null; // impossible entry and/or byte counts
+        }
+
+        // this involves seeking backwards in the file, which might not
+        // perform well, but that's OK since we only do this once per file
+        ByteBuffer index = ByteBuffer.allocate(count * TarEntry.SIZE);
+        file.seek(length - 2 * BLOCK_SIZE - 16 - count * TarEntry.SIZE);
+        file.readFully(index.array());
+        index.mark();
+
+        CRC32 checksum = new CRC32();
+        long limit = length - 2 * BLOCK_SIZE - bytes - BLOCK_SIZE;
+        long lastmsb = Long.MIN_VALUE;
+        long lastlsb = Long.MIN_VALUE;
+        byte[] entry = new byte[TarEntry.SIZE];
+        for (int i = 0; i < count; i++) {
+            index.get(entry);
+            checksum.update(entry);
+
+            ByteBuffer buffer = wrap(entry);
+            long msb   = buffer.getLong();
+            long lsb   = buffer.getLong();
+            int offset = buffer.getInt();
+            int size   = buffer.getInt();
+
+            if (lastmsb > msb || (lastmsb == msb && lastlsb > lsb)) {
+                log.warn("Incorrect index ordering in tar file {}", name);
+                return null;
+            } else if (lastmsb == msb && lastlsb == lsb && i > 0) {
+                log.warn("Duplicate index entry in tar file {}", name);
+                return null;
+            } else if (offset < 0 || offset % BLOCK_SIZE != 0) {
+                log.warn("Invalid index entry offset in tar file {}", name);
+                return null;
+            } else if (size < 1 || offset + size > limit) {
+                log.warn("Invalid index entry size in tar file {}", name);
+                return null;
+            }
+
+            lastmsb = msb;
+            lastlsb = lsb;
+        }
+
+        if (crc32 != (int) checksum.getValue()) {
+            log.warn("Invalid index checksum in tar file {}", name);
+            return null; // checksum mismatch
+        }
+
+        index.reset();
+        return index;
+    }
+
+    private final File file;
+
+    private final FileAccess access;
+
+    private final ByteBuffer index;
+
+    private final IOMonitor ioMonitor;
+
+    /**
+     * The graph of this tar file as read from the {@link TarIndexCache}, or
+     * {@code null} if it has to be read from the tar file.
+     */
+    @CheckForNull
+    private final ByteBuffer cachedGraph;
+
+    private volatile boolean hasGraph;
+
+    private SegmentTarReader(File file, FileAccess access, ByteBuffer index, @CheckForNull ByteBuffer cachedGraph, IOMonitor ioMonitor) {
+        this.file = file;
+        this.access = access;
+        this.index = index;
+        this.cachedGraph = cachedGraph;
+        this.hasGraph = cachedGraph != null;
+        this.ioMonitor = ioMonitor;
+    }
+
+    /**
+     * @return the index of this tar file.
+     */
+    ByteBuffer getIndex() {
+        return index.duplicate();
+    }
+
+    @Override
+    public ByteBuffer readSegment(long msb, long lsb) throws IOException {
+        int position = findEntry(msb, lsb);
+        if (position != -1) {
+            int pos = index.getInt(position + 16);
+            int len = index.getInt(position + 20);
+            return readSegment(msb, lsb, pos, len);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public ByteBuffer readSegmentHeader(long msb, long lsb, int length) throws IOException {
+        int position = findEntry(msb, lsb);
+        if (position != -1) {
+            int pos = index.getInt(position + 16);
+            int len = index.getInt(position + 20);
+            return readSegment(msb, lsb, pos, Math.min(len, length));
+        } else {
+            return null;
+        }
+    }
+
+    private ByteBuffer readSegment(long msb, long lsb, int offset, int size) throws IOException {
+        ioMonitor.beforeSegmentRead(file, msb, lsb, size);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ByteBuffer buffer = access.read(offset, size);
+        long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+        ioMonitor.afterSegmentRead(file, msb, lsb, size, elapsed);
+        return buffer;
+    }
+
+    @Override
+    public boolean containsSegment(long msb, long lsb) {
+        return findEntry(msb, lsb) != -1;
+    }
+
+    /**
+     * Find the position of the given segment in the tar file.
+     * It uses the tar index if available.
+     *
+     * @param msb the most significant bits of the segment id
+     * @param lsb the least significant bits of the segment id
+     * @return the position in the file, or -1 if not found
+     */
+    private int findEntry(long msb, long lsb) {
+        // The segment identifiers are randomly generated with uniform
+        // distribution, so we can use interpolation search to find the
+        // matching entry in the index. The average runtime is O(log log n).
+
+        int lowIndex = 0;
+        int highIndex = index.remaining() / TarEntry.SIZE - 1;
+        float lowValue = Long.MIN_VALUE;
+        float highValue = Long.MAX_VALUE;
+        float targetValue = msb;
+
+        while (lowIndex <= highIndex) {
+            int guessIndex = lowIndex + Math.round(
+                    (highIndex - lowIndex)
+                    * (targetValue - lowValue)
+                    / (highValue - lowValue));
+            int position = index.position() + guessIndex * TarEntry.SIZE;
+            long m = index.getLong(position);
+            if (msb < m) {
+                highIndex = guessIndex - 1;
+                highValue = m;
+            } else if (msb > m) {
+                lowIndex = guessIndex + 1;
+                lowValue = m;
+            } else {
+                // getting close...
+                long l = index.getLong(position + 8);
+                if (lsb < l) {
+                    highIndex = guessIndex - 1;
+                    highValue = m;
+                } else if (lsb > l) {
+                    lowIndex = guessIndex + 1;
+                    lowValue = m;
+                } else {
+                    // found it!
+                    return position;
+                }
+            }
+        }
+
+        // not found
+        return -1;
+    }
+
+    @Nonnull
+    @Override
+    public List<SegmentArchiveEntry> listSegments() {
+        List<SegmentArchiveEntry> entries = new ArrayList<>(index.remaining() / TarEntry.SIZE);
+        int position = index.position();
+        while (position < index.limit()) {
+            entries.add(new TarEntry(
+                    index.getLong(position),
+                    index.getLong(position + 8),
+                    index.getInt(position + 16),
+                    index.getInt(position + 20),
+                    index.getInt(position + 24)));
+            position += TarEntry.SIZE;
+        }
+        return entries;
+    }
+
+    /**
+     * Loads the optional pre-compiled graph entry from the given tar file.
+     *
+     * @return graph buffer, or {@code null} if one was not found
+     * @throws IOException if the tar file could not be read
+     */
+    @Override
+    public ByteBuffer getGraph() throws IOException {
+        if (cachedGraph != null) {
+            return cachedGraph.duplicate();
+        }
+
+        int pos = access.length() - 2 * BLOCK_SIZE - getIndexEntrySize();
+
+        ByteBuffer meta = access.read(pos - 16, 16);
+
+        int crc32 = meta.getInt();
+        int count = meta.getInt();
+        int bytes = meta.getInt();
+        int magic = meta.getInt();
+
+        if (magic != GRAPH_MAGIC) {
+            log.warn("Invalid graph magic number in {}", file);
+            return null;
+        }
+
+        if (count < 0) {
+            log.warn("Invalid number of entries in {}", file);
+            return null;
+        }
+
+        if (bytes < 4 + count * 34) {
+            log.warn("Invalid entry size in {}", file);
+            return null;
+        }
+
+        ByteBuffer graph = access.read(pos - bytes, bytes);
+
+        byte[] b = new byte[bytes - 16];
+
+        graph.mark();
+        graph.get(b);
+        graph.reset();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(b);
+
+        if (crc32 != (int) checksum.getValue()) {
+            log.warn("Invalid graph checksum in tar file {}", file);
+            return null;
+        }
+
+        hasGraph = true;
+
+        return graph;
+    }
+
+    @Override
+    public boolean hasGraph() {
+        if (!hasGraph) {
+            try {
+                getGraph();
+            } catch (IOException ignore) { }
+        }
+        return hasGraph;
+    }
+
+    @Override
+    public ByteBuffer getBinaryReferences() throws IOException {
+        int end = access.length() - 2 * BLOCK_SIZE - getIndexEntrySize() - getGraphEntrySize();
+
+        ByteBuffer meta = access.read(end - 16, 16);
+
+        int crc32 = meta.getInt();
+        int count = meta.getInt();
+        int size = meta.getInt();
+        int magic = meta.getInt();
+
+        if (magic != BINARY_REFERENCES_MAGIC) {
+            log.warn("Invalid binary references magic number");
+            return null;
+        }
+
+        if (count < 0 || size < count * 22 + 16) {
+            log.warn("Invalid binary references size or count");
+            return null;
+        }
+
+        ByteBuffer buffer = access.read(end - size, size);
+
+        byte[] data = new byte[size - 16];
+        buffer.mark();
+        buffer.get(data);
+        buffer.reset();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(data);
+
+        if ((int) (checksum.getValue()) != crc32) {
+            log.warn("Invalid binary references checksum");
+            return null;
+        }
+
+        return buffer;
+    }
+
+    private int getIndexEntrySize() {
+        return getEntrySize(index.remaining() + 16);
+    }
+
+    private int getGraphEntrySize() {
+        ByteBuffer buffer;
+
+        try {
+            buffer = getGraph();
+        } catch (IOException e) {
+            log.warn("Exception while loading pre-compiled tar graph", e);
+            return 0;
+        }
+
+        if (buffer == null) {
+            return 0;
+        }
+
+        return getEntrySize(buffer.getInt(buffer.limit() - 8));
+    }
+
+    @Override
+    public long length() {
+        return file.length();
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public void close() throws IOException {
+        access.close();
+    }
+
+    @Override
+    public int getEntrySize(int size) {
+        return BLOCK_SIZE + size + getPaddingSize(size);
+    }
+
+    //------------------------------------------------------------< Object >--
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+}
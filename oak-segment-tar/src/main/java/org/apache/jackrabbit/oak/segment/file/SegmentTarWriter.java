@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.file;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.BLOCK_SIZE;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.INDEX_MAGIC;
+import static org.apache.jackrabbit.oak.segment.file.TarWriter.getPaddingSize;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Stopwatch;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SegmentArchiveWriter} writing the segments, the graph, the binary
+ * references and the index to a tar file.
+ */
+class SegmentTarWriter implements SegmentArchiveWriter {
+
+    /** Logger instance */
+    private static final Logger log = LoggerFactory.getLogger(SegmentTarWriter.class);
+
+    private static final byte[] ZERO_BYTES = new byte[BLOCK_SIZE];
+
+    /**
+     * The file being written. This instance is also used as an additional
+     * synchronization point by {@link #flush()} and {@link #close()} to
+     * allow {@link #flush()} to work concurrently with normal reads and
+     * writes, but not with a concurrent {@link #close()}.
+     */
+    private final File file;
+
+    private final IOMonitor ioMonitor;
+
+    /**
+     * File handle. Initialized lazily in {@link #writeSegment(long, long,
+     * byte[], int, int, int)} to avoid creating an extra empty file when just
+     * reading from the repository. Should only be accessed from synchronized
+     * code.
+     */
+    private RandomAccessFile access = null;
+
+    private FileChannel channel = null;
+
+    /**
+     * Flag to indicate a closed writer. Should only be accessed from
+     * synchronized code.
+     */
+    private boolean closed = false;
+
+    /**
+     * Number of bytes written to the file so far.
+     */
+    private volatile long length;
+
+    /**
+     * Map of the entries that have already been written. Used by the
+     * {@link #containsSegment(long, long)} and {@link #readSegment(long, long)}
+     * methods to retrieve data from this file while it's still being written,
+     * and finally by the {@link #close()} method to generate the tar index.
+     * The map is ordered in the order that entries have been written.
+     * <p>
+     * Should only be accessed from synchronized code.
+     */
+    private final Map<UUID, TarEntry> index = newLinkedHashMap();
+
+    SegmentTarWriter(File file, IOMonitor ioMonitor) {
+        this.file = file;
+        this.ioMonitor = ioMonitor;
+    }
+
+    @Override
+    public void writeSegment(long msb, long lsb, @Nonnull byte[] data, int offset, int size, int generation) throws IOException {
+        checkNotNull(data);
+        checkPositionIndexes(offset, offset + size, data.length);
+
+        UUID uuid = new UUID(msb, lsb);
+        CRC32 checksum = new CRC32();
+        checksum.update(data, offset, size);
+        String entryName = String.format("%s.%08x", uuid, checksum.getValue());
+        byte[] header = newEntryHeader(entryName, size);
+
+        log.debug("Writing segment {} to {}", uuid, file);
+        writeEntry(uuid, header, data, offset, size, generation);
+    }
+
+    private synchronized void writeEntry(UUID uuid, byte[] header, byte[] data, int offset, int size, int generation) throws IOException {
+        checkState(!closed);
+
+        if (access == null) {
+            access = new RandomAccessFile(file, "rw");
+            channel = access.getChannel();
+        }
+
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+
+        int padding = getPaddingSize(size);
+
+        access.write(header);
+
+        ioMonitor.beforeSegmentWrite(file, msb, lsb, size);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        access.write(data, offset, size);
+        ioMonitor.afterSegmentWrite(file, msb, lsb, size, stopwatch.elapsed(TimeUnit.NANOSECONDS));
+
+        if (padding > 0) {
+            access.write(ZERO_BYTES, 0, padding);
+        }
+
+        long currentLength = access.getFilePointer();
+        checkState(currentLength <= Integer.MAX_VALUE);
+        TarEntry entry = new TarEntry(msb, lsb, (int) (currentLength - size - padding), size, generation);
+        index.put(uuid, entry);
+        length = currentLength;
+    }
+
+    @Override
+    public ByteBuffer readSegment(long msb, long lsb) throws IOException {
+        TarEntry entry;
+        synchronized (this) {
+            entry = index.get(new UUID(msb, lsb));
+        }
+        if (entry != null) {
+            checkState(channel != null); // implied by entry != null
+            ByteBuffer data = ByteBuffer.allocate(entry.size());
+            channel.read(data, entry.offset());
+            data.rewind();
+            return data;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized boolean containsSegment(long msb, long lsb) {
+        return index.containsKey(new UUID(msb, lsb));
+    }
+
+    @Override
+    public void writeGraph(@Nonnull byte[] data) throws IOException {
+        writeMetadataEntry(file.getName() + ".gph", data);
+    }
+
+    @Override
+    public void writeBinaryReferences(@Nonnull byte[] data) throws IOException {
+        writeMetadataEntry(file.getName() + ".brf", data);
+    }
+
+    /**
+     * Write a meta-data entry. Its content is aligned to the end of the
+     * entry, so that it can be located by reading the tar file backwards.
+     */
+    private synchronized void writeMetadataEntry(String name, byte[] data) throws IOException {
+        checkState(!closed);
+        checkState(access != null);
+
+        int padding = getPaddingSize(data.length);
+
+        access.write(newEntryHeader(name, data.length + padding));
+
+        if (padding > 0) {
+            access.write(ZERO_BYTES, 0, padding);
+        }
+
+        access.write(data);
+        length = access.getFilePointer();
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Flushes the entries that have so far been written to the disk.
+     * This method is <em>not</em> synchronized to allow concurrent reads
+     * and writes to proceed while the file is being flushed. However,
+     * this method <em>is</em> carefully synchronized with {@link #close()}
+     * to prevent accidental flushing of an already closed file.
+     *
+     * @throws IOException if the tar file could not be flushed
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (file) {
+            FileDescriptor descriptor = null;
+
+            synchronized (this) {
+                if (access != null && !closed) {
+                    descriptor = access.getFD();
+                }
+            }
+
+            if (descriptor != null) {
+                descriptor.sync();
+            }
+        }
+    }
+
+    /**
+     * Completes the tar file by adding the index and the trailing two zero
+     * blocks.
+     *
+     * @throws IOException if the tar file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        // Mark this writer as closed. Note that we only need to synchronize
+        // this part, as no other synchronized methods should get invoked
+        // once close() has been initiated (see related checkState calls).
+        synchronized (this) {
+            checkState(!closed);
+            closed = true;
+        }
+
+        // If nothing was written to this file, then we're already done.
+        if (access == null) {
+            return;
+        }
+
+        // This code is synchronized on the file instance to  ensure that no
+        // concurrent thread is still flushing the file when we close the
+        // file handle.
+        synchronized (file) {
+            writeIndex();
+            access.write(ZERO_BYTES);
+            access.write(ZERO_BYTES);
+            length = access.getFilePointer();
+            access.close();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        int indexSize = index.size() * TarEntry.SIZE + 16;
+        int padding = getPaddingSize(indexSize);
+
+        String indexName = file.getName() + ".idx";
+        byte[] header = newEntryHeader(indexName, indexSize + padding);
+
+        ByteBuffer buffer = ByteBuffer.allocate(indexSize);
+        TarEntry[] sorted = index.values().toArray(new TarEntry[index.size()]);
+        Arrays.sort(sorted, TarEntry.IDENTIFIER_ORDER);
+        for (TarEntry entry : sorted) {
+            buffer.putLong(entry.msb());
+            buffer.putLong(entry.lsb());
+            buffer.putInt(entry.offset());
+            buffer.putInt(entry.size());
+            buffer.putInt(entry.generation());
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.putInt(index.size());
+        buffer.putInt(padding + indexSize);
+        buffer.putInt(INDEX_MAGIC);
+
+        access.write(header);
+        if (padding > 0) {
+            // padding comes *before* the index!
+            access.write(ZERO_BYTES, 0, padding);
+        }
+        access.write(buffer.array());
+    }
+
+    private static byte[] newEntryHeader(String name, int size) {
+        byte[] header = new byte[BLOCK_SIZE];
+
+        // File name
+        byte[] nameBytes = name.getBytes(UTF_8);
+        System.arraycopy(
+                nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+
+        // File mode
+        System.arraycopy(
+                String.format("%07o", 0400).getBytes(UTF_8), 0,
+                header, 100, 7);
+
+        // User's numeric user ID
+        System.arraycopy(
+                String.format("%07o", 0).getBytes(UTF_8), 0,
+                header, 108, 7);
+
+        // Group's numeric user ID
+        System.arraycopy(
+                String.format("%07o", 0).getBytes(UTF_8), 0,
+                header, 116, 7);
+
+        // File size in bytes (octal basis)
+        System.arraycopy(
+                String.format("%011o", size).getBytes(UTF_8), 0,
+                header, 124, 11);
+
+        // Last modification time in numeric Unix time format (octal)
+        long time = System.currentTimeMillis() / 1000;
+        System.arraycopy(
+                String.format("%011o", time).getBytes(UTF_8), 0,
+                header, 136, 11);
+
+        // Checksum for header record
+        System.arraycopy(
+                new byte[] {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}, 0,
+                header, 148, 8);
+
+        // Type flag
+        header[156] = '0';
+
+        // Compute checksum
+        int checksum = 0;
+        for (byte aHeader : header) {
+            checksum += aHeader & 0xff;
+        }
+        System.arraycopy(
+                String.format("%06o\0 ", checksum).getBytes(UTF_8), 0,
+                header, 148, 8);
+
+        return header;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    //------------------------------------------------------------< Object >--
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+}
@@ -20,21 +20,23 @@ package org.apache.jackrabbit.oak.segment.file;
 
 import java.util.Comparator;
 
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveEntry;
+
 /**
  * A file entry location in a tar file. This is used for the index with a tar
  * file.
  */
-class TarEntry {
+class TarEntry implements SegmentArchiveEntry {
 
     /** Size in bytes a tar entry takes up in the tar file */
     static final int SIZE = 28;
 
-    static final Comparator<TarEntry> OFFSET_ORDER = new Comparator<TarEntry>() {
+    static final Comparator<SegmentArchiveEntry> OFFSET_ORDER = new Comparator<SegmentArchiveEntry>() {
         @Override
-        public int compare(TarEntry a, TarEntry b) {
-            if (a.offset > b.offset) {
+        public int compare(SegmentArchiveEntry a, SegmentArchiveEntry b) {
+            if (a.getPosition() > b.getPosition()) {
                 return 1;
-            } else if (a.offset < b.offset) {
+            } else if (a.getPosition() < b.getPosition()) {
                 return -1;
             } else {
                 return 0;
@@ -97,4 +99,29 @@ class TarEntry {
         return generation;
     }
 
+    @Override
+    public long getMsb() {
+        return msb;
+    }
+
+    @Override
+    public long getLsb() {
+        return lsb;
+    }
+
+    @Override
+    public int getPosition() {
+        return offset;
+    }
+
+    @Override
+    public int getLength() {
+        return size;
+    }
+
+    @Override
+    public int getGeneration() {
+        return generation;
+    }
+
 }
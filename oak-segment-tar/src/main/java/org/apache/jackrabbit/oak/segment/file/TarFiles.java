@@ -23,10 +23,8 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newHashSet;
-import static org.apache.commons.io.FileUtils.listFiles;
 
 import java.io.Closeable;
-import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -50,6 +48,9 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
 import org.apache.jackrabbit.oak.plugins.blob.ReferenceCollector;
 import org.apache.jackrabbit.oak.segment.SegmentGraph.SegmentGraphVisitor;
+import org.apache.jackrabbit.oak.segment.SegmentId;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,7 +75,7 @@ class TarFiles implements Closeable {
 
         private long reclaimedSize;
 
-        private List<File> removableFiles;
+        private List<String> removableFiles;
 
         private Set<UUID> reclaimedSegmentIds;
 
@@ -86,7 +87,7 @@ class TarFiles implements Closeable {
             return reclaimedSize;
         }
 
-        List<File> getRemovableFiles() {
+        List<String> getRemovableFiles() {
             return removableFiles;
         }
 
@@ -102,7 +103,7 @@ class TarFiles implements Closeable {
 
     static class Builder {
 
-        private File directory;
+        private SegmentNodeStorePersistence persistence;
 
         private boolean memoryMapping;
 
@@ -116,12 +117,14 @@ class TarFiles implements Closeable {
 
         private boolean readOnly;
 
+        private boolean segmentCompression;
+
         private Builder() {
             // Prevent external instantiation.
         }
 
-        Builder withDirectory(File directory) {
-            this.directory = checkNotNull(directory);
+        Builder withPersistence(SegmentNodeStorePersistence persistence) {
+            this.persistence = checkNotNull(persistence);
             return this;
         }
 
@@ -156,8 +159,13 @@ class TarFiles implements Closeable {
             return this;
         }
 
+        Builder withSegmentCompression(boolean segmentCompression) {
+            this.segmentCompression = segmentCompression;
+            return this;
+        }
+
         public TarFiles build() throws IOException {
-            checkState(directory != null, "Directory not specified");
+            checkState(persistence != null, "Persistence not specified");
             checkState(tarRecovery != null, "TAR recovery strategy not specified");
             checkState(ioMonitor != null, "I/O monitor not specified");
             checkState(readOnly || fileStoreStats != null, "File store statistics not specified");
@@ -215,13 +223,13 @@ class TarFiles implements Closeable {
         };
     }
 
-    private static Map<Integer, Map<Character, File>> collectFiles(File directory) {
-        Map<Integer, Map<Character, File>> dataFiles = newHashMap();
-        for (File file : listFiles(directory, null, false)) {
-            Matcher matcher = FILE_NAME_PATTERN.matcher(file.getName());
+    private static Map<Integer, Map<Character, String>> collectFiles(SegmentArchiveManager archiveManager) throws IOException {
+        Map<Integer, Map<Character, String>> dataFiles = newHashMap();
+        for (String file : archiveManager.listArchives()) {
+            Matcher matcher = FILE_NAME_PATTERN.matcher(file);
             if (matcher.matches()) {
                 Integer index = Integer.parseInt(matcher.group(2));
-                Map<Character, File> files = dataFiles.get(index);
+                Map<Character, String> files = dataFiles.get(index);
                 if (files == null) {
                     files = newHashMap();
                     dataFiles.put(index, files);
@@ -256,10 +264,18 @@ class TarFiles implements Closeable {
 
     private final long maxFileSize;
 
-    private final boolean memoryMapping;
+    private final SegmentArchiveManager archiveManager;
 
     private final IOMonitor ioMonitor;
 
+    private final FileStoreMonitor fileStoreMonitor;
+
+    /**
+     * If {@code true}, data segments are compressed before being written.
+     * Compressed segments are always read, independently of this flag.
+     */
+    private final boolean segmentCompression;
+
     /**
      * Guards access to the {@link #readers} and {@link #writer} references.
      */
@@ -286,15 +302,17 @@ class TarFiles implements Closeable {
     /**
      * If {@code true}, a user requested this instance to close. This flag is
      * used in long running, background operations - like {@link
-     * #cleanup(Supplier, Predicate)} - to be responsive to termination.
+     * #cleanup(Supplier, Predicate, Predicate)} - to be responsive to termination.
      */
     private volatile boolean shutdown;
 
     private TarFiles(Builder builder) throws IOException {
         maxFileSize = builder.maxFileSize;
-        memoryMapping = builder.memoryMapping;
         ioMonitor = builder.ioMonitor;
-        Map<Integer, Map<Character, File>> map = collectFiles(builder.directory);
+        fileStoreMonitor = builder.readOnly ? FileStoreMonitor.DEFAULT : builder.fileStoreStats;
+        segmentCompression = builder.segmentCompression;
+        archiveManager = builder.persistence.createArchiveManager(builder.memoryMapping, builder.ioMonitor);
+        Map<Integer, Map<Character, String>> map = collectFiles(archiveManager);
         Integer[] indices = map.keySet().toArray(new Integer[map.size()]);
         Arrays.sort(indices);
 
@@ -306,9 +324,9 @@ class TarFiles implements Closeable {
         for (Integer index : indices) {
             TarReader r;
             if (builder.readOnly) {
-                r = TarReader.openRO(map.get(index), memoryMapping, true, builder.tarRecovery, ioMonitor);
+                r = TarReader.openRO(map.get(index), true, builder.tarRecovery, archiveManager);
             } else {
-                r = TarReader.open(map.get(index), memoryMapping, builder.tarRecovery, ioMonitor);
+                r = TarReader.open(map.get(index), builder.tarRecovery, archiveManager);
             }
             readers = new Node(r, readers);
         }
@@ -319,7 +337,7 @@ class TarFiles implements Closeable {
         if (indices.length > 0) {
             writeNumber = indices[indices.length - 1] + 1;
         }
-        writer = new TarWriter(builder.directory, builder.fileStoreStats, writeNumber, builder.ioMonitor);
+        writer = new TarWriter(archiveManager, builder.fileStoreStats, writeNumber);
     }
 
     @Override
@@ -359,6 +377,20 @@ class TarFiles implements Closeable {
             }
         }
 
+        // Persist caches maintained by the archive manager, unless this
+        // instance is read only
+        if (w != null && archiveManager instanceof Closeable) {
+            try {
+                ((Closeable) archiveManager).close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+
         if (exception != null) {
             throw exception;
         }
@@ -456,7 +488,7 @@ class TarFiles implements Closeable {
                 if (writer != null) {
                     ByteBuffer b = writer.readEntry(msb, lsb);
                     if (b != null) {
-                        return b;
+                        return decompress(msb, lsb, b);
                     }
                 }
                 head = readers;
@@ -467,7 +499,7 @@ class TarFiles implements Closeable {
             for (TarReader reader : iterable(head)) {
                 ByteBuffer b = reader.readEntry(msb, lsb);
                 if (b != null) {
-                    return b;
+                    return decompress(msb, lsb, b);
                 }
             }
         } catch (IOException e) {
@@ -477,7 +509,32 @@ class TarFiles implements Closeable {
         return null;
     }
 
+    private ByteBuffer decompress(long msb, long lsb, ByteBuffer buffer) throws IOException {
+        if (!SegmentCompression.isCompressed(lsb, buffer)) {
+            return buffer;
+        }
+        int compressedLength = buffer.remaining();
+        long start = System.nanoTime();
+        ByteBuffer segment = SegmentCompression.decompress(lsb, buffer);
+        long elapsed = System.nanoTime() - start;
+        ioMonitor.afterSegmentDecompress(msb, lsb, compressedLength, segment.remaining(), elapsed);
+        fileStoreMonitor.decompressed(compressedLength, segment.remaining(), elapsed);
+        return segment;
+    }
+
     void writeSegment(UUID id, byte[] buffer, int offset, int length, int generation, Set<UUID> references, Set<String> binaryReferences) throws IOException {
+        if (segmentCompression && SegmentId.isDataSegmentId(id.getLeastSignificantBits())) {
+            byte[] compressed = SegmentCompression.compress(id.getLeastSignificantBits(), buffer, offset, length);
+            if (compressed != null) {
+                fileStoreMonitor.compressed(length, compressed.length);
+                buffer = compressed;
+                offset = 0;
+                length = compressed.length;
+            } else {
+                fileStoreMonitor.compressed(length, length);
+            }
+        }
+
         lock.writeLock().lock();
         try {
             long size = writer.writeEntry(
@@ -521,11 +578,12 @@ class TarFiles implements Closeable {
         if (newWriter == writer) {
             return;
         }
-        readers = new Node(TarReader.open(writer.getFile(), memoryMapping, ioMonitor), readers);
+        readers = new Node(TarReader.open(writer.getFileName(), archiveManager), readers);
         writer = newWriter;
     }
 
-    CleanupResult cleanup(Supplier<Set<UUID>> referencesSupplier, Predicate<Integer> reclaimPredicate) throws IOException {
+    CleanupResult cleanup(Supplier<Set<UUID>> referencesSupplier, Predicate<Integer> reclaimPredicate,
+                          Predicate<Integer> compactedPredicate) throws IOException {
         CleanupResult result = new CleanupResult();
         result.removableFiles = new ArrayList<>();
         result.reclaimedSegmentIds = new HashSet<>();
@@ -561,7 +619,7 @@ class TarFiles implements Closeable {
                 result.interrupted = true;
                 return result;
             }
-            reader.mark(references, reclaim, reclaimPredicate);
+            reader.mark(references, reclaim, reclaimPredicate, compactedPredicate);
         }
 
         for (TarReader reader : cleaned.keySet()) {
@@ -659,7 +717,7 @@ class TarFiles implements Closeable {
             } catch (IOException e) {
                 log.warn("Unable to close swept TAR reader", e);
             }
-            result.removableFiles.add(closeable.getFile());
+            result.removableFiles.add(closeable.getFileName());
         }
 
         return result;
@@ -714,7 +772,7 @@ class TarFiles implements Closeable {
         Map<UUID, List<UUID>> graph = null;
 
         for (TarReader reader : iterable(head)) {
-            if (fileName.equals(reader.getFile().getName())) {
+            if (fileName.equals(reader.getFileName())) {
                 index = reader.getUUIDs();
                 graph = reader.getGraph(false);
                 break;
@@ -733,6 +791,23 @@ class TarFiles implements Closeable {
         return result;
     }
 
+    /**
+     * Close the current TAR writer, if anything was written to it, and start
+     * a new one.
+     *
+     * @return the indices of all TAR readers including the one of the closed
+     * TAR writer.
+     */
+    Map<String, Set<UUID>> seal() throws IOException {
+        lock.writeLock().lock();
+        try {
+            newWriter();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return getIndices();
+    }
+
     Map<String, Set<UUID>> getIndices() {
         Node head;
 
@@ -745,11 +820,19 @@ class TarFiles implements Closeable {
 
         Map<String, Set<UUID>> index = new HashMap<>();
         for (TarReader reader : iterable(head)) {
-            index.put(reader.getFile().getAbsolutePath(), reader.getUUIDs());
+            index.put(reader.getFileName(), reader.getUUIDs());
         }
         return index;
     }
 
+    /**
+     * Creates a {@link FileReaper} removing archives through the same
+     * {@link SegmentArchiveManager} used by this instance.
+     */
+    FileReaper createFileReaper() {
+        return new FileReaper(archiveManager);
+    }
+
     void traverseSegmentGraph(Set<UUID> roots, SegmentGraphVisitor visitor) throws IOException {
         Node head;
 
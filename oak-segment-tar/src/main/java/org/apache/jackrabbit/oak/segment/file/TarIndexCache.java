@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sidecar file caching the index and the graph of all tar files of a
+ * segment store. Opening a tar file otherwise needs to read and validate its
+ * index and, during cleanup, its graph, which is slow for repositories with
+ * many tar files. The sidecar is read into memory once and the cached buffers
+ * are handed out to {@link SegmentTarReader}s instead. It is not memory
+ * mapped, so that it can be replaced while those buffers are still in use.
+ * <p>
+ * Tar files opened without a matching entry only contribute their index,
+ * which their reader keeps anyway. Their graph is only read from the tar file
+ * when the sidecar is written and is not kept after that.
+ * <p>
+ * An entry is only used if the length and the modification time of its tar
+ * file did not change since the entry was written. Tar files without a
+ * matching entry are read as usual. The whole sidecar is ignored if its
+ * checksum doesn't match.
+ * <p>
+ * The sidecar has the following format:
+ * <pre>
+ * magic (int), version (int), entry count (int)
+ * for each entry:
+ *     name length (int), name (UTF-8), tar file length (long),
+ *     tar file modification time (long), index size (int), index,
+ *     graph size (int, -1 if no graph), graph
+ * CRC32 of all preceding bytes (long)
+ * </pre>
+ */
+class TarIndexCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TarIndexCache.class);
+
+    static final String FILE_NAME = "tarindex.cache";
+
+    private static final int MAGIC = 0x0A544943; // '\n' 'T' 'I' 'C'
+
+    private static final int VERSION = 1;
+
+    static class Entry {
+
+        private final long length;
+
+        private final long lastModified;
+
+        @Nonnull
+        private final ByteBuffer index;
+
+        @CheckForNull
+        private final ByteBuffer graph;
+
+        /**
+         * Whether {@link #graph} is known. If not, the graph still has to be
+         * read from the tar file before writing this entry.
+         */
+        private final boolean hasGraph;
+
+        Entry(long length, long lastModified, @Nonnull ByteBuffer index, @CheckForNull ByteBuffer graph, boolean hasGraph) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.index = index;
+            this.graph = graph;
+            this.hasGraph = hasGraph;
+        }
+
+        private boolean matches(File file) {
+            return file.length() == length && file.lastModified() == lastModified;
+        }
+
+        @Nonnull
+        ByteBuffer getIndex() {
+            return index.duplicate();
+        }
+
+        @CheckForNull
+        ByteBuffer getGraph() {
+            return graph == null ? null : graph.duplicate();
+        }
+
+    }
+
+    @Nonnull
+    private final File directory;
+
+    /**
+     * Entries read from the sidecar or added for tar files opened since.
+     */
+    private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+
+    private TarIndexCache(@Nonnull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Load the sidecar from the given directory.
+     *
+     * @param directory the directory of the segment store.
+     * @return the cached entries. This is empty if the sidecar doesn't exist
+     * or is not valid.
+     */
+    @Nonnull
+    static TarIndexCache load(@Nonnull File directory) {
+        TarIndexCache cache = new TarIndexCache(directory);
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) {
+            return cache;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (cache.read(buffer)) {
+                log.debug("Loaded {} entries from the tar index cache {}", cache.entries.size(), file);
+            } else {
+                log.info("Ignoring invalid tar index cache {}", file);
+                cache.entries.clear();
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.info("Ignoring unreadable tar index cache {}", file, e);
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    private boolean read(ByteBuffer buffer) {
+        if (buffer.remaining() < 20) {
+            return false;
+        }
+
+        ByteBuffer content = buffer.duplicate();
+        content.limit(content.limit() - 8);
+        CRC32 checksum = new CRC32();
+        checksum.update(content.duplicate());
+        if (buffer.getLong(buffer.limit() - 8) != checksum.getValue()) {
+            return false;
+        }
+
+        if (content.getInt() != MAGIC || content.getInt() != VERSION) {
+            return false;
+        }
+
+        int count = content.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[content.getInt()];
+            content.get(name);
+            long length = content.getLong();
+            long lastModified = content.getLong();
+            ByteBuffer index = slice(content, content.getInt());
+            int graphSize = content.getInt();
+            ByteBuffer graph = graphSize < 0 ? null : slice(content, graphSize);
+            entries.put(new String(name, UTF_8), new Entry(length, lastModified, index, graph, true));
+        }
+        return !content.hasRemaining();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int size) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(size);
+        buffer.position(buffer.position() + size);
+        return slice.asReadOnlyBuffer();
+    }
+
+    /**
+     * @param file a tar file.
+     * @return the cached entry for {@code file} or {@code null} if there is
+     * none or if it is stale.
+     */
+    @CheckForNull
+    Entry get(@Nonnull File file) {
+        Entry entry = entries.get(file.getName());
+        if (entry != null && entry.matches(file)) {
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the index of a tar file. Its graph is read when the sidecar is
+     * written.
+     */
+    void put(@Nonnull File file, @Nonnull ByteBuffer index) {
+        entries.put(file.getName(), new Entry(file.length(), file.lastModified(), index, null, false));
+    }
+
+    /**
+     * Remove the entry of a tar file that is removed or replaced.
+     */
+    void remove(@Nonnull String name) {
+        entries.remove(name);
+    }
+
+    /**
+     * Write the entries of all tar files still matching their entry to the
+     * sidecar. The sidecar is replaced atomically. Graphs not read yet are
+     * read from their tar files one at a time and not kept afterwards.
+     *
+     * @throws IOException if the sidecar could not be written.
+     */
+    void save() throws IOException {
+        File file = new File(directory, FILE_NAME);
+        File temp = new File(directory, FILE_NAME + ".tmp");
+        int count = 0;
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(out), new CRC32());
+            DataOutputStream data = new DataOutputStream(checked);
+
+            Map<String, Entry> valid = Maps.newLinkedHashMap();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().matches(new File(directory, e.getKey()))) {
+                    valid.put(e.getKey(), e.getValue());
+                }
+            }
+
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(valid.size());
+            for (Map.Entry<String, Entry> e : valid.entrySet()) {
+                byte[] name = e.getKey().getBytes(UTF_8);
+                data.writeInt(name.length);
+                data.write(name);
+                data.writeLong(e.getValue().length);
+                data.writeLong(e.getValue().lastModified);
+                write(data, e.getValue().getIndex());
+                ByteBuffer graph = e.getValue().hasGraph
+                        ? e.getValue().getGraph()
+                        : readGraph(new File(directory, e.getKey()), e.getValue());
+                if (graph == null) {
+                    data.writeInt(-1);
+                } else {
+                    write(data, graph);
+                }
+                count++;
+            }
+            data.flush();
+            data.writeLong(checked.getChecksum().getValue());
+            data.flush();
+        }
+        Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        log.debug("Saved {} entries to the tar index cache {}", count, file);
+    }
+
+    /**
+     * Read the graph of a tar file whose index is already known.
+     *
+     * @return the graph or {@code null} if the tar file doesn't have one or
+     * it could not be read.
+     */
+    @CheckForNull
+    private static ByteBuffer readGraph(File file, Entry entry) {
+        try {
+            SegmentTarReader reader = SegmentTarReader.open(file, false, new IOMonitorAdapter(), entry);
+            try {
+                return reader.getGraph();
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            log.info("Unable to read the graph of tar file {}", file, e);
+            return null;
+        }
+    }
+
+    private static void write(DataOutputStream out, ByteBuffer buffer) throws IOException {
+        out.writeInt(buffer.remaining());
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        out.write(bytes);
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Collection;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.ManifestFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.RepositoryLock;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
+
+/**
+ * The default {@link SegmentNodeStorePersistence}, which stores the segments
+ * in tar files and the journals, the manifest and the lock in regular files of
+ * a local directory.
+ */
+public class TarPersistence implements SegmentNodeStorePersistence {
+
+    private static final String MANIFEST_FILE_NAME = "manifest";
+
+    private static final String LOCK_FILE_NAME = "repo.lock";
+
+    @Nonnull
+    private final File directory;
+
+    public TarPersistence(@Nonnull File directory) {
+        this.directory = checkNotNull(directory);
+    }
+
+    @Nonnull
+    @Override
+    public SegmentArchiveManager createArchiveManager(boolean memoryMapping, @Nonnull IOMonitor ioMonitor) {
+        return new SegmentTarManager(directory, memoryMapping, ioMonitor);
+    }
+
+    @Override
+    public boolean segmentFilesExist() {
+        Collection<File> entries = FileUtils.listFiles(directory, new String[] {"tar"}, false);
+        return !entries.isEmpty();
+    }
+
+    @Nonnull
+    @Override
+    public JournalFile getJournalFile() {
+        return new LocalJournalFile(directory, TarRevisions.JOURNAL_FILE_NAME);
+    }
+
+    @Nonnull
+    @Override
+    public GCJournalFile getGCJournalFile() {
+        return new LocalGCJournalFile(directory, GCJournal.GC_JOURNAL);
+    }
+
+    @Nonnull
+    @Override
+    public ManifestFile getManifestFile() {
+        return new LocalManifestFile(directory, MANIFEST_FILE_NAME);
+    }
+
+    @Nonnull
+    @Override
+    public RepositoryLock lockRepository() throws IOException {
+        final RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE_NAME), "rw");
+        final FileLock lock;
+        try {
+            lock = lockFile.getChannel().lock();
+        } catch (OverlappingFileLockException ex) {
+            lockFile.close();
+            throw new IllegalStateException(directory.getAbsolutePath()
+                    + " is in use by another store.", ex);
+        }
+        return new RepositoryLock() {
+
+            @Override
+            public void unlock() throws IOException {
+                try {
+                    lock.release();
+                } finally {
+                    lockFile.close();
+                }
+            }
+
+        };
+    }
+
+}
@@ -18,7 +18,6 @@
  */
 package org.apache.jackrabbit.oak.segment.file;
 
-import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
@@ -27,18 +26,14 @@ import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.google.common.collect.Maps.newTreeMap;
 import static com.google.common.collect.Sets.newHashSet;
 import static com.google.common.collect.Sets.newHashSetWithExpectedSize;
-import static java.nio.ByteBuffer.wrap;
 import static java.util.Collections.singletonList;
 import static org.apache.jackrabbit.oak.segment.SegmentId.isDataSegmentId;
-import static org.apache.jackrabbit.oak.segment.file.TarWriter.BINARY_REFERENCES_MAGIC;
-import static org.apache.jackrabbit.oak.segment.file.TarWriter.GRAPH_MAGIC;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -47,21 +42,19 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.CRC32;
 
 import javax.annotation.Nonnull;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Predicate;
-import com.google.common.base.Stopwatch;
 import com.google.common.collect.Sets;
-import org.apache.commons.io.FileUtils;
 import org.apache.jackrabbit.oak.plugins.blob.ReferenceCollector;
+import org.apache.jackrabbit.oak.segment.Segment;
 import org.apache.jackrabbit.oak.segment.SegmentGraph.SegmentGraphVisitor;
 import org.apache.jackrabbit.oak.segment.SegmentId;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveEntry;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,26 +63,24 @@ class TarReader implements Closeable {
     /** Logger instance */
     private static final Logger log = LoggerFactory.getLogger(TarReader.class);
 
-    /** Magic byte sequence at the end of the index block. */
-    private static final int INDEX_MAGIC = TarWriter.INDEX_MAGIC;
-
     /**
-     * Pattern of the segment entry names. Note the trailing (\\..*)? group
-     * that's included for compatibility with possible future extensions.
+     * Number of bytes of a segment header to read for determining whether
+     * the segment has been written by compaction.
      */
-    private static final Pattern NAME_PATTERN = Pattern.compile(
-            "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})"
-            + "(\\.([0-9a-f]{8}))?(\\..*)?");
+    private static final int COMPACTED_HEADER_SIZE = 16;
 
-    /** The tar file block size. */
-    private static final int BLOCK_SIZE = TarWriter.BLOCK_SIZE;
+    /**
+     * Number of bytes of a compressed entry to read for inflating the
+     * header of the segment.
+     */
+    private static final int COMPRESSED_PREFIX_SIZE = 4096;
 
-    static int getEntrySize(int size) {
-        return BLOCK_SIZE + size + TarWriter.getPaddingSize(size);
+    static TarReader open(File file, boolean memoryMapping, IOMonitor ioMonitor) throws IOException {
+        return open(file.getName(), new SegmentTarManager(file.getParentFile(), memoryMapping, ioMonitor));
     }
 
-    static TarReader open(File file, boolean memoryMapping, IOMonitor ioMonitor) throws IOException {
-        TarReader reader = openFirstFileWithValidIndex(singletonList(file), memoryMapping, ioMonitor);
+    static TarReader open(String file, SegmentArchiveManager archiveManager) throws IOException {
+        TarReader reader = openFirstFileWithValidIndex(singletonList(file), archiveManager);
         if (reader != null) {
             return reader;
         } else {
@@ -108,18 +99,19 @@ class TarReader implements Closeable {
      * existing tar generations.
      *
      * @param files
-     * @param memoryMapping
+     * @param recovery
+     * @param archiveManager
      * @return
      * @throws IOException
      */
-    static TarReader open(Map<Character, File> files, boolean memoryMapping, TarRecovery recovery, IOMonitor ioMonitor) throws IOException {
-        SortedMap<Character, File> sorted = newTreeMap();
+    static TarReader open(Map<Character, String> files, TarRecovery recovery, SegmentArchiveManager archiveManager) throws IOException {
+        SortedMap<Character, String> sorted = newTreeMap();
         sorted.putAll(files);
 
-        List<File> list = newArrayList(sorted.values());
+        List<String> list = newArrayList(sorted.values());
         Collections.reverse(list);
 
-        TarReader reader = openFirstFileWithValidIndex(list, memoryMapping, ioMonitor);
+        TarReader reader = openFirstFileWithValidIndex(list, archiveManager);
         if (reader != null) {
             return reader;
         }
@@ -127,15 +119,15 @@ class TarReader implements Closeable {
         // no generation has a valid index, so recover as much as we can
         log.warn("Could not find a valid tar index in {}, recovering...", list);
         LinkedHashMap<UUID, byte[]> entries = newLinkedHashMap();
-        for (File file : sorted.values()) {
-            collectFileEntries(file, entries, true);
+        for (String file : sorted.values()) {
+            collectFileEntries(file, entries, true, archiveManager);
         }
 
         // regenerate the first generation based on the recovered data
-        File file = sorted.values().iterator().next();
-        generateTarFile(entries, file, recovery, ioMonitor);
+        String file = sorted.values().iterator().next();
+        generateTarFile(entries, file, recovery, archiveManager);
 
-        reader = openFirstFileWithValidIndex(singletonList(file), memoryMapping, ioMonitor);
+        reader = openFirstFileWithValidIndex(singletonList(file), archiveManager);
         if (reader != null) {
             return reader;
         } else {
@@ -143,12 +135,12 @@ class TarReader implements Closeable {
         }
     }
 
-    static TarReader openRO(Map<Character, File> files, boolean memoryMapping, boolean recover, TarRecovery recovery, IOMonitor ioMonitor) throws IOException {
+    static TarReader openRO(Map<Character, String> files, boolean recover, TarRecovery recovery, SegmentArchiveManager archiveManager) throws IOException {
         // for readonly store only try the latest generation of a given
         // tar file to prevent any rollback or rewrite
-        File file = files.get(Collections.max(files.keySet()));
+        String file = files.get(Collections.max(files.keySet()));
 
-        TarReader reader = openFirstFileWithValidIndex(singletonList(file), memoryMapping, ioMonitor);
+        TarReader reader = openFirstFileWithValidIndex(singletonList(file), archiveManager);
         if (reader != null) {
             return reader;
         }
@@ -159,10 +151,10 @@ class TarReader implements Closeable {
             // collecting the entries (without touching the original file) and
             // writing them into an artificial tar file '.ro.bak'
             LinkedHashMap<UUID, byte[]> entries = newLinkedHashMap();
-            collectFileEntries(file, entries, false);
-            file = findAvailGen(file, ".ro.bak");
-            generateTarFile(entries, file, recovery, ioMonitor);
-            reader = openFirstFileWithValidIndex(singletonList(file), memoryMapping, ioMonitor);
+            collectFileEntries(file, entries, false, archiveManager);
+            file = findAvailGen(file, ".ro.bak", archiveManager);
+            generateTarFile(entries, file, recovery, archiveManager);
+            reader = openFirstFileWithValidIndex(singletonList(file), archiveManager);
             if (reader != null) {
                 return reader;
             }
@@ -180,23 +172,19 @@ class TarReader implements Closeable {
      * @param backup
      * @throws IOException
      */
-    private static void collectFileEntries(File file,
-            LinkedHashMap<UUID, byte[]> entries, boolean backup)
+    private static void collectFileEntries(String file,
+            LinkedHashMap<UUID, byte[]> entries, boolean backup,
+            SegmentArchiveManager archiveManager)
             throws IOException {
         log.info("Recovering segments from tar file {}", file);
         try {
-            RandomAccessFile access = new RandomAccessFile(file, "r");
-            try {
-                recoverEntries(file, access, entries);
-            } finally {
-                access.close();
-            }
+            archiveManager.recoverEntries(file, entries);
         } catch (IOException e) {
             log.warn("Could not read tar file {}, skipping...", file, e);
         }
 
         if (backup) {
-            backupSafely(file);
+            backupSafely(file, archiveManager);
         }
     }
 
@@ -207,13 +195,15 @@ class TarReader implements Closeable {
      * @param file
      * @throws IOException
      */
-    private static void generateTarFile(LinkedHashMap<UUID, byte[]> entries, File file, TarRecovery recovery, IOMonitor ioMonitor) throws IOException {
+    private static void generateTarFile(LinkedHashMap<UUID, byte[]> entries, String file, TarRecovery recovery, SegmentArchiveManager archiveManager) throws IOException {
         log.info("Regenerating tar file {}", file);
 
-        try (TarWriter writer = new TarWriter(file, ioMonitor)) {
+        try (TarWriter writer = new TarWriter(archiveManager, file)) {
             for (Entry<UUID, byte[]> entry : entries.entrySet()) {
                 try {
-                    recovery.recoverEntry(entry.getKey(), entry.getValue(), writer);
+                    UUID id = entry.getKey();
+                    byte[] data = SegmentCompression.decompress(id.getLeastSignificantBits(), entry.getValue());
+                    recovery.recoverEntry(id, data, writer);
                 } catch (IOException e) {
                     throw new IOException(String.format("Unable to recover entry %s for file %s", entry.getKey(), file), e);
                 }
@@ -229,13 +219,13 @@ class TarReader implements Closeable {
      * @param file
      * @throws IOException
      */
-    private static void backupSafely(File file) throws IOException {
-        File backup = findAvailGen(file, ".bak");
-        log.info("Backing up {} to {}", file, backup.getName());
-        if (!file.renameTo(backup)) {
+    private static void backupSafely(String file, SegmentArchiveManager archiveManager) throws IOException {
+        String backup = findAvailGen(file, ".bak", archiveManager);
+        log.info("Backing up {} to {}", file, backup);
+        if (!archiveManager.renameTo(file, backup)) {
             log.warn("Renaming failed, so using copy to backup {}", file);
-            FileUtils.copyFile(file, backup);
-            if (!file.delete()) {
+            archiveManager.copyFile(file, backup);
+            if (!archiveManager.delete(file)) {
                 throw new IOException(
                         "Could not remove broken tar file " + file);
             }
@@ -248,64 +238,27 @@ class TarReader implements Closeable {
      * 
      * @param file
      */
-    private static File findAvailGen(File file, String ext) {
-        File parent = file.getParentFile();
-        String name = file.getName();
-        File backup = new File(parent, name + ext);
-        for (int i = 2; backup.exists(); i++) {
-            backup = new File(parent, name + "." + i + ext);
+    private static String findAvailGen(String file, String ext, SegmentArchiveManager archiveManager) {
+        String backup = file + ext;
+        for (int i = 2; archiveManager.exists(backup); i++) {
+            backup = file + "." + i + ext;
         }
         return backup;
     }
 
-    private static TarReader openFirstFileWithValidIndex(List<File> files, boolean memoryMapping, IOMonitor ioMonitor) {
-        for (File file : files) {
-            String name = file.getName();
+    private static TarReader openFirstFileWithValidIndex(List<String> files, SegmentArchiveManager archiveManager) {
+        for (String name : files) {
             try {
-                RandomAccessFile access = new RandomAccessFile(file, "r");
-                try {
-                    ByteBuffer index = loadAndValidateIndex(access, name);
-                    if (index == null) {
-                        log.info("No index found in tar file {}, skipping...", name);
-                    } else {
-                        // found a file with a valid index, drop the others
-                        for (File other : files) {
-                            if (other != file) {
-                                log.info("Removing unused tar file {}", other.getName());
-                                other.delete();
-                            }
+                SegmentArchiveReader reader = archiveManager.open(name);
+                if (reader != null) {
+                    // found a file with a valid index, drop the others
+                    for (String other : files) {
+                        if (!other.equals(name)) {
+                            log.info("Removing unused tar file {}", other);
+                            archiveManager.delete(other);
                         }
-
-                        if (memoryMapping) {
-                            try {
-                                FileAccess mapped = new FileAccess.Mapped(access);
-                                // re-read the index, now with memory mapping
-                                int indexSize = index.remaining();
-                                index = mapped.read(
-                                        mapped.length() - indexSize - 16 - 1024,
-                                        indexSize);
-                                return new TarReader(file, mapped, index, ioMonitor);
-                            } catch (IOException e) {
-                                log.warn("Failed to mmap tar file {}. Falling back to normal file " +
-                                        "IO, which will negatively impact repository performance. " +
-                                        "This problem may have been caused by restrictions on the " +
-                                        "amount of virtual memory available to the JVM. Please make " +
-                                        "sure that a 64-bit JVM is being used and that the process " +
-                                        "has access to unlimited virtual memory (ulimit option -v).",
-                                        name, e);
-                            }
-                        }
-
-                        FileAccess random = new FileAccess.Random(access);
-                        // prevent the finally block from closing the file
-                        // as the returned TarReader will take care of that
-                        access = null;
-                        return new TarReader(file, random, index, ioMonitor);
-                    }
-                } finally {
-                    if (access != null) {
-                        access.close();
                     }
+                    return new TarReader(archiveManager, reader);
                 }
             } catch (IOException e) {
                 log.warn("Could not read tar file {}, skipping...", name, e);
@@ -315,249 +268,32 @@ class TarReader implements Closeable {
         return null;
     }
 
-    /**
-     * Tries to read an existing index from the given tar file. The index is
-     * returned if it is found and looks valid (correct checksum, passes
-     * sanity checks).
-     *
-     * @param file tar file
-     * @param name name of the tar file, for logging purposes
-     * @return tar index, or {@code null} if not found or not valid
-     * @throws IOException if the tar file could not be read
-     */
-    private static ByteBuffer loadAndValidateIndex(
-            RandomAccessFile file, String name)
-            throws IOException {
-        long length = file.length();
-        if (length % BLOCK_SIZE != 0
-                || length < 6 * BLOCK_SIZE
-                || length > Integer.MAX_VALUE) {
-            log.warn("Unexpected size {} of tar file {}", length, name);
-            return null; // unexpected file size
-        }
-
-        // read the index metadata just before the two final zero blocks
-        ByteBuffer meta = ByteBuffer.allocate(16);
-        file.seek(length - 2 * BLOCK_SIZE - 16);
-        file.readFully(meta.array());
-        int crc32 = meta.getInt();
-        int count = meta.getInt();
-        int bytes = meta.getInt();
-        int magic = meta.getInt();
-
-        if (magic != INDEX_MAGIC) {
-            return null; // magic byte mismatch
-        }
-
-        if (count < 1 || bytes < count * TarEntry.SIZE + 16 || bytes % BLOCK_SIZE != 0) {
-            log.warn("Invalid index metadata in tar file {}", name);
-            return null; // impossible entry and/or byte counts
-        }
-
-        // this involves seeking backwards in the file, which might not
-        // perform well, but that's OK since we only do this once per file
-        ByteBuffer index = ByteBuffer.allocate(count * TarEntry.SIZE);
-        file.seek(length - 2 * BLOCK_SIZE - 16 - count * TarEntry.SIZE);
-        file.readFully(index.array());
-        index.mark();
-
-        CRC32 checksum = new CRC32();
-        long limit = length - 2 * BLOCK_SIZE - bytes - BLOCK_SIZE;
-        long lastmsb = Long.MIN_VALUE;
-        long lastlsb = Long.MIN_VALUE;
-        byte[] entry = new byte[TarEntry.SIZE];
-        for (int i = 0; i < count; i++) {
-            index.get(entry);
-            checksum.update(entry);
-
-            ByteBuffer buffer = wrap(entry);
-            long msb   = buffer.getLong();
-            long lsb   = buffer.getLong();
-            int offset = buffer.getInt();
-            int size   = buffer.getInt();
-
-            if (lastmsb > msb || (lastmsb == msb && lastlsb > lsb)) {
-                log.warn("Incorrect index ordering in tar file {}", name);
-                return null;
-            } else if (lastmsb == msb && lastlsb == lsb && i > 0) {
-                log.warn("Duplicate index entry in tar file {}", name);
-                return null;
-            } else if (offset < 0 || offset % BLOCK_SIZE != 0) {
-                log.warn("Invalid index entry offset in tar file {}", name);
-                return null;
-            } else if (size < 1 || offset + size > limit) {
-                log.warn("Invalid index entry size in tar file {}", name);
-                return null;
-            }
-
-            lastmsb = msb;
-            lastlsb = lsb;
-        }
-
-        if (crc32 != (int) checksum.getValue()) {
-            log.warn("Invalid index checksum in tar file {}", name);
-            return null; // checksum mismatch
-        }
-
-        index.reset();
-        return index;
-    }
-
-    /**
-     * Scans through the tar file, looking for all segment entries.
-     *
-     * @throws IOException if the tar file could not be read
-     */
-    private static void recoverEntries(
-            File file, RandomAccessFile access,
-            LinkedHashMap<UUID, byte[]> entries) throws IOException {
-        byte[] header = new byte[BLOCK_SIZE];
-        while (access.getFilePointer() + BLOCK_SIZE <= access.length()) {
-            // read the tar header block
-            access.readFully(header);
-
-            // compute the header checksum
-            int sum = 0;
-            for (int i = 0; i < BLOCK_SIZE; i++) {
-                sum += header[i] & 0xff;
-            }
-
-            // identify possible zero block
-            if (sum == 0 && access.getFilePointer() + 2 * BLOCK_SIZE == access.length()) {
-                return; // found the zero blocks at the end of the file
-            }
-
-            // replace the actual stored checksum with spaces for comparison
-            for (int i = 148; i < 148 + 8; i++) {
-                sum -= header[i] & 0xff;
-                sum += ' ';
-            }
-
-            byte[] checkbytes = String.format("%06o\0 ", sum).getBytes(UTF_8);
-            for (int i = 0; i < checkbytes.length; i++) {
-                if (checkbytes[i] != header[148 + i]) {
-                    log.warn("Invalid entry checksum at offset {} in tar file {}, skipping...",
-                             access.getFilePointer() - BLOCK_SIZE, file);
-                }
-            }
-
-            // The header checksum passes, so read the entry name and size
-            ByteBuffer buffer = wrap(header);
-            String name = readString(buffer, 100);
-            buffer.position(124);
-            int size = readNumber(buffer, 12);
-            if (access.getFilePointer() + size > access.length()) {
-                // checksum was correct, so the size field should be accurate
-                log.warn("Partial entry {} in tar file {}, ignoring...", name, file);
-                return;
-            }
-
-            Matcher matcher = NAME_PATTERN.matcher(name);
-            if (matcher.matches()) {
-                UUID id = UUID.fromString(matcher.group(1));
-
-                String checksum = matcher.group(3);
-                if (checksum != null || !entries.containsKey(id)) {
-                    byte[] data = new byte[size];
-                    access.readFully(data);
-
-                    // skip possible padding to stay at block boundaries
-                    long position = access.getFilePointer();
-                    long remainder = position % BLOCK_SIZE;
-                    if (remainder != 0) {
-                        access.seek(position + (BLOCK_SIZE - remainder));
-                    }
-
-                    if (checksum != null) {
-                        CRC32 crc = new CRC32();
-                        crc.update(data);
-                        if (crc.getValue() != Long.parseLong(checksum, 16)) {
-                            log.warn("Checksum mismatch in entry {} of tar file {}, skipping...",
-                                     name, file);
-                            continue;
-                        }
-                    }
-
-                    entries.put(id, data);
-                }
-            } else if (!name.equals(file.getName() + ".idx")) {
-                log.warn("Unexpected entry {} in tar file {}, skipping...",
-                         name, file);
-                long position = access.getFilePointer() + size;
-                long remainder = position % BLOCK_SIZE;
-                if (remainder != 0) {
-                    position += BLOCK_SIZE - remainder;
-                }
-                access.seek(position);
-            }
-        }
-    }
-
-    private final File file;
-
-    private final FileAccess access;
+    private final SegmentArchiveManager archiveManager;
 
-    private final ByteBuffer index;
+    private final SegmentArchiveReader archive;
 
     private volatile boolean closed;
 
-    private volatile boolean hasGraph;
-
-    private final IOMonitor ioMonitor;
-
-    private TarReader(File file, FileAccess access, ByteBuffer index, IOMonitor ioMonitor) {
-        this.file = file;
-        this.access = access;
-        this.index = index;
-        this.ioMonitor = ioMonitor;
+    private TarReader(SegmentArchiveManager archiveManager, SegmentArchiveReader archive) {
+        this.archiveManager = archiveManager;
+        this.archive = archive;
     }
 
     long size() {
-        return file.length();
-    }
-
-    /**
-     * Returns the number of segments in this tar file.
-     *
-     * @return number of segments
-     */
-    int count() {
-        return index.capacity() / TarEntry.SIZE;
-    }
-
-    /**
-     * Iterates over all entries in this tar file and calls
-     * {@link TarEntryVisitor#visit(long, long, File, int, int)} on them.
-     *
-     * @param visitor entry visitor
-     */
-    void accept(TarEntryVisitor visitor) {
-        int position = index.position();
-        while (position < index.limit()) {
-            visitor.visit(
-                    index.getLong(position),
-                    index.getLong(position + 8),
-                    file,
-                    index.getInt(position + 16),
-                    index.getInt(position + 20));
-            position += TarEntry.SIZE;
-        }
+        return archive.length();
     }
 
     Set<UUID> getUUIDs() {
-        Set<UUID> uuids = newHashSetWithExpectedSize(index.remaining() / TarEntry.SIZE);
-        int position = index.position();
-        while (position < index.limit()) {
-            uuids.add(new UUID(
-                    index.getLong(position),
-                    index.getLong(position + 8)));
-            position += TarEntry.SIZE;
+        List<SegmentArchiveEntry> entries = archive.listSegments();
+        Set<UUID> uuids = newHashSetWithExpectedSize(entries.size());
+        for (SegmentArchiveEntry entry : entries) {
+            uuids.add(new UUID(entry.getMsb(), entry.getLsb()));
         }
         return uuids;
     }
 
     boolean containsEntry(long msb, long lsb) {
-        return findEntry(msb, lsb) != -1;
+        return archive.containsSegment(msb, lsb);
     }
 
     /**
@@ -572,87 +308,18 @@ class TarReader implements Closeable {
      * @return the byte buffer, or null if not in this file
      */
     ByteBuffer readEntry(long msb, long lsb) throws IOException {
-        int position = findEntry(msb, lsb);
-        if (position != -1) {
-            int pos = index.getInt(position + 16);
-            int len = index.getInt(position + 20);
-            return readSegment(msb, lsb, pos, len);
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Find the position of the given segment in the tar file.
-     * It uses the tar index if available.
-     * 
-     * @param msb the most significant bits of the segment id
-     * @param lsb the least significant bits of the segment id
-     * @return the position in the file, or -1 if not found
-     */
-    private int findEntry(long msb, long lsb) {
-        // The segment identifiers are randomly generated with uniform
-        // distribution, so we can use interpolation search to find the
-        // matching entry in the index. The average runtime is O(log log n).
-
-        int lowIndex = 0;
-        int highIndex = index.remaining() / TarEntry.SIZE - 1;
-        float lowValue = Long.MIN_VALUE;
-        float highValue = Long.MAX_VALUE;
-        float targetValue = msb;
-
-        while (lowIndex <= highIndex) {
-            int guessIndex = lowIndex + Math.round(
-                    (highIndex - lowIndex)
-                    * (targetValue - lowValue)
-                    / (highValue - lowValue));
-            int position = index.position() + guessIndex * TarEntry.SIZE;
-            long m = index.getLong(position);
-            if (msb < m) {
-                highIndex = guessIndex - 1;
-                highValue = m;
-            } else if (msb > m) {
-                lowIndex = guessIndex + 1;
-                lowValue = m;
-            } else {
-                // getting close...
-                long l = index.getLong(position + 8);
-                if (lsb < l) {
-                    highIndex = guessIndex - 1;
-                    highValue = m;
-                } else if (lsb > l) {
-                    lowIndex = guessIndex + 1;
-                    lowValue = m;
-                } else {
-                    // found it!
-                    return position;
-                }
-            }
-        }
-
-        // not found
-        return -1;
+        return archive.readSegment(msb, lsb);
     }
 
     @Nonnull
-    private TarEntry[] getEntries() {
-        TarEntry[] entries = new TarEntry[index.remaining() / TarEntry.SIZE];
-        int position = index.position();
-        for (int i = 0; position < index.limit(); i++) {
-            entries[i]  = new TarEntry(
-                    index.getLong(position),
-                    index.getLong(position + 8),
-                    index.getInt(position + 16),
-                    index.getInt(position + 20),
-                    index.getInt(position + 24));
-            position += TarEntry.SIZE;
-        }
-        Arrays.sort(entries, TarEntry.OFFSET_ORDER);
-        return entries;
+    private SegmentArchiveEntry[] getEntries() {
+        List<SegmentArchiveEntry> entries = new ArrayList<>(archive.listSegments());
+        Collections.sort(entries, TarEntry.OFFSET_ORDER);
+        return entries.toArray(new SegmentArchiveEntry[entries.size()]);
     }
 
     @Nonnull
-    private static List<UUID> getReferences(TarEntry entry, UUID id, Map<UUID, List<UUID>> graph) {
+    private static List<UUID> getReferences(SegmentArchiveEntry entry, UUID id, Map<UUID, List<UUID>> graph) {
         List<UUID> references = graph.get(id);
 
         if (references == null) {
@@ -675,11 +342,11 @@ class TarReader implements Closeable {
         checkNotNull(visitor);
         Map<UUID, List<UUID>> graph = getGraph(false);
 
-        TarEntry[] entries = getEntries();
+        SegmentArchiveEntry[] entries = getEntries();
         for (int i = entries.length - 1; i >= 0; i--) {
-            TarEntry entry = entries[i];
-            UUID id = new UUID(entry.msb(), entry.lsb());
-            if (roots.remove(id) && isDataSegmentId(entry.lsb())) {
+            SegmentArchiveEntry entry = entries[i];
+            UUID id = new UUID(entry.getMsb(), entry.getLsb());
+            if (roots.remove(id) && isDataSegmentId(entry.getLsb())) {
                 // this is a referenced data segment, so follow the graph
                 for (UUID refId : getReferences(entry, id, graph)) {
                     visitor.accept(id, refId);
@@ -703,12 +370,12 @@ class TarReader implements Closeable {
      */
     void calculateForwardReferences(Set<UUID> referencedIds) throws IOException {
         Map<UUID, List<UUID>> graph = getGraph(false);
-        TarEntry[] entries = getEntries();
+        SegmentArchiveEntry[] entries = getEntries();
         for (int i = entries.length - 1; i >= 0; i--) {
-            TarEntry entry = entries[i];
-            UUID id = new UUID(entry.msb(), entry.lsb());
+            SegmentArchiveEntry entry = entries[i];
+            UUID id = new UUID(entry.getMsb(), entry.getLsb());
             if (referencedIds.remove(id)) {
-                if (isDataSegmentId(entry.lsb())) {
+                if (isDataSegmentId(entry.getLsb())) {
                     referencedIds.addAll(getReferences(entry, id, graph));
                 }
             }
@@ -744,33 +411,36 @@ class TarReader implements Closeable {
     /**
      * Collect reclaimable segments.
      * A data segment is reclaimable iff its generation is in the {@code reclaimGeneration}
-     * predicate.
+     * predicate, unless it has been written by compaction and its generation is in the
+     * {@code compactedGeneration} predicate.
      * A bulk segment is reclaimable if it is not in {@code bulkRefs} or if it is transitively
      * reachable through a non reclaimable data segment.
      *
      * @param bulkRefs  bulk segment gc roots
      * @param reclaim   reclaimable segments
      * @param reclaimGeneration  reclaim generation predicate for data segments
+     * @param compactedGeneration  retain generation predicate for compacted data segments
      * @throws IOException
      */
-    void mark(Set<UUID> bulkRefs, Set<UUID> reclaim, Predicate<Integer> reclaimGeneration)
+    void mark(Set<UUID> bulkRefs, Set<UUID> reclaim, Predicate<Integer> reclaimGeneration,
+              Predicate<Integer> compactedGeneration)
     throws IOException {
         Map<UUID, List<UUID>> graph = getGraph(true);
-        TarEntry[] entries = getEntries();
+        SegmentArchiveEntry[] entries = getEntries();
         for (int i = entries.length - 1; i >= 0; i--) {
             // A bulk segments is *always* written before any data segment referencing it.
             // Backward iteration ensures we see all references to bulk segments before
             // we see the bulk segment itself. Therefore we can remove a bulk reference
             // from the bulkRefs set once we encounter it, which save us some memory and
             // CPU on subsequent look-ups.
-            TarEntry entry = entries[i];
-            UUID id = new UUID(entry.msb(), entry.lsb());
-            if ((!isDataSegmentId(entry.lsb()) && !bulkRefs.remove(id)) ||
-                (isDataSegmentId(entry.lsb()) && reclaimGeneration.apply(entry.generation()))) {
+            SegmentArchiveEntry entry = entries[i];
+            UUID id = new UUID(entry.getMsb(), entry.getLsb());
+            if ((!isDataSegmentId(entry.getLsb()) && !bulkRefs.remove(id)) ||
+                (isDataSegmentId(entry.getLsb()) && isReclaimable(entry, reclaimGeneration, compactedGeneration))) {
                 // non referenced bulk segment or old data segment
                 reclaim.add(id);
             } else {
-                if (isDataSegmentId(entry.lsb())) {
+                if (isDataSegmentId(entry.getLsb())) {
                     for (UUID refId : getReferences(entry, id, graph)) {
                         if (!isDataSegmentId(refId.getLeastSignificantBits())) {
                             // keep the extra check for bulk segments for the case where a
@@ -784,6 +454,42 @@ class TarReader implements Closeable {
         }
     }
 
+    private boolean isReclaimable(SegmentArchiveEntry entry, Predicate<Integer> reclaimGeneration,
+                                  Predicate<Integer> compactedGeneration)
+    throws IOException {
+        int generation = entry.getGeneration();
+        return reclaimGeneration.apply(generation)
+                && !(compactedGeneration.apply(generation) && isCompacted(entry));
+    }
+
+    /**
+     * Determine whether the segment of the given entry has been written by
+     * compaction. Only the first bytes of the entry are read. For a
+     * compressed segment a larger prefix of the entry is read and only its
+     * header is inflated. The whole entry is read only if that prefix is not
+     * sufficient.
+     */
+    private boolean isCompacted(SegmentArchiveEntry entry) throws IOException {
+        long msb = entry.getMsb();
+        long lsb = entry.getLsb();
+        ByteBuffer prefix = archive.readSegmentHeader(msb, lsb, COMPACTED_HEADER_SIZE);
+        if (prefix == null) {
+            return false;
+        }
+        ByteBuffer header = prefix;
+        if (SegmentCompression.isCompressed(lsb, prefix)) {
+            prefix = archive.readSegmentHeader(msb, lsb, COMPRESSED_PREFIX_SIZE);
+            header = prefix != null ? SegmentCompression.decompressHeader(lsb, prefix, COMPACTED_HEADER_SIZE) : null;
+            if (header == null) {
+                ByteBuffer segment = archive.readSegment(msb, lsb);
+                header = segment != null ? SegmentCompression.decompress(lsb, segment) : null;
+            }
+        }
+        return header != null
+                && header.remaining() >= COMPACTED_HEADER_SIZE
+                && Segment.isCompacted(header, new UUID(msb, lsb));
+    }
+
     /**
      * Remove reclaimable segments and collect actually reclaimed segments.
      * @param reclaim       segments to reclaim
@@ -792,7 +498,7 @@ class TarReader implements Closeable {
      * @throws IOException
      */
     TarReader sweep(@Nonnull Set<UUID> reclaim, @Nonnull Set<UUID> reclaimed) throws IOException {
-        String name = file.getName();
+        String name = archive.getName();
         log.debug("Cleaning up {}", name);
 
         Set<UUID> cleaned = newHashSet();
@@ -800,16 +506,16 @@ class TarReader implements Closeable {
         int beforeSize = 0;
         int afterCount = 0;
 
-        TarEntry[] entries = getEntries();
+        SegmentArchiveEntry[] entries = getEntries();
         for (int i = 0; i < entries.length; i++) {
-            TarEntry entry = entries[i];
-            beforeSize += getEntrySize(entry.size());
-            UUID id = new UUID(entry.msb(), entry.lsb());
+            SegmentArchiveEntry entry = entries[i];
+            beforeSize += archive.getEntrySize(entry.getLength());
+            UUID id = new UUID(entry.getMsb(), entry.getLsb());
             if (reclaim.contains(id)) {
                 cleaned.add(id);
                 entries[i] = null;
             } else {
-                afterSize += getEntrySize(entry.size());
+                afterSize += archive.getEntrySize(entry.getLength());
                 afterCount += 1;
             }
         }
@@ -824,7 +530,7 @@ class TarReader implements Closeable {
             // in which case we'll always generate a new tar file with
             // the graph to speed up future garbage collection runs.
             log.debug("Not enough space savings. ({}/{}). Skipping clean up of {}",
-                    access.length() - afterSize, access.length(), name);
+                    archive.length() - afterSize, archive.length(), name);
             return this;
         }
         if (!hasGraph()) {
@@ -838,21 +544,18 @@ class TarReader implements Closeable {
             return this;
         }
 
-        File newFile = new File(
-                file.getParentFile(),
-                name.substring(0, pos) + (char) (generation + 1) + ".tar");
+        String newFile = name.substring(0, pos) + (char) (generation + 1) + ".tar";
 
-        log.debug("Writing new generation {}", newFile.getName());
-        TarWriter writer = new TarWriter(newFile, ioMonitor);
-        for (TarEntry entry : entries) {
+        log.debug("Writing new generation {}", newFile);
+        TarWriter writer = new TarWriter(archiveManager, newFile);
+        for (SegmentArchiveEntry entry : entries) {
             if (entry != null) {
-                long msb = entry.msb();
-                long lsb = entry.lsb();
-                int offset = entry.offset();
-                int size = entry.size();
-                int gen = entry.generation();
+                long msb = entry.getMsb();
+                long lsb = entry.getLsb();
+                int size = entry.getLength();
+                int gen = entry.getGeneration();
                 byte[] data = new byte[size];
-                readSegment(msb, lsb, offset, size).get(data);
+                archive.readSegment(msb, lsb).get(data);
                 writer.writeEntry(msb, lsb, data, 0, size, gen);
             }
         }
@@ -899,12 +602,12 @@ class TarReader implements Closeable {
 
         writer.close();
 
-        TarReader reader = openFirstFileWithValidIndex(singletonList(newFile), access.isMemoryMapped(), ioMonitor);
+        TarReader reader = openFirstFileWithValidIndex(singletonList(newFile), archiveManager);
         if (reader != null) {
             reclaimed.addAll(cleaned);
             return reader;
         } else {
-            log.warn("Failed to open cleaned up tar file {}", file);
+            log.warn("Failed to open cleaned up tar file {}", archive);
             return this;
         }
     }
@@ -920,7 +623,7 @@ class TarReader implements Closeable {
     @Override
     public void close() throws IOException {
         closed = true;
-        access.close();
+        archive.close();
     }
 
     //-----------------------------------------------------------< private >--
@@ -933,7 +636,7 @@ class TarReader implements Closeable {
      * @throws IOException if the tar file could not be read
      */
     Map<UUID, List<UUID>> getGraph(boolean bulkOnly) throws IOException {
-        ByteBuffer graph = loadGraph();
+        ByteBuffer graph = archive.getGraph();
         if (graph == null) {
             return null;
         } else {
@@ -942,40 +645,14 @@ class TarReader implements Closeable {
     }
 
     private boolean hasGraph() {
-        if (!hasGraph) {
-            try {
-                loadGraph();
-            } catch (IOException ignore) { }
-        }
-        return hasGraph;
-    }
-
-    private int getIndexEntrySize() {
-        return getEntrySize(index.remaining() + 16);
-    }
-
-    private int getGraphEntrySize() {
-        ByteBuffer buffer;
-
-        try {
-            buffer = loadGraph();
-        } catch (IOException e) {
-            log.warn("Exception while loading pre-compiled tar graph", e);
-            return 0;
-        }
-
-        if (buffer == null) {
-            return 0;
-        }
-
-        return getEntrySize(buffer.getInt(buffer.limit() - 8));
+        return archive.hasGraph();
     }
 
     Map<Integer, Map<UUID, Set<String>>> getBinaryReferences() {
         ByteBuffer buffer;
 
         try {
-            buffer = loadBinaryReferences();
+            buffer = archive.getBinaryReferences();
         } catch (IOException e) {
             log.warn("Exception while loading binary reference", e);
             return null;
@@ -988,44 +665,6 @@ class TarReader implements Closeable {
         return parseBinaryReferences(buffer);
     }
 
-    private ByteBuffer loadBinaryReferences() throws IOException {
-        int end = access.length() - 2 * BLOCK_SIZE - getIndexEntrySize() - getGraphEntrySize();
-
-        ByteBuffer meta = access.read(end - 16, 16);
-
-        int crc32 = meta.getInt();
-        int count = meta.getInt();
-        int size = meta.getInt();
-        int magic = meta.getInt();
-
-        if (magic != BINARY_REFERENCES_MAGIC) {
-            log.warn("Invalid binary references magic number");
-            return null;
-        }
-
-        if (count < 0 || size < count * 22 + 16) {
-            log.warn("Invalid binary references size or count");
-            return null;
-        }
-
-        ByteBuffer buffer = access.read(end - size, size);
-
-        byte[] data = new byte[size - 16];
-        buffer.mark();
-        buffer.get(data);
-        buffer.reset();
-
-        CRC32 checksum = new CRC32();
-        checksum.update(data);
-
-        if ((int) (checksum.getValue()) != crc32) {
-            log.warn("Invalid binary references checksum");
-            return null;
-        }
-
-        return buffer;
-    }
-
     private static Map<Integer, Map<UUID, Set<String>>> parseBinaryReferences(ByteBuffer buffer) {
         int nGenerations = buffer.getInt(buffer.limit() - 12);
 
@@ -1062,67 +701,6 @@ class TarReader implements Closeable {
         return binaryReferences;
     }
 
-    /**
-     * Loads the optional pre-compiled graph entry from the given tar file.
-     *
-     * @return graph buffer, or {@code null} if one was not found
-     * @throws IOException if the tar file could not be read
-     */
-    private ByteBuffer loadGraph() throws IOException {
-        int pos = access.length() - 2 * BLOCK_SIZE - getIndexEntrySize();
-
-        ByteBuffer meta = access.read(pos - 16, 16);
-
-        int crc32 = meta.getInt();
-        int count = meta.getInt();
-        int bytes = meta.getInt();
-        int magic = meta.getInt();
-
-        if (magic != GRAPH_MAGIC) {
-            log.warn("Invalid graph magic number in {}", file);
-            return null;
-        }
-
-        if (count < 0) {
-            log.warn("Invalid number of entries in {}", file);
-            return null;
-        }
-
-        if (bytes < 4 + count * 34) {
-            log.warn("Invalid entry size in {}", file);
-            return null;
-        }
-
-        ByteBuffer graph = access.read(pos - bytes, bytes);
-
-        byte[] b = new byte[bytes - 16];
-
-        graph.mark();
-        graph.get(b);
-        graph.reset();
-
-        CRC32 checksum = new CRC32();
-        checksum.update(b);
-
-        if (crc32 != (int) checksum.getValue()) {
-            log.warn("Invalid graph checksum in tar file {}", file);
-            return null;
-        }
-
-        hasGraph = true;
-
-        return graph;
-    }
-
-    private ByteBuffer readSegment(long msb, long lsb, int offset, int size) throws IOException {
-        ioMonitor.beforeSegmentRead(file, msb, lsb, size);
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        ByteBuffer buffer = access.read(offset, size);
-        long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
-        ioMonitor.afterSegmentRead(file, msb, lsb, size, elapsed);
-        return buffer;
-    }
-
     private static Map<UUID, List<UUID>> parseGraph(ByteBuffer buffer, boolean bulkOnly) {
         int nEntries = buffer.getInt(buffer.limit() - 12);
 
@@ -1152,40 +730,15 @@ class TarReader implements Closeable {
         return graph;
     }
 
-    private static String readString(ByteBuffer buffer, int fieldSize) {
-        byte[] b = new byte[fieldSize];
-        buffer.get(b);
-        int n = 0;
-        while (n < fieldSize && b[n] != 0) {
-            n++;
-        }
-        return new String(b, 0, n, UTF_8);
-    }
-
-    private static int readNumber(ByteBuffer buffer, int fieldSize) {
-        byte[] b = new byte[fieldSize];
-        buffer.get(b);
-        int number = 0;
-        for (int i = 0; i < fieldSize; i++) {
-            int digit = b[i] & 0xff;
-            if ('0' <= digit && digit <= '7') {
-                number = number * 8 + digit - '0';
-            } else {
-                break;
-            }
-        }
-        return number;
-    }
-
-    File getFile() {
-        return file;
+    String getFileName() {
+        return archive.getName();
     }
 
     //------------------------------------------------------------< Object >--
 
     @Override
     public String toString() {
-        return file.toString();
+        return archive.toString();
     }
 
 }
@@ -30,7 +30,6 @@ import static org.apache.jackrabbit.oak.segment.file.FileStoreUtil.findPersisted
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -48,6 +47,9 @@ import org.apache.jackrabbit.oak.segment.RecordId;
 import org.apache.jackrabbit.oak.segment.Revisions;
 import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
 import org.apache.jackrabbit.oak.segment.SegmentStore;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFileWriter;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,7 +70,7 @@ public class TarRevisions implements Revisions, Closeable {
     public static final String JOURNAL_FILE_NAME = "journal.log";
 
     /**
-     * The lock protecting {@link #journalFile}.
+     * The lock protecting {@link #journalFileWriter}.
      */
     private final Lock journalFileLock = new ReentrantLock();
 
@@ -76,13 +78,13 @@ public class TarRevisions implements Revisions, Closeable {
     private final AtomicReference<RecordId> head;
 
     @Nonnull
-    private final File directory;
+    private final JournalFile journalFile;
 
     /**
-     * The journal file. It is protected by {@link #journalFileLock}. It becomes
-     * {@code null} after it's closed.
+     * The journal file writer. It is protected by {@link #journalFileLock}. It
+     * becomes {@code null} after it's closed.
      */
-    private RandomAccessFile journalFile;
+    private JournalFileWriter journalFileWriter;
 
     /**
      * The persisted head of the root journal, used to determine whether the
@@ -145,10 +147,18 @@ public class TarRevisions implements Revisions, Closeable {
      * @throws IOException
      */
     public TarRevisions(@Nonnull File directory) throws IOException {
-        this.directory = checkNotNull(directory);
-        this.journalFile = new RandomAccessFile(new File(directory,
-                JOURNAL_FILE_NAME), "rw");
-        this.journalFile.seek(journalFile.length());
+        this(new TarPersistence(checkNotNull(directory)));
+    }
+
+    /**
+     * Create a new instance writing the journal to the journal file of the
+     * passed {@code persistence}.
+     * @param persistence   persistence providing the journal file
+     * @throws IOException
+     */
+    public TarRevisions(@Nonnull SegmentNodeStorePersistence persistence) throws IOException {
+        this.journalFile = checkNotNull(persistence).getJournalFile();
+        this.journalFileWriter = journalFile.openJournalWriter();
         this.head = new AtomicReference<>(null);
         this.persistedHead = new AtomicReference<>(null);
     }
@@ -167,7 +177,7 @@ public class TarRevisions implements Revisions, Closeable {
         if (head.get() != null) {
             return;
         }
-        RecordId persistedId = findPersistedRecordId(store, idProvider, new File(directory, JOURNAL_FILE_NAME));
+        RecordId persistedId = findPersistedRecordId(store, idProvider, journalFile);
         if (persistedId == null) {
             head.set(writeInitialNode.get());
         } else {
@@ -195,7 +205,7 @@ public class TarRevisions implements Revisions, Closeable {
         }
         if (journalFileLock.tryLock()) {
             try {
-                if (journalFile == null) {
+                if (journalFileWriter == null) {
                     return;
                 }
                 doFlush(persisted);
@@ -212,8 +222,7 @@ public class TarRevisions implements Revisions, Closeable {
             if (!after.equals(before)) {
                 persisted.call();
                 LOG.debug("TarMK journal update {} -> {}", before, after);
-                journalFile.writeBytes(after.toString10() + " root " + System.currentTimeMillis() + "\n");
-                journalFile.getChannel().force(false);
+                journalFileWriter.writeLine(after.toString10() + " root " + System.currentTimeMillis());
                 persistedHead.set(after);
             }
         } catch (Exception e) {
@@ -229,6 +238,17 @@ public class TarRevisions implements Revisions, Closeable {
         return head.get();
     }
 
+    /**
+     * @return the head state last persisted to the journal by
+     * {@link #flush(Callable)}.
+     */
+    @Nonnull
+    public RecordId getPersistedHead() {
+        checkBound();
+        RecordId persisted = persistedHead.get();
+        return persisted != null ? persisted : head.get();
+    }
+
     /**
      * This implementation blocks if a concurrent call to
      * {@link #setHead(Function, Option...)} is already in
@@ -326,11 +346,11 @@ public class TarRevisions implements Revisions, Closeable {
     public void close() throws IOException {
         journalFileLock.lock();
         try {
-            if (journalFile == null) {
+            if (journalFileWriter == null) {
                 return;
             }
-            journalFile.close();
-            journalFile = null;
+            journalFileWriter.close();
+            journalFileWriter = null;
         } finally {
             journalFileLock.unlock();
         }
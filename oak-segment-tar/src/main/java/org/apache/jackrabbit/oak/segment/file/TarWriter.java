@@ -18,45 +18,35 @@
  */
 package org.apache.jackrabbit.oak.segment.file;
 
-import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndexes;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Maps.newHashMap;
-import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.lang.String.format;
 import static org.apache.jackrabbit.oak.segment.file.FileStore.FILE_NAME_FORMAT;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileDescriptor;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 
 import com.google.common.base.Charsets;
-import com.google.common.base.Stopwatch;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveWriter;
 
 /**
  * A writer for tar files. It is also used to read entries while the file is
- * still open.
+ * still open. The actual storage of the entries is delegated to a {@link
+ * SegmentArchiveWriter} created by a {@link SegmentArchiveManager}.
  */
 class TarWriter implements Closeable {
 
-    /** Logger instance */
-    private static final Logger log = LoggerFactory.getLogger(TarWriter.class);
-
     /**
      * Magic byte sequence at the end of the index block.
      * <p>
@@ -101,8 +91,6 @@ class TarWriter implements Closeable {
     /** The tar file block size. */
     static final int BLOCK_SIZE = 512;
 
-    private static final byte[] ZERO_BYTES = new byte[BLOCK_SIZE];
-
     static final int getPaddingSize(int size) {
         int remainder = size % BLOCK_SIZE;
         if (remainder > 0) {
@@ -114,25 +102,19 @@ class TarWriter implements Closeable {
 
     private final int writeIndex;
 
-    /**
-     * The file being written. This instance is also used as an additional
-     * synchronization point by {@link #flush()} and {@link #close()} to
-     * allow {@link #flush()} to work concurrently with normal reads and
-     * writes, but not with a concurrent {@link #close()}.
-     */
-    private final File file;
+    private final SegmentArchiveManager archiveManager;
+
+    private final String archiveName;
 
     private final FileStoreMonitor monitor;
 
     /**
-     * File handle. Initialized lazily in
+     * The archive being written. Initialized lazily in
      * {@link #writeEntry(long, long, byte[], int, int, int)} to avoid creating
-     * an extra empty file when just reading from the repository.
+     * an extra empty archive when just reading from the repository.
      * Should only be accessed from synchronized code.
      */
-    private RandomAccessFile access = null;
-
-    private FileChannel channel = null;
+    private SegmentArchiveWriter archive;
 
     /**
      * Flag to indicate a closed writer. Accessing a closed writer is illegal.
@@ -140,17 +122,6 @@ class TarWriter implements Closeable {
      */
     private boolean closed = false;
 
-    /**
-     * Map of the entries that have already been written. Used by the
-     * {@link #containsEntry(long, long)} and {@link #readEntry(long, long)}
-     * methods to retrieve data from this file while it's still being written,
-     * and finally by the {@link #close()} method to generate the tar index.
-     * The map is ordered in the order that entries have been written.
-     * <p>
-     * Should only be accessed from synchronized code.
-     */
-    private final Map<UUID, TarEntry> index = newLinkedHashMap();
-
     /**
      * List of binary references contained in this TAR file.
      */
@@ -161,28 +132,34 @@ class TarWriter implements Closeable {
      */
     private final Map<UUID, Set<UUID>> graph = newHashMap();
 
-    private final IOMonitor ioMonitor;
-
     /**
      * Used for maintenance operations (GC or recovery) via the TarReader and tests
      */
-    TarWriter(File file, IOMonitor ioMonitor) {
-        this.file = file;
+    TarWriter(SegmentArchiveManager archiveManager, String archiveName) {
+        this.archiveManager = archiveManager;
+        this.archiveName = archiveName;
         this.monitor = FileStoreMonitor.DEFAULT;
         this.writeIndex = -1;
-        this.ioMonitor = ioMonitor;
     }
 
-    TarWriter(File directory, FileStoreMonitor monitor, int writeIndex, IOMonitor ioMonitor) {
-        this.file = new File(directory, format(FILE_NAME_FORMAT, writeIndex, "a"));
+    TarWriter(SegmentArchiveManager archiveManager, FileStoreMonitor monitor, int writeIndex) {
+        this.archiveManager = archiveManager;
+        this.archiveName = format(FILE_NAME_FORMAT, writeIndex, "a");
         this.monitor = monitor;
         this.writeIndex = writeIndex;
-        this.ioMonitor = ioMonitor;
+    }
+
+    TarWriter(File file, IOMonitor ioMonitor) {
+        this(new SegmentTarManager(file.getParentFile(), false, ioMonitor), file.getName());
+    }
+
+    TarWriter(File directory, FileStoreMonitor monitor, int writeIndex, IOMonitor ioMonitor) {
+        this(new SegmentTarManager(directory, false, ioMonitor), monitor, writeIndex);
     }
 
     synchronized boolean containsEntry(long msb, long lsb) {
         checkState(!closed);
-        return index.containsKey(new UUID(msb, lsb));
+        return archive != null && archive.containsSegment(msb, lsb);
     }
 
     /**
@@ -194,72 +171,33 @@ class TarWriter implements Closeable {
      * @return the byte buffer, or null if not in this file
      */
     ByteBuffer readEntry(long msb, long lsb) throws IOException {
-        checkState(!closed);
-        
-        TarEntry entry;
+        SegmentArchiveWriter archive;
         synchronized (this) {
-            entry = index.get(new UUID(msb, lsb));
+            checkState(!closed);
+            archive = this.archive;
         }
-        if (entry != null) {
-            checkState(channel != null); // implied by entry != null
-            ByteBuffer data = ByteBuffer.allocate(entry.size());
-            channel.read(data, entry.offset());
-            data.rewind();
-            return data;
+        if (archive != null) {
+            return archive.readSegment(msb, lsb);
         } else {
             return null;
         }
     }
 
-    long writeEntry(
+    synchronized long writeEntry(
             long msb, long lsb, byte[] data, int offset, int size, int generation)
             throws IOException {
         checkNotNull(data);
         checkPositionIndexes(offset, offset + size, data.length);
-
-        UUID uuid = new UUID(msb, lsb);
-        CRC32 checksum = new CRC32();
-        checksum.update(data, offset, size);
-        String entryName = String.format("%s.%08x", uuid, checksum.getValue());
-        byte[] header = newEntryHeader(entryName, size);
-
-        log.debug("Writing segment {} to {}", uuid, file);
-        return writeEntry(uuid, header, data, offset, size, generation);
-    }
-
-    private synchronized long writeEntry(UUID uuid, byte[] header, byte[] data, int offset, int size, int generation) throws IOException {
         checkState(!closed);
 
-        if (access == null) {
-            access = new RandomAccessFile(file, "rw");
-            channel = access.getChannel();
-        }
-
-        long msb = uuid.getMostSignificantBits();
-        long lsb = uuid.getLeastSignificantBits();
-
-        int padding = getPaddingSize(size);
-
-        long initialLength = access.getFilePointer();
-
-        access.write(header);
-
-        ioMonitor.beforeSegmentWrite(file, msb, lsb, size);
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        access.write(data, offset, size);
-        ioMonitor.afterSegmentWrite(file, msb, lsb, size, stopwatch.elapsed(TimeUnit.NANOSECONDS));
-
-        if (padding > 0) {
-            access.write(ZERO_BYTES, 0, padding);
+        if (archive == null) {
+            archive = archiveManager.create(archiveName);
         }
 
-        long currentLength = access.getFilePointer();
+        long initialLength = archive.getLength();
+        archive.writeSegment(msb, lsb, data, offset, size, generation);
+        long currentLength = archive.getLength();
         monitor.written(currentLength - initialLength);
-
-        checkState(currentLength <= Integer.MAX_VALUE);
-        TarEntry entry = new TarEntry(msb, lsb, (int) (currentLength - size - padding), size, generation);
-        index.put(uuid, entry);
-
         return currentLength;
     }
 
@@ -295,25 +233,19 @@ class TarWriter implements Closeable {
     /**
      * Flushes the entries that have so far been written to the disk.
      * This method is <em>not</em> synchronized to allow concurrent reads
-     * and writes to proceed while the file is being flushed. However,
-     * this method <em>is</em> carefully synchronized with {@link #close()}
-     * to prevent accidental flushing of an already closed file.
+     * and writes to proceed while the file is being flushed. The underlying
+     * {@link SegmentArchiveWriter} takes care of synchronizing the flush
+     * with a concurrent {@link #close()}.
      *
      * @throws IOException if the tar file could not be flushed
      */
     void flush() throws IOException {
-        synchronized (file) {
-            FileDescriptor descriptor = null;
-
-            synchronized (this) {
-                if (access != null && !closed) {
-                    descriptor = access.getFD();
-                }
-            }
-
-            if (descriptor != null) {
-                descriptor.sync();
-            }
+        SegmentArchiveWriter archive;
+        synchronized (this) {
+            archive = this.archive;
+        }
+        if (archive != null) {
+            archive.flush();
         }
     }
 
@@ -327,34 +259,25 @@ class TarWriter implements Closeable {
         // Mark this writer as closed. Note that we only need to synchronize
         // this part, as no other synchronized methods should get invoked
         // once close() has been initiated (see related checkState calls).
+        SegmentArchiveWriter archive;
         synchronized (this) {
             checkState(!closed);
             closed = true;
+            archive = this.archive;
         }
 
         // If nothing was written to this file, then we're already done.
-        if (access == null) {
+        if (archive == null) {
             return;
         }
 
-        // Complete the tar file by adding the graph, the index and the
-        // trailing two zero blocks. This code is synchronized on the file
-        // instance to  ensure that no concurrent thread is still flushing
-        // the file when we close the file handle.
-        long initialPosition, currentPosition;
-        synchronized (file) {
-            initialPosition = access.getFilePointer();
-            writeBinaryReferences();
-            writeGraph();
-            writeIndex();
-            access.write(ZERO_BYTES);
-            access.write(ZERO_BYTES);
-
-            currentPosition = access.getFilePointer();
-            access.close();
-        }
-
-        monitor.written(currentPosition - initialPosition);
+        // Complete the tar file by adding the binary references, the graph
+        // and the index.
+        long initialLength = archive.getLength();
+        archive.writeBinaryReferences(serializeBinaryReferences());
+        archive.writeGraph(serializeGraph());
+        archive.close();
+        monitor.written(archive.getLength() - initialLength);
     }
 
     /**
@@ -367,16 +290,16 @@ class TarWriter implements Closeable {
         checkState(writeIndex >= 0);
         // If nothing was written to this file, then we're already done.
         synchronized (this) {
-            if (access == null) {
+            if (archive == null) {
                 return this;
             }
         }
         close();
         int newIndex = writeIndex + 1;
-        return new TarWriter(file.getParentFile(), monitor, newIndex, ioMonitor);
+        return new TarWriter(archiveManager, monitor, newIndex);
     }
 
-    private void writeBinaryReferences() throws IOException {
+    private byte[] serializeBinaryReferences() {
         int binaryReferenceSize = 0;
 
         // The following information are stored in the footer as meta-
@@ -457,20 +380,10 @@ class TarWriter implements Closeable {
         buffer.putInt(binaryReferenceSize);
         buffer.putInt(BINARY_REFERENCES_MAGIC);
 
-        int paddingSize = getPaddingSize(binaryReferenceSize);
-
-        byte[] header = newEntryHeader(file.getName() + ".brf", binaryReferenceSize + paddingSize);
-
-        access.write(header);
-
-        if (paddingSize > 0) {
-            access.write(ZERO_BYTES, 0, paddingSize);
-        }
-
-        access.write(buffer.array());
+        return buffer.array();
     }
 
-    private void writeGraph() throws IOException {
+    private byte[] serializeGraph() {
         int graphSize = 0;
 
         // The following information are stored in the footer as meta-
@@ -530,110 +443,15 @@ class TarWriter implements Closeable {
         buffer.putInt(graphSize);
         buffer.putInt(GRAPH_MAGIC);
 
-        int padding = getPaddingSize(graphSize);
-
-        access.write(newEntryHeader(file.getName() + ".gph", graphSize + padding));
-
-        if (padding > 0) {
-            access.write(ZERO_BYTES, 0, padding);
-        }
-
-        access.write(buffer.array());
-    }
-
-    private void writeIndex() throws IOException {
-        int indexSize = index.size() * TarEntry.SIZE + 16;
-        int padding = getPaddingSize(indexSize);
-
-        String indexName = file.getName() + ".idx";
-        byte[] header = newEntryHeader(indexName, indexSize + padding);
-
-        ByteBuffer buffer = ByteBuffer.allocate(indexSize);
-        TarEntry[] sorted = index.values().toArray(new TarEntry[index.size()]);
-        Arrays.sort(sorted, TarEntry.IDENTIFIER_ORDER);
-        for (TarEntry entry : sorted) {
-            buffer.putLong(entry.msb());
-            buffer.putLong(entry.lsb());
-            buffer.putInt(entry.offset());
-            buffer.putInt(entry.size());
-            buffer.putInt(entry.generation());
-        }
-
-        CRC32 checksum = new CRC32();
-        checksum.update(buffer.array(), 0, buffer.position());
-        buffer.putInt((int) checksum.getValue());
-        buffer.putInt(index.size());
-        buffer.putInt(padding + indexSize);
-        buffer.putInt(INDEX_MAGIC);
-
-        access.write(header);
-        if (padding > 0) {
-            // padding comes *before* the index!
-            access.write(ZERO_BYTES, 0, padding);
-        }
-        access.write(buffer.array());
-    }
-
-    private static byte[] newEntryHeader(String name, int size) {
-        byte[] header = new byte[BLOCK_SIZE];
-
-        // File name
-        byte[] nameBytes = name.getBytes(UTF_8);
-        System.arraycopy(
-                nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
-
-        // File mode
-        System.arraycopy(
-                String.format("%07o", 0400).getBytes(UTF_8), 0,
-                header, 100, 7);
-
-        // User's numeric user ID
-        System.arraycopy(
-                String.format("%07o", 0).getBytes(UTF_8), 0,
-                header, 108, 7);
-
-        // Group's numeric user ID
-        System.arraycopy(
-                String.format("%07o", 0).getBytes(UTF_8), 0,
-                header, 116, 7);
-
-        // File size in bytes (octal basis)
-        System.arraycopy(
-                String.format("%011o", size).getBytes(UTF_8), 0,
-                header, 124, 11);
-
-        // Last modification time in numeric Unix time format (octal)
-        long time = System.currentTimeMillis() / 1000;
-        System.arraycopy(
-                String.format("%011o", time).getBytes(UTF_8), 0,
-                header, 136, 11);
-
-        // Checksum for header record
-        System.arraycopy(
-                new byte[] {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}, 0,
-                header, 148, 8);
-
-        // Type flag
-        header[156] = '0';
-
-        // Compute checksum
-        int checksum = 0;
-        for (byte aHeader : header) {
-            checksum += aHeader & 0xff;
-        }
-        System.arraycopy(
-                String.format("%06o\0 ", checksum).getBytes(UTF_8), 0,
-                header, 148, 8);
-
-        return header;
+        return buffer.array();
     }
 
     synchronized long fileLength() {
-        return file.length();
+        return archive == null ? 0 : archive.getLength();
     }
 
-    synchronized File getFile() {
-        return file;
+    String getFileName() {
+        return archiveName;
     }
 
     synchronized boolean isClosed() {
@@ -644,7 +462,7 @@ class TarWriter implements Closeable {
 
     @Override
     public String toString() {
-        return file.toString();
+        return archiveName;
     }
 
 }
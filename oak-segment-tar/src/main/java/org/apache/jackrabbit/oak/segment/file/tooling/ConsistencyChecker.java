@@ -19,8 +19,11 @@
 
 package org.apache.jackrabbit.oak.segment.file.tooling;
 
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static java.text.DateFormat.getDateTimeInstance;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.jackrabbit.oak.api.Type.BINARIES;
 import static org.apache.jackrabbit.oak.api.Type.BINARY;
 import static org.apache.jackrabbit.oak.commons.IOUtils.humanReadableByteCount;
@@ -31,16 +34,25 @@ import static org.apache.jackrabbit.oak.commons.PathUtils.getParentPath;
 import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
 import static org.apache.jackrabbit.oak.spi.state.NodeStateUtils.getNode;
 
+import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.text.MessageFormat;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.jackrabbit.oak.api.Blob;
@@ -62,9 +74,94 @@ import org.apache.jackrabbit.oak.spi.state.NodeState;
  * Utility for checking the files of a
  * {@link FileStore} for inconsistency and
  * reporting that latest consistent revision.
+ * <p>
+ * With more than one thread the subtrees of a checked path are traversed
+ * concurrently down to {@link #FORK_DEPTH} levels below that path and the
+ * number of binaries read at the same time is bounded separately. The
+ * outcome of each checked path and revision can be recorded to a resume
+ * file, so that an interrupted check continues where it left off.
  */
 public class ConsistencyChecker implements Closeable {
 
+    /**
+     * Number of levels below a checked path down to which child nodes are
+     * traversed by separate tasks when checking with more than one thread.
+     * Deeper subtrees are traversed by the task of their ancestor.
+     */
+    private static final int FORK_DEPTH = 4;
+
+    /**
+     * Marker recorded in the resume file for a consistent path.
+     */
+    private static final String CONSISTENT = "-";
+
+    /**
+     * Outcomes of already checked paths and revisions, one per line. Each
+     * line contains the checked path, the revision and either
+     * {@link #CONSISTENT} or the path of the first inconsistency, separated
+     * by tabs. Lines are appended and flushed as soon as a check is done.
+     */
+    private static class ResumeFile implements Closeable {
+
+        private final Map<String, String> outcomes = newHashMap();
+
+        private final PrintWriter writer;
+
+        ResumeFile(File file) throws IOException {
+            if (file.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    String line = reader.readLine();
+                    while (line != null) {
+                        String[] fields = line.split("\t");
+                        if (fields.length == 3) {
+                            outcomes.put(key(fields[0], fields[1]), fields[2]);
+                        }
+                        line = reader.readLine();
+                    }
+                }
+            }
+            this.writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), UTF_8));
+        }
+
+        private static String key(String path, String revision) {
+            return path + '\t' + revision;
+        }
+
+        /**
+         * @return {@link #CONSISTENT} or the path of the first inconsistency
+         * if {@code path} has already been checked at {@code revision},
+         * {@code null} otherwise.
+         */
+        String getOutcome(String path, String revision) {
+            return outcomes.get(key(path, revision));
+        }
+
+        /**
+         * @return the paths of all inconsistencies already found below
+         * {@code path} in any revision.
+         */
+        Set<String> getCorruptPaths(String path) {
+            Set<String> corruptPaths = new HashSet<>();
+            for (Map.Entry<String, String> e : outcomes.entrySet()) {
+                if (e.getKey().startsWith(path + '\t') && !CONSISTENT.equals(e.getValue())) {
+                    corruptPaths.add(e.getValue());
+                }
+            }
+            return corruptPaths;
+        }
+
+        void record(String path, String revision, String corruptPath) {
+            writer.println(key(path, revision) + '\t' + (corruptPath == null ? CONSISTENT : corruptPath));
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+
+    }
+
     private static class StatisticsIOMonitor extends IOMonitorAdapter {
 
         private final AtomicLong ioOperations = new AtomicLong(0);
@@ -92,9 +189,22 @@ public class ConsistencyChecker implements Closeable {
     
     private final PrintWriter errWriter;
 
-    private int nodeCount;
-    
-    private int propertyCount;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+
+    private final AtomicInteger propertyCount = new AtomicInteger();
+
+    /**
+     * Pool traversing subtrees concurrently or {@code null} if checking with
+     * a single thread.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Bounds the number of binaries read concurrently.
+     */
+    private final Semaphore binaryReads;
+
+    private volatile long traversalStart;
 
     /**
      * Run a full traversal consistency check.
@@ -120,15 +230,58 @@ public class ConsistencyChecker implements Closeable {
             boolean ioStatistics,
             PrintWriter outWriter,
             PrintWriter errWriter
+    ) throws IOException, InvalidFileStoreVersionException {
+        checkConsistency(directory, journalFileName, debugInterval, checkBinaries, filterPaths, ioStatistics,
+                1, 1, null, outWriter, errWriter);
+    }
+
+    /**
+     * Run a full traversal consistency check.
+     *
+     * @param directory  directory containing the tar files
+     * @param journalFileName  name of the journal file containing the revision history
+     * @param debugInterval    number of seconds between printing progress information to
+     *                         the console during the full traversal phase.
+     * @param checkBinaries    if {@code true} full content of binary properties will be scanned
+     * @param filterPaths      collection of repository paths to be checked                         
+     * @param ioStatistics     if {@code true} prints I/O statistics gathered while consistency 
+     *                         check was performed
+     * @param threads          number of threads traversing the content tree
+     * @param binaryThreads    maximum number of binaries read concurrently
+     * @param resumeFile       file recording the outcome of every checked path and revision.
+     *                         Outcomes already recorded are not checked again. May be
+     *                         {@code null}.
+     * @param outWriter        text output stream writer
+     * @param errWriter        text error stream writer                        
+     * @throws IOException
+     */
+    public static void checkConsistency(
+            File directory,
+            String journalFileName,
+            long debugInterval,
+            boolean checkBinaries,
+            Set<String> filterPaths,
+            boolean ioStatistics,
+            int threads,
+            int binaryThreads,
+            File resumeFile,
+            PrintWriter outWriter,
+            PrintWriter errWriter
     ) throws IOException, InvalidFileStoreVersionException {
         try (
                 JournalReader journal = new JournalReader(new File(directory, journalFileName));
-                ConsistencyChecker checker = new ConsistencyChecker(directory, debugInterval, ioStatistics, outWriter, errWriter)
+                ConsistencyChecker checker = new ConsistencyChecker(directory, debugInterval, ioStatistics,
+                        threads, binaryThreads, outWriter, errWriter);
+                ResumeFile resume = resumeFile == null ? null : new ResumeFile(resumeFile)
         ) {
             Map<String, JournalEntry> pathToJournalEntry = newHashMap();
             Map<String, Set<String>> pathToCorruptPaths = newHashMap();
             for (String path : filterPaths) {
-                pathToCorruptPaths.put(path, new HashSet<String>());
+                if (resume != null) {
+                    pathToCorruptPaths.put(path, resume.getCorruptPaths(path));
+                } else {
+                    pathToCorruptPaths.put(path, new HashSet<String>());
+                }
             }
             
             int count = 0;
@@ -145,7 +298,17 @@ public class ConsistencyChecker implements Closeable {
                         if (pathToJournalEntry.get(path) == null) {
                             
                             Set<String> corruptPaths = pathToCorruptPaths.get(path);
-                            String corruptPath = checker.checkPathAtRevision(journalEntry.getRevision(), corruptPaths, path, checkBinaries);
+                            String corruptPath;
+                            String outcome = resume != null ? resume.getOutcome(path, journalEntry.getRevision()) : null;
+                            if (outcome != null) {
+                                checker.print("Path {0} already checked, resuming", path);
+                                corruptPath = CONSISTENT.equals(outcome) ? null : outcome;
+                            } else {
+                                corruptPath = checker.checkPathAtRevision(journalEntry.getRevision(), corruptPaths, path, checkBinaries);
+                                if (resume != null) {
+                                    resume.record(path, journalEntry.getRevision(), corruptPath);
+                                }
+                            }
 
                             if (corruptPath == null) {
                                 checker.print("Path {0} is consistent", path);
@@ -224,6 +387,26 @@ public class ConsistencyChecker implements Closeable {
      */
     public ConsistencyChecker(File directory, long debugInterval, boolean ioStatistics, PrintWriter outWriter,
             PrintWriter errWriter) throws IOException, InvalidFileStoreVersionException {
+        this(directory, debugInterval, ioStatistics, 1, 1, outWriter, errWriter);
+    }
+
+    /**
+     * Create a new consistency checker instance
+     *
+     * @param directory        directory containing the tar files
+     * @param debugInterval    number of seconds between printing progress information to
+     *                         the console during the full traversal phase.
+     * @param ioStatistics     if {@code true} prints I/O statistics gathered while consistency 
+     *                         check was performed
+     * @param threads          number of threads traversing the content tree
+     * @param binaryThreads    maximum number of binaries read concurrently
+     * @param outWriter        text output stream writer
+     * @param errWriter        text error stream writer                        
+     * @throws IOException
+     */
+    public ConsistencyChecker(File directory, long debugInterval, boolean ioStatistics, int threads,
+            int binaryThreads, PrintWriter outWriter, PrintWriter errWriter)
+            throws IOException, InvalidFileStoreVersionException {
         FileStoreBuilder builder = fileStoreBuilder(directory);
         if (ioStatistics) {
             builder.withIOMonitor(statisticsIOMonitor);
@@ -232,6 +415,8 @@ public class ConsistencyChecker implements Closeable {
         this.debugInterval = debugInterval;
         this.outWriter = outWriter;
         this.errWriter = errWriter;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.binaryReads = new Semaphore(Math.max(1, binaryThreads));
     }
 
 
@@ -266,15 +451,21 @@ public class ConsistencyChecker implements Closeable {
             }
         }
 
-        nodeCount = 0;
-        propertyCount = 0;
+        nodeCount.set(0);
+        propertyCount.set(0);
+        traversalStart = System.nanoTime();
 
         print("Checking {0}", path);
         
         try {        
             NodeWrapper wrapper = NodeWrapper.deriveTraversableNodeOnPath(root, path);
-            result = checkNodeAndDescendants(wrapper.node, wrapper.path, checkBinaries);
-            print("Checked {0} nodes and {1} properties", nodeCount, propertyCount);
+            if (pool != null) {
+                result = pool.invoke(new CheckTask(wrapper.node, wrapper.path, checkBinaries, 0));
+            } else {
+                result = checkNodeAndDescendants(wrapper.node, wrapper.path, checkBinaries);
+            }
+            print("Checked {0} nodes and {1} properties", nodeCount.get(), propertyCount.get());
+            print("Traversed {0} nodes/s", nodesPerSecond());
             
             return result;
         } catch (IllegalArgumentException e) {
@@ -294,8 +485,10 @@ public class ConsistencyChecker implements Closeable {
      */
     private String checkNode(NodeState node, String path, boolean checkBinaries) {
         try {
-            debug("Traversing {0}", path);
-            nodeCount++;
+            if (debug()) {
+                print("Traversing {0} ({1} nodes, {2} nodes/s)", path, nodeCount.get(), nodesPerSecond());
+            }
+            nodeCount.incrementAndGet();
             for (PropertyState propertyState : node.getProperties()) {
                 Type<?> type = propertyState.getType();
                 boolean checked = false;
@@ -308,7 +501,7 @@ public class ConsistencyChecker implements Closeable {
                     }
                 } else {
                     propertyState.getValue(type);
-                    propertyCount++;
+                    propertyCount.incrementAndGet();
                     checked = true;
                 }
                 
@@ -355,6 +548,63 @@ public class ConsistencyChecker implements Closeable {
         }
     }
     
+    /**
+     * Checks a node like {@link #checkNodeAndDescendants(NodeState, String, boolean)}
+     * but traverses the subtree of each child node by a separate task, unless
+     * the node is {@link #FORK_DEPTH} levels below the checked path.
+     */
+    private class CheckTask extends RecursiveTask<String> {
+
+        private final NodeState node;
+
+        private final String path;
+
+        private final boolean checkBinaries;
+
+        private final int depth;
+
+        CheckTask(NodeState node, String path, boolean checkBinaries, int depth) {
+            this.node = node;
+            this.path = path;
+            this.checkBinaries = checkBinaries;
+            this.depth = depth;
+        }
+
+        @Override
+        protected String compute() {
+            if (depth >= FORK_DEPTH) {
+                return checkNodeAndDescendants(node, path, checkBinaries);
+            }
+
+            String result = checkNode(node, path, checkBinaries);
+            if (result != null) {
+                return result;
+            }
+
+            List<CheckTask> tasks = newArrayList();
+            try {
+                for (ChildNodeEntry cne : node.getChildNodeEntries()) {
+                    tasks.add(new CheckTask(cne.getNodeState(), concat(path, cne.getName()), checkBinaries, depth + 1));
+                }
+            } catch (RuntimeException e) {
+                printError("Error while traversing {0}: {1}", path, e.getMessage());
+                return path;
+            }
+
+            // Report the first inconsistency in traversal order, as
+            // the sequential traversal does
+            invokeAll(tasks);
+            for (CheckTask task : tasks) {
+                result = task.join();
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+    }
+
     static class NodeWrapper {
         NodeState node;
         String path;
@@ -383,18 +633,18 @@ public class ConsistencyChecker implements Closeable {
 
     private boolean traverse(Blob blob, boolean checkBinaries) throws IOException {
         if (checkBinaries && !isExternal(blob)) {
-            InputStream s = blob.getNewStream();
-            try {
+            binaryReads.acquireUninterruptibly();
+            try (InputStream s = blob.getNewStream()) {
                 byte[] buffer = new byte[8192];
                 int l = s.read(buffer, 0, buffer.length);
                 while (l >= 0) {
                     l = s.read(buffer, 0, buffer.length);
                 }
             } finally {
-                s.close();
+                binaryReads.release();
             }
             
-            propertyCount++;
+            propertyCount.incrementAndGet();
             return true;
         }
         
@@ -408,8 +658,19 @@ public class ConsistencyChecker implements Closeable {
         return false;
     }
 
+    private long nodesPerSecond() {
+        long elapsed = System.nanoTime() - traversalStart;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return nodeCount.get() * SECONDS.toNanos(1) / elapsed;
+    }
+
     @Override
     public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
         store.close();
     }
 
@@ -437,7 +698,7 @@ public class ConsistencyChecker implements Closeable {
         errWriter.println(MessageFormat.format(format, arg1, arg2));
     }
 
-    private long ts;
+    private volatile long ts;
 
     private void debug(String format, Object arg) {
         if (debug()) {
@@ -0,0 +1,550 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.memory;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.Maps;
+import org.apache.jackrabbit.oak.segment.file.IOMonitor;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFileReader;
+import org.apache.jackrabbit.oak.segment.spi.persistence.JournalFileWriter;
+import org.apache.jackrabbit.oak.segment.spi.persistence.ManifestFile;
+import org.apache.jackrabbit.oak.segment.spi.persistence.RepositoryLock;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveEntry;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveReader;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveWriter;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
+
+/**
+ * A {@link SegmentNodeStorePersistence} keeping all archives, journals and the
+ * manifest in memory. The content is lost once the instance is garbage
+ * collected. This is mainly useful for testing the file store independently
+ * of the file system.
+ */
+public class MemoryPersistence implements SegmentNodeStorePersistence {
+
+    private final ConcurrentMap<String, Archive> archives = Maps.newConcurrentMap();
+
+    private final List<String> journal = new ArrayList<>();
+
+    private final List<String> gcJournal = new ArrayList<>();
+
+    private final Properties manifest = new Properties();
+
+    private boolean manifestExists;
+
+    private boolean locked;
+
+    @Nonnull
+    @Override
+    public SegmentArchiveManager createArchiveManager(boolean memoryMapping, @Nonnull IOMonitor ioMonitor) {
+        return new SegmentArchiveManager() {
+
+            @Nonnull
+            @Override
+            public List<String> listArchives() {
+                return new ArrayList<>(archives.keySet());
+            }
+
+            @Override
+            public SegmentArchiveReader open(@Nonnull String archiveName) {
+                Archive archive = archives.get(archiveName);
+                if (archive == null || !archive.closed) {
+                    return null;
+                }
+                return new ArchiveReader(archiveName, archive);
+            }
+
+            @Nonnull
+            @Override
+            public SegmentArchiveWriter create(@Nonnull String archiveName) {
+                Archive archive = new Archive();
+                archives.put(archiveName, archive);
+                return new ArchiveWriter(archiveName, archive);
+            }
+
+            @Override
+            public boolean delete(@Nonnull String archiveName) {
+                archives.remove(archiveName);
+                return true;
+            }
+
+            @Override
+            public boolean renameTo(@Nonnull String from, @Nonnull String to) {
+                Archive archive = archives.remove(from);
+                if (archive == null) {
+                    return false;
+                }
+                archives.put(to, archive);
+                return true;
+            }
+
+            @Override
+            public void copyFile(@Nonnull String from, @Nonnull String to) throws IOException {
+                Archive archive = archives.get(from);
+                if (archive == null) {
+                    throw new FileNotFoundException(from);
+                }
+                archives.put(to, archive.copy());
+            }
+
+            @Override
+            public boolean exists(@Nonnull String archiveName) {
+                return archives.containsKey(archiveName);
+            }
+
+            @Override
+            public void recoverEntries(@Nonnull String archiveName, @Nonnull LinkedHashMap<UUID, byte[]> entries) throws IOException {
+                Archive archive = archives.get(archiveName);
+                if (archive == null) {
+                    throw new FileNotFoundException(archiveName);
+                }
+                synchronized (archive) {
+                    for (Map.Entry<UUID, Segment> e : archive.segments.entrySet()) {
+                        entries.put(e.getKey(), e.getValue().data);
+                    }
+                }
+            }
+
+        };
+    }
+
+    @Override
+    public boolean segmentFilesExist() {
+        return !archives.isEmpty();
+    }
+
+    @Nonnull
+    @Override
+    public JournalFile getJournalFile() {
+        return new JournalFile() {
+
+            @Nonnull
+            @Override
+            public JournalFileReader openJournalReader() {
+                final List<String> lines;
+                synchronized (journal) {
+                    lines = new ArrayList<>(journal);
+                }
+                return new JournalFileReader() {
+
+                    private int next = lines.size() - 1;
+
+                    @Override
+                    public String readLine() {
+                        if (next < 0) {
+                            return null;
+                        }
+                        return lines.get(next--);
+                    }
+
+                    @Override
+                    public void close() {
+                        // Nothing to close
+                    }
+
+                };
+            }
+
+            @Nonnull
+            @Override
+            public JournalFileWriter openJournalWriter() {
+                return new JournalFileWriter() {
+
+                    @Override
+                    public void writeLine(@Nonnull String line) {
+                        synchronized (journal) {
+                            journal.add(line);
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                        // Nothing to close
+                    }
+
+                };
+            }
+
+            @Nonnull
+            @Override
+            public String getName() {
+                return "journal.log";
+            }
+
+            @Override
+            public boolean exists() {
+                return true;
+            }
+
+        };
+    }
+
+    @Nonnull
+    @Override
+    public GCJournalFile getGCJournalFile() {
+        return new GCJournalFile() {
+
+            @Override
+            public void writeLine(@Nonnull String line) {
+                synchronized (gcJournal) {
+                    gcJournal.add(line);
+                }
+            }
+
+            @Nonnull
+            @Override
+            public List<String> readLines() {
+                synchronized (gcJournal) {
+                    return new ArrayList<>(gcJournal);
+                }
+            }
+
+        };
+    }
+
+    @Nonnull
+    @Override
+    public ManifestFile getManifestFile() {
+        return new ManifestFile() {
+
+            @Override
+            public boolean exists() {
+                synchronized (manifest) {
+                    return manifestExists;
+                }
+            }
+
+            @Nonnull
+            @Override
+            public Properties load() {
+                synchronized (manifest) {
+                    Properties properties = new Properties();
+                    properties.putAll(manifest);
+                    return properties;
+                }
+            }
+
+            @Override
+            public void save(@Nonnull Properties properties) {
+                synchronized (manifest) {
+                    manifest.clear();
+                    manifest.putAll(properties);
+                    manifestExists = true;
+                }
+            }
+
+        };
+    }
+
+    @Nonnull
+    @Override
+    public synchronized RepositoryLock lockRepository() {
+        checkState(!locked, "The repository is in use by another store.");
+        locked = true;
+        return new RepositoryLock() {
+
+            @Override
+            public void unlock() {
+                synchronized (MemoryPersistence.this) {
+                    locked = false;
+                }
+            }
+
+        };
+    }
+
+    private static class Segment implements SegmentArchiveEntry {
+
+        private final long msb;
+
+        private final long lsb;
+
+        private final int position;
+
+        private final int generation;
+
+        private final byte[] data;
+
+        Segment(long msb, long lsb, int position, int generation, byte[] data) {
+            this.msb = msb;
+            this.lsb = lsb;
+            this.position = position;
+            this.generation = generation;
+            this.data = data;
+        }
+
+        @Override
+        public long getMsb() {
+            return msb;
+        }
+
+        @Override
+        public long getLsb() {
+            return lsb;
+        }
+
+        @Override
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public int getLength() {
+            return data.length;
+        }
+
+        @Override
+        public int getGeneration() {
+            return generation;
+        }
+
+    }
+
+    /**
+     * The content of an archive. Access to its fields is guarded by the
+     * instance itself.
+     */
+    private static class Archive {
+
+        private final Map<UUID, Segment> segments = new LinkedHashMap<>();
+
+        private byte[] graph;
+
+        private byte[] binaryReferences;
+
+        private long length;
+
+        private boolean closed;
+
+        synchronized Archive copy() {
+            Archive copy = new Archive();
+            copy.segments.putAll(segments);
+            copy.graph = graph;
+            copy.binaryReferences = binaryReferences;
+            copy.length = length;
+            copy.closed = closed;
+            return copy;
+        }
+
+        synchronized ByteBuffer readSegment(long msb, long lsb) {
+            Segment segment = segments.get(new UUID(msb, lsb));
+            if (segment == null) {
+                return null;
+            }
+            return ByteBuffer.wrap(segment.data).asReadOnlyBuffer();
+        }
+
+        synchronized ByteBuffer readSegmentHeader(long msb, long lsb, int length) {
+            Segment segment = segments.get(new UUID(msb, lsb));
+            if (segment == null) {
+                return null;
+            }
+            return ByteBuffer.wrap(segment.data, 0, Math.min(length, segment.data.length))
+                    .slice().asReadOnlyBuffer();
+        }
+
+        synchronized boolean containsSegment(long msb, long lsb) {
+            return segments.containsKey(new UUID(msb, lsb));
+        }
+
+    }
+
+    private static class ArchiveReader implements SegmentArchiveReader {
+
+        private final String name;
+
+        private final Archive archive;
+
+        ArchiveReader(String name, Archive archive) {
+            this.name = name;
+            this.archive = archive;
+        }
+
+        @Override
+        public ByteBuffer readSegment(long msb, long lsb) {
+            return archive.readSegment(msb, lsb);
+        }
+
+        @Override
+        public ByteBuffer readSegmentHeader(long msb, long lsb, int length) {
+            return archive.readSegmentHeader(msb, lsb, length);
+        }
+
+        @Override
+        public boolean containsSegment(long msb, long lsb) {
+            return archive.containsSegment(msb, lsb);
+        }
+
+        @Nonnull
+        @Override
+        public List<SegmentArchiveEntry> listSegments() {
+            synchronized (archive) {
+                return new ArrayList<SegmentArchiveEntry>(archive.segments.values());
+            }
+        }
+
+        @Override
+        public ByteBuffer getGraph() {
+            synchronized (archive) {
+                return archive.graph == null ? null : ByteBuffer.wrap(archive.graph);
+            }
+        }
+
+        @Override
+        public boolean hasGraph() {
+            synchronized (archive) {
+                return archive.graph != null;
+            }
+        }
+
+        @Override
+        public ByteBuffer getBinaryReferences() {
+            synchronized (archive) {
+                return archive.binaryReferences == null ? null : ByteBuffer.wrap(archive.binaryReferences);
+            }
+        }
+
+        @Override
+        public long length() {
+            synchronized (archive) {
+                return archive.length;
+            }
+        }
+
+        @Nonnull
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close
+        }
+
+        @Override
+        public int getEntrySize(int size) {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    private static class ArchiveWriter implements SegmentArchiveWriter {
+
+        private final String name;
+
+        private final Archive archive;
+
+        ArchiveWriter(String name, Archive archive) {
+            this.name = name;
+            this.archive = archive;
+        }
+
+        @Override
+        public void writeSegment(long msb, long lsb, @Nonnull byte[] data, int offset, int size, int generation) {
+            byte[] copy = new byte[size];
+            System.arraycopy(data, offset, copy, 0, size);
+            synchronized (archive) {
+                checkState(!archive.closed, "Archive %s is closed", name);
+                archive.segments.put(new UUID(msb, lsb), new Segment(msb, lsb, (int) archive.length, generation, copy));
+                archive.length += size;
+            }
+        }
+
+        @Override
+        public ByteBuffer readSegment(long msb, long lsb) {
+            return archive.readSegment(msb, lsb);
+        }
+
+        @Override
+        public boolean containsSegment(long msb, long lsb) {
+            return archive.containsSegment(msb, lsb);
+        }
+
+        @Override
+        public void writeGraph(@Nonnull byte[] data) {
+            synchronized (archive) {
+                archive.graph = data;
+                archive.length += data.length;
+            }
+        }
+
+        @Override
+        public void writeBinaryReferences(@Nonnull byte[] data) {
+            synchronized (archive) {
+                archive.binaryReferences = data;
+                archive.length += data.length;
+            }
+        }
+
+        @Override
+        public long getLength() {
+            synchronized (archive) {
+                return archive.length;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (archive) {
+                archive.closed = true;
+            }
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to flush
+        }
+
+        @Nonnull
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+}
@@ -0,0 +1,491 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Thread.currentThread;
+import static org.apache.jackrabbit.oak.api.Type.LONG;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.segment.Revisions;
+import org.apache.jackrabbit.oak.segment.SegmentNodeBuilder;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreStats;
+import org.apache.jackrabbit.oak.segment.SegmentOverflowException;
+import org.apache.jackrabbit.oak.segment.SegmentReader;
+import org.apache.jackrabbit.oak.spi.commit.ChangeDispatcher;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.Observable;
+import org.apache.jackrabbit.oak.spi.commit.Observer;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.stats.StatisticsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Scheduler} applying commits in batches instead of serializing
+ * them behind a lock.
+ * <p>
+ * Committing threads add their commits to a queue. The first thread finding
+ * no batch in progress becomes the committer and applies all queued commits
+ * one after the other on top of the current head, followed by a single
+ * {@link Revisions#setHead(org.apache.jackrabbit.oak.segment.RecordId,
+ * org.apache.jackrabbit.oak.segment.RecordId, Revisions.Option...) setHead}
+ * for the whole batch. A commit failing (e.g. because its commit hook
+ * rejects it) only fails itself: the rest of the batch is applied on top of
+ * the state before that commit. If the head was changed concurrently
+ * (e.g. by a checkpoint) the batch is applied again on top of the new head.
+ * All other threads block until either their commit has been processed or
+ * the current committer is done, in which case they become the committer
+ * themselves.
+ */
+public class LockFreeScheduler implements Scheduler {
+
+    public static class LockFreeSchedulerBuilder {
+        @Nonnull
+        private final SegmentReader reader;
+
+        @Nonnull
+        private final Revisions revisions;
+
+        @Nonnull
+        private StatisticsProvider statsProvider = StatisticsProvider.NOOP;
+
+        private boolean dispatchChanges = true;
+
+        private LockFreeSchedulerBuilder(@Nonnull Revisions revisions, @Nonnull SegmentReader reader) {
+            this.revisions = revisions;
+            this.reader = reader;
+        }
+
+        /**
+         * {@link StatisticsProvider} for collecting statistics related to
+         * SegmentStore
+         *
+         * @param statisticsProvider
+         * @return this instance
+         */
+        @Nonnull
+        public LockFreeSchedulerBuilder withStatisticsProvider(@Nonnull StatisticsProvider statisticsProvider) {
+            this.statsProvider = checkNotNull(statisticsProvider);
+            return this;
+        }
+
+        @Nonnull
+        public LockFreeSchedulerBuilder dispatchChanges(boolean dispatchChanges) {
+            this.dispatchChanges = dispatchChanges;
+            return this;
+        }
+
+        @Nonnull
+        public LockFreeScheduler build() {
+            if (dispatchChanges) {
+                return new ObservableLockFreeScheduler(this);
+            } else {
+                return new LockFreeScheduler(this);
+            }
+        }
+
+    }
+
+    public static LockFreeSchedulerBuilder builder(@Nonnull Revisions revisions, @Nonnull SegmentReader reader) {
+        return new LockFreeSchedulerBuilder(checkNotNull(revisions), checkNotNull(reader));
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LockFreeScheduler.class);
+
+    /**
+     * Maximum number of commits applied in a single batch.
+     */
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("oak.segmentNodeStore.maxCommitBatchSize", 128);
+
+    /**
+     * Maximum number of times a batch is applied again after the head has
+     * been changed concurrently.
+     */
+    private static final int MAX_RETRIES = 10;
+
+    static final String ROOT = "root";
+
+    @Nonnull
+    private final SegmentReader reader;
+
+    @Nonnull
+    private final Revisions revisions;
+
+    protected final AtomicReference<SegmentNodeState> head;
+
+    private final SegmentNodeStoreStats stats;
+
+    /**
+     * Commits waiting for being applied.
+     */
+    private final Queue<PendingCommit> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Flag held by the thread currently applying a batch of commits. Only
+     * the holder of this flag updates {@link #head} and dispatches changes.
+     */
+    private final AtomicBoolean committing = new AtomicBoolean();
+
+    /**
+     * Monitor notified whenever a batch has been applied or the
+     * {@link #committing} flag has been released.
+     */
+    private final Object progress = new Object();
+
+    public LockFreeScheduler(LockFreeSchedulerBuilder builder) {
+        this.reader = builder.reader;
+        this.revisions = builder.revisions;
+        this.head = new AtomicReference<SegmentNodeState>(reader.readHeadState(revisions));
+        this.stats = new SegmentNodeStoreStats(builder.statsProvider);
+    }
+
+    @Override
+    public NodeState getHeadNodeState() {
+        if (committing.compareAndSet(false, true)) {
+            try {
+                refreshHead(true);
+            } finally {
+                releaseCommitting();
+            }
+        }
+        return head.get();
+    }
+
+    /**
+     * Refreshes the head state. Should only be called while holding the
+     * {@link #committing} flag.
+     *
+     * @param dispatchChanges
+     *            if set to true the changes would also be dispatched
+     */
+    private void refreshHead(boolean dispatchChanges) {
+        SegmentNodeState state = reader.readHeadState(revisions);
+        if (!state.getRecordId().equals(head.get().getRecordId())) {
+            head.set(state);
+            if (dispatchChanges) {
+                contentChanged(state.getChildNode(ROOT), CommitInfo.EMPTY_EXTERNAL);
+            }
+        }
+    }
+
+    /**
+     * Release the {@link #committing} flag and wake up all threads waiting
+     * for their commits so one of them can take over.
+     */
+    private void releaseCommitting() {
+        committing.set(false);
+        signalProgress();
+    }
+
+    private void signalProgress() {
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+
+    /**
+     * Block until {@code pending} has been processed or no batch is in
+     * progress any more.
+     */
+    private void awaitProgress(PendingCommit pending) throws InterruptedException {
+        synchronized (progress) {
+            while (!pending.result.isDone() && committing.get()) {
+                progress.wait();
+            }
+        }
+    }
+
+    protected void contentChanged(NodeState root, CommitInfo info) {
+        // do nothing without a change dispatcher
+    }
+
+    @Override
+    public NodeState schedule(@Nonnull Commit commit, SchedulerOption... schedulingOptions)
+            throws CommitFailedException {
+        if (!commit.hasChanges()) {
+            return getHeadNodeState().getChildNode(ROOT);
+        }
+
+        PendingCommit pending = new PendingCommit(commit);
+        queue.add(pending);
+        stats.onCommitQueued();
+
+        try {
+            while (true) {
+                if (committing.compareAndSet(false, true)) {
+                    try {
+                        while (!pending.result.isDone()) {
+                            applyBatch();
+                            signalProgress();
+                        }
+                    } finally {
+                        releaseCommitting();
+                    }
+                }
+                awaitProgress(pending);
+                if (pending.result.isDone()) {
+                    SegmentNodeState merged = pending.result.get();
+                    commit.applied(merged);
+                    return merged;
+                }
+                // The committer is done without getting to our commit,
+                // check whether we should take over
+            }
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+            throw new CommitFailedException("Segment", 2, "Merge interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CommitFailedException) {
+                throw (CommitFailedException) cause;
+            }
+            if (cause instanceof SegmentOverflowException) {
+                throw new CommitFailedException("Segment", 3, "Merge failed", cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CommitFailedException("Segment", 1, "Merge failed", cause);
+        }
+    }
+
+    /**
+     * Apply the next batch of queued commits. Should only be called while
+     * holding the {@link #committing} flag.
+     */
+    private void applyBatch() {
+        List<PendingCommit> batch = new ArrayList<>();
+        PendingCommit next;
+        while (batch.size() < MAX_BATCH_SIZE && (next = queue.poll()) != null) {
+            long dequeuedTime = System.nanoTime();
+            stats.dequeuedAfter(dequeuedTime - next.queuedTime);
+            stats.onCommitDequeued();
+            batch.add(next);
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (int retry = 0; retry <= MAX_RETRIES; retry++) {
+                refreshHead(true);
+                if (apply(batch)) {
+                    return;
+                }
+                log.debug("Head changed concurrently, applying batch of {} commits again", batch.size());
+            }
+            fail(batch, new CommitFailedException("Segment", 4,
+                    "Unable to update the head state after " + MAX_RETRIES + " retries"));
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        } catch (Error e) {
+            fail(batch, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Apply the commits in {@code batch} on top of the current head and
+     * update the head to the result.
+     *
+     * @return {@code true} if the head has been updated, {@code false} if it
+     *         has been concurrently changed.
+     */
+    private boolean apply(List<PendingCommit> batch) {
+        long beforeCommitTime = System.nanoTime();
+
+        SegmentNodeState before = head.get();
+        SegmentNodeState after = before;
+        List<PendingCommit> applied = new ArrayList<>(batch.size());
+        List<SegmentNodeState> states = new ArrayList<>(batch.size());
+        for (PendingCommit pending : batch) {
+            if (pending.result.isDone()) {
+                // Failed in a previous attempt to apply this batch
+                continue;
+            }
+            try {
+                after = pending.commit.apply(after);
+                applied.add(pending);
+                states.add(after);
+            } catch (CommitFailedException | RuntimeException e) {
+                // Only fail this commit and continue with the state before it
+                pending.result.setException(e);
+            }
+        }
+
+        if (applied.isEmpty()) {
+            return true;
+        }
+
+        if (!revisions.setHead(before.getRecordId(), after.getRecordId())) {
+            return false;
+        }
+
+        head.set(after);
+        long afterCommitTime = System.nanoTime();
+        for (int i = 0; i < applied.size(); i++) {
+            PendingCommit pending = applied.get(i);
+            NodeState root = states.get(i).getChildNode(ROOT);
+            contentChanged(root, pending.commit.info());
+            stats.committedAfter(afterCommitTime - beforeCommitTime);
+            stats.onCommit();
+            pending.result.set((SegmentNodeState) root);
+        }
+        return true;
+    }
+
+    private static void fail(List<PendingCommit> batch, Throwable t) {
+        for (PendingCommit pending : batch) {
+            pending.result.setException(t);
+        }
+    }
+
+    @Override
+    public String checkpoint(long lifetime, @Nonnull Map<String, String> properties) {
+        checkArgument(lifetime > 0);
+        checkNotNull(properties);
+        String name = UUID.randomUUID().toString();
+
+        // try 5 times
+        for (int i = 0; i < 5; i++) {
+            long now = System.currentTimeMillis();
+
+            SegmentNodeState state = reader.readHeadState(revisions);
+            SegmentNodeBuilder builder = state.builder();
+
+            NodeBuilder checkpoints = builder.child("checkpoints");
+            for (String n : checkpoints.getChildNodeNames()) {
+                NodeBuilder cp = checkpoints.getChildNode(n);
+                PropertyState ts = cp.getProperty("timestamp");
+                if (ts == null || ts.getType() != LONG || now > ts.getValue(LONG)) {
+                    cp.remove();
+                }
+            }
+
+            NodeBuilder cp = checkpoints.child(name);
+            if (Long.MAX_VALUE - now > lifetime) {
+                cp.setProperty("timestamp", now + lifetime);
+            } else {
+                cp.setProperty("timestamp", Long.MAX_VALUE);
+            }
+            cp.setProperty("created", now);
+
+            NodeBuilder props = cp.setChildNode("properties");
+            for (Entry<String, String> p : properties.entrySet()) {
+                props.setProperty(p.getKey(), p.getValue());
+            }
+            cp.setChildNode(ROOT, state.getChildNode(ROOT));
+
+            SegmentNodeState newState = builder.getNodeState();
+            if (revisions.setHead(state.getRecordId(), newState.getRecordId())) {
+                return name;
+            }
+        }
+
+        log.warn("Failed to create checkpoint {}.", name);
+        return name;
+    }
+
+    @Override
+    public boolean removeCheckpoint(String name) {
+        checkNotNull(name);
+
+        // try 5 times
+        for (int i = 0; i < 5; i++) {
+            SegmentNodeState state = reader.readHeadState(revisions);
+            SegmentNodeBuilder builder = state.builder();
+
+            NodeBuilder cp = builder.child("checkpoints").child(name);
+            if (cp.exists()) {
+                cp.remove();
+                SegmentNodeState newState = builder.getNodeState();
+                if (revisions.setHead(state.getRecordId(), newState.getRecordId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A commit waiting for being applied along with its result.
+     */
+    private static class PendingCommit {
+
+        final Commit commit;
+
+        final long queuedTime = System.nanoTime();
+
+        /**
+         * The root state after applying {@link #commit} or the reason why
+         * it failed.
+         */
+        final SettableFuture<SegmentNodeState> result = SettableFuture.create();
+
+        PendingCommit(Commit commit) {
+            this.commit = commit;
+        }
+
+    }
+
+    private static class ObservableLockFreeScheduler extends LockFreeScheduler implements Observable {
+        private final ChangeDispatcher changeDispatcher;
+
+        public ObservableLockFreeScheduler(LockFreeSchedulerBuilder builder) {
+            super(builder);
+            this.changeDispatcher = new ChangeDispatcher(head.get().getChildNode(ROOT));
+        }
+
+        @Override
+        protected void contentChanged(NodeState root, CommitInfo info) {
+            changeDispatcher.contentChanged(root, info);
+        }
+
+        @Override
+        public Closeable addObserver(Observer observer) {
+            return changeDispatcher.addObserver(observer);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The journal of the garbage collection runs of a segment store.
+ */
+public interface GCJournalFile {
+
+    /**
+     * Durably append a line to the GC journal.
+     *
+     * @param line the line, without the line terminator.
+     * @throws IOException if the line could not be written.
+     */
+    void writeLine(@Nonnull String line) throws IOException;
+
+    /**
+     * Read all the lines of the GC journal.
+     *
+     * @return the lines of the GC journal, oldest first. An empty list if the
+     * GC journal doesn't exist.
+     * @throws IOException if the GC journal could not be read.
+     */
+    @Nonnull
+    List<String> readLines() throws IOException;
+
+}
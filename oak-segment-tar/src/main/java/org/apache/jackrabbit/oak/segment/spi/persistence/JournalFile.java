@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The journal of the head revisions of a segment store. The journal is a
+ * sequence of lines, each of them describing a persisted head revision.
+ */
+public interface JournalFile {
+
+    /**
+     * Open a reader returning the lines of the journal, starting from the
+     * most recent one.
+     *
+     * @return a new journal reader.
+     * @throws IOException if the journal could not be opened.
+     */
+    @Nonnull
+    JournalFileReader openJournalReader() throws IOException;
+
+    /**
+     * Open a writer appending lines to the journal.
+     *
+     * @return a new journal writer.
+     * @throws IOException if the journal could not be opened.
+     */
+    @Nonnull
+    JournalFileWriter openJournalWriter() throws IOException;
+
+    /**
+     * @return the name of the journal.
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * @return {@code true} if the journal exists.
+     */
+    boolean exists();
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Reads the lines of a {@link JournalFile} in reverse order, starting from the
+ * most recent one.
+ */
+public interface JournalFileReader extends Closeable {
+
+    /**
+     * Read the next line.
+     *
+     * @return the next line, or {@code null} if there are no more lines.
+     * @throws IOException if the journal could not be read.
+     */
+    @CheckForNull
+    String readLine() throws IOException;
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The manifest of a segment store, storing meta-data like the store version.
+ */
+public interface ManifestFile {
+
+    /**
+     * @return {@code true} if the manifest exists.
+     */
+    boolean exists();
+
+    /**
+     * Load the content of the manifest.
+     *
+     * @return the properties stored in the manifest.
+     * @throws IOException if the manifest could not be read.
+     */
+    @Nonnull
+    Properties load() throws IOException;
+
+    /**
+     * Replace the content of the manifest.
+     *
+     * @param properties the properties to store in the manifest.
+     * @throws IOException if the manifest could not be written.
+     */
+    void save(@Nonnull Properties properties) throws IOException;
+
+}
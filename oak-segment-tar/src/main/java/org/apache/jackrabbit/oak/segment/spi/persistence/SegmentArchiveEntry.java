@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+/**
+ * The location of a segment within a segment archive.
+ */
+public interface SegmentArchiveEntry {
+
+    /**
+     * @return the most significant bits of the segment identifier.
+     */
+    long getMsb();
+
+    /**
+     * @return the least significant bits of the segment identifier.
+     */
+    long getLsb();
+
+    /**
+     * @return the position of the segment in the archive. Segments written
+     * later have a higher position.
+     */
+    int getPosition();
+
+    /**
+     * @return the size of the segment in bytes.
+     */
+    int getLength();
+
+    /**
+     * @return the GC generation of the segment.
+     */
+    int getGeneration();
+
+}
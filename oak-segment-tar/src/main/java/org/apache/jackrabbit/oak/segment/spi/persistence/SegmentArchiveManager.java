@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Manages the segment archives of a {@link SegmentNodeStorePersistence}.
+ * Archives are identified by their names, e.g. {@code data00000a.tar}.
+ */
+public interface SegmentArchiveManager {
+
+    /**
+     * List the names of all the archives.
+     *
+     * @return names of the archives, in no specific order.
+     * @throws IOException if the archives could not be listed.
+     */
+    @Nonnull
+    List<String> listArchives() throws IOException;
+
+    /**
+     * Open an archive for reading.
+     *
+     * @param archiveName name of the archive.
+     * @return a reader for the archive, or {@code null} if the archive
+     * doesn't have a valid index.
+     * @throws IOException if the archive could not be read.
+     */
+    @CheckForNull
+    SegmentArchiveReader open(@Nonnull String archiveName) throws IOException;
+
+    /**
+     * Create a new archive. The archive only becomes visible to readers once
+     * its writer has been {@link SegmentArchiveWriter#close() closed}.
+     *
+     * @param archiveName name of the archive.
+     * @return a writer for the new archive.
+     * @throws IOException if the archive could not be created.
+     */
+    @Nonnull
+    SegmentArchiveWriter create(@Nonnull String archiveName) throws IOException;
+
+    /**
+     * Delete an archive.
+     *
+     * @param archiveName name of the archive.
+     * @return {@code true} if the archive has been removed.
+     */
+    boolean delete(@Nonnull String archiveName);
+
+    /**
+     * Rename an archive.
+     *
+     * @param from current name of the archive.
+     * @param to   new name of the archive.
+     * @return {@code true} if the archive has been renamed.
+     */
+    boolean renameTo(@Nonnull String from, @Nonnull String to);
+
+    /**
+     * Copy the content of an archive to a new archive.
+     *
+     * @param from name of the source archive.
+     * @param to   name of the target archive.
+     * @throws IOException if the archive could not be copied.
+     */
+    void copyFile(@Nonnull String from, @Nonnull String to) throws IOException;
+
+    /**
+     * Check whether an archive exists.
+     *
+     * @param archiveName name of the archive.
+     * @return {@code true} if the archive exists.
+     */
+    boolean exists(@Nonnull String archiveName);
+
+    /**
+     * Scan an archive for segments, bypassing its index. This is used to
+     * recover the segments of an archive whose index is missing or corrupted.
+     *
+     * @param archiveName name of the archive.
+     * @param entries     map receiving the recovered segments, in the order
+     *                    they are found in the archive.
+     * @throws IOException if the archive could not be read.
+     */
+    void recoverEntries(@Nonnull String archiveName, @Nonnull LinkedHashMap<UUID, byte[]> entries) throws IOException;
+
+}
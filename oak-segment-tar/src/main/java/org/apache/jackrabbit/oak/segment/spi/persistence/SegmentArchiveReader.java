@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Read access to a closed segment archive.
+ */
+public interface SegmentArchiveReader {
+
+    /**
+     * Read a segment.
+     *
+     * @param msb the most significant bits of the segment identifier.
+     * @param lsb the least significant bits of the segment identifier.
+     * @return the content of the segment, or {@code null} if the segment is
+     * not contained in this archive.
+     * @throws IOException if the segment could not be read.
+     */
+    @CheckForNull
+    ByteBuffer readSegment(long msb, long lsb) throws IOException;
+
+    /**
+     * Read the first bytes of the entry of a segment. Implementations should
+     * only read the requested bytes instead of the whole entry.
+     *
+     * @param msb the most significant bits of the segment identifier.
+     * @param lsb the least significant bits of the segment identifier.
+     * @param length the maximum number of bytes to read.
+     * @return at most {@code length} bytes from the start of the entry, or
+     * {@code null} if the segment is not contained in this archive.
+     * @throws IOException if the segment could not be read.
+     */
+    @CheckForNull
+    ByteBuffer readSegmentHeader(long msb, long lsb, int length) throws IOException;
+
+    /**
+     * Check whether a segment is contained in this archive.
+     *
+     * @param msb the most significant bits of the segment identifier.
+     * @param lsb the least significant bits of the segment identifier.
+     * @return {@code true} if the segment is contained in this archive.
+     */
+    boolean containsSegment(long msb, long lsb);
+
+    /**
+     * @return the entries of all the segments contained in this archive.
+     */
+    @Nonnull
+    List<SegmentArchiveEntry> listSegments();
+
+    /**
+     * Load the segment graph previously stored with {@link
+     * SegmentArchiveWriter#writeGraph(byte[])}.
+     *
+     * @return the serialized segment graph, or {@code null} if this archive
+     * doesn't have a valid graph.
+     * @throws IOException if the graph could not be read.
+     */
+    @CheckForNull
+    ByteBuffer getGraph() throws IOException;
+
+    /**
+     * @return {@code true} if this archive has a valid segment graph.
+     */
+    boolean hasGraph();
+
+    /**
+     * Load the binary references previously stored with {@link
+     * SegmentArchiveWriter#writeBinaryReferences(byte[])}.
+     *
+     * @return the serialized binary references, or {@code null} if this
+     * archive doesn't have valid binary references.
+     * @throws IOException if the binary references could not be read.
+     */
+    @CheckForNull
+    ByteBuffer getBinaryReferences() throws IOException;
+
+    /**
+     * @return the size of this archive in bytes.
+     */
+    long length();
+
+    /**
+     * @return the name of this archive.
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Close this archive.
+     *
+     * @throws IOException if the archive could not be closed.
+     */
+    void close() throws IOException;
+
+    /**
+     * Return the number of bytes a segment of the given size takes up in
+     * this archive, including any meta-data or padding.
+     *
+     * @param size size of the segment in bytes.
+     * @return size of the entry in bytes.
+     */
+    int getEntrySize(int size);
+
+}
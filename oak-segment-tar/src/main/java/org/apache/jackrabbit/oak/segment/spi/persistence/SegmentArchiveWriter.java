@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Write access to a new segment archive. Segments are appended to the
+ * archive until the writer is {@link #close() closed}, after which the
+ * archive can be opened with {@link SegmentArchiveManager#open(String)}.
+ * Implementations have to support reading segments back while the archive is
+ * still being written.
+ */
+public interface SegmentArchiveWriter {
+
+    /**
+     * Append a segment to this archive.
+     *
+     * @param msb        the most significant bits of the segment identifier.
+     * @param lsb        the least significant bits of the segment identifier.
+     * @param data       the buffer containing the segment.
+     * @param offset     the offset of the segment in {@code data}.
+     * @param size       the size of the segment.
+     * @param generation the GC generation of the segment.
+     * @throws IOException if the segment could not be written.
+     */
+    void writeSegment(long msb, long lsb, @Nonnull byte[] data, int offset, int size, int generation) throws IOException;
+
+    /**
+     * Read a segment previously written to this archive.
+     *
+     * @param msb the most significant bits of the segment identifier.
+     * @param lsb the least significant bits of the segment identifier.
+     * @return the content of the segment, or {@code null} if the segment has
+     * not been written to this archive.
+     * @throws IOException if the segment could not be read.
+     */
+    @CheckForNull
+    ByteBuffer readSegment(long msb, long lsb) throws IOException;
+
+    /**
+     * Check whether a segment has been written to this archive.
+     *
+     * @param msb the most significant bits of the segment identifier.
+     * @param lsb the least significant bits of the segment identifier.
+     * @return {@code true} if the segment has been written to this archive.
+     */
+    boolean containsSegment(long msb, long lsb);
+
+    /**
+     * Store the serialized segment graph of this archive. This method is
+     * called at most once, before {@link #close()}.
+     *
+     * @param data the serialized segment graph.
+     * @throws IOException if the graph could not be written.
+     */
+    void writeGraph(@Nonnull byte[] data) throws IOException;
+
+    /**
+     * Store the serialized binary references of this archive. This method is
+     * called at most once, before {@link #close()}.
+     *
+     * @param data the serialized binary references.
+     * @throws IOException if the binary references could not be written.
+     */
+    void writeBinaryReferences(@Nonnull byte[] data) throws IOException;
+
+    /**
+     * @return the number of bytes written to this archive so far.
+     */
+    long getLength();
+
+    /**
+     * Complete the archive and release the underlying resources.
+     *
+     * @throws IOException if the archive could not be completed.
+     */
+    void close() throws IOException;
+
+    /**
+     * Make the segments written so far durable. This method may be called
+     * concurrently with reads and writes, but has to be safe to call
+     * concurrently with or after {@link #close()}.
+     *
+     * @throws IOException if the archive could not be flushed.
+     */
+    void flush() throws IOException;
+
+    /**
+     * @return the name of this archive.
+     */
+    @Nonnull
+    String getName();
+
+}
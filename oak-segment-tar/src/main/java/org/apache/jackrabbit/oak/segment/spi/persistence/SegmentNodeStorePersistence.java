@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.spi.persistence;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import org.apache.jackrabbit.oak.segment.file.IOMonitor;
+
+/**
+ * The persistence backend of a segment store. It provides access to the
+ * segment archives, the journal, the GC journal, the manifest and the
+ * repository lock. The default implementation stores all of them as files
+ * in a local directory.
+ */
+public interface SegmentNodeStorePersistence {
+
+    /**
+     * Create a new manager for the segment archives of this persistence.
+     *
+     * @param memoryMapping whether the archives should be memory mapped, if
+     *                      supported by the implementation.
+     * @param ioMonitor     monitor to notify about segment reads and writes.
+     * @return a new archive manager.
+     * @throws IOException if the archive manager could not be created.
+     */
+    @Nonnull
+    SegmentArchiveManager createArchiveManager(boolean memoryMapping, @Nonnull IOMonitor ioMonitor) throws IOException;
+
+    /**
+     * Check whether any segment archive exists in this persistence.
+     *
+     * @return {@code true} if there is at least one segment archive.
+     */
+    boolean segmentFilesExist();
+
+    /**
+     * @return the journal of the head revisions.
+     */
+    @Nonnull
+    JournalFile getJournalFile();
+
+    /**
+     * @return the journal of the garbage collection runs.
+     * @throws IOException if the GC journal could not be accessed.
+     */
+    @Nonnull
+    GCJournalFile getGCJournalFile() throws IOException;
+
+    /**
+     * @return the manifest of the segment store.
+     * @throws IOException if the manifest could not be accessed.
+     */
+    @Nonnull
+    ManifestFile getManifestFile() throws IOException;
+
+    /**
+     * Acquire an exclusive lock on the repository. The lock is released by
+     * calling {@link RepositoryLock#unlock()}.
+     *
+     * @return the acquired lock.
+     * @throws IOException if the lock could not be acquired.
+     */
+    @Nonnull
+    RepositoryLock lockRepository() throws IOException;
+
+}
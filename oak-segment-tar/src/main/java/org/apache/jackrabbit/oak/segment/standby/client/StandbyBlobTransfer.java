@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.standby.client;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkResponse;
+import org.apache.jackrabbit.oak.spi.blob.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transfers binaries from the primary on a lane of its own, so that big
+ * binaries don't stall the transfer of segments. Up to a fixed number of
+ * binaries are transferred concurrently, each over a connection of its own.
+ * <p>
+ * Binaries are transferred in chunks and streamed to a file in a download
+ * directory before being added to the blob store. If a transfer fails, the
+ * next transfer of the same binary resumes from the downloaded chunks.
+ * Requests to transfer a binary already in transfer share that transfer.
+ */
+class StandbyBlobTransfer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(StandbyBlobTransfer.class);
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final NioEventLoopGroup group;
+
+    private final String clientId;
+
+    private final boolean secure;
+
+    private final int readTimeoutMs;
+
+    private final String host;
+
+    private final int port;
+
+    private final BlobStore blobStore;
+
+    private final File directory;
+
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<String, Future<Void>> transfers = Maps.newConcurrentMap();
+
+    private final BlockingQueue<StandbyClient> idleClients = new LinkedBlockingQueue<>();
+
+    private final List<StandbyClient> clients = new ArrayList<>();
+
+    StandbyBlobTransfer(NioEventLoopGroup group, String clientId, boolean secure, int readTimeoutMs, String host, int port, BlobStore blobStore, File directory, int threads) {
+        this.group = group;
+        this.clientId = clientId;
+        this.secure = secure;
+        this.readTimeoutMs = readTimeoutMs;
+        this.host = host;
+        this.port = port;
+        this.blobStore = blobStore;
+        this.directory = directory;
+        this.executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("standby-blob"));
+    }
+
+    /**
+     * Start the transfer of a binary unless it is already in transfer.
+     *
+     * @return the future of the transfer.
+     */
+    Future<Void> fetch(final String blobId) {
+        Future<Void> transfer = transfers.get(blobId);
+
+        if (transfer != null) {
+            return transfer;
+        }
+
+        FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                transfer(blobId);
+                return null;
+            }
+
+        });
+
+        transfer = transfers.putIfAbsent(blobId, task);
+
+        if (transfer != null) {
+            return transfer;
+        }
+
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Wait for a binary to be transferred.
+     *
+     * @throws IllegalStateException if the binary could not be transferred.
+     */
+    void await(String blobId) throws InterruptedException {
+        await(fetch(blobId));
+    }
+
+    /**
+     * Wait for all binaries to be transferred.
+     *
+     * @throws IllegalStateException if a binary could not be transferred.
+     */
+    void awaitAll() throws InterruptedException {
+        for (Future<Void> transfer : transfers.values()) {
+            await(transfer);
+        }
+    }
+
+    private static void await(Future<Void> transfer) throws InterruptedException {
+        try {
+            transfer.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void transfer(String blobId) throws Exception {
+        StandbyClient client = idleClients.poll();
+
+        if (client == null) {
+            client = new StandbyClient(group, clientId, secure, readTimeoutMs);
+
+            synchronized (clients) {
+                clients.add(client);
+            }
+
+            client.connect(host, port);
+        }
+
+        // Clients are only reused after successful transfers, as failed
+        // ones might leave responses behind.
+
+        transfer(client, blobId);
+        idleClients.offer(client);
+    }
+
+    private void transfer(StandbyClient client, String blobId) throws Exception {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create download directory " + directory);
+        }
+
+        File file = new File(directory, Hashing.sha256().hashString(blobId, Charsets.UTF_8) + ".part");
+        long offset = file.length();
+
+        if (offset > 0) {
+            log.info("Resuming transfer of blob {} at offset {}", blobId, offset);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            long length = -1;
+
+            while (length < 0 || offset < length) {
+                GetBlobChunkResponse response = client.getBlobChunk(blobId, offset, CHUNK_SIZE);
+
+                if (response == null) {
+                    throw new IllegalStateException("Unable to load remote blob " + blobId + " at offset " + offset);
+                }
+
+                length = response.getBlobLength();
+                byte[] data = response.getChunkData();
+
+                if (data.length == 0 && offset < length) {
+                    throw new IllegalStateException("Unable to load remote blob " + blobId + " at offset " + offset);
+                }
+
+                out.write(data);
+                offset += data.length;
+            }
+        }
+
+        try (InputStream in = new FileInputStream(file)) {
+            blobStore.writeBlob(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to persist blob " + blobId, e);
+        }
+
+        if (!file.delete()) {
+            log.warn("Unable to delete transferred blob {}", file);
+        }
+
+        log.debug("Transferred blob {} of length {}", blobId, offset);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+
+        synchronized (clients) {
+            for (StandbyClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+}
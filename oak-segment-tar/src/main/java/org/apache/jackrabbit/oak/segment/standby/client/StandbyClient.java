@@ -17,6 +17,11 @@
 
 package org.apache.jackrabbit.oak.segment.standby.client;
 
+import static java.lang.Math.min;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
@@ -39,6 +44,9 @@ import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.util.CharsetUtil;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkRequest;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkRequestEncoder;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkResponse;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobRequest;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobRequestEncoder;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobResponse;
@@ -51,6 +59,8 @@ import org.apache.jackrabbit.oak.segment.standby.codec.GetReferencesResponse;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentRequest;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentRequestEncoder;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentResponse;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentsRequest;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentsRequestEncoder;
 import org.apache.jackrabbit.oak.segment.standby.codec.ResponseDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,18 +69,39 @@ class StandbyClient implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(StandbyClient.class);
 
+    /**
+     * Maximum number of segments requested by a single 'get segments'
+     * request. This keeps requests well below the maximum line length
+     * accepted by the server.
+     */
+    private static final int MAX_SEGMENTS_PER_REQUEST = 128;
+
+    /**
+     * Receives the segments transferred by {@link #getSegments(List,
+     * SegmentConsumer)}.
+     */
+    interface SegmentConsumer {
+
+        void accept(String segmentId, byte[] data) throws Exception;
+
+    }
+
     private final BlockingQueue<GetHeadResponse> headQueue = new LinkedBlockingDeque<>();
 
     private final BlockingQueue<GetSegmentResponse> segmentQueue = new LinkedBlockingDeque<>();
 
     private final BlockingQueue<GetBlobResponse> blobQueue = new LinkedBlockingDeque<>();
 
+    private final BlockingQueue<GetBlobChunkResponse> blobChunkQueue = new LinkedBlockingDeque<>();
+
     private final BlockingQueue<GetReferencesResponse> referencesQueue = new LinkedBlockingDeque<>();
 
     private final boolean secure;
 
     private final int readTimeoutMs;
 
+    private final int window;
+
     private final String clientId;
 
     private final NioEventLoopGroup group;
@@ -78,10 +109,23 @@ class StandbyClient implements AutoCloseable {
     private Channel channel;
 
     StandbyClient(NioEventLoopGroup group, String clientId, boolean secure, int readTimeoutMs) {
+        this(group, clientId, secure, readTimeoutMs, 1);
+    }
+
+    /**
+     * @param window the maximum number of segments and references in flight.
+     *               A window bigger than one pipelines 'get references'
+     *               requests and transfers segments with 'get segments'
+     *               requests, which are only understood by primaries
+     *               supporting them. A window of one only uses requests
+     *               understood by all primaries.
+     */
+    StandbyClient(NioEventLoopGroup group, String clientId, boolean secure, int readTimeoutMs, int window) {
         this.group = group;
         this.clientId = clientId;
         this.secure = secure;
         this.readTimeoutMs = readTimeoutMs;
+        this.window = Math.max(1, window);
     }
 
     void connect(String host, int port) throws Exception {
@@ -130,7 +174,9 @@ class StandbyClient implements AutoCloseable {
                         p.addLast(new StringEncoder(CharsetUtil.UTF_8));
                         p.addLast(new GetHeadRequestEncoder());
                         p.addLast(new GetSegmentRequestEncoder());
+                        p.addLast(new GetSegmentsRequestEncoder());
                         p.addLast(new GetBlobRequestEncoder());
+                        p.addLast(new GetBlobChunkRequestEncoder());
                         p.addLast(new GetReferencesRequestEncoder());
 
                         // Handlers
@@ -138,6 +184,7 @@ class StandbyClient implements AutoCloseable {
                         p.addLast(new GetHeadResponseHandler(headQueue));
                         p.addLast(new GetSegmentResponseHandler(segmentQueue));
                         p.addLast(new GetBlobResponseHandler(blobQueue));
+                        p.addLast(new GetBlobChunkResponseHandler(blobChunkQueue));
                         p.addLast(new GetReferencesResponseHandler(referencesQueue));
 
                         // Exception handler
@@ -188,6 +235,42 @@ class StandbyClient implements AutoCloseable {
         return response.getSegmentData();
     }
 
+    /**
+     * Transfer segments from the primary, keeping up to {@code window}
+     * segments in flight. The segments are passed to {@code consumer} in the
+     * order of {@code segmentIds}.
+     *
+     * @throws IllegalStateException if a segment could not be read from the
+     *                               primary.
+     */
+    void getSegments(List<String> segmentIds, SegmentConsumer consumer) throws Exception {
+        int sent = 0;
+        int received = 0;
+
+        while (received < segmentIds.size()) {
+            while (sent < segmentIds.size() && sent - received < window) {
+                if (window == 1) {
+                    channel.writeAndFlush(new GetSegmentRequest(clientId, segmentIds.get(sent)));
+                    sent++;
+                } else {
+                    int n = min(min(window - (sent - received), segmentIds.size() - sent), MAX_SEGMENTS_PER_REQUEST);
+                    channel.writeAndFlush(new GetSegmentsRequest(clientId, segmentIds.subList(sent, sent + n)));
+                    sent += n;
+                }
+            }
+
+            String segmentId = segmentIds.get(received);
+            GetSegmentResponse response = segmentQueue.poll(readTimeoutMs, TimeUnit.MILLISECONDS);
+
+            if (response == null || !segmentId.equals(response.getSegmentId())) {
+                throw new IllegalStateException("Unable to read segment " + segmentId);
+            }
+
+            consumer.accept(segmentId, response.getSegmentData());
+            received++;
+        }
+    }
+
     @Nullable
     byte[] getBlob(String blobId) throws InterruptedException {
         channel.writeAndFlush(new GetBlobRequest(clientId, blobId));
@@ -201,6 +284,25 @@ class StandbyClient implements AutoCloseable {
         return response.getBlobData();
     }
 
+    /**
+     * Read up to {@code length} bytes of a blob starting at {@code offset}.
+     * This requires a primary supporting 'get blob chunk' requests.
+     *
+     * @return the chunk or {@code null} if it could not be read.
+     */
+    @Nullable
+    GetBlobChunkResponse getBlobChunk(String blobId, long offset, int length) throws InterruptedException {
+        channel.writeAndFlush(new GetBlobChunkRequest(clientId, blobId, offset, length));
+
+        GetBlobChunkResponse response = blobChunkQueue.poll(readTimeoutMs, TimeUnit.MILLISECONDS);
+
+        if (response == null || !blobId.equals(response.getBlobId()) || response.getOffset() != offset) {
+            return null;
+        }
+
+        return response;
+    }
+
     @Nullable
     Iterable<String> getReferences(String segmentId) throws InterruptedException {
         channel.writeAndFlush(new GetReferencesRequest(clientId, segmentId));
@@ -214,4 +316,35 @@ class StandbyClient implements AutoCloseable {
         return response.getReferences();
     }
 
+    /**
+     * Read the references of several segments, keeping up to {@code window}
+     * requests in flight.
+     *
+     * @return the references by segment id, in the order of {@code
+     * segmentIds}, or {@code null} if the references of a segment could not
+     * be read.
+     */
+    @Nullable
+    Map<String, Iterable<String>> getReferences(List<String> segmentIds) throws InterruptedException {
+        Map<String, Iterable<String>> references = new LinkedHashMap<>();
+        int sent = 0;
+
+        for (String segmentId : segmentIds) {
+            while (sent < segmentIds.size() && sent - references.size() < window) {
+                channel.writeAndFlush(new GetReferencesRequest(clientId, segmentIds.get(sent)));
+                sent++;
+            }
+
+            GetReferencesResponse response = referencesQueue.poll(readTimeoutMs, TimeUnit.MILLISECONDS);
+
+            if (response == null || !segmentId.equals(response.getSegmentId())) {
+                return null;
+            }
+
+            references.put(segmentId, response.getReferences());
+        }
+
+        return references;
+    }
+
 }
@@ -20,6 +20,7 @@
 package org.apache.jackrabbit.oak.segment.standby.client;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.UUID;
@@ -28,6 +29,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.management.StandardMBean;
@@ -58,6 +60,12 @@ public final class StandbyClientSync implements ClientStandbyStatusMBean, Runnab
 
     private final boolean autoClean;
 
+    private final int window;
+
+    private final int blobThreads;
+
+    private final File blobDirectory;
+
     private final CommunicationObserver observer;
 
     private final boolean secure;
@@ -83,6 +91,25 @@ public final class StandbyClientSync implements ClientStandbyStatusMBean, Runnab
     private final NioEventLoopGroup group;
 
     public StandbyClientSync(String host, int port, FileStore store, boolean secure, int readTimeoutMs, boolean autoClean) {
+        this(host, port, store, secure, readTimeoutMs, autoClean, 1);
+    }
+
+    public StandbyClientSync(String host, int port, FileStore store, boolean secure, int readTimeoutMs, boolean autoClean, int window) {
+        this(host, port, store, secure, readTimeoutMs, autoClean, window, 0);
+    }
+
+    /**
+     * @param window the maximum number of segments requested from the primary
+     *               without waiting for their transfer. Values bigger than
+     *               one require a primary supporting 'get segments' requests.
+     * @param blobThreads the maximum number of binaries transferred
+     *                    concurrently in the background, in chunks over
+     *                    connections of their own. Values bigger than zero
+     *                    require a primary supporting 'get blob chunk'
+     *                    requests. With zero, binaries are transferred one
+     *                    at a time over the connection transferring segments.
+     */
+    public StandbyClientSync(String host, int port, FileStore store, boolean secure, int readTimeoutMs, boolean autoClean, int window, int blobThreads) {
         this.state = STATUS_INITIALIZING;
         this.lastSuccessfulRequest = -1;
         this.syncStartTimestamp = -1;
@@ -93,9 +120,12 @@ public final class StandbyClientSync implements ClientStandbyStatusMBean, Runnab
         this.secure = secure;
         this.readTimeoutMs = readTimeoutMs;
         this.autoClean = autoClean;
+        this.window = window;
+        this.blobThreads = blobThreads;
         this.fileStore = store;
         String s = System.getProperty(CLIENT_ID_PROPERTY_NAME);
         this.observer = new CommunicationObserver((s == null || s.isEmpty()) ? UUID.randomUUID().toString() : s);
+        this.blobDirectory = new File(System.getProperty("java.io.tmpdir"), "standby-blobs-" + observer.getID());
         group = new NioEventLoopGroup(0, new NamedThreadFactory("standby"));
 
         final MBeanServer jmxServer = ManagementFactory.getPlatformMBeanServer();
@@ -149,11 +179,14 @@ public final class StandbyClientSync implements ClientStandbyStatusMBean, Runnab
 
             try {
                 long startTimestamp = System.currentTimeMillis();
-                try (StandbyClient client = new StandbyClient(group, observer.getID(), secure, readTimeoutMs)) {
+                try (
+                        StandbyClient client = new StandbyClient(group, observer.getID(), secure, readTimeoutMs, window);
+                        StandbyBlobTransfer blobs = newBlobTransfer()
+                ) {
                     client.connect(host, port);
 
                     int genBefore = headGeneration(fileStore);
-                    new StandbyClientSyncExecution(fileStore, client, newRunningSupplier()).execute();
+                    new StandbyClientSyncExecution(fileStore, client, blobs, newRunningSupplier()).execute();
                     int genAfter = headGeneration(fileStore);
 
                     if (autoClean && (genAfter > genBefore)) {
@@ -178,6 +211,14 @@ public final class StandbyClientSync implements ClientStandbyStatusMBean, Runnab
         }
     }
 
+    @Nullable
+    private StandbyBlobTransfer newBlobTransfer() {
+        if (blobThreads <= 0 || fileStore.getBlobStore() == null) {
+            return null;
+        }
+        return new StandbyBlobTransfer(group, observer.getID(), secure, readTimeoutMs, host, port, fileStore.getBlobStore(), blobDirectory, blobThreads);
+    }
+
     private static int headGeneration(FileStore fileStore) {
         return fileStore.getHead().getRecordId().getSegment().getGcGeneration();
     }
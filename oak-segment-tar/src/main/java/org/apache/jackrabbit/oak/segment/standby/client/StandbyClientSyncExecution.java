@@ -17,8 +17,11 @@
 
 package org.apache.jackrabbit.oak.segment.standby.client;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -32,6 +35,7 @@ import org.apache.jackrabbit.oak.segment.SegmentNodeBuilder;
 import org.apache.jackrabbit.oak.segment.SegmentNodeState;
 import org.apache.jackrabbit.oak.segment.SegmentNotFoundException;
 import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.standby.client.StandbyClient.SegmentConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,12 +55,16 @@ class StandbyClientSyncExecution {
 
     private final StandbyClient client;
 
+    @Nullable
+    private final StandbyBlobTransfer blobs;
+
     private final Supplier<Boolean> running;
 
-    StandbyClientSyncExecution(FileStore store, StandbyClient client, Supplier<Boolean> running) {
+    StandbyClientSyncExecution(FileStore store, StandbyClient client, @Nullable StandbyBlobTransfer blobs, Supplier<Boolean> running) {
         this.store = store;
         this.idProvider = store.getSegmentIdProvider();
         this.client = client;
+        this.blobs = blobs;
         this.running = running;
     }
 
@@ -76,6 +84,14 @@ class StandbyClientSyncExecution {
         SegmentNodeBuilder builder = before.builder();
         SegmentNodeState current = newSegmentNodeState(remoteHead);
         compareAgainstBaseState(current, before, builder);
+
+        // The new head must not be visible before all its binaries are
+        // available locally
+
+        if (blobs != null) {
+            blobs.awaitAll();
+        }
+
         boolean ok = store.getRevisions().setHead(before.getRecordId(), remoteHead);
         store.flush();
         log.debug("updated head state successfully: {} in {}ms.", ok, System.currentTimeMillis() - t);
@@ -97,7 +113,7 @@ class StandbyClientSyncExecution {
     private boolean compareAgainstBaseState(SegmentNodeState current, SegmentNodeState before, SegmentNodeBuilder builder) throws Exception {
         while (true) {
             try {
-                return current.compareAgainstBaseState(before, new StandbyDiff(builder, store, client, running));
+                return current.compareAgainstBaseState(before, new StandbyDiff(builder, store, client, blobs, running));
             } catch (SegmentNotFoundException e) {
                 log.debug("Found missing segment {}", e.getSegmentId());
                 copySegmentHierarchyFromPrimary(UUID.fromString(e.getSegmentId()));
@@ -118,91 +134,125 @@ class StandbyClientSyncExecution {
         Set<UUID> local = new HashSet<>();
 
         while (!batch.isEmpty()) {
-            UUID current = batch.remove();
-
-            log.debug("Inspecting segment {}", current);
-            visited.add(current);
-
-            // Add the current segment ID at the beginning of the respective
-            // list, depending on its type. This allows to process those
-            // segments in an optimal topological order later on. If the current
-            // segment is a bulk segment, we can skip the rest of the loop,
-            // since bulk segments don't reference any other segment.
-
-            if (SegmentId.isDataSegmentId(current.getLeastSignificantBits())) {
-                data.addFirst(current);
-            } else {
-                bulk.addFirst(current);
-                continue;
-            }
 
-            for (String s : readReferences(current)) {
-                UUID referenced = UUID.fromString(s);
+            // Read the references of all queued data segments at once. This
+            // allows the client to pipeline the requests to the primary.
 
-                // Short circuit for the "backward reference". The segment graph
-                // is not guaranteed to be acyclic, so there might be segments
-                // pointing back to a previously visited (but locally
-                // unavailable) segment.
+            List<UUID> level = new ArrayList<>(batch);
+            batch.clear();
 
-                if (visited.contains(referenced)) {
-                    continue;
+            List<String> dataIds = new ArrayList<>();
+
+            for (UUID current : level) {
+                if (SegmentId.isDataSegmentId(current.getLeastSignificantBits())) {
+                    dataIds.add(current.toString());
                 }
+            }
 
-                // Short circuit for the "diamond problem". Imagine that segment
-                // S1 references S2 and S3 and both S2 and S3 reference S4.
-                // These references form the shape of a diamond. If the segments
-                // are processed in the order S1, S2, S3, then S4 is added twice
-                // to the 'batch' queue. The following check prevents processing
-                // S4 twice or more.
+            Map<String, Iterable<String>> references = readReferences(dataIds);
 
-                if (queued.contains(referenced)) {
-                    continue;
-                }
+            for (UUID current : level) {
+                log.debug("Inspecting segment {}", current);
+                visited.add(current);
 
-                // Short circuit for the "sharing-is-caring problem". If many
-                // new segments are sharing segments that are already locally
-                // available, we should not issue a request for it to the
-                // server. Moreover, if a segment was visited and persisted
-                // during this synchronization process, it will end up in the
-                // 'local' set as well.
+                // Add the current segment ID at the beginning of the respective
+                // list, depending on its type. This allows to process those
+                // segments in an optimal topological order later on. If the current
+                // segment is a bulk segment, we can skip the rest of the loop,
+                // since bulk segments don't reference any other segment.
 
-                if (local.contains(referenced)) {
+                if (SegmentId.isDataSegmentId(current.getLeastSignificantBits())) {
+                    data.addFirst(current);
+                } else {
+                    bulk.addFirst(current);
                     continue;
                 }
 
-                if (isLocal(referenced)) {
-                    local.add(referenced);
-                    continue;
+                for (String s : references.get(current.toString())) {
+                    UUID referenced = UUID.fromString(s);
+
+                    // Short circuit for the "backward reference". The segment graph
+                    // is not guaranteed to be acyclic, so there might be segments
+                    // pointing back to a previously visited (but locally
+                    // unavailable) segment.
+
+                    if (visited.contains(referenced)) {
+                        continue;
+                    }
+
+                    // Short circuit for the "diamond problem". Imagine that segment
+                    // S1 references S2 and S3 and both S2 and S3 reference S4.
+                    // These references form the shape of a diamond. If the segments
+                    // are processed in the order S1, S2, S3, then S4 is added twice
+                    // to the 'batch' queue. The following check prevents processing
+                    // S4 twice or more.
+
+                    if (queued.contains(referenced)) {
+                        continue;
+                    }
+
+                    // Short circuit for the "sharing-is-caring problem". If many
+                    // new segments are sharing segments that are already locally
+                    // available, we should not issue a request for it to the
+                    // server. Moreover, if a segment was visited and persisted
+                    // during this synchronization process, it will end up in the
+                    // 'local' set as well.
+
+                    if (local.contains(referenced)) {
+                        continue;
+                    }
+
+                    if (isLocal(referenced)) {
+                        local.add(referenced);
+                        continue;
+                    }
+
+                    // If we arrive at this point, the referenced segment is 1) not
+                    // present locally, 2) not already queued for retrieval and 3)
+                    // never visited before. We can safely add the reference to the
+                    // queue and transfer the segment later.
+
+                    log.debug("Found reference from {} to {}", current, referenced);
+                    batch.add(referenced);
+                    queued.add(referenced);
                 }
-
-                // If we arrive at this point, the referenced segment is 1) not
-                // present locally, 2) not already queued for retrieval and 3)
-                // never visited before. We can safely add the reference to the
-                // queue and transfer the segment later.
-
-                log.debug("Found reference from {} to {}", current, referenced);
-                batch.add(referenced);
-                queued.add(referenced);
             }
         }
 
+        List<String> segmentIds = new ArrayList<>(bulk.size() + data.size());
+
         for (UUID id : bulk) {
-            log.info("Copying bulk segment {} from primary", id);
-            copySegmentFromPrimary(id);
+            segmentIds.add(id.toString());
         }
 
         for (UUID id : data) {
-            log.info("Copying data segment {} from primary", id);
-            copySegmentFromPrimary(id);
+            segmentIds.add(id.toString());
         }
 
+        client.getSegments(segmentIds, new SegmentConsumer() {
+
+            @Override
+            public void accept(String segmentId, byte[] data) throws Exception {
+                UUID uuid = UUID.fromString(segmentId);
+
+                if (SegmentId.isDataSegmentId(uuid.getLeastSignificantBits())) {
+                    log.info("Copying data segment {} from primary", uuid);
+                } else {
+                    log.info("Copying bulk segment {} from primary", uuid);
+                }
+
+                writeSegment(uuid, data);
+            }
+
+        });
+
     }
 
-    private Iterable<String> readReferences(UUID id) throws InterruptedException {
-        Iterable<String> references = client.getReferences(id.toString());
+    private Map<String, Iterable<String>> readReferences(List<String> ids) throws InterruptedException {
+        Map<String, Iterable<String>> references = client.getReferences(ids);
 
         if (references == null) {
-            throw new IllegalStateException(String.format("Unable to read references of segment %s from primary", id));
+            throw new IllegalStateException(String.format("Unable to read references of segments %s from primary", ids));
         }
 
         return references;
@@ -215,13 +265,7 @@ class StandbyClientSyncExecution {
         ));
     }
 
-    private void copySegmentFromPrimary(UUID uuid) throws Exception {
-        byte[] data = client.getSegment(uuid.toString());
-
-        if (data == null) {
-            throw new IllegalStateException("Unable to read segment " + uuid);
-        }
-
+    private void writeSegment(UUID uuid, byte[] data) throws Exception {
         long msb = uuid.getMostSignificantBits();
         long lsb = uuid.getLeastSignificantBits();
         SegmentId segmentId = idProvider.newSegmentId(msb, lsb);
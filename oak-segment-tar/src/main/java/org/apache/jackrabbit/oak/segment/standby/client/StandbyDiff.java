@@ -25,6 +25,8 @@ import static org.apache.jackrabbit.oak.api.Type.BINARY;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Supplier;
 import org.apache.jackrabbit.oak.api.Blob;
 import org.apache.jackrabbit.oak.api.PropertyState;
@@ -51,6 +53,9 @@ class StandbyDiff implements NodeStateDiff {
 
     private final StandbyClient client;
 
+    @Nullable
+    private final StandbyBlobTransfer blobs;
+
     private final boolean hasDataStore;
 
     private final String path;
@@ -64,15 +69,21 @@ class StandbyDiff implements NodeStateDiff {
      */
     private final boolean logOnly;
 
-    StandbyDiff(NodeBuilder builder, FileStore store, StandbyClient client, Supplier<Boolean> running) {
-        this(builder, store, client, "/", false, running);
+    /**
+     * @param blobs the lane transferring binaries in the background or {@code
+     *              null} to transfer binaries with {@code client} while
+     *              comparing.
+     */
+    StandbyDiff(NodeBuilder builder, FileStore store, StandbyClient client, @Nullable StandbyBlobTransfer blobs, Supplier<Boolean> running) {
+        this(builder, store, client, blobs, "/", false, running);
     }
 
-    private StandbyDiff(NodeBuilder builder, FileStore store, StandbyClient client, String path, boolean logOnly, Supplier<Boolean> running) {
+    private StandbyDiff(NodeBuilder builder, FileStore store, StandbyClient client, StandbyBlobTransfer blobs, String path, boolean logOnly, Supplier<Boolean> running) {
         this.builder = builder;
         this.store = store;
         this.hasDataStore = store.getBlobStore() != null;
         this.client = client;
+        this.blobs = blobs;
         this.path = path;
         this.logOnly = logOnly;
         this.running = running;
@@ -89,9 +100,9 @@ class StandbyDiff implements NodeStateDiff {
         }
 
         if (logOnly) {
-            binaryCheck(after);
+            binaryCheck(after, false);
         } else {
-            builder.setProperty(binaryCheck(after));
+            builder.setProperty(binaryCheck(after, false));
         }
 
         return true;
@@ -104,9 +115,9 @@ class StandbyDiff implements NodeStateDiff {
         }
 
         if (logOnly) {
-            binaryCheck(after);
+            binaryCheck(after, false);
         } else {
-            builder.setProperty(binaryCheck(after));
+            builder.setProperty(binaryCheck(after, false));
         }
 
         return true;
@@ -125,29 +136,29 @@ class StandbyDiff implements NodeStateDiff {
         return true;
     }
 
-    private PropertyState binaryCheck(PropertyState property) {
+    private PropertyState binaryCheck(PropertyState property, boolean wait) {
         Type<?> type = property.getType();
 
         if (type == BINARY) {
-            binaryCheck(property.getValue(Type.BINARY), property.getName());
+            binaryCheck(property.getValue(Type.BINARY), property.getName(), wait);
         } else if (type == BINARIES) {
             for (Blob blob : property.getValue(BINARIES)) {
-                binaryCheck(blob, property.getName());
+                binaryCheck(blob, property.getName(), wait);
             }
         }
 
         return property;
     }
 
-    private void binaryCheck(Blob b, String pName) {
+    private void binaryCheck(Blob b, String pName, boolean wait) {
         if (b instanceof SegmentBlob) {
-            binaryCheck((SegmentBlob) b, pName);
+            binaryCheck((SegmentBlob) b, pName, wait);
         } else {
             log.warn("Unknown Blob {} at {}, ignoring", b.getClass().getName(), path + "#" + pName);
         }
     }
 
-    private void binaryCheck(SegmentBlob sb, String pName) {
+    private void binaryCheck(SegmentBlob sb, String pName, boolean wait) {
         if (sb.isExternal() && hasDataStore && sb.getReference() == null) {
             String blobId = sb.getBlobId();
 
@@ -156,7 +167,13 @@ class StandbyDiff implements NodeStateDiff {
             }
 
             try {
-                readBlob(blobId, pName);
+                if (blobs == null) {
+                    readBlob(blobId, pName);
+                } else if (wait) {
+                    blobs.await(blobId);
+                } else {
+                    blobs.fetch(blobId);
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
@@ -192,7 +209,7 @@ class StandbyDiff implements NodeStateDiff {
             log.trace("Check binaries for node {} and retry to process childNodeChanged", name);
             // Attempt to load the binaries and retry, see OAK-4969
             for (PropertyState propertyState : after.getProperties()) {
-                binaryCheck(propertyState);
+                binaryCheck(propertyState, true);
             }
             return process(name, "childNodeChanged", before, after);
         }
@@ -225,7 +242,7 @@ class StandbyDiff implements NodeStateDiff {
             }
             // has external datastore, we need a deep
             // traversal to verify binaries
-            return after.compareAgainstBaseState(before, new StandbyDiff(builder.getChildNode(name), store, client, path + name + "/", true, running));
+            return after.compareAgainstBaseState(before, new StandbyDiff(builder.getChildNode(name), store, client, blobs, path + name + "/", true, running));
         }
 
         return false;
@@ -19,6 +19,11 @@
 
 package org.apache.jackrabbit.oak.segment.standby.codec;
 
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
 final class Messages {
 
     static final byte HEADER_RECORD = 0x00;
@@ -29,18 +34,26 @@ final class Messages {
 
     static final byte HEADER_REFERENCES = 0x03;
 
+    static final byte HEADER_BLOB_CHUNK = 0x04;
+
     static final String GET_HEAD = "h";
 
     static final String GET_SEGMENT = "s.";
 
+    static final String GET_SEGMENTS = "ss.";
+
     static final String GET_BLOB = "b.";
 
+    static final String GET_BLOB_CHUNK = "bc.";
+
     static final String GET_REFERENCES = "r.";
 
     private static final String MAGIC = "Standby-CMD@";
 
     private static final String SEPARATOR = ":";
 
+    private static final String LIST_SEPARATOR = ",";
+
     private Messages() {}
 
     private static String newRequest(String clientId, String body, boolean delimited) {
@@ -76,6 +89,18 @@ final class Messages {
         return newGetSegmentRequest(clientId, segmentId, true);
     }
 
+    static String newGetSegmentsRequest(String clientId, Iterable<String> segmentIds, boolean delimited) {
+        return newRequest(clientId, GET_SEGMENTS + Joiner.on(LIST_SEPARATOR).join(segmentIds), delimited);
+    }
+
+    static String newGetSegmentsRequest(String clientId, Iterable<String> segmentIds) {
+        return newGetSegmentsRequest(clientId, segmentIds, true);
+    }
+
+    static List<String> extractSegmentIdsFrom(String request) {
+        return Splitter.on(LIST_SEPARATOR).omitEmptyStrings().splitToList(request.substring(GET_SEGMENTS.length()));
+    }
+
     static String newGetReferencesRequest(String clientId, String segmentId, boolean delimited) {
         return newRequest(clientId, GET_REFERENCES + segmentId, delimited);
     }
@@ -92,6 +117,14 @@ final class Messages {
         return newGetBlobRequest(clientId, blobId, true);
     }
 
+    static String newGetBlobChunkRequest(String clientId, String blobId, long offset, int length, boolean delimited) {
+        return newRequest(clientId, GET_BLOB_CHUNK + offset + "." + length + "." + blobId, delimited);
+    }
+
+    static String newGetBlobChunkRequest(String clientId, String blobId, long offset, int length) {
+        return newGetBlobChunkRequest(clientId, blobId, offset, length, true);
+    }
+
     static String extractMessageFrom(String payload) {
         if (payload.startsWith(MAGIC) && payload.length() > MAGIC.length()) {
             int i = payload.indexOf(SEPARATOR);
@@ -19,6 +19,7 @@ package org.apache.jackrabbit.oak.segment.standby.codec;
 
 import java.util.List;
 
+import com.google.common.base.Splitter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import org.slf4j.Logger;
@@ -35,12 +36,23 @@ public class RequestDecoder extends MessageToMessageDecoder<String> {
         if (request == null) {
             log.debug("Received invalid message {}, ignoring", msg);
             ctx.fireChannelRead(msg);
+        } else if (request.startsWith(Messages.GET_BLOB_CHUNK)) {
+            GetBlobChunkRequest chunkRequest = decodeGetBlobChunkRequest(Messages.extractClientFrom(msg), request);
+            if (chunkRequest == null) {
+                log.debug("Received invalid 'get blob chunk' message {}, dropping", msg);
+            } else {
+                log.debug("Parsed 'get blob chunk' request");
+                out.add(chunkRequest);
+            }
         } else if (request.startsWith(Messages.GET_BLOB)) {
             log.debug("Parsed 'get blob' request");
             out.add(new GetBlobRequest(Messages.extractClientFrom(msg), request.substring(Messages.GET_BLOB.length())));
         } else if (request.equalsIgnoreCase(Messages.GET_HEAD)) {
             log.debug("Parsed 'get head' message");
             out.add(new GetHeadRequest(Messages.extractClientFrom(msg)));
+        } else if (request.startsWith(Messages.GET_SEGMENTS)) {
+            log.debug("Parsed 'get segments' message");
+            out.add(new GetSegmentsRequest(Messages.extractClientFrom(msg), Messages.extractSegmentIdsFrom(request)));
         } else if (request.startsWith(Messages.GET_SEGMENT)) {
             log.debug("Parsed 'get segment' message");
             out.add(new GetSegmentRequest(Messages.extractClientFrom(msg), request.substring(Messages.GET_SEGMENT.length())));
@@ -52,4 +64,18 @@ public class RequestDecoder extends MessageToMessageDecoder<String> {
         }
     }
 
+    private static GetBlobChunkRequest decodeGetBlobChunkRequest(String clientId, String request) {
+        List<String> parts = Splitter.on('.').limit(3).splitToList(request.substring(Messages.GET_BLOB_CHUNK.length()));
+
+        if (parts.size() < 3) {
+            return null;
+        }
+
+        try {
+            return new GetBlobChunkRequest(clientId, parts.get(2), Long.parseLong(parts.get(0)), Integer.parseInt(parts.get(1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ package org.apache.jackrabbit.oak.segment.standby.server;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
@@ -52,4 +53,43 @@ class DefaultStandbyBlobReader implements StandbyBlobReader {
         return bytes;
     }
 
+    @Override
+    public long getBlobLength(String blobId) {
+        if (store == null) {
+            return -1;
+        }
+
+        try {
+            return store.getBlobLength(blobId);
+        } catch (IOException e) {
+            log.warn("Error while reading blob length", e);
+            return -1;
+        }
+    }
+
+    @Override
+    public byte[] readBlobChunk(String blobId, long offset, int length) {
+        if (store == null) {
+            return null;
+        }
+
+        byte[] buffer = new byte[length];
+        int read = 0;
+
+        try {
+            while (read < length) {
+                int n = store.readBlob(blobId, offset + read, buffer, read, length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        } catch (IOException e) {
+            log.warn("Error while reading blob content", e);
+            return null;
+        }
+
+        return read == length ? buffer : Arrays.copyOf(buffer, read);
+    }
+
 }
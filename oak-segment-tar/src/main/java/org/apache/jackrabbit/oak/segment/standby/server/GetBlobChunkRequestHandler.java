@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.standby.server;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkRequest;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class GetBlobChunkRequestHandler extends SimpleChannelInboundHandler<GetBlobChunkRequest> {
+
+    private static final Logger log = LoggerFactory.getLogger(GetBlobChunkRequestHandler.class);
+
+    /**
+     * Upper bound for the size of a chunk, whatever the client requests.
+     */
+    static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final StandbyBlobReader reader;
+
+    GetBlobChunkRequestHandler(StandbyBlobReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, GetBlobChunkRequest msg) throws Exception {
+        log.debug("Reading chunk of blob {} at offset {} for client {}", msg.getBlobId(), msg.getOffset(), msg.getClientId());
+
+        long blobLength = reader.getBlobLength(msg.getBlobId());
+
+        if (blobLength < 0 || msg.getOffset() < 0 || msg.getOffset() > blobLength) {
+            log.debug("Blob {} not found, discarding request from client {}", msg.getBlobId(), msg.getClientId());
+            return;
+        }
+
+        int length = (int) min(blobLength - msg.getOffset(), min(max(msg.getLength(), 1), MAX_CHUNK_SIZE));
+        byte[] data = reader.readBlobChunk(msg.getBlobId(), msg.getOffset(), length);
+
+        if (data == null) {
+            log.debug("Blob {} not found, discarding request from client {}", msg.getBlobId(), msg.getClientId());
+            return;
+        }
+
+        ctx.writeAndFlush(new GetBlobChunkResponse(msg.getClientId(), msg.getBlobId(), msg.getOffset(), blobLength, data));
+    }
+
+}
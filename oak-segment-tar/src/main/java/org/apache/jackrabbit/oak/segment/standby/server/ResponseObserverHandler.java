@@ -20,6 +20,7 @@ package org.apache.jackrabbit.oak.segment.standby.server;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkResponse;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobResponse;
 import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentResponse;
 import org.apache.jackrabbit.oak.segment.standby.store.CommunicationObserver;
@@ -42,6 +43,8 @@ class ResponseObserverHandler extends ChannelOutboundHandlerAdapter {
             onGetSegmentResponse((GetSegmentResponse) msg);
         } else if (msg instanceof GetBlobResponse) {
             onGetBlobResponse((GetBlobResponse) msg);
+        } else if (msg instanceof GetBlobChunkResponse) {
+            onGetBlobChunkResponse((GetBlobChunkResponse) msg);
         }
 
         ctx.write(msg, promise);
@@ -55,4 +58,8 @@ class ResponseObserverHandler extends ChannelOutboundHandlerAdapter {
         observer.didSendBinariesBytes(response.getClientId(), Math.max(0, response.getBlobData().length));
     }
 
+    private void onGetBlobChunkResponse(GetBlobChunkResponse response) {
+        observer.didSendBinariesBytes(response.getClientId(), response.getChunkData().length);
+    }
+
 }
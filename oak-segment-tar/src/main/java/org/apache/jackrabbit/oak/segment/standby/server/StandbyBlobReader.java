@@ -21,4 +21,16 @@ interface StandbyBlobReader {
 
     byte[] readBlob(String blobId);
 
+    /**
+     * @return the length of the blob or {@code -1} if the blob could not be
+     * read.
+     */
+    long getBlobLength(String blobId);
+
+    /**
+     * @return up to {@code length} bytes of the blob starting at {@code
+     * offset} or {@code null} if the blob could not be read.
+     */
+    byte[] readBlobChunk(String blobId, long offset, int length);
+
 }
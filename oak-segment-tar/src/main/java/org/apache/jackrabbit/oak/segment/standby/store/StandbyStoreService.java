@@ -98,6 +98,16 @@ public class StandbyStoreService {
     @Property(boolValue = AUTO_CLEAN_DEFAULT)
     public static final String AUTO_CLEAN = "standby.autoclean";
 
+    public static final int WINDOW_DEFAULT = 1;
+
+    @Property(intValue = WINDOW_DEFAULT)
+    public static final String WINDOW = "standby.window";
+
+    public static final int BLOB_THREADS_DEFAULT = 0;
+
+    @Property(intValue = BLOB_THREADS_DEFAULT)
+    public static final String BLOB_THREADS = "standby.blobThreads";
+
     @Reference(policy = STATIC, policyOption = GREEDY)
     private SegmentStoreProvider storeProvider = null;
 
@@ -154,8 +164,10 @@ public class StandbyStoreService {
         boolean secure = PropertiesUtil.toBoolean(props.get(SECURE), SECURE_DEFAULT);
         int readTimeout = PropertiesUtil.toInteger(props.get(READ_TIMEOUT), READ_TIMEOUT_DEFAULT);
         boolean clean = PropertiesUtil.toBoolean(props.get(AUTO_CLEAN), AUTO_CLEAN_DEFAULT);
+        int window = PropertiesUtil.toInteger(props.get(WINDOW), WINDOW_DEFAULT);
+        int blobThreads = PropertiesUtil.toInteger(props.get(BLOB_THREADS), BLOB_THREADS_DEFAULT);
 
-        StandbyClientSync standbyClientSync = new StandbyClientSync(host, port, fileStore, secure, readTimeout, clean);
+        StandbyClientSync standbyClientSync = new StandbyClientSync(host, port, fileStore, secure, readTimeout, clean, window, blobThreads);
         closer.register(standbyClientSync);
 
         Dictionary<Object, Object> dictionary = new Hashtable<Object, Object>();
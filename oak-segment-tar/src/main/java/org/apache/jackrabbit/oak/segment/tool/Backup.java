@@ -25,7 +25,9 @@ import java.io.File;
 import java.io.IOException;
 
 import org.apache.jackrabbit.oak.backup.FileStoreBackup;
+import org.apache.jackrabbit.oak.backup.FileStoreIncrementalBackup;
 import org.apache.jackrabbit.oak.backup.impl.FileStoreBackupImpl;
+import org.apache.jackrabbit.oak.backup.impl.FileStoreIncrementalBackupImpl;
 import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
 import org.apache.jackrabbit.oak.segment.file.ReadOnlyFileStore;
 
@@ -54,8 +56,12 @@ public class Backup implements Runnable {
 
         private boolean fakeBlobStore = FileStoreBackupImpl.USE_FAKE_BLOBSTORE;
 
+        private boolean incremental;
+
         private final FileStoreBackup fileStoreBackup = new FileStoreBackupImpl();
 
+        private final FileStoreIncrementalBackup fileStoreIncrementalBackup = new FileStoreIncrementalBackupImpl();
+
         private Builder() {
             // Prevent external instantiation.
         }
@@ -98,6 +104,21 @@ public class Backup implements Runnable {
             return this;
         }
 
+        /**
+         * Add an increment to the backup set in the target folder instead of
+         * backing up the full head state. An increment only contains the
+         * segments written since the previous increment. This parameter is
+         * not required and defaults to {@code false}.
+         *
+         * @param incremental {@code true} if an incremental backup should be
+         *                    performed, {@code false} otherwise.
+         * @return this builder.
+         */
+        public Builder withIncremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
         /**
          * Create an executable version of the {@link Backup} command.
          *
@@ -117,19 +138,29 @@ public class Backup implements Runnable {
 
     private final boolean fakeBlobStore;
 
+    private final boolean incremental;
+
     private final FileStoreBackup fileStoreBackup;
 
+    private final FileStoreIncrementalBackup fileStoreIncrementalBackup;
+
     private Backup(Builder builder) {
         this.source = builder.source;
         this.target = builder.target;
         this.fakeBlobStore = builder.fakeBlobStore;
+        this.incremental = builder.incremental;
         this.fileStoreBackup = builder.fileStoreBackup;
+        this.fileStoreIncrementalBackup = builder.fileStoreIncrementalBackup;
     }
 
     @Override
     public void run() {
         try (ReadOnlyFileStore fs = newFileStore()) {
-            fileStoreBackup.backup(fs.getReader(), fs.getRevisions(), target);
+            if (incremental) {
+                fileStoreIncrementalBackup.backup(fs, target);
+            } else {
+                fileStoreBackup.backup(fs.getReader(), fs.getRevisions(), target);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
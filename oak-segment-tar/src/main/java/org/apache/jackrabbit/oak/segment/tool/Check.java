@@ -56,6 +56,12 @@ public class Check implements Runnable {
         private Set<String> filterPaths;
 
         private boolean ioStatistics;
+
+        private int threads = 1;
+
+        private int binaryThreads = -1;
+
+        private File resumeFile;
         
         private PrintWriter outWriter;
         
@@ -142,6 +148,48 @@ public class Check implements Runnable {
             return this;
         }
         
+        /**
+         * Number of threads traversing the content tree concurrently. This
+         * parameter is not required and defaults to {@code 1}.
+         *
+         * @param threads number of threads. It must be positive.
+         * @return this builder.
+         */
+        public Builder withThreads(int threads) {
+            checkArgument(threads > 0);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Maximum number of binaries read concurrently when scanning the
+         * content of binary properties. This parameter is not required and
+         * defaults to the number of threads traversing the content tree.
+         *
+         * @param binaryThreads maximum number of concurrently read binaries.
+         *                      It must be positive.
+         * @return this builder.
+         */
+        public Builder withBinaryThreads(int binaryThreads) {
+            checkArgument(binaryThreads > 0);
+            this.binaryThreads = binaryThreads;
+            return this;
+        }
+
+        /**
+         * File recording the outcome of every checked path and revision. A
+         * check interrupted before it finished can be resumed by running it
+         * again with the same file. This parameter is not required.
+         *
+         * @param resumeFile the resume file or {@code null} to not record
+         *                   any outcome.
+         * @return this builder.
+         */
+        public Builder withResumeFile(File resumeFile) {
+            this.resumeFile = resumeFile;
+            return this;
+        }
+        
         /**
          * The text output stream writer used to print normal output.
          * @param outWriter the output writer.
@@ -188,6 +236,12 @@ public class Check implements Runnable {
     private final Set<String> filterPaths;
 
     private final boolean ioStatistics;
+
+    private final int threads;
+
+    private final int binaryThreads;
+
+    private final File resumeFile;
     
     private final PrintWriter outWriter;
     
@@ -200,6 +254,9 @@ public class Check implements Runnable {
         this.checkBinaries = builder.checkBinaries;
         this.filterPaths = builder.filterPaths;
         this.ioStatistics = builder.ioStatistics;
+        this.threads = builder.threads;
+        this.binaryThreads = builder.binaryThreads > 0 ? builder.binaryThreads : builder.threads;
+        this.resumeFile = builder.resumeFile;
         this.outWriter = builder.outWriter;
         this.errWriter = builder.errWriter;
     }
@@ -207,7 +264,8 @@ public class Check implements Runnable {
     @Override
     public void run() {
         try {
-            ConsistencyChecker.checkConsistency(path, journal, debugInterval, checkBinaries, filterPaths, ioStatistics, outWriter, errWriter);
+            ConsistencyChecker.checkConsistency(path, journal, debugInterval, checkBinaries, filterPaths, ioStatistics,
+                    threads, binaryThreads, resumeFile, outWriter, errWriter);
         } catch (Exception e) {
             e.printStackTrace();
         }
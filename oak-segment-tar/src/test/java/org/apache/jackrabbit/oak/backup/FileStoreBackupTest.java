@@ -21,16 +21,19 @@ package org.apache.jackrabbit.oak.backup;
 
 import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Random;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.jackrabbit.oak.Oak;
 import org.apache.jackrabbit.oak.api.Blob;
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.backup.impl.FileStoreBackupImpl;
+import org.apache.jackrabbit.oak.backup.impl.FileStoreIncrementalBackupImpl;
 import org.apache.jackrabbit.oak.backup.impl.FileStoreRestoreImpl;
 import org.apache.jackrabbit.oak.InitialContent;
 import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
@@ -108,6 +111,39 @@ public class FileStoreBackupTest {
         source.close();
     }
 
+    @Test
+    public void testIncrementalBackup() throws Exception {
+        FileStore source = newFileStore(src);
+        SegmentNodeStore store = SegmentNodeStoreBuilders.builder(source)
+                .build();
+        FileStoreIncrementalBackup fsb = new FileStoreIncrementalBackupImpl();
+        FileStoreRestore fsr = new FileStoreRestoreImpl();
+
+        try {
+            init(store);
+            fsb.backup(source, destination);
+            compare(source, new File(destination, "000000"));
+            long base = FileUtils.sizeOfDirectory(new File(destination, "000000"));
+
+            addTestContent(store);
+            fsb.backup(source, destination);
+            compare(source, new File(destination, "000001"));
+            assertTrue(FileUtils.sizeOfDirectory(new File(destination, "000001")) < base);
+
+            source.compact();
+            source.cleanup();
+            addTestContent(store);
+            fsb.backup(source, destination);
+            compare(source, new File(destination, "000002"));
+
+            File restored = folder.newFolder("restored");
+            fsr.restore(destination, restored);
+            compare(source, restored);
+        } finally {
+            source.close();
+        }
+    }
+
     private static void addTestContent(NodeStore store)
             throws CommitFailedException, IOException {
         NodeBuilder builder = store.getRoot().builder();
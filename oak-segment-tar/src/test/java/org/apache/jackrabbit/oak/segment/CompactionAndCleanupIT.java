@@ -65,6 +65,7 @@ import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.plugins.blob.ReferenceCollector;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
+import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType;
 import org.apache.jackrabbit.oak.segment.file.FileStore;
 import org.apache.jackrabbit.oak.segment.file.FileStoreGCMonitor;
 import org.apache.jackrabbit.oak.segment.tool.Compact;
@@ -1297,4 +1298,79 @@ public class CompactionAndCleanupIT {
             builder.setProperty(UUID.randomUUID().toString(), UUID.randomUUID().toString());
         }
     }
+
+    @Test
+    public void tailCompaction() throws Exception {
+        SegmentGCOptions gcOptions = defaultGCOptions()
+                .setEstimationDisabled(true)
+                .withGCNodeWriteMonitor(-1);
+        FileStore fileStore = openTailCompactionStore(gcOptions);
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+
+            NodeBuilder builder = nodeStore.getRoot().builder();
+            for (int i = 0; i < 100; i++) {
+                builder.child("a").child("c" + i).setProperty("p", "v" + i);
+                builder.child("b").child("c" + i).setProperty("p", "v" + i);
+            }
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+            // A tail compaction without a previous full compaction falls back to full
+            gcOptions.setGCType(GCType.TAIL);
+            fileStore.gc();
+            assertEquals(GCType.FULL, gcOptions.getGCNodeWriteMonitor().getGCType());
+            RecordId a = ((SegmentNodeState) nodeStore.getRoot().getChildNode("a")).getRecordId();
+
+            for (int k = 0; k < 3; k++) {
+                // Re-open the store as gc() backs off after a successful run
+                fileStore.close();
+                fileStore = openTailCompactionStore(gcOptions);
+                nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+
+                builder = nodeStore.getRoot().builder();
+                builder.child("b").child("c" + k).setProperty("p", "w" + k);
+                builder.child("b").child("d" + k);
+                nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+                fileStore.gc();
+                assertEquals(GCType.TAIL, gcOptions.getGCNodeWriteMonitor().getGCType());
+
+                // Unchanged content from the compacted base is not rewritten
+                NodeState root = nodeStore.getRoot();
+                assertEquals(a, ((SegmentNodeState) root.getChildNode("a")).getRecordId());
+                SegmentId b = ((SegmentNodeState) root.getChildNode("b")).getRecordId().getSegmentId();
+                assertTrue(b.isCompacted());
+                assertEquals(k + 2, b.getGcGeneration());
+            }
+
+            NodeState root = nodeStore.getRoot();
+            for (int i = 0; i < 100; i++) {
+                assertEquals("v" + i, root.getChildNode("a").getChildNode("c" + i).getString("p"));
+                assertEquals(i < 3 ? "w" + i : "v" + i,
+                        root.getChildNode("b").getChildNode("c" + i).getString("p"));
+            }
+            for (int k = 0; k < 3; k++) {
+                assertTrue(root.getChildNode("b").hasChildNode("d" + k));
+            }
+
+            // A full compaction rewrites everything
+            fileStore.close();
+            fileStore = openTailCompactionStore(gcOptions);
+            nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            gcOptions.setGCType(GCType.FULL);
+            fileStore.gc();
+            assertEquals(GCType.FULL, gcOptions.getGCNodeWriteMonitor().getGCType());
+            assertFalse(a.equals(((SegmentNodeState) nodeStore.getRoot().getChildNode("a")).getRecordId()));
+            assertEquals(nodeStore.getRoot(), root);
+        } finally {
+            fileStore.close();
+        }
+    }
+
+    private FileStore openTailCompactionStore(SegmentGCOptions gcOptions) throws Exception {
+        return fileStoreBuilder(getFileStoreFolder())
+                .withMaxFileSize(1)
+                .withGCOptions(gcOptions)
+                .build();
+    }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.jackrabbit.oak.segment;
 
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
 import static org.apache.jackrabbit.oak.segment.SegmentWriterBuilder.segmentWriterBuilder;
 import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.defaultGCOptions;
 import static org.junit.Assert.assertEquals;
@@ -67,6 +68,25 @@ public class CompactorTest {
         assertEquals(store.getRoot(), after);
     }
 
+    @Test
+    public void testParallelCompactor() throws Exception {
+        NodeStore store = SegmentNodeStoreBuilders.builder(memoryStore).build();
+        init(store);
+
+        SegmentWriter writer = segmentWriterBuilder("c").withGeneration(1).withWriterPool().build(memoryStore);
+        Compactor compactor = new Compactor(memoryStore.getReader(), writer,
+                memoryStore.getBlobStore(), Suppliers.ofInstance(false), defaultGCOptions().setConcurrency(4));
+        addTestContent(store, 0);
+
+        NodeState initial = store.getRoot();
+        SegmentNodeState after = compactor.compact(EMPTY_NODE, store.getRoot(), EMPTY_NODE);
+        assertEquals(store.getRoot(), after);
+
+        addTestContent(store, 1);
+        after = compactor.compact(initial, store.getRoot(), initial);
+        assertEquals(store.getRoot(), after);
+    }
+
     @Test
     public void testCancel() throws Throwable {
 
@@ -23,6 +23,7 @@ import static com.google.common.collect.Maps.newLinkedHashMap;
 import static org.apache.jackrabbit.oak.segment.RecordCache.newRecordCache;
 import static org.apache.jackrabbit.oak.segment.TestUtils.newRecordId;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import java.io.IOException;
@@ -86,4 +87,28 @@ public class RecordCacheTest {
         }
     }
 
+    @Test
+    public void setMaxSize() {
+        RecordCache<String> cache = newRecordCache(10);
+        for (int k = 0; k < 10; k ++) {
+            cache.put("key-" + k, newRecordId(idProvider, rnd));
+        }
+        cache.get("key-0");
+
+        // Shrinking evicts the least recently accessed keys
+        cache.setMaxSize(5);
+        assertEquals(5, cache.size());
+        assertNotNull(cache.get("key-0"));
+        for (int k = 1; k < 6; k ++) {
+            assertNull(cache.get("key-" + k));
+        }
+
+        // Growing allows more keys again
+        cache.setMaxSize(20);
+        for (int k = 10; k < 25; k ++) {
+            cache.put("key-" + k, newRecordId(idProvider, rnd));
+        }
+        assertEquals(20, cache.size());
+    }
+
 }
@@ -21,6 +21,7 @@ package org.apache.jackrabbit.oak.segment;
 import static org.apache.jackrabbit.oak.segment.SegmentStore.EMPTY_STORE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -111,4 +112,42 @@ public class SegmentCacheTest {
         assertEquals(0, stats.getRequestCount());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void offHeapTest() throws Exception {
+        // Without on-heap capacity every segment is moved to the off-heap tier right away
+        SegmentCache cache = new SegmentCache(0, 1);
+        SegmentId id = new SegmentId(EMPTY_STORE, -1, -3, cache::recordHit);
+        Segment segment = mock(Segment.class);
+        Segment offHeap = mock(Segment.class);
+        when(segment.getSegmentId()).thenReturn(id);
+        when(segment.copyOffHeap()).thenReturn(offHeap);
+        when(offHeap.getSegmentId()).thenReturn(id);
+        when(offHeap.size()).thenReturn(1024);
+
+        AbstractCacheStats stats = cache.getCacheStats();
+        AbstractCacheStats offHeapStats = cache.getOffHeapCacheStats();
+
+        cache.putSegment(segment);
+        assertEquals(1, offHeapStats.getElementCount());
+        assertEquals(1024, offHeapStats.estimateCurrentWeight());
+        assertEquals(1, stats.getElementCount());
+
+        // Served from the off-heap tier without calling the loader
+        assertSame(offHeap, cache.getSegment(id, () -> {
+            throw new AssertionError("unexpected load");
+        }));
+        assertEquals(1, stats.getHitCount());
+        assertEquals(0, stats.getLoadCount());
+        assertEquals(1, offHeapStats.getHitCount());
+        assertEquals(0, offHeapStats.getMissCount());
+
+        // Clearing the cache clears the off-heap tier too
+        cache.clear();
+        assertEquals(0, offHeapStats.getElementCount());
+        assertEquals(0, offHeapStats.estimateCurrentWeight());
+        assertSame(segment, cache.getSegment(id, () -> segment));
+        assertEquals(1, stats.getLoadCount());
+        assertEquals(1, offHeapStats.getMissCount());
+    }
+
+}
@@ -19,12 +19,19 @@
 
 package org.apache.jackrabbit.oak.segment;
 
+import static org.apache.jackrabbit.oak.segment.TestUtils.newRecordId;
 import static org.apache.jackrabbit.oak.segment.WriterCacheManager.Operation.WRITE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
 
 import org.apache.jackrabbit.oak.segment.WriterCacheManager.Default;
 import org.apache.jackrabbit.oak.segment.WriterCacheManager.Empty;
+import org.apache.jackrabbit.oak.segment.file.PriorityCache;
+import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
+import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.junit.Test;
 
 public class WriteCacheManagerTest {
@@ -51,4 +58,39 @@ public class WriteCacheManagerTest {
                 cache.getStringCache(1, WRITE));
     }
 
+    @Test
+    public void adaptiveSizes() throws Exception {
+        MemoryStore store = new MemoryStore();
+        RecordId id = newRecordId(store.getSegmentIdProvider(), new Random());
+        Default cache = new Default(
+                RecordCache.<String>factory(10000),
+                RecordCache.<Template>factory(10000),
+                PriorityCache.<String, RecordId>factory(16),
+                StatisticsProvider.NOOP,
+                1024 * 1024);
+
+        Cache<String, RecordId> strings = cache.getStringCache(0, WRITE);
+        Cache<Template, RecordId> templates = cache.getTemplateCache(0, WRITE);
+        for (int k = 0; k < 5000; k++) {
+            strings.put("s" + k, id);
+            templates.put(new Template(store.getReader(), null, null, null, "t" + k), id);
+        }
+        for (int k = 0; k < 5000; k++) {
+            assertEquals(id, strings.get("s" + k));
+        }
+
+        // Only the string cache has hits and gets most of the budget
+        cache.tune();
+        assertEquals(5000, cache.getStringCacheStats().getElementCount());
+        long templateCount = cache.getTemplateCacheStats().getElementCount();
+        assertTrue(templateCount > 0 && templateCount < 1000);
+
+        // New generations start with the tuned size
+        templates = cache.getTemplateCache(1, WRITE);
+        for (int k = 0; k < 5000; k++) {
+            templates.put(new Template(store.getReader(), null, null, null, "t" + k), id);
+        }
+        assertEquals(2 * templateCount, cache.getTemplateCacheStats().getElementCount());
+    }
+
 }
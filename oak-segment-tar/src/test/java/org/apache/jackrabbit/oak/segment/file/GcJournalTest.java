@@ -20,6 +20,8 @@
 package org.apache.jackrabbit.oak.segment.file;
 
 import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -82,4 +84,35 @@ public class GcJournalTest {
         List<String> allLines = Files.readAllLines(file.toPath(), UTF_8);
         assertEquals(allLines.size(), 3);
     }
+
+    @Test
+    public void fullGeneration() throws Exception {
+        File directory = segmentFolder.newFolder();
+        GCJournal gc = new GCJournal(directory);
+
+        gc.persist(0, 100, 1, 50, RecordId.NULL.toString10());
+        assertEquals(1, gc.read().getFullGeneration());
+
+        gc.persist(0, 120, 2, 1, 10, RecordId.NULL.toString10());
+        GCJournalEntry e1 = gc.read();
+        assertEquals(2, e1.getGcGeneration());
+        assertEquals(1, e1.getFullGeneration());
+
+        GCJournalEntry e2 = new GCJournal(directory).read();
+        assertEquals(e1, e2);
+    }
+
+    @Test
+    public void readLegacyEntries() throws Exception {
+        File directory = segmentFolder.newFolder();
+        File file = new File(directory, GCJournal.GC_JOURNAL);
+        Files.write(file.toPath(), asList("100,0,42,1,50", "200,10,43,2,60,foo"), UTF_8);
+
+        List<GCJournalEntry> all = newArrayList(new GCJournal(directory).readAll());
+        assertEquals(2, all.size());
+        assertEquals(RecordId.NULL.toString10(), all.get(0).getRoot());
+        assertEquals(1, all.get(0).getFullGeneration());
+        assertEquals("foo", all.get(1).getRoot());
+        assertEquals(2, all.get(1).getFullGeneration());
+    }
 }
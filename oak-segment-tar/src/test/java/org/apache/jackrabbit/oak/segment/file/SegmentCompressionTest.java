@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentCompressionTest {
+
+    private static final long DATA_LSB = 0xAL << 60;
+
+    private static final long BULK_LSB = 0xBL << 60;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutDown() {
+        new ExecutorCloser(executor).close();
+    }
+
+    private FileStore newFileStore(boolean compression) throws Exception {
+        return fileStoreBuilder(folder.getRoot())
+                .withSegmentCompression(compression)
+                .withStatisticsProvider(new DefaultStatisticsProvider(executor))
+                .build();
+    }
+
+    private void addContent(boolean compression, int from, int to) throws Exception {
+        FileStore fileStore = newFileStore(compression);
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            for (int i = from; i < to; i++) {
+                NodeBuilder builder = nodeStore.getRoot().builder();
+                for (int j = 0; j < 100; j++) {
+                    builder.child("n" + i).child("c" + j).setProperty("p", "value " + j);
+                }
+                nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            }
+            fileStore.flush();
+            if (compression) {
+                assertTrue(fileStore.getStats().getSegmentCompressionRatio() > 1);
+            } else {
+                assertEquals(1, fileStore.getStats().getSegmentCompressionRatio(), 0);
+            }
+        } finally {
+            fileStore.close();
+        }
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        byte[] segment = new byte[4096];
+        segment[0] = '0';
+        segment[1] = 'a';
+        segment[2] = 'K';
+
+        byte[] compressed = SegmentCompression.compress(DATA_LSB, segment, 0, segment.length);
+        assertNotNull(compressed);
+        assertTrue(compressed.length < segment.length);
+        assertTrue(SegmentCompression.isCompressed(DATA_LSB, ByteBuffer.wrap(compressed)));
+        assertArrayEquals(segment, SegmentCompression.decompress(DATA_LSB, compressed));
+
+        ByteBuffer uncompressed = ByteBuffer.wrap(segment);
+        assertSame(uncompressed, SegmentCompression.decompress(DATA_LSB, uncompressed));
+    }
+
+    @Test
+    public void decompressHeader() throws Exception {
+        byte[] segment = new byte[4096];
+        segment[0] = '0';
+        segment[1] = 'a';
+        segment[2] = 'K';
+        segment[4] = 1;
+
+        byte[] compressed = SegmentCompression.compress(DATA_LSB, segment, 0, segment.length);
+        assertNotNull(compressed);
+        ByteBuffer header = SegmentCompression.decompressHeader(DATA_LSB, ByteBuffer.wrap(compressed), 16);
+        assertNotNull(header);
+        assertEquals(16, header.remaining());
+        assertEquals(1, header.get(4));
+
+        // not enough compressed data for the header
+        ByteBuffer prefix = ByteBuffer.wrap(compressed, 0, SegmentCompression.HEADER_SIZE).slice();
+        assertNull(SegmentCompression.decompressHeader(DATA_LSB, prefix, 16));
+
+        ByteBuffer uncompressed = ByteBuffer.wrap(segment, 0, 16);
+        assertSame(uncompressed, SegmentCompression.decompressHeader(DATA_LSB, uncompressed, 16));
+    }
+
+    @Test
+    public void incompressibleAndBulkSegments() throws Exception {
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        assertNull(SegmentCompression.compress(DATA_LSB, random, 0, random.length));
+        assertNull(SegmentCompression.compress(BULK_LSB, new byte[4096], 0, 4096));
+
+        // Bulk segments are never interpreted as compressed
+        byte[] bulk = SegmentCompression.compress(DATA_LSB, new byte[4096], 0, 4096);
+        assertSame(bulk, SegmentCompression.decompress(BULK_LSB, bulk));
+    }
+
+    @Test
+    public void mixedStore() throws Exception {
+        addContent(false, 0, 5);
+        addContent(true, 5, 10);
+        addContent(false, 10, 15);
+
+        FileStore fileStore = newFileStore(false);
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            for (int i = 0; i < 15; i++) {
+                for (int j = 0; j < 100; j++) {
+                    assertEquals("value " + j, nodeStore.getRoot().getChildNode("n" + i).getChildNode("c" + j)
+                            .getProperty("p").getValue(Type.STRING));
+                }
+            }
+            assertTrue(fileStore.getStats().getSegmentDecompressionCount() > 0);
+        } finally {
+            fileStore.close();
+        }
+    }
+
+}
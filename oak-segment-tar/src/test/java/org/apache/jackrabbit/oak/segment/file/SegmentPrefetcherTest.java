@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.oak.segment.Segment;
+import org.apache.jackrabbit.oak.segment.SegmentId;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentPrefetcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    private static class PrefetchMonitor extends IOMonitorAdapter {
+
+        final CountDownLatch prefetched = new CountDownLatch(1);
+
+        final AtomicInteger hits = new AtomicInteger();
+
+        volatile UUID prefetchedId;
+
+        @Override
+        public void afterSegmentPrefetch(long msb, long lsb, int length) {
+            prefetchedId = new UUID(msb, lsb);
+            prefetched.countDown();
+        }
+
+        @Override
+        public void onSegmentPrefetchHit(long msb, long lsb) {
+            hits.incrementAndGet();
+        }
+
+    }
+
+    @Test
+    public void prefetchReferencedSegments() throws Exception {
+        FileStore fileStore = fileStoreBuilder(folder.getRoot()).build();
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            NodeBuilder builder = nodeStore.getRoot().builder();
+            for (int i = 0; i < 100; i++) {
+                builder.setChildNode("n" + i).setProperty("p", "v" + i);
+            }
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            fileStore.flush();
+
+            // The new head state references the nodes written before
+            builder = nodeStore.getRoot().builder();
+            builder.setProperty("p", "v");
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            fileStore.flush();
+        } finally {
+            fileStore.close();
+        }
+
+        PrefetchMonitor monitor = new PrefetchMonitor();
+        fileStore = fileStoreBuilder(folder.getRoot())
+                .withSegmentPrefetchThreads(1)
+                .withIOMonitor(monitor)
+                .build();
+        try {
+            Segment head = fileStore.getHead().getRecordId().getSegment();
+            assertTrue(head.getReferencedSegmentIdCount() > 0);
+            assertTrue(monitor.prefetched.await(10, SECONDS));
+            assertEquals(0, monitor.hits.get());
+
+            UUID uuid = monitor.prefetchedId;
+            SegmentId id = fileStore.getSegmentIdProvider()
+                    .newSegmentId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            id.getSegment();
+            assertEquals(1, monitor.hits.get());
+
+            // Further accesses are served by the segment id and are no prefetch hits
+            id.getSegment();
+            assertEquals(1, monitor.hits.get());
+        } finally {
+            fileStore.close();
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TarIndexCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    private void addContent(int from, int to) throws Exception {
+        FileStore fileStore = fileStoreBuilder(folder.getRoot()).withMaxFileSize(1).build();
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            for (int i = from; i < to; i++) {
+                NodeBuilder builder = nodeStore.getRoot().builder();
+                builder.setChildNode("n" + i).setProperty("p", new byte[512 * 1024]);
+                nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+                fileStore.flush();
+            }
+        } finally {
+            fileStore.close();
+        }
+    }
+
+    private void assertContent(int count) throws Exception {
+        FileStore fileStore = fileStoreBuilder(folder.getRoot()).withMaxFileSize(1).build();
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            for (int i = 0; i < count; i++) {
+                assertTrue(nodeStore.getRoot().hasChildNode("n" + i));
+            }
+        } finally {
+            fileStore.close();
+        }
+    }
+
+    private File[] tarFiles() {
+        return folder.getRoot().listFiles((dir, name) -> name.endsWith(".tar"));
+    }
+
+    @Test
+    public void cacheTarIndexes() throws Exception {
+        addContent(0, 5);
+        assertContent(5);
+
+        // Every tar file closed before the last store has been closed is cached
+        TarIndexCache cache = TarIndexCache.load(folder.getRoot());
+        int cached = 0;
+        for (File file : tarFiles()) {
+            TarIndexCache.Entry entry = cache.get(file);
+            if (entry != null) {
+                assertTrue(entry.getIndex().hasRemaining());
+                assertNotNull(entry.getGraph());
+                cached++;
+            }
+        }
+        assertEquals(tarFiles().length, cached);
+    }
+
+    @Test
+    public void staleEntry() throws Exception {
+        addContent(0, 3);
+        assertContent(3);
+
+        File file = tarFiles()[0];
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        assertNull(TarIndexCache.load(folder.getRoot()).get(file));
+
+        // Tar files with stale entries are read as usual
+        assertContent(3);
+        assertNotNull(TarIndexCache.load(folder.getRoot()).get(file));
+    }
+
+    @Test
+    public void corruptCache() throws Exception {
+        addContent(0, 3);
+        assertContent(3);
+
+        File sidecar = new File(folder.getRoot(), TarIndexCache.FILE_NAME);
+        try (RandomAccessFile access = new RandomAccessFile(sidecar, "rw")) {
+            access.seek(access.length() / 2);
+            int b = access.read();
+            access.seek(access.length() / 2);
+            access.write(~b);
+        }
+        assertNull(TarIndexCache.load(folder.getRoot()).get(tarFiles()[0]));
+
+        addContent(3, 5);
+        assertContent(5);
+    }
+
+    @Test
+    public void saveWhileLoaded() throws Exception {
+        addContent(0, 3);
+        assertContent(3);
+
+        // The sidecar is replaced while entries loaded from it are in use
+        TarIndexCache cache = TarIndexCache.load(folder.getRoot());
+        TarIndexCache.Entry entry = cache.get(tarFiles()[0]);
+        assertNotNull(entry);
+        ByteBuffer index = entry.getIndex();
+        cache.save();
+
+        assertEquals(index, entry.getIndex());
+        assertEquals(index, TarIndexCache.load(folder.getRoot()).get(tarFiles()[0]).getIndex());
+    }
+
+    @Test
+    public void missingCache() throws Exception {
+        addContent(0, 3);
+        FileUtils.forceDelete(new File(folder.getRoot(), TarIndexCache.FILE_NAME));
+        assertContent(3);
+    }
+
+}
@@ -45,7 +45,7 @@ public class TarWriterTest {
         // not dirty, will not create a new writer
         TarWriter t1 = t0.createNextGeneration();
         assertEquals(t0, t1);
-        assertTrue(t1.getFile().getName().contains("" + counter));
+        assertTrue(t1.getFileName().contains("" + counter));
 
         // dirty, will create a new writer
         UUID id = UUID.randomUUID();
@@ -57,7 +57,7 @@ public class TarWriterTest {
         TarWriter t2 = t1.createNextGeneration();
         assertNotEquals(t1, t2);
         assertTrue(t1.isClosed());
-        assertTrue(t2.getFile().getName().contains("" + (counter + 1)));
+        assertTrue(t2.getFileName().contains("" + (counter + 1)));
     }
 
 }
@@ -25,6 +25,7 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.apache.jackrabbit.oak.segment.tool.Check;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -73,6 +74,93 @@ public class CheckInvalidRepositoryTest extends CheckRepositoryTestBase {
         assertExpectedOutput(strErr.toString(), Lists.newArrayList("Error while traversing /"));
     }
     
+    @Test
+    public void testInvalidRevisionFallbackOnValidWithThreads() {
+        StringWriter strOut = new StringWriter();
+        StringWriter strErr = new StringWriter();
+        
+        PrintWriter outWriter = new PrintWriter(strOut, true);
+        PrintWriter errWriter = new PrintWriter(strErr, true);
+        
+        Set<String> filterPaths = new LinkedHashSet<>();
+        filterPaths.add("/");
+        
+        Check.builder()
+        .withPath(new File(temporaryFolder.getRoot().getAbsolutePath()))
+        .withJournal("journal.log")
+        .withDebugInterval(Long.MAX_VALUE)
+        .withCheckBinaries(true)
+        .withFilterPaths(filterPaths)
+        .withThreads(4)
+        .withBinaryThreads(2)
+        .withOutWriter(outWriter)
+        .withErrWriter(errWriter)
+        .build()
+        .run();
+        
+        outWriter.close();
+        errWriter.close();
+        
+        assertExpectedOutput(strOut.toString(), Lists.newArrayList("Checked 7 nodes and 21 properties", "Path / is consistent", 
+                 "Searched through 2 revisions"));
+        assertExpectedOutput(strErr.toString(), Lists.newArrayList("Error while traversing /"));
+    }
+
+    @Test
+    public void testResumeInterruptedCheck() throws Exception {
+        File resumeFile = new File(temporaryFolder.getRoot(), "check.resume");
+
+        Set<String> filterPaths = new LinkedHashSet<>();
+        filterPaths.add("/");
+
+        StringWriter strOut = new StringWriter();
+        PrintWriter outWriter = new PrintWriter(strOut, true);
+        PrintWriter errWriter = new PrintWriter(new StringWriter(), true);
+
+        Check.builder()
+        .withPath(new File(temporaryFolder.getRoot().getAbsolutePath()))
+        .withJournal("journal.log")
+        .withDebugInterval(Long.MAX_VALUE)
+        .withCheckBinaries(true)
+        .withFilterPaths(filterPaths)
+        .withResumeFile(resumeFile)
+        .withOutWriter(outWriter)
+        .withErrWriter(errWriter)
+        .build()
+        .run();
+
+        outWriter.close();
+        errWriter.close();
+
+        assertExpectedOutput(strOut.toString(), Lists.newArrayList("Path / is consistent"));
+
+        // A second run takes all outcomes from the resume file
+        strOut = new StringWriter();
+        StringWriter strErr = new StringWriter();
+        outWriter = new PrintWriter(strOut, true);
+        errWriter = new PrintWriter(strErr, true);
+
+        Check.builder()
+        .withPath(new File(temporaryFolder.getRoot().getAbsolutePath()))
+        .withJournal("journal.log")
+        .withDebugInterval(Long.MAX_VALUE)
+        .withCheckBinaries(true)
+        .withFilterPaths(filterPaths)
+        .withResumeFile(resumeFile)
+        .withOutWriter(outWriter)
+        .withErrWriter(errWriter)
+        .build()
+        .run();
+
+        outWriter.close();
+        errWriter.close();
+
+        assertExpectedOutput(strOut.toString(), Lists.newArrayList("Path / already checked, resuming",
+                "Path / is consistent", "Searched through 2 revisions"));
+        Assert.assertFalse(strOut.toString().contains("Checked 7 nodes"));
+        Assert.assertEquals("", strErr.toString());
+    }
+    
     @Test
     public void testPartialBrokenPathWithoutValidRevision() {
         StringWriter strOut = new StringWriter();
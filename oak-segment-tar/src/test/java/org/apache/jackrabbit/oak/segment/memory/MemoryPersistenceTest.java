@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.memory;
+
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.ReadOnlyFileStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MemoryPersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    @Test
+    public void reopen() throws Exception {
+        MemoryPersistence persistence = new MemoryPersistence();
+
+        FileStore fileStore = fileStoreBuilder(folder.getRoot())
+                .withCustomPersistence(persistence)
+                .build();
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            NodeBuilder builder = nodeStore.getRoot().builder();
+            builder.setChildNode("a").setProperty("p", "v");
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            fileStore.flush();
+        } finally {
+            fileStore.close();
+        }
+
+        assertTrue(persistence.segmentFilesExist());
+        assertEquals(0, folder.getRoot().list().length);
+
+        ReadOnlyFileStore readOnly = fileStoreBuilder(folder.getRoot())
+                .withCustomPersistence(persistence)
+                .buildReadOnly();
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(readOnly).build();
+            assertEquals("v", nodeStore.getRoot().getChildNode("a").getString("p"));
+        } finally {
+            readOnly.close();
+        }
+    }
+
+    @Test
+    public void compactAndCleanup() throws Exception {
+        MemoryPersistence persistence = new MemoryPersistence();
+
+        FileStore fileStore = fileStoreBuilder(folder.getRoot())
+                .withCustomPersistence(persistence)
+                .withMaxFileSize(1)
+                .build();
+        try {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            for (int i = 0; i < 10; i++) {
+                NodeBuilder builder = nodeStore.getRoot().builder();
+                builder.setChildNode("a").setProperty("p", "v" + i);
+                nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+                fileStore.flush();
+            }
+
+            assertTrue(fileStore.compact());
+            fileStore.cleanup();
+
+            assertEquals("v9", nodeStore.getRoot().getChildNode("a").getString("p"));
+        } finally {
+            fileStore.close();
+        }
+    }
+
+    @Test
+    public void overlapping() throws Exception {
+        MemoryPersistence persistence = new MemoryPersistence();
+
+        FileStore fileStore = fileStoreBuilder(folder.getRoot())
+                .withCustomPersistence(persistence)
+                .build();
+        try {
+            fileStoreBuilder(folder.getRoot())
+                    .withCustomPersistence(persistence)
+                    .build();
+            fail("should not be able to open 2 stores on the same persistence");
+        } catch (IllegalStateException expected) {
+            // expected
+        } finally {
+            fileStore.close();
+        }
+
+        assertFalse(folder.getRoot().list().length > 0);
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.scheduler;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitHook;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+public class LockFreeSchedulerTest {
+
+    private static final CommitHook FAILING_HOOK = (before, after, info) -> {
+        throw new CommitFailedException("Test", 1, "failed");
+    };
+
+    private static NodeState getRoot(Scheduler scheduler) {
+        return scheduler.getHeadNodeState().getChildNode("root");
+    }
+
+    private static Commit createCommit(Scheduler scheduler, String property, CommitHook hook) {
+        NodeBuilder builder = getRoot(scheduler).builder();
+        builder.setProperty(property, property);
+        return new Commit(builder, hook, CommitInfo.EMPTY);
+    }
+
+    @Test
+    public void concurrentCommits() throws Exception {
+        MemoryStore store = new MemoryStore();
+        LockFreeScheduler scheduler = LockFreeScheduler.builder(store.getRevisions(), store.getReader()).build();
+
+        int threads = 32;
+        int commits = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int c = 0; c < commits; c++) {
+                        CommitHook hook = c % 5 == 0 ? FAILING_HOOK : EmptyHook.INSTANCE;
+                        try {
+                            scheduler.schedule(createCommit(scheduler, "p-" + thread + "-" + c, hook));
+                        } catch (CommitFailedException e) {
+                            assertTrue(hook == FAILING_HOOK);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        NodeState root = getRoot(scheduler);
+        for (int t = 0; t < threads; t++) {
+            for (int c = 0; c < commits; c++) {
+                assertEquals(c % 5 != 0, root.hasProperty("p-" + t + "-" + c));
+            }
+        }
+    }
+
+    @Test
+    public void failingCommitDoesNotAffectOthers() throws Exception {
+        MemoryStore store = new MemoryStore();
+        LockFreeScheduler scheduler = LockFreeScheduler.builder(store.getRevisions(), store.getReader()).build();
+
+        try {
+            scheduler.schedule(createCommit(scheduler, "a", FAILING_HOOK));
+        } catch (CommitFailedException expected) {
+            // expected
+        }
+        scheduler.schedule(createCommit(scheduler, "b", EmptyHook.INSTANCE));
+
+        NodeState root = getRoot(scheduler);
+        assertFalse(root.hasProperty("a"));
+        assertTrue(root.hasProperty("b"));
+    }
+
+    @Test
+    public void unexpectedExceptionOnlyFailsItsCommit() throws Exception {
+        MemoryStore store = new MemoryStore();
+        LockFreeScheduler scheduler = LockFreeScheduler.builder(store.getRevisions(), store.getReader()).build();
+
+        CommitHook throwing = (before, after, info) -> {
+            throw new IllegalStateException("unexpected");
+        };
+        try {
+            scheduler.schedule(createCommit(scheduler, "a", throwing));
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        scheduler.schedule(createCommit(scheduler, "b", EmptyHook.INSTANCE));
+
+        NodeState root = getRoot(scheduler);
+        assertFalse(root.hasProperty("a"));
+        assertTrue(root.hasProperty("b"));
+    }
+
+    @Test
+    public void checkpoints() throws Exception {
+        MemoryStore store = new MemoryStore();
+        LockFreeScheduler scheduler = LockFreeScheduler.builder(store.getRevisions(), store.getReader()).build();
+
+        scheduler.schedule(createCommit(scheduler, "a", EmptyHook.INSTANCE));
+        String cp = scheduler.checkpoint(60000, Collections.<String, String>emptyMap());
+        scheduler.schedule(createCommit(scheduler, "b", EmptyHook.INSTANCE));
+
+        NodeState checkpoint = scheduler.getHeadNodeState().getChildNode("checkpoints").getChildNode(cp);
+        assertTrue(checkpoint.getChildNode("root").hasProperty("a"));
+        assertFalse(checkpoint.getChildNode("root").hasProperty("b"));
+        assertTrue(getRoot(scheduler).hasProperty("b"));
+
+        assertTrue(scheduler.removeCheckpoint(cp));
+        assertFalse(scheduler.getHeadNodeState().getChildNode("checkpoints").hasChildNode(cp));
+    }
+
+}
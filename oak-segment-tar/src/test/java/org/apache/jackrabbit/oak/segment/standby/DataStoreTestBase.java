@@ -124,6 +124,37 @@ public abstract class DataStoreTestBase extends TestBase {
         assertArrayEquals(data, testData);
     }
 
+    @Test
+    public void testSyncWithBlobThreads() throws Exception {
+        final int blobSize = 5 * MB;
+        FileStore primary = getPrimary();
+        FileStore secondary = getSecondary();
+
+        NodeStore store = SegmentNodeStoreBuilders.builder(primary).build();
+        byte[] data = addTestContent(store, "server", blobSize);
+        byte[] other = addTestContent(store, "other", blobSize);
+        try (
+                StandbyServerSync serverSync = new StandbyServerSync(serverPort.getPort(), primary);
+                StandbyClientSync cl = new StandbyClientSync(getServerHost(), serverPort.getPort(), secondary, false, getClientTimeout(), false, 1, 2)
+        ) {
+            serverSync.start();
+            primary.flush();
+            cl.run();
+            assertEquals(primary.getHead(), secondary.getHead());
+        }
+
+        for (String child : new String[] {"server", "other"}) {
+            PropertyState ps = secondary.getHead().getChildNode("root")
+                    .getChildNode(child).getProperty("testBlob");
+            assertNotNull(ps);
+            Blob b = ps.getValue(Type.BINARY);
+            assertEquals(blobSize, b.length());
+            byte[] testData = new byte[blobSize];
+            ByteStreams.readFully(b.getNewStream(), testData);
+            assertArrayEquals("server".equals(child) ? data : other, testData);
+        }
+    }
+
     /*
      * See OAK-4969.
      */
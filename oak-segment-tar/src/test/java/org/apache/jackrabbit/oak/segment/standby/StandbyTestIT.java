@@ -99,6 +99,34 @@ public class StandbyTestIT extends TestBase {
         }
     }
 
+    @Test
+    public void testSyncWithWindow() throws Exception {
+        final int blobSize = 25 * 1024;
+        final int dataNodes = 5000;
+
+        FileStore primary = serverFileStore.fileStore();
+        FileStore secondary = clientFileStore.fileStore();
+
+        NodeStore store = SegmentNodeStoreBuilders.builder(primary).build();
+        try (
+                StandbyServerSync serverSync = new StandbyServerSync(serverPort.getPort(), primary);
+                StandbyClientSync clientSync = new StandbyClientSync(getServerHost(), serverPort.getPort(), secondary, false, getClientTimeout(), false, 16)
+        ) {
+            serverSync.start();
+            addTestContent(store, "server", blobSize, dataNodes);
+            primary.flush();
+
+            clientSync.run();
+            assertEquals(primary.getHead(), secondary.getHead());
+
+            addTestContent(store, "update", blobSize, dataNodes);
+            primary.flush();
+
+            clientSync.run();
+            assertEquals(primary.getHead(), secondary.getHead());
+        }
+    }
+
     /**
      * OAK-2430
      */
@@ -17,6 +17,7 @@
 
 package org.apache.jackrabbit.oak.segment.standby.codec;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -34,6 +35,24 @@ public class RequestDecoderTest {
         assertEquals("blobId", request.getBlobId());
     }
 
+    @Test
+    public void shouldDecodeValidGetBlobChunkRequests() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new RequestDecoder());
+        channel.writeInbound(Messages.newGetBlobChunkRequest("clientId", "blob.Id", 42, 1024, false));
+        GetBlobChunkRequest request = (GetBlobChunkRequest) channel.readInbound();
+        assertEquals("clientId", request.getClientId());
+        assertEquals("blob.Id", request.getBlobId());
+        assertEquals(42, request.getOffset());
+        assertEquals(1024, request.getLength());
+    }
+
+    @Test
+    public void shouldDropInvalidGetBlobChunkRequests() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new RequestDecoder());
+        channel.writeInbound("Standby-CMD@clientId:bc.x.1.blobId");
+        assertNull(channel.readInbound());
+    }
+
     @Test
     public void shouldDecodeValidGetHeadRequests() throws Exception {
         EmbeddedChannel channel = new EmbeddedChannel(new RequestDecoder());
@@ -51,6 +70,15 @@ public class RequestDecoderTest {
         assertEquals("segmentId", request.getSegmentId());
     }
 
+    @Test
+    public void shouldDecodeValidGetSegmentsRequests() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new RequestDecoder());
+        channel.writeInbound(Messages.newGetSegmentsRequest("clientId", asList("a", "b"), false));
+        GetSegmentsRequest request = (GetSegmentsRequest) channel.readInbound();
+        assertEquals("clientId", request.getClientId());
+        assertEquals(asList("a", "b"), request.getSegmentIds());
+    }
+
     @Test
     public void shouldDecodeValidGetReferencesRequests() throws Exception {
         EmbeddedChannel channel = new EmbeddedChannel(new RequestDecoder());
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.standby.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkRequest;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetBlobChunkResponse;
+import org.junit.Test;
+
+public class GetBlobChunkRequestHandlerTest {
+
+    @Test
+    public void successfulReadsShouldGenerateResponses() throws Exception {
+        byte[] data = new byte[] {3, 4};
+
+        StandbyBlobReader reader = mock(StandbyBlobReader.class);
+        when(reader.getBlobLength("blobId")).thenReturn(5L);
+        when(reader.readBlobChunk("blobId", 3, 2)).thenReturn(data);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new GetBlobChunkRequestHandler(reader));
+        channel.writeInbound(new GetBlobChunkRequest("clientId", "blobId", 3, 1024));
+        GetBlobChunkResponse response = (GetBlobChunkResponse) channel.readOutbound();
+        assertEquals("clientId", response.getClientId());
+        assertEquals("blobId", response.getBlobId());
+        assertEquals(3, response.getOffset());
+        assertEquals(5, response.getBlobLength());
+        assertArrayEquals(data, response.getChunkData());
+    }
+
+    @Test
+    public void unsuccessfulReadsShouldBeDiscarded() throws Exception {
+        StandbyBlobReader reader = mock(StandbyBlobReader.class);
+        when(reader.getBlobLength("blobId")).thenReturn(-1L);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new GetBlobChunkRequestHandler(reader));
+        channel.writeInbound(new GetBlobChunkRequest("clientId", "blobId", 0, 1024));
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void offsetsBeyondTheEndShouldBeDiscarded() throws Exception {
+        StandbyBlobReader reader = mock(StandbyBlobReader.class);
+        when(reader.getBlobLength("blobId")).thenReturn(5L);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new GetBlobChunkRequestHandler(reader));
+        channel.writeInbound(new GetBlobChunkRequest("clientId", "blobId", 6, 1024));
+        assertNull(channel.readOutbound());
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.standby.server;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentResponse;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentsRequest;
+import org.junit.Test;
+
+public class GetSegmentsRequestHandlerTest {
+
+    @Test
+    public void successfulReadsShouldGenerateResponses() throws Exception {
+        byte[] a = new byte[] {3, 4, 5};
+        byte[] b = new byte[] {6, 7};
+
+        StandbySegmentReader reader = mock(StandbySegmentReader.class);
+        when(reader.readSegment("a")).thenReturn(a);
+        when(reader.readSegment("b")).thenReturn(b);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new GetSegmentsRequestHandler(reader));
+        channel.writeInbound(new GetSegmentsRequest("clientId", asList("a", "b")));
+
+        GetSegmentResponse response = (GetSegmentResponse) channel.readOutbound();
+        assertEquals("clientId", response.getClientId());
+        assertEquals("a", response.getSegmentId());
+        assertArrayEquals(a, response.getSegmentData());
+
+        response = (GetSegmentResponse) channel.readOutbound();
+        assertEquals("b", response.getSegmentId());
+        assertArrayEquals(b, response.getSegmentData());
+
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void unsuccessfulReadsShouldStopTheTransfer() throws Exception {
+        byte[] b = new byte[] {6, 7};
+
+        StandbySegmentReader reader = mock(StandbySegmentReader.class);
+        when(reader.readSegment("a")).thenReturn(null);
+        when(reader.readSegment("b")).thenReturn(b);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new GetSegmentsRequestHandler(reader));
+        channel.writeInbound(new GetSegmentsRequest("clientId", asList("a", "b")));
+        assertNull(channel.readOutbound());
+    }
+
+}